@@ -0,0 +1,151 @@
+package com.flyroamy.mock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Platform request threads against virtual request threads and the reactive stack,
+ * with 1k, 5k and 10k concurrent clients.
+ *
+ * Each invocation starts one request per client at once, each on its own virtual
+ * thread and connection, and waits for all of them; requests/s is clients divided by
+ * the score. "provision" creates eSIMs with a plan, "get" reads eSIMs by ICCID. With
+ * platform threads Tomcat serves at most 200 requests at a time and queues the rest;
+ * "reactive" serves from Netty's event loops.
+ *
+ * Runs against the in-memory store by default so the serving mode is all that
+ * varies; add {@code -p storage=mongo} to include the blocking database calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ServingModeBenchmark {
+
+    private static final String AUTHORIZATION = "Basic " + Base64.getEncoder()
+        .encodeToString("maya_test_key:maya_test_secret".getBytes(StandardCharsets.UTF_8));
+    private static final Pattern ICCID = Pattern.compile("\"iccid\"\\s*:\\s*\"(\\d+)\"");
+    private static final String CREATE_BODY = "{\"plan_type_id\":\"usa_5gb_30d\"}";
+
+    @Param({"platform", "virtual", "reactive"})
+    private String mode;
+
+    @Param({"1000", "5000", "10000"})
+    private int clients;
+
+    @Param({"provision", "get"})
+    private String path;
+
+    @Param({"memory"})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private ExecutorService clientThreads;
+    private String baseUrl;
+    private List<String> iccids;
+
+    @Setup(Level.Trial)
+    public void startService() throws Exception {
+        context = new SpringApplicationBuilder(MockEsimServiceApplication.class)
+            .properties(
+                "server.port=0",
+                "mock.storage=" + storage,
+                "spring.main.web-application-type=" + (mode.equals("reactive") ? "reactive" : "servlet"),
+                "spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                "server.tomcat.accept-count=" + clients,
+                "mock.qr-store.enabled=false",
+                "logging.level.com.flyroamy.mock=WARN",
+                "logging.level.org.springframework.data.mongodb=WARN",
+                "logging.level.org.springframework.security=WARN")
+            .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/connectivity/v1/esim";
+
+        clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+        client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(clientThreads)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+
+        iccids = new ArrayList<>(clients);
+        if (path.equals("get")) {
+            for (int i = 0; i < clients; i++) {
+                String body = client.send(createRequest(), HttpResponse.BodyHandlers.ofString()).body();
+                Matcher matcher = ICCID.matcher(body);
+                if (!matcher.find()) {
+                    throw new IllegalStateException("No ICCID in " + body);
+                }
+                iccids.add(matcher.group(1));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopService() {
+        clientThreads.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public int concurrentClients() throws Exception {
+        List<Future<HttpResponse<Void>>> responses = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            HttpRequest request = path.equals("get")
+                ? HttpRequest.newBuilder(URI.create(baseUrl + "/" + iccids.get(i)))
+                    .header("Authorization", AUTHORIZATION).timeout(Duration.ofSeconds(120)).GET().build()
+                : createRequest();
+            responses.add(clientThreads.submit(() -> client.send(request, HttpResponse.BodyHandlers.discarding())));
+        }
+        int succeeded = 0;
+        for (Future<HttpResponse<Void>> response : responses) {
+            if (response.get().statusCode() < 300) {
+                succeeded++;
+            }
+        }
+        if (succeeded != clients) {
+            throw new IllegalStateException((clients - succeeded) + " of " + clients + " requests failed");
+        }
+        return succeeded;
+    }
+
+    private HttpRequest createRequest() {
+        return HttpRequest.newBuilder(URI.create(baseUrl))
+            .header("Authorization", AUTHORIZATION)
+            .header("Content-Type", "application/json")
+            .timeout(Duration.ofSeconds(120))
+            .POST(HttpRequest.BodyPublishers.ofString(CREATE_BODY))
+            .build();
+    }
+}
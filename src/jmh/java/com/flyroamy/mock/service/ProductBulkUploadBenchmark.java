@@ -0,0 +1,81 @@
+package com.flyroamy.mock.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.dto.request.BulkProductUploadRequest;
+import com.flyroamy.mock.dto.request.BulkProductUploadRequest.ProductUploadItem;
+import com.flyroamy.mock.repository.memory.InMemoryProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk upload throughput for 1k, 10k and 100k rows against the in-memory repository.
+ * Each invocation uploads the whole file once; rows/s is rows divided by the score.
+ *
+ * The "create" mode starts from an empty catalog, "update" re-uploads rows that
+ * already exist, and "mixed" has half of each plus some invalid rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ProductBulkUploadBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int rows;
+
+    @Param({"create", "update", "mixed"})
+    private String mode;
+
+    private InMemoryProductRepository repository;
+    private ProductBulkUploadService service;
+    private BulkProductUploadRequest request;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        repository = new InMemoryProductRepository();
+        ProductCatalogCache catalogCache = new ProductCatalogCache(repository);
+        service = new ProductBulkUploadService(repository, catalogCache, new ObjectMapper());
+
+        if (!mode.equals("create")) {
+            int existing = mode.equals("update") ? rows : rows / 2;
+            service.processBulkUpload(request(existing, false));
+        }
+        request = request(rows, mode.equals("mixed"));
+    }
+
+    @Benchmark
+    public ProductBulkUploadService.BulkUploadResult upload() {
+        return service.processBulkUpload(request);
+    }
+
+    private static BulkProductUploadRequest request(int count, boolean withInvalidRows) {
+        List<ProductUploadItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ProductUploadItem item = new ProductUploadItem();
+            item.setProductId("bench_" + i);
+            item.setName("Benchmark plan " + i);
+            item.setCountries(i % 3 == 0 ? "us" : "fr, de, it, es");
+            item.setData((double) (1 + i % 20));
+            item.setDays(withInvalidRows && i % 50 == 0 ? 0 : 7 + i % 23);
+            item.setPrice(4.5 + i % 40);
+            items.add(item);
+        }
+        BulkProductUploadRequest request = new BulkProductUploadRequest();
+        request.setProducts(items);
+        return request;
+    }
+}
@@ -0,0 +1,77 @@
+package com.flyroamy.mock.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ids per second and bytes allocated per id (gc.alloc.rate.norm, from the gc profiler)
+ * for the previous UUID.randomUUID derivations and {@link MatchingIdGenerator}.
+ *
+ * Runs on every available core, as concurrent provisioning does, so contention on the
+ * SecureRandom shared by UUID.randomUUID shows in the "legacy" scores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(Threads.MAX)
+public class MatchingIdGeneratorBenchmark {
+
+    private final MatchingIdGenerator generator = new MatchingIdGenerator();
+
+    @Benchmark
+    public String esimIdLegacy() {
+        return "maya_" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Benchmark
+    public String esimId() {
+        return generator.generateEsimId();
+    }
+
+    @Benchmark
+    public String activationCodeLegacy() {
+        return UUID.randomUUID().toString()
+            .replace("-", "")
+            .substring(0, 16)
+            .toUpperCase();
+    }
+
+    @Benchmark
+    public String activationCode() {
+        return generator.generateActivationCode();
+    }
+
+    @Benchmark
+    public String manualCodeLegacy() {
+        return UUID.randomUUID().toString()
+            .replace("-", "")
+            .toUpperCase() +
+            UUID.randomUUID().toString()
+            .replace("-", "")
+            .substring(0, 16)
+            .toUpperCase();
+    }
+
+    @Benchmark
+    public String manualCode() {
+        return generator.generateManualCode();
+    }
+
+    @Benchmark
+    public String uuidLegacy() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String uuid() {
+        return generator.generate();
+    }
+}
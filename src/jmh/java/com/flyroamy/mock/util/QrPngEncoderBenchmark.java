@@ -0,0 +1,82 @@
+package com.flyroamy.mock.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.client.j2se.MatrixToImageWriter;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QR renders per second and bytes allocated per QR (gc.alloc.rate.norm, from the gc
+ * profiler) for the previous MatrixToImageWriter path and {@link QrPngEncoder}.
+ *
+ * The "encodeOnly" pair starts from a prepared BitMatrix to isolate PNG encoding;
+ * the "render" pair includes QRCodeWriter.encode as QrCodeService does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QrPngEncoderBenchmark {
+
+    private static final int SIZE = 300;
+    private static final String LPA = "LPA:1$smdp.maya.net$K2-4XQ7Z-1M9PLA8-R3T6WY";
+    private static final QRCodeWriter WRITER = new QRCodeWriter();
+    private static final Map<EncodeHintType, Object> HINTS = Map.of(
+        EncodeHintType.CHARACTER_SET, "UTF-8",
+        EncodeHintType.MARGIN, 1);
+
+    private BitMatrix matrix;
+
+    @Setup
+    public void setUp() throws WriterException {
+        matrix = WRITER.encode(LPA, BarcodeFormat.QR_CODE, SIZE, SIZE, HINTS);
+    }
+
+    @Benchmark
+    public byte[] encodeOnlyImageIo() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(matrix, "PNG", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeOnlyLean() {
+        return QrPngEncoder.encode(matrix);
+    }
+
+    /**
+     * The implementation QrCodeService used before: new writer and hints per call
+     */
+    @Benchmark
+    public byte[] renderImageIo() throws WriterException, IOException {
+        QRCodeWriter qrCodeWriter = new QRCodeWriter();
+        Map<EncodeHintType, Object> hints = new HashMap<>();
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        hints.put(EncodeHintType.MARGIN, 1);
+
+        BitMatrix bitMatrix = qrCodeWriter.encode(LPA, BarcodeFormat.QR_CODE, SIZE, SIZE, hints);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] renderLean() throws WriterException {
+        return QrPngEncoder.encode(WRITER.encode(LPA, BarcodeFormat.QR_CODE, SIZE, SIZE, HINTS));
+    }
+}
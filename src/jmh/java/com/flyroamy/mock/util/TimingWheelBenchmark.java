@@ -0,0 +1,51 @@
+package com.flyroamy.mock.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedule-and-advance throughput of {@link TimingWheel} with 1k and 1M expiries
+ * waiting. Each operation schedules one item and advances one tick; deadlines are
+ * spread so that on average one item comes due per tick and the wheel stays at its
+ * starting size. The score should not depend on the number pending.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TimingWheelBenchmark {
+
+    @Param({"1000", "1000000"})
+    private int pending;
+
+    private TimingWheel<Integer> wheel;
+    private SplittableRandom random;
+    private long tick;
+    private int span;
+
+    @Setup
+    public void setUp() {
+        random = new SplittableRandom(42);
+        tick = 1_760_000_000L;
+        span = 2 * pending;
+        wheel = new TimingWheel<>(tick);
+        for (int i = 0; i < pending; i++) {
+            wheel.schedule(i, tick + 1 + random.nextInt(span));
+        }
+    }
+
+    @Benchmark
+    public List<Integer> scheduleAndAdvance() {
+        wheel.schedule(0, tick + 1 + random.nextInt(span));
+        return wheel.advance(tick++);
+    }
+}
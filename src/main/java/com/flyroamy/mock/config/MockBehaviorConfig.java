@@ -3,7 +3,9 @@ package com.flyroamy.mock.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @ConfigurationProperties(prefix = "mock")
@@ -13,27 +15,122 @@ public class MockBehaviorConfig {
     private Failure failure = new Failure();
     private AutoExpire autoExpire = new AutoExpire();
 
-    public static class Latency {
+    /**
+     * Injected response delay. The settings here are the default profile; routes can
+     * override it with their own profile, keyed by path pattern.
+     */
+    public static class Latency extends LatencyProfile {
         private boolean enabled = false;
-        private int minMs = 50;
-        private int maxMs = 200;
+        // Tomcat connection limit while enabled; delayed requests keep their connection open
+        private int maxConnections = 20000;
+        private Map<String, LatencyProfile> routes = new LinkedHashMap<>();
+        private List<String> exclude = List.of("/v1/admin/**", "/actuator/**", "/swagger-ui/**",
+            "/swagger-ui.html", "/api-docs/**", "/v3/api-docs/**");
 
         public boolean isEnabled() { return enabled; }
         public void setEnabled(boolean enabled) { this.enabled = enabled; }
-        public int getMinMs() { return minMs; }
-        public void setMinMs(int minMs) { this.minMs = minMs; }
-        public int getMaxMs() { return maxMs; }
-        public void setMaxMs(int maxMs) { this.maxMs = maxMs; }
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+        public Map<String, LatencyProfile> getRoutes() { return routes; }
+        public void setRoutes(Map<String, LatencyProfile> routes) { this.routes = routes; }
+        public List<String> getExclude() { return exclude; }
+        public void setExclude(List<String> exclude) { this.exclude = exclude; }
+
+        public Latency() {
+            setMinMs(50);
+            setMaxMs(200);
+            setDistribution("uniform");
+            setMedianMs(0);
+            setSigma(0.5);
+            setHistogram(new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * Delay distribution, clamped to [minMs, maxMs]; unset fields of a route profile
+     * fall back to mock.latency
+     */
+    public static class LatencyProfile {
+        private Integer minMs;
+        private Integer maxMs;
+        private String distribution; // uniform, lognormal, histogram
+        private Integer medianMs; // lognormal; 0 = midpoint of min and max
+        private Double sigma; // lognormal
+        private Map<Integer, Long> histogram; // bucket upper bound ms -> recorded count
+
+        public Integer getMinMs() { return minMs; }
+        public void setMinMs(Integer minMs) { this.minMs = minMs; }
+        public Integer getMaxMs() { return maxMs; }
+        public void setMaxMs(Integer maxMs) { this.maxMs = maxMs; }
+        public String getDistribution() { return distribution; }
+        public void setDistribution(String distribution) { this.distribution = distribution; }
+        public Integer getMedianMs() { return medianMs; }
+        public void setMedianMs(Integer medianMs) { this.medianMs = medianMs; }
+        public Double getSigma() { return sigma; }
+        public void setSigma(Double sigma) { this.sigma = sigma; }
+        public Map<Integer, Long> getHistogram() { return histogram; }
+        public void setHistogram(Map<Integer, Long> histogram) { this.histogram = histogram; }
+
+        /**
+         * A copy of this profile with its unset fields taken from the defaults
+         */
+        public LatencyProfile withDefaults(LatencyProfile defaults) {
+            LatencyProfile resolved = new LatencyProfile();
+            resolved.setMinMs(minMs != null ? minMs : defaults.getMinMs());
+            resolved.setMaxMs(maxMs != null ? maxMs : defaults.getMaxMs());
+            resolved.setDistribution(distribution != null ? distribution : defaults.getDistribution());
+            resolved.setMedianMs(medianMs != null ? medianMs : defaults.getMedianMs());
+            resolved.setSigma(sigma != null ? sigma : defaults.getSigma());
+            resolved.setHistogram(histogram != null ? histogram : defaults.getHistogram());
+            return resolved;
+        }
     }
 
+    /**
+     * Injected failures. Rate and types here are the defaults; routes, keyed by path
+     * pattern, and HTTP methods can override the rate.
+     */
     public static class Failure {
         private double rate = 0.0;
+        // SERVER_ERROR, BAD_GATEWAY, SERVICE_UNAVAILABLE, RATE_LIMITED, TIMEOUT, CONNECTION_RESET
         private List<String> types = List.of("TIMEOUT", "SERVER_ERROR");
+        private Map<String, Double> methods = new LinkedHashMap<>(); // HTTP method -> rate
+        private Map<String, FailureProfile> routes = new LinkedHashMap<>();
+        private List<String> exclude = List.of("/v1/admin/**", "/actuator/**", "/swagger-ui/**",
+            "/swagger-ui.html", "/api-docs/**", "/v3/api-docs/**");
+        private int timeoutMs = 30000; // how long a TIMEOUT hangs before answering 504
+        private int retryAfterSeconds = 1; // Retry-After of RATE_LIMITED
 
         public double getRate() { return rate; }
         public void setRate(double rate) { this.rate = rate; }
         public List<String> getTypes() { return types; }
         public void setTypes(List<String> types) { this.types = types; }
+        public Map<String, Double> getMethods() { return methods; }
+        public void setMethods(Map<String, Double> methods) { this.methods = methods; }
+        public Map<String, FailureProfile> getRoutes() { return routes; }
+        public void setRoutes(Map<String, FailureProfile> routes) { this.routes = routes; }
+        public List<String> getExclude() { return exclude; }
+        public void setExclude(List<String> exclude) { this.exclude = exclude; }
+        public int getTimeoutMs() { return timeoutMs; }
+        public void setTimeoutMs(int timeoutMs) { this.timeoutMs = timeoutMs; }
+        public int getRetryAfterSeconds() { return retryAfterSeconds; }
+        public void setRetryAfterSeconds(int retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+    }
+
+    /**
+     * Failure settings of a route; unset rate and types fall back to mock.failure
+     */
+    public static class FailureProfile {
+        private Double rate;
+        private List<String> types;
+        private Map<String, Double> methods = new LinkedHashMap<>(); // HTTP method -> rate
+
+        public Double getRate() { return rate; }
+        public void setRate(Double rate) { this.rate = rate; }
+        public List<String> getTypes() { return types; }
+        public void setTypes(List<String> types) { this.types = types; }
+        public Map<String, Double> getMethods() { return methods; }
+        public void setMethods(Map<String, Double> methods) { this.methods = methods; }
     }
 
     public static class AutoExpire {
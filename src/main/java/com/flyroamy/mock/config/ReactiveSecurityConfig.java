@@ -0,0 +1,52 @@
+package com.flyroamy.mock.config;
+
+import com.flyroamy.mock.security.ReactiveBasicAuthFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+
+/**
+ * {@link SecurityConfig} for the reactive stack
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         @Value("${mock.auth.api-key}") String apiKey,
+                                                         @Value("${mock.auth.api-secret}") String apiSecret) {
+        UrlBasedCorsConfigurationSource corsSource = new UrlBasedCorsConfigurationSource();
+        corsSource.registerCorsConfiguration("/**", SecurityConfig.corsConfiguration());
+
+        http
+            .cors(cors -> cors.configurationSource(corsSource))
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+            // Stateless: every request carries its credentials
+            .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+            .authorizeExchange(auth -> auth
+                // Public endpoints (no auth required)
+                .pathMatchers("/v1/admin/health/**").permitAll()
+                .pathMatchers("/actuator/**").permitAll()
+                .pathMatchers("/swagger-ui/**").permitAll()
+                .pathMatchers("/swagger-ui.html").permitAll()
+                .pathMatchers("/api-docs/**").permitAll()
+                .pathMatchers("/v3/api-docs/**").permitAll()
+                // All other endpoints require authentication
+                .anyExchange().authenticated()
+            )
+            .addFilterAt(new ReactiveBasicAuthFilter(apiKey, apiSecret), SecurityWebFiltersOrder.AUTHENTICATION);
+
+        return http.build();
+    }
+}
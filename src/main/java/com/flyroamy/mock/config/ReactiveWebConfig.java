@@ -0,0 +1,97 @@
+package com.flyroamy.mock.config;
+
+import com.flyroamy.mock.controller.EsimHandler;
+import com.flyroamy.mock.controller.ProductHandler;
+import com.flyroamy.mock.dto.response.MayaApiResponse;
+import com.flyroamy.mock.exception.GlobalExceptionHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Opt-in reactive stack, selected with {@code spring.main.web-application-type=reactive}.
+ *
+ * Serves the eSIM and account endpoints from functional routes on Netty, so requests
+ * waiting on the reactive Mongo driver hold no thread. Admin endpoints keep their
+ * annotated controller, which WebFlux runs as well; its methods block on the services,
+ * so they are invoked on boundedElastic workers rather than the event loop. Latency
+ * and failure injection and the QR image endpoints are servlet filters and controllers
+ * and stay with the servlet stack.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig implements WebFluxConfigurer {
+
+    private static final String ESIM = "/connectivity/v1/esim";
+    private static final String ACCOUNT = "/connectivity/v1/account";
+
+    /**
+     * Netty rather than the Tomcat that the servlet stack puts on the classpath
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(
+            ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        serverCustomizers.orderedStream().forEach(factory::addServerCustomizers);
+        return factory;
+    }
+
+    /**
+     * Annotated controller methods with a plain return type, i.e. the admin endpoints,
+     * run on boundedElastic; seeding, resets and batch updates would stall the event loop
+     */
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        configurer.setExecutor(new TaskExecutorAdapter(task -> Schedulers.boundedElastic().schedule(task)));
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> mayaApiRoutes(EsimHandler esims, ProductHandler products,
+                                                        GlobalExceptionHandler exceptionHandler) {
+        return RouterFunctions.route()
+            .POST(ESIM, esims::createEsim)
+            .POST(ESIM + "/bulk", esims::createEsims)
+            .POST(ESIM + "/lookup", esims::lookupEsims)
+            .GET(ESIM + "/{iccid}", esims::getEsim)
+            .PATCH(ESIM + "/{iccid}", esims::changeEsim)
+            .DELETE(ESIM + "/{iccid}", esims::deleteEsim)
+            .POST(ESIM + "/{iccid}/plan/{planTypeId}", esims::createPlan)
+            .GET(ESIM + "/{iccid}/plans", esims::getEsimPlans)
+            .GET(ESIM + "/{iccid}/regions", esims::getEsimRegions)
+            .GET(ESIM + "/{iccid}/usage", esims::getEsimUsage)
+            .GET(ACCOUNT + "/products", products::getAllProducts)
+            .POST(ACCOUNT + "/products", products::createProduct)
+            .GET(ACCOUNT + "/products/{productId}", products::getProduct)
+            .PUT(ACCOUNT + "/products/{productId}", products::updateProduct)
+            .DELETE(ACCOUNT + "/products/{productId}", products::deleteProduct)
+            .POST(ACCOUNT + "/products/bulk-upload", products::bulkUploadProducts)
+            .POST(ACCOUNT + "/products/bulk-upload/stream",
+                RequestPredicates.contentType(MediaType.APPLICATION_NDJSON, ProductHandler.TEXT_CSV),
+                products::streamBulkUploadProducts)
+            .GET(ACCOUNT + "/balance", products::getAccountBalance)
+            // Same error bodies as the servlet stack; deferred so errors thrown by a handler are caught too
+            .filter((request, next) -> Mono.defer(() -> next.handle(request))
+                .onErrorResume(ex -> {
+                    ResponseEntity<MayaApiResponse<Void>> error = exceptionHandler.handle(ex);
+                    return ServerResponse.status(error.getStatusCode())
+                        .headers(headers -> headers.addAll(error.getHeaders()))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(error.getBody());
+                }))
+            .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.flyroamy.mock.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Switches off the Mongo auto-configuration when {@code mock.storage=memory}, so the
+ * service starts without a database and the in-memory repositories take over. The
+ * reactive Mongo driver is likewise switched off unless the reactive stack is selected
+ * with {@code spring.main.web-application-type=reactive}.
+ * Registered in META-INF/spring.factories because it must run before auto-configuration
+ * conditions are evaluated.
+ */
+public class StorageModeEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    public static final String STORAGE_PROPERTY = "mock.storage";
+    public static final String MEMORY = "memory";
+
+    private static final String EXCLUDE_PROPERTY = "spring.autoconfigure.exclude";
+    private static final String WEB_TYPE_PROPERTY = "spring.main.web-application-type";
+
+    private static final List<String> MONGO_AUTO_CONFIGURATIONS = List.of(
+        "org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration"
+    );
+
+    private static final List<String> REACTIVE_MONGO_AUTO_CONFIGURATIONS = List.of(
+        "org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration",
+        "org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration"
+    );
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        boolean memory = MEMORY.equalsIgnoreCase(environment.getProperty(STORAGE_PROPERTY, "mongo"));
+        boolean reactive = WebApplicationType.REACTIVE.name().equalsIgnoreCase(
+            environment.getProperty(WEB_TYPE_PROPERTY, application.getWebApplicationType().name()));
+
+        Set<String> excludes = new LinkedHashSet<>(
+            Arrays.asList(environment.getProperty(EXCLUDE_PROPERTY, String[].class, new String[0])));
+        if (memory) {
+            excludes.addAll(MONGO_AUTO_CONFIGURATIONS);
+        }
+        if (memory || !reactive) {
+            excludes.addAll(REACTIVE_MONGO_AUTO_CONFIGURATIONS);
+        }
+
+        environment.getPropertySources().addFirst(new MapPropertySource("mockStorageMode",
+            Map.of(EXCLUDE_PROPERTY, String.join(",", excludes))));
+    }
+}
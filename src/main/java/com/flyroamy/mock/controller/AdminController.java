@@ -1,11 +1,20 @@
 package com.flyroamy.mock.controller;
 
+import com.flyroamy.mock.dto.request.BatchUsageRequest;
 import com.flyroamy.mock.dto.request.ForceStatusRequest;
 import com.flyroamy.mock.dto.request.SimulateUsageRequest;
+import com.flyroamy.mock.dto.request.TrafficGeneratorRequest;
 import com.flyroamy.mock.model.MockEsim;
 import com.flyroamy.mock.service.DataSeederService;
+import com.flyroamy.mock.service.EsimExpiryService;
 import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.service.EsimStatusCounters;
 import com.flyroamy.mock.service.ProductService;
+import com.flyroamy.mock.service.QrCodeService;
+import com.flyroamy.mock.service.ReadinessMonitor;
+import com.flyroamy.mock.service.ThreadPinningMonitor;
+import com.flyroamy.mock.service.TrafficGeneratorService;
+import com.flyroamy.mock.service.UsageBatchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -15,6 +24,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -27,27 +37,51 @@ public class AdminController {
     private final EsimService esimService;
     private final ProductService productService;
     private final DataSeederService dataSeederService;
-
-    public AdminController(EsimService esimService, ProductService productService, DataSeederService dataSeederService) {
+    private final QrCodeService qrCodeService;
+    private final UsageBatchService usageBatchService;
+    private final TrafficGeneratorService trafficGeneratorService;
+    private final EsimExpiryService expiryService;
+    private final ThreadPinningMonitor pinningMonitor;
+    private final EsimStatusCounters statusCounters;
+    private final ReadinessMonitor readinessMonitor;
+
+    public AdminController(EsimService esimService, ProductService productService,
+                           DataSeederService dataSeederService, QrCodeService qrCodeService,
+                           UsageBatchService usageBatchService, TrafficGeneratorService trafficGeneratorService,
+                           EsimExpiryService expiryService, ThreadPinningMonitor pinningMonitor,
+                           EsimStatusCounters statusCounters, ReadinessMonitor readinessMonitor) {
         this.esimService = esimService;
         this.productService = productService;
         this.dataSeederService = dataSeederService;
+        this.qrCodeService = qrCodeService;
+        this.usageBatchService = usageBatchService;
+        this.trafficGeneratorService = trafficGeneratorService;
+        this.expiryService = expiryService;
+        this.pinningMonitor = pinningMonitor;
+        this.statusCounters = statusCounters;
+        this.readinessMonitor = readinessMonitor;
     }
 
     @GetMapping("/health")
-    @Operation(summary = "Health check", description = "Check if the service is healthy (public endpoint)")
+    @Operation(summary = "Liveness check", description = "Check that the service is up, without touching the database (public endpoint)")
     public ResponseEntity<Map<String, Object>> health() {
         return ResponseEntity.ok(Map.of(
             "status", "UP",
             "service", "mock-esim-service",
-            "timestamp", Instant.now().toString(),
-            "statistics", Map.of(
-                "products", productService.getProductCount(),
-                "esims", esimService.getStatistics()
-            )
+            "timestamp", Instant.now().toString()
         ));
     }
 
+    @GetMapping("/health/ready")
+    @Operation(summary = "Readiness check",
+        description = "Database and catalog state from a snapshot refreshed in the background; 503 when not ready (public endpoint)")
+    public ResponseEntity<Map<String, Object>> readiness() {
+        Map<String, Object> status = new LinkedHashMap<>(readinessMonitor.getStatus());
+        status.put("esims", esimService.getStatistics());
+
+        return ResponseEntity.status(readinessMonitor.isReady() ? 200 : 503).body(status);
+    }
+
     @PostMapping("/simulate/usage")
     @Operation(summary = "Simulate data usage", description = "Simulate data usage on an eSIM for testing")
     public ResponseEntity<Map<String, Object>> simulateUsage(@Valid @RequestBody SimulateUsageRequest request) {
@@ -65,6 +99,50 @@ public class AdminController {
         ));
     }
 
+    @PostMapping("/simulate/usage/batch")
+    @Operation(summary = "Simulate data usage in bulk",
+        description = "Simulate usage for many eSIMs in one call. Records for the same eSIM are summed; "
+            + "only records that were not applied are listed in the response.")
+    public ResponseEntity<Map<String, Object>> simulateUsageBatch(@Valid @RequestBody BatchUsageRequest request) {
+        logger.info("Simulating batch usage with {} records", request.getRecords().size());
+
+        UsageBatchService.BatchUsageResult result = usageBatchService.simulateUsage(request.getRecords());
+
+        return ResponseEntity.ok(Map.of(
+            "success", result.getFailures().isEmpty(),
+            "records", result.getRecords(),
+            "esims", result.getEsims(),
+            "applied", result.getApplied(),
+            "outcomes", result.getCounts(),
+            "failures", result.getFailures()
+        ));
+    }
+
+    @PostMapping("/simulate/traffic/start")
+    @Operation(summary = "Start traffic generator",
+        description = "Continuously apply usage to random active eSIMs at a fixed rate until stopped")
+    public ResponseEntity<Map<String, Object>> startTraffic(
+            @Valid @RequestBody(required = false) TrafficGeneratorRequest request) {
+        TrafficGeneratorRequest settings = request != null ? request : new TrafficGeneratorRequest();
+        logger.info("Starting traffic generator at {} events/s", settings.getEventsPerSecond());
+
+        return ResponseEntity.ok(trafficGeneratorService.start(settings));
+    }
+
+    @PostMapping("/simulate/traffic/stop")
+    @Operation(summary = "Stop traffic generator", description = "Stop the traffic generator; batches in flight still complete")
+    public ResponseEntity<Map<String, Object>> stopTraffic() {
+        logger.info("Stopping traffic generator");
+
+        return ResponseEntity.ok(trafficGeneratorService.stop());
+    }
+
+    @GetMapping("/simulate/traffic")
+    @Operation(summary = "Traffic generator status", description = "Live events per second and totals of the current or last run")
+    public ResponseEntity<Map<String, Object>> trafficStatus() {
+        return ResponseEntity.ok(trafficGeneratorService.getStatus());
+    }
+
     @PostMapping("/simulate/status")
     @Operation(summary = "Force status change", description = "Force a status change on an eSIM for testing")
     public ResponseEntity<Map<String, Object>> forceStatus(@Valid @RequestBody ForceStatusRequest request) {
@@ -113,9 +191,20 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> getStatistics() {
         return ResponseEntity.ok(Map.of(
             "products", Map.of(
-                "total", productService.getProductCount()
+                "total", productService.getProductCount(),
+                "cache", productService.getCacheStats()
             ),
-            "esims", esimService.getStatistics()
+            "esims", esimService.getStatistics(),
+            "statusCounters", statusCounters.getStats(),
+            "qrCache", qrCodeService.getCacheStats(),
+            "expiry", expiryService.getStats()
         ));
     }
+
+    @GetMapping("/diagnostics/threads")
+    @Operation(summary = "Thread diagnostics",
+        description = "Serving mode and the code that pins virtual threads to their carriers")
+    public ResponseEntity<Map<String, Object>> getThreadDiagnostics() {
+        return ResponseEntity.ok(pinningMonitor.getStats());
+    }
 }
@@ -0,0 +1,170 @@
+package com.flyroamy.mock.controller;
+
+import com.flyroamy.mock.dto.response.EsimData;
+import com.flyroamy.mock.dto.response.PlanData;
+import com.flyroamy.mock.dto.response.ProductData;
+import com.flyroamy.mock.dto.response.UsageData;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.service.EsimBulkProvisioningService;
+import com.flyroamy.mock.service.ProductBulkUploadService;
+import com.flyroamy.mock.service.UsageHistoryService;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Maps domain models to the Maya API DTOs, shared by the MVC controllers and the
+ * reactive handlers so both stacks return identical bodies.
+ */
+final class ApiResponseMapper {
+
+    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_INSTANT;
+
+    private ApiResponseMapper() {
+    }
+
+    static EsimData toEsimData(MockEsim esim) {
+        EsimData data = new EsimData();
+        data.setUid(esim.getUid());
+        data.setIccid(esim.getIccid());
+        data.setActivationCode(esim.getActivationCode());
+        data.setManualCode(esim.getManualCode());
+        data.setSmdpAddress(esim.getSmdpAddress());
+        data.setAutoApn(esim.getAutoApn());
+        data.setApn(esim.getApn());
+        data.setState(esim.getState() != null ? esim.getState() : esim.getStatus());
+        data.setServiceStatus(esim.getServiceStatus());
+        data.setNetworkStatus(esim.getNetworkStatus());
+        data.setCustomerId(esim.getCustomerId());
+        data.setTag(esim.getTag());
+
+        if (esim.getDateAssigned() != null) {
+            data.setDateAssigned(esim.getDateAssigned().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
+        } else if (esim.getCreatedAt() != null) {
+            data.setDateAssigned(esim.getCreatedAt().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
+        }
+
+        return data;
+    }
+
+    static UsageData toUsageData(MockEsim esim, UsageHistoryService.UsageHistory history) {
+        UsageData data = new UsageData();
+        data.setIccid(esim.getIccid());
+        data.setGranularity(history.granularity());
+        data.setFrom(history.from().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
+        data.setTo(history.to().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
+        data.setTotalDataUsedMB(history.totalDataUsedMB());
+        data.setEvents(history.events());
+        data.setBuckets(history.buckets().stream().map(bucket -> {
+            UsageData.Bucket entry = new UsageData.Bucket();
+            entry.setStart(bucket.getBucketStart().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
+            entry.setEnd(bucket.getBucketEnd().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
+            entry.setGranularity(bucket.getGranularity());
+            entry.setDataUsedMB(bucket.getDataUsedMB());
+            entry.setEvents(bucket.getEvents());
+            return entry;
+        }).collect(Collectors.toList()));
+        return data;
+    }
+
+    /**
+     * Distinct product ids of the given plans, to resolve each product once
+     */
+    static Set<String> productIdsOf(List<MockEsim.AttachedPlan> plans) {
+        return plans.stream()
+            .map(MockEsim.AttachedPlan::getProductId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+    }
+
+    static PlanData toPlanData(MockEsim.AttachedPlan plan, MockEsim esim, Map<String, MockProduct> products) {
+        PlanData data = new PlanData();
+        data.setId(plan.getProductId());
+        data.setCountriesEnabled(plan.getCountries());
+
+        if (plan.getDataAllowanceMB() != null) {
+            data.setDataQuotaBytes((long) plan.getDataAllowanceMB() * 1024 * 1024);
+        }
+        if (plan.getRemainingDataMB() != null) {
+            data.setDataBytesRemaining((long) plan.getRemainingDataMB() * 1024 * 1024);
+        }
+
+        if (plan.getAttachedAt() != null) {
+            data.setStartTime(plan.getAttachedAt().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
+        }
+        if (plan.getExpiryDate() != null) {
+            data.setEndTime(plan.getExpiryDate().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
+        }
+
+        data.setNetworkStatus(esim.getNetworkStatus());
+
+        // Include product data when the product still exists
+        MockProduct product = products.get(plan.getProductId());
+        if (product != null) {
+            data.setProduct(toPlanProductData(product));
+        }
+
+        return data;
+    }
+
+    /**
+     * Product as listed by the account endpoints
+     */
+    static ProductData toProductData(MockProduct product) {
+        ProductData data = toPlanProductData(product);
+        data.setUnlimitedType(product.getUnlimitedType());
+        return data;
+    }
+
+    // Product as embedded in a plan, which carries no unlimited type
+    private static ProductData toPlanProductData(MockProduct product) {
+        ProductData data = new ProductData();
+        data.setUid(product.getUid() != null ? product.getUid() : product.getProductId());
+        data.setName(product.getName());
+        data.setCountriesEnabled(product.getCountriesEnabled() != null ?
+            product.getCountriesEnabled() : product.getCountries());
+        data.setDataQuotaMb(product.getDataQuotaMb());
+        data.setDataQuotaBytes(product.getDataQuotaBytes());
+        data.setValidityDays(product.getValidityDays());
+        data.setPolicyId(product.getPolicyId());
+        data.setPolicyName(product.getPolicyName());
+        data.setWholesalePriceUsd(product.getWholesalePriceUsd());
+        data.setRrpUsd(product.getRrpUsd());
+        data.setRrpEur(product.getRrpEur());
+        data.setRrpGbp(product.getRrpGbp());
+        data.setRrpCad(product.getRrpCad());
+        data.setRrpAud(product.getRrpAud());
+        data.setRrpJpy(product.getRrpJpy());
+        return data;
+    }
+
+    static Map<String, Object> toBulkCreateResponse(EsimBulkProvisioningService.BulkProvisionResult result) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", result.isSuccess());
+        response.put("message", result.isSuccess() ? "eSIMs created successfully" : "Provisioning completed with errors");
+        response.put("requested", result.getRequested());
+        response.put("created", result.getCreated());
+        response.put("outcomes", result.getCounts());
+        response.put("items", result.getItems());
+        return response;
+    }
+
+    static Map<String, Object> toUploadResponse(ProductBulkUploadService.BulkUploadResult result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", result.isSuccess());
+        response.put("message", result.isSuccess() ? "Products uploaded successfully" : "Upload completed with errors");
+        response.put("created", result.getCreated());
+        response.put("updated", result.getUpdated());
+        response.put("total", result.getTotal());
+        response.put("errors", result.getErrors());
+        return response;
+    }
+}
@@ -1,43 +1,60 @@
 package com.flyroamy.mock.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.dto.request.BulkCreateEsimRequest;
 import com.flyroamy.mock.dto.request.CreateEsimRequest;
-import com.flyroamy.mock.dto.response.EsimData;
+import com.flyroamy.mock.dto.request.EsimLookupRequest;
 import com.flyroamy.mock.dto.response.MayaApiResponse;
 import com.flyroamy.mock.dto.response.PlanData;
-import com.flyroamy.mock.dto.response.ProductData;
 import com.flyroamy.mock.model.MockEsim;
 import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.model.UsageBucket;
+import com.flyroamy.mock.service.EsimBulkProvisioningService;
 import com.flyroamy.mock.service.EsimService;
 import com.flyroamy.mock.service.ProductService;
+import com.flyroamy.mock.service.UsageHistoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/connectivity/v1/esim")
 @Tag(name = "eSIMs", description = "Maya Mobile Connect+ eSIM provisioning and management endpoints")
 public class EsimController {
 
     private static final Logger logger = LoggerFactory.getLogger(EsimController.class);
-    private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_INSTANT;
 
     private final EsimService esimService;
+    private final EsimBulkProvisioningService bulkProvisioningService;
     private final ProductService productService;
+    private final UsageHistoryService usageHistoryService;
+    private final ObjectMapper objectMapper;
 
-    public EsimController(EsimService esimService, ProductService productService) {
+    public EsimController(EsimService esimService, EsimBulkProvisioningService bulkProvisioningService,
+                          ProductService productService, UsageHistoryService usageHistoryService,
+                          ObjectMapper objectMapper) {
         this.esimService = esimService;
+        this.bulkProvisioningService = bulkProvisioningService;
         this.productService = productService;
+        this.usageHistoryService = usageHistoryService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -50,19 +67,45 @@ public class EsimController {
 
         MayaApiResponse<Void> response = MayaApiResponse.success(201);
         response.setMessage("eSIM created successfully");
-        response.setEsim(mapToEsimData(esim));
+        response.setEsim(ApiResponseMapper.toEsimData(esim));
 
         // If plan_type_id is provided, include plan data
         if (request.getPlanTypeId() != null && !request.getPlanTypeId().isEmpty()) {
             if (!esim.getAttachedPlans().isEmpty()) {
                 MockEsim.AttachedPlan firstPlan = esim.getAttachedPlans().get(0);
-                response.setPlan(mapToPlanData(firstPlan, esim));
+                response.setPlan(ApiResponseMapper.toPlanData(firstPlan, esim, productsFor(List.of(firstPlan))));
             }
         }
 
         return ResponseEntity.status(201).body(response);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Create eSIMs in bulk", description = "Provision up to 50000 eSIMs in one request, "
+        + "either a count of identical eSIMs or a list of items. Outcomes are listed per item, in request order.")
+    public ResponseEntity<Map<String, Object>> createEsims(@Valid @RequestBody BulkCreateEsimRequest request) {
+        logger.info("Creating eSIMs in bulk - count: {}, items: {}",
+            request.getCount(), request.getItems() != null ? request.getItems().size() : null);
+
+        EsimBulkProvisioningService.BulkProvisionResult result = bulkProvisioningService.provision(request);
+
+        return ResponseEntity.ok(ApiResponseMapper.toBulkCreateResponse(result));
+    }
+
+    @PostMapping("/lookup")
+    @Operation(summary = "Look up eSIMs", description = "Get up to 5000 eSIMs by ICCID or uid in one request. "
+        + "Found eSIMs are streamed as they are resolved; identifiers that match nothing are listed under not_found. "
+        + "A lookup that fails part way through ends with an error field instead of not_found.")
+    public ResponseEntity<StreamingResponseBody> lookupEsims(@Valid @RequestBody EsimLookupRequest request) {
+        logger.debug("Looking up {} eSIMs", request.getIccids().size());
+
+        // The first chunk is resolved before the status is committed, so a failing lookup gets its error status
+        Iterator<EsimService.LookupChunk> chunks = EsimLookupWriter.start(esimService.lookupEsims(request.getIccids()));
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(output -> EsimLookupWriter.write(output, objectMapper, chunks));
+    }
+
     @GetMapping("/{iccid}")
     @Operation(summary = "Get eSIM", description = "Get eSIM details by ICCID")
     public ResponseEntity<MayaApiResponse<Void>> getEsim(
@@ -74,7 +117,7 @@ public class EsimController {
 
         MayaApiResponse<Void> response = MayaApiResponse.success(200);
         response.setMessage("eSIM retrieved successfully");
-        response.setEsim(mapToEsimData(esim));
+        response.setEsim(ApiResponseMapper.toEsimData(esim));
 
         return ResponseEntity.ok(response);
     }
@@ -97,7 +140,7 @@ public class EsimController {
         if (!esim.getAttachedPlans().isEmpty()) {
             MockEsim.AttachedPlan latestPlan = esim.getAttachedPlans()
                 .get(esim.getAttachedPlans().size() - 1);
-            response.setPlan(mapToPlanData(latestPlan, esim));
+            response.setPlan(ApiResponseMapper.toPlanData(latestPlan, esim, productsFor(List.of(latestPlan))));
         }
 
         return ResponseEntity.status(201).body(response);
@@ -130,7 +173,7 @@ public class EsimController {
 
         MayaApiResponse<Void> response = MayaApiResponse.success(200);
         response.setMessage("eSIM updated successfully");
-        response.setEsim(mapToEsimData(esim));
+        response.setEsim(ApiResponseMapper.toEsimData(esim));
 
         return ResponseEntity.ok(response);
     }
@@ -147,8 +190,10 @@ public class EsimController {
         MayaApiResponse<Void> response = MayaApiResponse.success(200);
         response.setMessage("Plans retrieved successfully");
 
+        // Resolve every distinct product once instead of once per plan
+        Map<String, MockProduct> products = productsFor(esim.getAttachedPlans());
         List<PlanData> plans = esim.getAttachedPlans().stream()
-            .map(plan -> mapToPlanData(plan, esim))
+            .map(plan -> ApiResponseMapper.toPlanData(plan, esim, products))
             .collect(Collectors.toList());
 
         response.setPlans(plans);
@@ -180,81 +225,34 @@ public class EsimController {
         return ResponseEntity.ok(response);
     }
 
-    // Helper methods to map domain models to DTOs
-    private EsimData mapToEsimData(MockEsim esim) {
-        EsimData data = new EsimData();
-        data.setUid(esim.getUid());
-        data.setIccid(esim.getIccid());
-        data.setActivationCode(esim.getActivationCode());
-        data.setManualCode(esim.getManualCode());
-        data.setSmdpAddress(esim.getSmdpAddress());
-        data.setAutoApn(esim.getAutoApn());
-        data.setApn(esim.getApn());
-        data.setState(esim.getState() != null ? esim.getState() : esim.getStatus());
-        data.setServiceStatus(esim.getServiceStatus());
-        data.setNetworkStatus(esim.getNetworkStatus());
-        data.setCustomerId(esim.getCustomerId());
-        data.setTag(esim.getTag());
-
-        if (esim.getDateAssigned() != null) {
-            data.setDateAssigned(esim.getDateAssigned().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
-        } else if (esim.getCreatedAt() != null) {
-            data.setDateAssigned(esim.getCreatedAt().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
-        }
-
-        return data;
-    }
-
-    private PlanData mapToPlanData(MockEsim.AttachedPlan plan, MockEsim esim) {
-        PlanData data = new PlanData();
-        data.setId(plan.getProductId());
-        data.setCountriesEnabled(plan.getCountries());
+    @GetMapping("/{iccid}/usage")
+    @Operation(summary = "Get eSIM Usage", description = "Get data usage per hour or per day. "
+        + "Hours older than the hourly retention are only available as daily totals.")
+    public ResponseEntity<MayaApiResponse<Void>> getEsimUsage(
+            @Parameter(description = "ICCID") @PathVariable String iccid,
+            @Parameter(description = "Start (ISO date-time, UTC), default 24 hours or 30 days before 'to'")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "End, exclusive (ISO date-time, UTC), default now")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "hour or day") @RequestParam(defaultValue = UsageBucket.HOUR) String granularity) {
 
-        if (plan.getDataAllowanceMB() != null) {
-            data.setDataQuotaBytes((long) plan.getDataAllowanceMB() * 1024 * 1024);
-        }
-        if (plan.getRemainingDataMB() != null) {
-            data.setDataBytesRemaining((long) plan.getRemainingDataMB() * 1024 * 1024);
-        }
+        logger.debug("Getting {} usage for eSIM: {}", granularity, iccid);
 
-        if (plan.getAttachedAt() != null) {
-            data.setStartTime(plan.getAttachedAt().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
-        }
-        if (plan.getExpiryDate() != null) {
-            data.setEndTime(plan.getExpiryDate().atZone(ZoneOffset.UTC).format(ISO_FORMATTER));
-        }
+        MockEsim esim = esimService.getEsimByIccid(iccid);
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from
+            : UsageBucket.DAY.equals(granularity) ? end.minusDays(30) : end.minusHours(24);
 
-        data.setNetworkStatus(esim.getNetworkStatus());
+        UsageHistoryService.UsageHistory history = usageHistoryService.getUsage(esim, start, end, granularity);
 
-        // Try to fetch and include product data
-        try {
-            MockProduct product = productService.getProductById(plan.getProductId());
-            data.setProduct(mapToProductData(product));
-        } catch (Exception e) {
-            logger.debug("Could not fetch product details for plan: {}", plan.getProductId());
-        }
+        MayaApiResponse<Void> response = MayaApiResponse.success(200);
+        response.setMessage("Usage retrieved successfully");
+        response.setUsage(ApiResponseMapper.toUsageData(esim, history));
 
-        return data;
+        return ResponseEntity.ok(response);
     }
 
-    private ProductData mapToProductData(MockProduct product) {
-        ProductData data = new ProductData();
-        data.setUid(product.getUid() != null ? product.getUid() : product.getProductId());
-        data.setName(product.getName());
-        data.setCountriesEnabled(product.getCountriesEnabled() != null ?
-            product.getCountriesEnabled() : product.getCountries());
-        data.setDataQuotaMb(product.getDataQuotaMb());
-        data.setDataQuotaBytes(product.getDataQuotaBytes());
-        data.setValidityDays(product.getValidityDays());
-        data.setPolicyId(product.getPolicyId());
-        data.setPolicyName(product.getPolicyName());
-        data.setWholesalePriceUsd(product.getWholesalePriceUsd());
-        data.setRrpUsd(product.getRrpUsd());
-        data.setRrpEur(product.getRrpEur());
-        data.setRrpGbp(product.getRrpGbp());
-        data.setRrpCad(product.getRrpCad());
-        data.setRrpAud(product.getRrpAud());
-        data.setRrpJpy(product.getRrpJpy());
-        return data;
+    private Map<String, MockProduct> productsFor(List<MockEsim.AttachedPlan> plans) {
+        return productService.getProductsByIds(ApiResponseMapper.productIdsOf(plans));
     }
 }
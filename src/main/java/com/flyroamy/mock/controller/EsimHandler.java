@@ -0,0 +1,274 @@
+package com.flyroamy.mock.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.dto.request.BulkCreateEsimRequest;
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.dto.request.EsimLookupRequest;
+import com.flyroamy.mock.dto.response.MayaApiResponse;
+import com.flyroamy.mock.dto.response.PlanData;
+import com.flyroamy.mock.exception.InvalidRequestException;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.model.UsageBucket;
+import com.flyroamy.mock.service.EsimBulkProvisioningService;
+import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.service.ReactiveEsimService;
+import com.flyroamy.mock.service.ReactiveProductService;
+import jakarta.validation.Validator;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindException;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of {@link EsimController}, routed by
+ * {@link com.flyroamy.mock.config.ReactiveWebConfig}. Same paths, statuses and bodies.
+ *
+ * Batch lookups and bulk creates go through the blocking {@link EsimService} and
+ * {@link EsimBulkProvisioningService} and so run on the bounded elastic scheduler.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class EsimHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsimHandler.class);
+
+    private final ReactiveEsimService esimService;
+    private final ReactiveProductService productService;
+    private final EsimService blockingEsimService;
+    private final EsimBulkProvisioningService bulkProvisioningService;
+    private final ObjectMapper objectMapper;
+    private final SpringValidatorAdapter validator;
+
+    public EsimHandler(ReactiveEsimService esimService, ReactiveProductService productService,
+                       EsimService blockingEsimService, EsimBulkProvisioningService bulkProvisioningService,
+                       ObjectMapper objectMapper, Validator validator) {
+        this.esimService = esimService;
+        this.productService = productService;
+        this.blockingEsimService = blockingEsimService;
+        this.bulkProvisioningService = bulkProvisioningService;
+        this.objectMapper = objectMapper;
+        this.validator = new SpringValidatorAdapter(validator);
+    }
+
+    public Mono<ServerResponse> createEsim(ServerRequest request) {
+        return request.bodyToMono(CreateEsimRequest.class)
+            .switchIfEmpty(Mono.error(() -> new InvalidRequestException("Request body is required")))
+            .flatMap(this::validated)
+            .flatMap(body -> {
+                logger.info("Creating eSIM - planTypeId: {}, region: {}, customerId: {}",
+                    body.getPlanTypeId(), body.getRegion(), body.getCustomerId());
+
+                return esimService.createEsim(body).flatMap(esim -> {
+                    MayaApiResponse<Void> response = MayaApiResponse.success(201);
+                    response.setMessage("eSIM created successfully");
+                    response.setEsim(ApiResponseMapper.toEsimData(esim));
+
+                    // If plan_type_id is provided, include plan data
+                    if (body.getPlanTypeId() != null && !body.getPlanTypeId().isEmpty()
+                            && !esim.getAttachedPlans().isEmpty()) {
+                        MockEsim.AttachedPlan firstPlan = esim.getAttachedPlans().get(0);
+                        return planData(firstPlan, esim).flatMap(plan -> {
+                            response.setPlan(plan);
+                            return respond(201, response);
+                        });
+                    }
+                    return respond(201, response);
+                });
+            });
+    }
+
+    public Mono<ServerResponse> createEsims(ServerRequest request) {
+        return request.bodyToMono(BulkCreateEsimRequest.class)
+            .switchIfEmpty(Mono.error(() -> new InvalidRequestException("Request body is required")))
+            .flatMap(this::validated)
+            .publishOn(Schedulers.boundedElastic())
+            .map(body -> {
+                logger.info("Creating eSIMs in bulk - count: {}, items: {}",
+                    body.getCount(), body.getItems() != null ? body.getItems().size() : null);
+                return bulkProvisioningService.provision(body);
+            })
+            .flatMap(result -> respond(200, ApiResponseMapper.toBulkCreateResponse(result)));
+    }
+
+    public Mono<ServerResponse> lookupEsims(ServerRequest request) {
+        return request.bodyToMono(EsimLookupRequest.class)
+            .switchIfEmpty(Mono.error(() -> new InvalidRequestException("Request body is required")))
+            .flatMap(this::validated)
+            .doOnNext(body -> logger.debug("Looking up {} eSIMs", body.getIccids().size()))
+            // The first chunk is resolved before the status is committed, so a failing lookup gets its error status
+            .flatMap(body -> Mono.fromCallable(() ->
+                    EsimLookupWriter.start(blockingEsimService.lookupEsims(body.getIccids())))
+                .subscribeOn(Schedulers.boundedElastic()))
+            .flatMap(chunks -> {
+                Publisher<DataBuffer> esims = DataBufferUtils.outputStreamPublisher(output -> {
+                    try {
+                        EsimLookupWriter.write(output, objectMapper, chunks);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, request.exchange().getResponse().bufferFactory(), task -> Schedulers.boundedElastic().schedule(task));
+                return ServerResponse.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BodyInserters.fromDataBuffers(esims));
+            });
+    }
+
+    public Mono<ServerResponse> getEsim(ServerRequest request) {
+        String iccid = request.pathVariable("iccid");
+        logger.debug("Getting eSIM by ICCID: {}", iccid);
+
+        return esimService.getEsimByIccid(iccid).flatMap(esim -> {
+            MayaApiResponse<Void> response = MayaApiResponse.success(200);
+            response.setMessage("eSIM retrieved successfully");
+            response.setEsim(ApiResponseMapper.toEsimData(esim));
+            return respond(200, response);
+        });
+    }
+
+    public Mono<ServerResponse> createPlan(ServerRequest request) {
+        String iccid = request.pathVariable("iccid");
+        String planTypeId = request.pathVariable("planTypeId");
+        logger.info("Creating plan for eSIM {} with product {}", iccid, planTypeId);
+
+        return esimService.attachPlan(iccid, planTypeId).flatMap(esim -> {
+            MayaApiResponse<Void> response = MayaApiResponse.success(201);
+            response.setMessage("Plan created successfully");
+            response.setIccid(iccid);
+
+            if (esim.getAttachedPlans().isEmpty()) {
+                return respond(201, response);
+            }
+            // Find the newly added plan
+            MockEsim.AttachedPlan latestPlan = esim.getAttachedPlans().get(esim.getAttachedPlans().size() - 1);
+            return planData(latestPlan, esim).flatMap(plan -> {
+                response.setPlan(plan);
+                return respond(201, response);
+            });
+        });
+    }
+
+    public Mono<ServerResponse> deleteEsim(ServerRequest request) {
+        String iccid = request.pathVariable("iccid");
+        logger.info("Deleting eSIM: {}", iccid);
+
+        return esimService.deleteEsim(iccid).then(Mono.defer(() -> {
+            MayaApiResponse<Void> response = MayaApiResponse.success(200);
+            response.setMessage("eSIM deleted successfully");
+            return respond(200, response);
+        }));
+    }
+
+    public Mono<ServerResponse> changeEsim(ServerRequest request) {
+        String iccid = request.pathVariable("iccid");
+        logger.info("Updating eSIM: {}", iccid);
+
+        return request.bodyToMono(CreateEsimRequest.class)
+            .switchIfEmpty(Mono.error(() -> new InvalidRequestException("Request body is required")))
+            .flatMap(updates -> esimService.updateEsim(iccid, updates))
+            .flatMap(esim -> {
+                MayaApiResponse<Void> response = MayaApiResponse.success(200);
+                response.setMessage("eSIM updated successfully");
+                response.setEsim(ApiResponseMapper.toEsimData(esim));
+                return respond(200, response);
+            });
+    }
+
+    public Mono<ServerResponse> getEsimPlans(ServerRequest request) {
+        String iccid = request.pathVariable("iccid");
+        logger.debug("Getting plans for eSIM: {}", iccid);
+
+        return esimService.getEsimByIccid(iccid).flatMap(esim ->
+            // Resolve every distinct product once instead of once per plan
+            productService.getProductsByIds(ApiResponseMapper.productIdsOf(esim.getAttachedPlans()))
+                .flatMap(products -> {
+                    MayaApiResponse<Void> response = MayaApiResponse.success(200);
+                    response.setMessage("Plans retrieved successfully");
+                    response.setPlans(esim.getAttachedPlans().stream()
+                        .map(plan -> ApiResponseMapper.toPlanData(plan, esim, products))
+                        .collect(Collectors.toList()));
+                    return respond(200, response);
+                }));
+    }
+
+    public Mono<ServerResponse> getEsimRegions(ServerRequest request) {
+        String iccid = request.pathVariable("iccid");
+        logger.debug("Getting regions for eSIM: {}", iccid);
+
+        return esimService.getEsimByIccid(iccid).flatMap(esim -> {
+            MayaApiResponse<Void> response = MayaApiResponse.success(200);
+            response.setMessage("Regions retrieved successfully");
+
+            // Extract unique regions from all attached plans
+            List<String> regions = new ArrayList<>();
+            for (MockEsim.AttachedPlan plan : esim.getAttachedPlans()) {
+                if (plan.getCountries() != null) {
+                    regions.addAll(plan.getCountries());
+                }
+            }
+            response.setRegions(regions.stream().distinct().collect(Collectors.toList()));
+            return respond(200, response);
+        });
+    }
+
+    public Mono<ServerResponse> getEsimUsage(ServerRequest request) {
+        String iccid = request.pathVariable("iccid");
+        String granularity = request.queryParam("granularity").orElse(UsageBucket.HOUR);
+        LocalDateTime from = request.queryParam("from").map(EsimHandler::parseDateTime).orElse(null);
+        LocalDateTime to = request.queryParam("to").map(EsimHandler::parseDateTime).orElse(null);
+        logger.debug("Getting {} usage for eSIM: {}", granularity, iccid);
+
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from
+            : UsageBucket.DAY.equals(granularity) ? end.minusDays(30) : end.minusHours(24);
+
+        return esimService.getEsimByIccid(iccid)
+            .flatMap(esim -> esimService.getUsage(esim, start, end, granularity)
+                .flatMap(history -> {
+                    MayaApiResponse<Void> response = MayaApiResponse.success(200);
+                    response.setMessage("Usage retrieved successfully");
+                    response.setUsage(ApiResponseMapper.toUsageData(esim, history));
+                    return respond(200, response);
+                }));
+    }
+
+    private Mono<PlanData> planData(MockEsim.AttachedPlan plan, MockEsim esim) {
+        return productService.getProductsByIds(ApiResponseMapper.productIdsOf(List.of(plan)))
+            .map(products -> ApiResponseMapper.toPlanData(plan, esim, products));
+    }
+
+    private <T> Mono<T> validated(T body) {
+        BeanPropertyBindingResult errors = new BeanPropertyBindingResult(body,
+            StringUtils.uncapitalize(body.getClass().getSimpleName()));
+        validator.validate(body, errors);
+        return errors.hasErrors() ? Mono.error(new BindException(errors)) : Mono.just(body);
+    }
+
+    private static Mono<ServerResponse> respond(int status, Object body) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        return LocalDateTime.parse(value, DateTimeFormatter.ISO_DATE_TIME);
+    }
+}
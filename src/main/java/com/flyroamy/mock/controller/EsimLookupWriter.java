@@ -0,0 +1,117 @@
+package com.flyroamy.mock.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.dto.response.MayaApiResponse;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.service.EsimService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes a batch eSIM lookup as one Maya API response, chunk by chunk, for the MVC
+ * controller and the reactive handler alike.
+ *
+ * The envelope and each chunk's {@code esims} entries go out as soon as the chunk is
+ * resolved, so the body is never built in memory; identifiers that matched nothing
+ * are collected and written last, under {@code not_found}.
+ *
+ * The first chunk is resolved by {@link #start} before the response is committed, so
+ * a lookup that cannot run at all is answered with the usual error status. A chunk
+ * that fails once entries have gone out can no longer change the status: the body is
+ * closed with an {@code error} field instead of {@code not_found}, marking the list
+ * as partial.
+ */
+final class EsimLookupWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsimLookupWriter.class);
+
+    private EsimLookupWriter() {
+    }
+
+    /**
+     * Resolve the first chunk now, on the caller's thread, and hand back all chunks
+     * for {@link #write}; failures here propagate to the caller
+     */
+    static Iterator<EsimService.LookupChunk> start(Stream<EsimService.LookupChunk> chunks) {
+        Iterator<EsimService.LookupChunk> rest = chunks.iterator();
+        if (!rest.hasNext()) {
+            return rest;
+        }
+        EsimService.LookupChunk first = rest.next();
+        return new Iterator<>() {
+            private boolean firstTaken;
+
+            @Override
+            public boolean hasNext() {
+                return !firstTaken || rest.hasNext();
+            }
+
+            @Override
+            public EsimService.LookupChunk next() {
+                if (!firstTaken) {
+                    firstTaken = true;
+                    return first;
+                }
+                return rest.next();
+            }
+        };
+    }
+
+    static void write(OutputStream output, ObjectMapper objectMapper,
+                      Iterator<EsimService.LookupChunk> chunks) throws IOException {
+        MayaApiResponse<Void> envelope = MayaApiResponse.success(200);
+        envelope.setMessage("eSIMs retrieved successfully");
+
+        try (JsonGenerator json = objectMapper.createGenerator(output)) {
+            // The servlet or reactive response owns the stream
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeNumberField("result", envelope.getResult());
+            json.writeNumberField("status", envelope.getStatus());
+            json.writeStringField("request_id", envelope.getRequestId());
+            json.writeStringField("message", envelope.getMessage());
+
+            List<String> notFound = new ArrayList<>();
+            int written = 0;
+            json.writeArrayFieldStart("esims");
+            try {
+                while (chunks.hasNext()) {
+                    EsimService.LookupChunk chunk = chunks.next();
+                    for (MockEsim esim : chunk.found()) {
+                        json.writeObject(ApiResponseMapper.toEsimData(esim));
+                    }
+                    written += chunk.found().size();
+                    notFound.addAll(chunk.notFound());
+                    json.flush();
+                }
+            } catch (RuntimeException e) {
+                logger.error("Batch eSIM lookup failed after {} eSIMs were written", written, e);
+                json.writeEndArray();
+                json.writeObjectFieldStart("error");
+                json.writeNumberField("status", 500);
+                json.writeStringField("message", "Lookup incomplete");
+                json.writeStringField("developer_message",
+                    "Resolving the remaining identifiers failed; esims holds only the first " + written);
+                json.writeEndObject();
+                json.writeEndObject();
+                return;
+            }
+            json.writeEndArray();
+
+            json.writeArrayFieldStart("not_found");
+            for (String identifier : notFound) {
+                json.writeString(identifier);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+}
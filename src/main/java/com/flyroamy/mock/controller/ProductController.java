@@ -12,22 +12,29 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/connectivity/v1/account")
 @Tag(name = "Products", description = "Maya Mobile Connect+ Product/Plan management endpoints")
 public class ProductController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
     private final ProductService productService;
     private final ProductBulkUploadService bulkUploadService;
 
@@ -61,7 +68,7 @@ public class ProductController {
         response.setMessage("Products retrieved successfully");
 
         List<ProductData> products = productPage.getContent().stream()
-            .map(this::mapToProductData)
+            .map(ApiResponseMapper::toProductData)
             .collect(Collectors.toList());
 
         response.setProducts(products);
@@ -80,7 +87,7 @@ public class ProductController {
 
         MayaApiResponse<Void> response = MayaApiResponse.success(200);
         response.setMessage("Product retrieved successfully");
-        response.setProduct(mapToProductData(product));
+        response.setProduct(ApiResponseMapper.toProductData(product));
 
         return ResponseEntity.ok(response);
     }
@@ -113,7 +120,7 @@ public class ProductController {
 
         MayaApiResponse<Void> response = MayaApiResponse.success(201);
         response.setMessage("Product created successfully");
-        response.setProduct(mapToProductData(created));
+        response.setProduct(ApiResponseMapper.toProductData(created));
 
         return ResponseEntity.status(201).body(response);
     }
@@ -130,7 +137,7 @@ public class ProductController {
 
         MayaApiResponse<Void> response = MayaApiResponse.success(200);
         response.setMessage("Product updated successfully");
-        response.setProduct(mapToProductData(updated));
+        response.setProduct(ApiResponseMapper.toProductData(updated));
 
         return ResponseEntity.ok(response);
     }
@@ -156,37 +163,22 @@ public class ProductController {
 
         ProductBulkUploadService.BulkUploadResult result = bulkUploadService.processBulkUpload(request);
 
-        Map<String, Object> response = new HashMap<>();
-        response.put("success", result.isSuccess());
-        response.put("message", result.isSuccess() ? "Products uploaded successfully" : "Upload completed with errors");
-        response.put("created", result.getCreated());
-        response.put("updated", result.getUpdated());
-        response.put("total", result.getTotal());
-        response.put("errors", result.getErrors());
-
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(ApiResponseMapper.toUploadResponse(result));
     }
 
-    // Helper method to map domain model to DTO
-    private ProductData mapToProductData(MockProduct product) {
-        ProductData data = new ProductData();
-        data.setUid(product.getUid() != null ? product.getUid() : product.getProductId());
-        data.setName(product.getName());
-        data.setCountriesEnabled(product.getCountriesEnabled() != null ?
-            product.getCountriesEnabled() : product.getCountries());
-        data.setDataQuotaMb(product.getDataQuotaMb());
-        data.setDataQuotaBytes(product.getDataQuotaBytes());
-        data.setValidityDays(product.getValidityDays());
-        data.setPolicyId(product.getPolicyId());
-        data.setPolicyName(product.getPolicyName());
-        data.setWholesalePriceUsd(product.getWholesalePriceUsd());
-        data.setRrpUsd(product.getRrpUsd());
-        data.setRrpEur(product.getRrpEur());
-        data.setRrpGbp(product.getRrpGbp());
-        data.setRrpCad(product.getRrpCad());
-        data.setRrpAud(product.getRrpAud());
-        data.setRrpJpy(product.getRrpJpy());
-        data.setUnlimitedType(product.getUnlimitedType());
-        return data;
+    @PostMapping(value = "/products/bulk-upload/stream", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    @Operation(summary = "Stream bulk upload products",
+        description = "Bulk upload products from an NDJSON or CSV stream (admin). CSV uses the Excel column layout with a header row.")
+    public ResponseEntity<Map<String, Object>> streamBulkUploadProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) {
+        ProductBulkUploadService.UploadFormat format = TEXT_CSV.isCompatibleWith(contentType)
+            ? ProductBulkUploadService.UploadFormat.CSV
+            : ProductBulkUploadService.UploadFormat.NDJSON;
+        logger.info("Streaming bulk upload of products as {}", format);
+
+        ProductBulkUploadService.BulkUploadResult result = bulkUploadService.processStream(body, format);
+
+        return ResponseEntity.ok(ApiResponseMapper.toUploadResponse(result));
     }
 }
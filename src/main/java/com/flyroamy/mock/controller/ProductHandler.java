@@ -0,0 +1,183 @@
+package com.flyroamy.mock.controller;
+
+import com.flyroamy.mock.dto.request.BulkProductUploadRequest;
+import com.flyroamy.mock.dto.response.BalanceData;
+import com.flyroamy.mock.dto.response.MayaApiResponse;
+import com.flyroamy.mock.exception.InvalidRequestException;
+import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.service.ProductBulkUploadService;
+import com.flyroamy.mock.service.ReactiveProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of {@link ProductController}, routed by
+ * {@link com.flyroamy.mock.config.ReactiveWebConfig}. Same paths, statuses and bodies.
+ *
+ * Bulk uploads write through the blocking {@link ProductBulkUploadService} and so run
+ * on the bounded elastic scheduler.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ProductHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductHandler.class);
+
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    // Buffers requested ahead while the upload parser reads the stream
+    private static final int UPLOAD_DEMAND = 16;
+
+    private final ReactiveProductService productService;
+    private final ProductBulkUploadService bulkUploadService;
+
+    public ProductHandler(ReactiveProductService productService, ProductBulkUploadService bulkUploadService) {
+        this.productService = productService;
+        this.bulkUploadService = bulkUploadService;
+    }
+
+    public Mono<ServerResponse> getAllProducts(ServerRequest request) {
+        String country = request.queryParam("country").orElse(null);
+        String region = request.queryParam("region").orElse(null);
+        int page = request.queryParam("page").map(Integer::parseInt).orElse(0);
+        int size = request.queryParam("size").map(Integer::parseInt).orElse(100);
+
+        logger.debug("Listing products - country: {}, region: {}, page: {}, size: {}",
+            country, region, page, size);
+
+        Mono<List<MockProduct>> products;
+        if (country != null && !country.isEmpty()) {
+            products = productService.getProductsByCountry(country, page, size);
+        } else if (region != null && !region.isEmpty()) {
+            products = productService.getProductsByRegion(region, page, size).collectList();
+        } else {
+            products = productService.getAllProducts(page, size).collectList();
+        }
+
+        return products.flatMap(content -> {
+            MayaApiResponse<Void> response = MayaApiResponse.success(200);
+            response.setMessage("Products retrieved successfully");
+            response.setProducts(content.stream()
+                .map(ApiResponseMapper::toProductData)
+                .collect(Collectors.toList()));
+            return respond(200, response);
+        });
+    }
+
+    public Mono<ServerResponse> getProduct(ServerRequest request) {
+        String productId = request.pathVariable("productId");
+        logger.debug("Getting product: {}", productId);
+
+        return productService.getProductById(productId).flatMap(product -> {
+            MayaApiResponse<Void> response = MayaApiResponse.success(200);
+            response.setMessage("Product retrieved successfully");
+            response.setProduct(ApiResponseMapper.toProductData(product));
+            return respond(200, response);
+        });
+    }
+
+    public Mono<ServerResponse> getAccountBalance(ServerRequest request) {
+        logger.debug("Getting account balance");
+
+        MayaApiResponse<Void> response = MayaApiResponse.success(200);
+        response.setMessage("Balance retrieved successfully");
+
+        // Mock balance data
+        BalanceData balance = new BalanceData();
+        balance.setBalance(1000.00);
+        balance.setCurrency("USD");
+        response.setBalance(balance);
+
+        return respond(200, response);
+    }
+
+    public Mono<ServerResponse> createProduct(ServerRequest request) {
+        return body(request, MockProduct.class)
+            .flatMap(product -> {
+                logger.info("Creating product: {}", product.getName());
+                return productService.createProduct(product);
+            })
+            .flatMap(created -> {
+                MayaApiResponse<Void> response = MayaApiResponse.success(201);
+                response.setMessage("Product created successfully");
+                response.setProduct(ApiResponseMapper.toProductData(created));
+                return respond(201, response);
+            });
+    }
+
+    public Mono<ServerResponse> updateProduct(ServerRequest request) {
+        String productId = request.pathVariable("productId");
+        logger.info("Updating product: {}", productId);
+
+        return body(request, MockProduct.class)
+            .flatMap(updates -> productService.updateProduct(productId, updates))
+            .flatMap(updated -> {
+                MayaApiResponse<Void> response = MayaApiResponse.success(200);
+                response.setMessage("Product updated successfully");
+                response.setProduct(ApiResponseMapper.toProductData(updated));
+                return respond(200, response);
+            });
+    }
+
+    public Mono<ServerResponse> deleteProduct(ServerRequest request) {
+        String productId = request.pathVariable("productId");
+        logger.info("Deleting product: {}", productId);
+
+        return productService.deleteProduct(productId).then(Mono.defer(() -> {
+            MayaApiResponse<Void> response = MayaApiResponse.success(200);
+            response.setMessage("Product deleted successfully");
+            return respond(200, response);
+        }));
+    }
+
+    public Mono<ServerResponse> bulkUploadProducts(ServerRequest request) {
+        return body(request, BulkProductUploadRequest.class)
+            .publishOn(Schedulers.boundedElastic())
+            .map(upload -> {
+                logger.info("Bulk uploading {} products",
+                    upload.getProducts() != null ? upload.getProducts().size() : 0);
+                return bulkUploadService.processBulkUpload(upload);
+            })
+            .flatMap(result -> respond(200, ApiResponseMapper.toUploadResponse(result)));
+    }
+
+    public Mono<ServerResponse> streamBulkUploadProducts(ServerRequest request) {
+        ProductBulkUploadService.UploadFormat format = request.headers().contentType()
+            .filter(TEXT_CSV::isCompatibleWith)
+            .map(csv -> ProductBulkUploadService.UploadFormat.CSV)
+            .orElse(ProductBulkUploadService.UploadFormat.NDJSON);
+        logger.info("Streaming bulk upload of products as {}", format);
+
+        // The parser pulls from the body as it reads, so the upload is never held whole
+        Flux<DataBuffer> body = request.bodyToFlux(DataBuffer.class);
+        return Mono.fromCallable(() -> {
+                try (InputStream input = DataBufferUtils.subscriberInputStream(body, UPLOAD_DEMAND)) {
+                    return bulkUploadService.processStream(input, format);
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(result -> respond(200, ApiResponseMapper.toUploadResponse(result)));
+    }
+
+    private static <T> Mono<T> body(ServerRequest request, Class<T> type) {
+        return request.bodyToMono(type)
+            .switchIfEmpty(Mono.error(() -> new InvalidRequestException("Request body is required")));
+    }
+
+    private static Mono<ServerResponse> respond(int status, Object body) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(body);
+    }
+}
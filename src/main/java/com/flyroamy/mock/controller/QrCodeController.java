@@ -2,51 +2,134 @@ package com.flyroamy.mock.controller;
 
 import com.flyroamy.mock.model.MockEsim;
 import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.service.QrCodeCache;
 import com.flyroamy.mock.service.QrCodeService;
+import com.flyroamy.mock.service.QrImageStore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Base64;
+import java.util.Optional;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/qr")
 @Tag(name = "QR Codes", description = "QR code generation endpoints (public)")
 public class QrCodeController {
 
     private static final Logger logger = LoggerFactory.getLogger(QrCodeController.class);
 
+    // Clients may store the image but must revalidate; overrides Spring Security's no-store default
+    private static final CacheControl REVALIDATE = CacheControl.noCache();
+
+    // Tomcat sendfile request attributes
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private final QrCodeService qrCodeService;
     private final EsimService esimService;
+    private final QrImageStore qrImageStore;
 
-    public QrCodeController(QrCodeService qrCodeService, EsimService esimService) {
+    public QrCodeController(QrCodeService qrCodeService, EsimService esimService, QrImageStore qrImageStore) {
         this.qrCodeService = qrCodeService;
         this.esimService = esimService;
+        this.qrImageStore = qrImageStore;
     }
 
     @GetMapping(value = "/{esimId}", produces = MediaType.IMAGE_PNG_VALUE)
     @Operation(summary = "Get QR code image", description = "Get the QR code image for an eSIM (public endpoint)")
-    public ResponseEntity<byte[]> getQrCode(@PathVariable String esimId) {
-        logger.debug("Generating QR code for eSIM: {}", esimId);
+    public void getQrCode(@PathVariable String esimId, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        logger.debug("Serving QR code for eSIM: {}", esimId);
 
         MockEsim esim = esimService.getEsimById(esimId);
-        byte[] qrCode = qrCodeService.generateQrCodeBytes(esim.getQrCodeData());
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE.getHeaderValue());
 
-        return ResponseEntity.ok()
-            .contentType(MediaType.IMAGE_PNG)
-            .body(qrCode);
+        Optional<QrImageStore.StoredImage> stored = qrImageStore.find(esim.getEsimId());
+        if (stored.isPresent()) {
+            QrImageStore.StoredImage image = stored.get();
+            if (webRequest.checkNotModified(image.etag())) {
+                return;
+            }
+            writePngHeaders(response, image.etag(), image.length());
+            sendStoredImage(image, request, response);
+            return;
+        }
+
+        // Created before the store existed, or not rendered yet: render now and keep it for next time
+        QrCodeCache.RenderedQrCode qrCode = qrCodeService.renderQrCode(esim.getQrCodeData());
+        qrImageStore.backfill(esim.getEsimId(), qrCode);
+        if (webRequest.checkNotModified(qrCode.etag())) {
+            return;
+        }
+        writePngHeaders(response, qrCode.etag(), qrCode.png().length);
+        response.getOutputStream().write(qrCode.png());
     }
 
     @GetMapping(value = "/{esimId}/base64")
     @Operation(summary = "Get QR code as Base64", description = "Get the QR code as a Base64 encoded string")
-    public ResponseEntity<String> getQrCodeBase64(@PathVariable String esimId) {
+    public ResponseEntity<String> getQrCodeBase64(@PathVariable String esimId, WebRequest request) {
         logger.debug("Generating Base64 QR code for eSIM: {}", esimId);
 
         MockEsim esim = esimService.getEsimById(esimId);
-        String base64 = qrCodeService.generateQrCodeBase64(esim.getQrCodeData());
+        QrCodeCache.RenderedQrCode qrCode = qrCodeService.renderQrCode(esim.getQrCodeData());
+
+        // A different representation of the same image needs its own strong ETag
+        String etag = qrCode.etag().replaceFirst("\"$", "-base64\"");
+        if (request.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok()
+            .eTag(etag)
+            .cacheControl(REVALIDATE)
+            .body(Base64.getEncoder().encodeToString(qrCode.png()));
+    }
+
+    private static void writePngHeaders(HttpServletResponse response, String etag, int length) {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.IMAGE_PNG_VALUE);
+        response.setContentLength(length);
+        response.setHeader(HttpHeaders.ETAG, etag);
+    }
+
+    /**
+     * Hands the file region to Tomcat's sendfile when the connector supports it,
+     * otherwise copies it with FileChannel.transferTo
+     */
+    private void sendStoredImage(QrImageStore.StoredImage image, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat only accepts a canonical path
+            request.setAttribute(SENDFILE_FILENAME, image.file().toRealPath().toString());
+            request.setAttribute(SENDFILE_START, image.offset());
+            request.setAttribute(SENDFILE_END, image.offset() + image.length());
+            return;
+        }
+        qrImageStore.transferTo(image, Channels.newChannel(response.getOutputStream()));
+    }
 
-        return ResponseEntity.ok(base64);
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(etag)
+            .cacheControl(REVALIDATE)
+            .build();
     }
 }
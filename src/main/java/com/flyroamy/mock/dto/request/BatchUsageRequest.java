@@ -0,0 +1,22 @@
+package com.flyroamy.mock.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request body for simulating usage on many eSIMs at once.
+ * Records are validated one by one, so a bad record does not reject the batch.
+ */
+public class BatchUsageRequest {
+
+    public static final int MAX_RECORDS = 50_000;
+
+    @NotEmpty(message = "At least one usage record is required")
+    @Size(max = MAX_RECORDS, message = "At most 50000 usage records per batch")
+    private List<SimulateUsageRequest> records;
+
+    public List<SimulateUsageRequest> getRecords() { return records; }
+    public void setRecords(List<SimulateUsageRequest> records) { this.records = records; }
+}
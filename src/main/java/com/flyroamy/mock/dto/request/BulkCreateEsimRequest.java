@@ -0,0 +1,67 @@
+package com.flyroamy.mock.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request body for provisioning many eSIMs at once: either a count of identical
+ * eSIMs described by plan_type_id, customer_id and tag, or a list of items each
+ * shaped like a single create request.
+ */
+public class BulkCreateEsimRequest {
+
+    public static final int MAX_ESIMS = 50_000;
+
+    @JsonProperty("count")
+    @Min(value = 1, message = "Count must be at least 1")
+    @Max(value = MAX_ESIMS, message = "At most 50000 eSIMs per request")
+    private Integer count;
+
+    @JsonProperty("plan_type_id")
+    private String planTypeId;
+
+    @JsonProperty("customer_id")
+    private String customerId;
+
+    @JsonProperty("tag")
+    private String tag;
+
+    @JsonProperty("items")
+    @Size(min = 1, max = MAX_ESIMS, message = "Between 1 and 50000 items per request")
+    private List<@NotNull(message = "Items cannot be null") CreateEsimRequest> items;
+
+    // Render QR images while the eSIMs are built rather than on first request
+    @JsonProperty("render_qr")
+    private Boolean renderQr;
+
+    @JsonIgnore
+    @AssertTrue(message = "Either count or items is required, not both")
+    public boolean isCountOrItems() {
+        return (count != null) != (items != null);
+    }
+
+    public Integer getCount() { return count; }
+    public void setCount(Integer count) { this.count = count; }
+
+    public String getPlanTypeId() { return planTypeId; }
+    public void setPlanTypeId(String planTypeId) { this.planTypeId = planTypeId; }
+
+    public String getCustomerId() { return customerId; }
+    public void setCustomerId(String customerId) { this.customerId = customerId; }
+
+    public String getTag() { return tag; }
+    public void setTag(String tag) { this.tag = tag; }
+
+    public List<CreateEsimRequest> getItems() { return items; }
+    public void setItems(List<CreateEsimRequest> items) { this.items = items; }
+
+    public Boolean getRenderQr() { return renderQr; }
+    public void setRenderQr(Boolean renderQr) { this.renderQr = renderQr; }
+}
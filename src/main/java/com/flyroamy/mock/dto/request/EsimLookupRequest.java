@@ -0,0 +1,24 @@
+package com.flyroamy.mock.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Request body for looking up many eSIMs at once by ICCID or uid.
+ */
+public class EsimLookupRequest {
+
+    public static final int MAX_IDENTIFIERS = 5_000;
+
+    @JsonProperty("iccids")
+    @NotEmpty(message = "At least one ICCID or uid is required")
+    @Size(max = MAX_IDENTIFIERS, message = "At most 5000 ICCIDs or uids per lookup")
+    private List<@NotBlank(message = "ICCIDs and uids must not be blank") String> iccids;
+
+    public List<String> getIccids() { return iccids; }
+    public void setIccids(List<String> iccids) { this.iccids = iccids; }
+}
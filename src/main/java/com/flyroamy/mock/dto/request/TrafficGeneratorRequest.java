@@ -0,0 +1,97 @@
+package com.flyroamy.mock.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for a traffic generator run. Every field is optional.
+ */
+public class TrafficGeneratorRequest {
+
+    @Min(value = 1, message = "At least 1 event per second")
+    @Max(value = 100_000, message = "At most 100000 events per second")
+    private int eventsPerSecond = 1000;
+
+    @Min(value = 1, message = "Batch size must be at least 1")
+    @Max(value = BatchUsageRequest.MAX_RECORDS, message = "At most 50000 events per batch")
+    private int batchSize = 1000;
+
+    @Min(value = 1, message = "At least 1 batch in flight")
+    @Max(value = 256, message = "At most 256 batches in flight")
+    private int maxInFlightBatches = 16;
+
+    // Stop after this long; 0 runs until stopped
+    @Min(value = 0, message = "Duration cannot be negative")
+    private long durationSeconds = 0;
+
+    // Chance per usage event that the eSIM's network_status changes
+    @DecimalMin(value = "0.0", message = "Flap probability must be between 0 and 1")
+    @DecimalMax(value = "1.0", message = "Flap probability must be between 0 and 1")
+    private double networkFlapProbability = 0.001;
+
+    @Valid
+    @NotNull(message = "Default consumption is required")
+    private Consumption defaultConsumption = new Consumption();
+
+    // Consumption per product_id of the eSIM's first active plan
+    @Valid
+    @NotNull(message = "Plan consumption cannot be null")
+    private Map<String, Consumption> planConsumption = new HashMap<>();
+
+    /**
+     * Distribution of megabytes per usage event
+     */
+    public static class Consumption {
+
+        @NotNull(message = "Distribution is required")
+        @Pattern(regexp = "uniform|lognormal|exponential",
+            message = "Distribution must be uniform, lognormal or exponential")
+        private String distribution = "lognormal";
+
+        @DecimalMin(value = "1.0", message = "Mean must be at least 1 MB")
+        private double meanMB = 5.0;
+
+        // Spread of the underlying normal, lognormal only
+        @DecimalMin(value = "0.0", message = "Sigma cannot be negative")
+        private double sigma = 1.0;
+
+        public String getDistribution() { return distribution; }
+        public void setDistribution(String distribution) { this.distribution = distribution; }
+
+        public double getMeanMB() { return meanMB; }
+        public void setMeanMB(double meanMB) { this.meanMB = meanMB; }
+
+        public double getSigma() { return sigma; }
+        public void setSigma(double sigma) { this.sigma = sigma; }
+    }
+
+    // Getters and Setters
+    public int getEventsPerSecond() { return eventsPerSecond; }
+    public void setEventsPerSecond(int eventsPerSecond) { this.eventsPerSecond = eventsPerSecond; }
+
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+
+    public int getMaxInFlightBatches() { return maxInFlightBatches; }
+    public void setMaxInFlightBatches(int maxInFlightBatches) { this.maxInFlightBatches = maxInFlightBatches; }
+
+    public long getDurationSeconds() { return durationSeconds; }
+    public void setDurationSeconds(long durationSeconds) { this.durationSeconds = durationSeconds; }
+
+    public double getNetworkFlapProbability() { return networkFlapProbability; }
+    public void setNetworkFlapProbability(double networkFlapProbability) { this.networkFlapProbability = networkFlapProbability; }
+
+    public Consumption getDefaultConsumption() { return defaultConsumption; }
+    public void setDefaultConsumption(Consumption defaultConsumption) { this.defaultConsumption = defaultConsumption; }
+
+    public Map<String, Consumption> getPlanConsumption() { return planConsumption; }
+    public void setPlanConsumption(Map<String, Consumption> planConsumption) { this.planConsumption = planConsumption; }
+}
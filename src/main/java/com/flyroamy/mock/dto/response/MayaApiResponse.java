@@ -2,10 +2,10 @@ package com.flyroamy.mock.dto.response;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.flyroamy.mock.util.RandomIds;
 
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Standard Maya Mobile Connect+ API Response Wrapper
@@ -53,12 +53,15 @@ public class MayaApiResponse<T> {
     @JsonProperty("balance")
     private BalanceData balance;
 
+    @JsonProperty("usage")
+    private UsageData usage;
+
     // Additional fields can be added dynamically
     @JsonProperty("additional_data")
     private Map<String, Object> additionalData;
 
     public MayaApiResponse() {
-        this.requestId = "req_" + UUID.randomUUID().toString().substring(0, 12);
+        this.requestId = RandomIds.hex("req_", 12);
     }
 
     public static <T> MayaApiResponse<T> success(Integer status) {
@@ -183,6 +186,14 @@ public class MayaApiResponse<T> {
         this.balance = balance;
     }
 
+    public UsageData getUsage() {
+        return usage;
+    }
+
+    public void setUsage(UsageData usage) {
+        this.usage = usage;
+    }
+
     public Map<String, Object> getAdditionalData() {
         return additionalData;
     }
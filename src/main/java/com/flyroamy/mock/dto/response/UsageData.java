@@ -0,0 +1,150 @@
+package com.flyroamy.mock.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * eSIM usage history, one entry per hour or day
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UsageData {
+
+    @JsonProperty("iccid")
+    private String iccid;
+
+    @JsonProperty("granularity")
+    private String granularity;
+
+    @JsonProperty("from")
+    private String from;
+
+    @JsonProperty("to")
+    private String to;
+
+    @JsonProperty("total_data_used_mb")
+    private Long totalDataUsedMB;
+
+    @JsonProperty("events")
+    private Long events;
+
+    @JsonProperty("buckets")
+    private List<Bucket> buckets;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Bucket {
+
+        @JsonProperty("start")
+        private String start;
+
+        @JsonProperty("end")
+        private String end;
+
+        @JsonProperty("granularity")
+        private String granularity;
+
+        @JsonProperty("data_used_mb")
+        private Long dataUsedMB;
+
+        @JsonProperty("events")
+        private Long events;
+
+        public String getStart() {
+            return start;
+        }
+
+        public void setStart(String start) {
+            this.start = start;
+        }
+
+        public String getEnd() {
+            return end;
+        }
+
+        public void setEnd(String end) {
+            this.end = end;
+        }
+
+        public String getGranularity() {
+            return granularity;
+        }
+
+        public void setGranularity(String granularity) {
+            this.granularity = granularity;
+        }
+
+        public Long getDataUsedMB() {
+            return dataUsedMB;
+        }
+
+        public void setDataUsedMB(Long dataUsedMB) {
+            this.dataUsedMB = dataUsedMB;
+        }
+
+        public Long getEvents() {
+            return events;
+        }
+
+        public void setEvents(Long events) {
+            this.events = events;
+        }
+    }
+
+    // Getters and Setters
+    public String getIccid() {
+        return iccid;
+    }
+
+    public void setIccid(String iccid) {
+        this.iccid = iccid;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public Long getTotalDataUsedMB() {
+        return totalDataUsedMB;
+    }
+
+    public void setTotalDataUsedMB(Long totalDataUsedMB) {
+        this.totalDataUsedMB = totalDataUsedMB;
+    }
+
+    public Long getEvents() {
+        return events;
+    }
+
+    public void setEvents(Long events) {
+        this.events = events;
+    }
+
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<Bucket> buckets) {
+        this.buckets = buckets;
+    }
+}
@@ -2,10 +2,14 @@ package com.flyroamy.mock.exception;
 
 import com.flyroamy.mock.dto.response.ErrorResponse;
 import com.flyroamy.mock.dto.response.MayaApiResponse;
+import com.flyroamy.mock.util.RandomIds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BindException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -14,13 +18,14 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private static final int CONFLICT_RETRY_AFTER_SECONDS = 1;
+
     @ExceptionHandler(EsimNotFoundException.class)
     public ResponseEntity<MayaApiResponse<Void>> handleEsimNotFound(EsimNotFoundException ex) {
         logger.warn("eSIM not found: {}", ex.getMessage());
@@ -66,8 +71,28 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.GONE).body(response);
     }
 
+    /**
+     * An update that kept losing races for the same eSIM. Nothing was written, so the
+     * client can safely send the request again.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<MayaApiResponse<Void>> handleConflictingUpdate(OptimisticLockingFailureException ex) {
+        logger.warn("Conflicting update: {}", ex.getMessage());
+
+        MayaApiResponse<Void> response = MayaApiResponse.error(409, "Conflicting update",
+            "The eSIM was changed concurrently; retry the request");
+
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(CONFLICT_RETRY_AFTER_SECONDS))
+            .body(response);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<MayaApiResponse<Void>> handleValidationErrors(MethodArgumentNotValidException ex) {
+        return handleBindErrors(ex);
+    }
+
+    private ResponseEntity<MayaApiResponse<Void>> handleBindErrors(BindException ex) {
         Map<String, Object> errors = new HashMap<>();
         ex.getBindingResult().getAllErrors().forEach(error -> {
             String fieldName = ((FieldError) error).getField();
@@ -91,7 +116,36 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
 
+    /**
+     * Maps an error raised outside Spring MVC, such as in the reactive handlers,
+     * to the same response as the handler methods above.
+     */
+    public ResponseEntity<MayaApiResponse<Void>> handle(Throwable ex) {
+        if (ex instanceof EsimNotFoundException e) {
+            return handleEsimNotFound(e);
+        }
+        if (ex instanceof ProductNotFoundException e) {
+            return handleProductNotFound(e);
+        }
+        if (ex instanceof InvalidRequestException e) {
+            return handleInvalidRequest(e);
+        }
+        if (ex instanceof EsimAlreadyActiveException e) {
+            return handleEsimAlreadyActive(e);
+        }
+        if (ex instanceof EsimExpiredException e) {
+            return handleEsimExpired(e);
+        }
+        if (ex instanceof OptimisticLockingFailureException e) {
+            return handleConflictingUpdate(e);
+        }
+        if (ex instanceof BindException e) {
+            return handleBindErrors(e);
+        }
+        return handleGenericException(ex instanceof Exception e ? e : new IllegalStateException(ex));
+    }
+
     private String generateRequestId() {
-        return "req_" + UUID.randomUUID().toString().substring(0, 12);
+        return RandomIds.hex("req_", 12);
     }
 }
@@ -0,0 +1,45 @@
+package com.flyroamy.mock.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Counter of ICCID account numbers handed out under one issuer prefix.
+ *
+ * Instances lease blocks of numbers by incrementing {@code next} by the block size,
+ * so each block belongs to exactly one instance.
+ */
+@Document(collection = "mock_iccid_sequences")
+public class IccidSequence {
+
+    @Id
+    private String id; // issuer prefix, e.g. 89012345
+
+    @Field("next")
+    private long next; // first account number not yet leased
+
+    public IccidSequence() {
+    }
+
+    public IccidSequence(String id, long next) {
+        this.id = id;
+        this.next = next;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getNext() {
+        return next;
+    }
+
+    public void setNext(long next) {
+        this.next = next;
+    }
+}
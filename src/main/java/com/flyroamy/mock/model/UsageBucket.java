@@ -0,0 +1,187 @@
+package com.flyroamy.mock.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Usage of one eSIM within one hour or one day.
+ *
+ * The _id is derived from the eSIM, granularity and bucket start, so recording usage
+ * is a single upsert that increments the bucket in place. Hourly buckets are folded
+ * into daily ones once they are older than the hourly retention.
+ */
+@Document(collection = "mock_usage_buckets")
+@CompoundIndex(name = "esim_granularity_start", def = "{'esim_ref': 1, 'granularity': 1, 'bucket_start': 1}")
+public class UsageBucket {
+
+    public static final String HOUR = "hour";
+    public static final String DAY = "day";
+
+    @Id
+    private String id;
+
+    @Field("esim_ref")
+    private String esimRef; // MockEsim _id
+
+    @Field("iccid")
+    private String iccid;
+
+    @Field("granularity")
+    private String granularity; // hour, day
+
+    @Field("bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Field("data_used_mb")
+    private long dataUsedMB;
+
+    @Field("events")
+    private long events;
+
+    @Field("first_event_at")
+    private LocalDateTime firstEventAt;
+
+    @Field("last_event_at")
+    private LocalDateTime lastEventAt;
+
+    public UsageBucket() {
+    }
+
+    /**
+     * The hourly bucket holding one usage event
+     */
+    public static UsageBucket hourly(MockEsim esim, LocalDateTime at, long usageMB) {
+        UsageBucket bucket = new UsageBucket();
+        bucket.esimRef = esim.getId();
+        bucket.iccid = esim.getIccid();
+        bucket.granularity = HOUR;
+        bucket.bucketStart = at.truncatedTo(ChronoUnit.HOURS);
+        bucket.id = bucketId(bucket.esimRef, HOUR, bucket.bucketStart);
+        bucket.dataUsedMB = usageMB;
+        bucket.events = 1;
+        bucket.firstEventAt = at;
+        bucket.lastEventAt = at;
+        return bucket;
+    }
+
+    /**
+     * This bucket's totals as an increment of the daily bucket it falls in
+     */
+    public UsageBucket toDaily() {
+        UsageBucket daily = new UsageBucket();
+        daily.esimRef = esimRef;
+        daily.iccid = iccid;
+        daily.granularity = DAY;
+        daily.bucketStart = bucketStart.truncatedTo(ChronoUnit.DAYS);
+        daily.id = bucketId(esimRef, DAY, daily.bucketStart);
+        daily.dataUsedMB = dataUsedMB;
+        daily.events = events;
+        daily.firstEventAt = firstEventAt;
+        daily.lastEventAt = lastEventAt;
+        return daily;
+    }
+
+    /**
+     * Add another increment of the same bucket
+     */
+    public UsageBucket merge(UsageBucket other) {
+        dataUsedMB += other.dataUsedMB;
+        events += other.events;
+        if (other.firstEventAt != null && (firstEventAt == null || other.firstEventAt.isBefore(firstEventAt))) {
+            firstEventAt = other.firstEventAt;
+        }
+        if (other.lastEventAt != null && (lastEventAt == null || other.lastEventAt.isAfter(lastEventAt))) {
+            lastEventAt = other.lastEventAt;
+        }
+        return this;
+    }
+
+    /**
+     * Start of the next bucket
+     */
+    public LocalDateTime getBucketEnd() {
+        return DAY.equals(granularity) ? bucketStart.plusDays(1) : bucketStart.plusHours(1);
+    }
+
+    public static String bucketId(String esimRef, String granularity, LocalDateTime bucketStart) {
+        return esimRef + ":" + granularity + ":" + bucketStart;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getEsimRef() {
+        return esimRef;
+    }
+
+    public void setEsimRef(String esimRef) {
+        this.esimRef = esimRef;
+    }
+
+    public String getIccid() {
+        return iccid;
+    }
+
+    public void setIccid(String iccid) {
+        this.iccid = iccid;
+    }
+
+    public String getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(String granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getDataUsedMB() {
+        return dataUsedMB;
+    }
+
+    public void setDataUsedMB(long dataUsedMB) {
+        this.dataUsedMB = dataUsedMB;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public void setEvents(long events) {
+        this.events = events;
+    }
+
+    public LocalDateTime getFirstEventAt() {
+        return firstEventAt;
+    }
+
+    public void setFirstEventAt(LocalDateTime firstEventAt) {
+        this.firstEventAt = firstEventAt;
+    }
+
+    public LocalDateTime getLastEventAt() {
+        return lastEventAt;
+    }
+
+    public void setLastEventAt(LocalDateTime lastEventAt) {
+        this.lastEventAt = lastEventAt;
+    }
+}
@@ -0,0 +1,82 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockEsim;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+/**
+ * Targeted eSIM updates shared by the blocking and reactive Mongo fragments. Each one
+ * sets or pushes only the fields it changes, so usage applied concurrently with $inc
+ * is never overwritten by a document read before it.
+ */
+final class EsimUpdates {
+
+    static final String ACTIVE = "active";
+    static final String DEACTIVATED = "deactivated";
+
+    private EsimUpdates() {
+    }
+
+    // The eSIM, as long as it still has the status it was read with
+    static Query withStatus(String id, String status) {
+        return Query.query(Criteria.where("_id").is(id).and("status").is(status));
+    }
+
+    static Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+
+    // Activating an eSIM stamps the activation date; deactivatePlans also deactivates every plan
+    static Update changeStatus(String expectedStatus, String newStatus, boolean deactivatePlans) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+            .set("status", newStatus)
+            .set("updated_at", now);
+        if (activates(expectedStatus, newStatus)) {
+            update.set("activation_date", now);
+        }
+        if (deactivatePlans) {
+            update.set("attached_plans.$[].status", DEACTIVATED);
+        }
+        return update;
+    }
+
+    static boolean activates(String expectedStatus, String newStatus) {
+        return ACTIVE.equals(newStatus) && !ACTIVE.equals(expectedStatus);
+    }
+
+    // Appends an active plan and adds its allowance; activating also stamps the activation date
+    static Update attachPlan(MockEsim.AttachedPlan plan, boolean activate) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+            .push("attached_plans", plan)
+            .set("updated_at", now);
+        if (ACTIVE.equals(plan.getStatus()) && plan.getDataAllowanceMB() != null) {
+            update.inc("total_data_allowance_mb", plan.getDataAllowanceMB());
+        }
+        if (plan.getDataUsedMB() != null && plan.getDataUsedMB() > 0) {
+            update.inc("total_data_used_mb", plan.getDataUsedMB());
+        }
+        if (activate) {
+            update.set("status", ACTIVE)
+                .set("state", ACTIVE)
+                .set("activation_date", now);
+        }
+        return update;
+    }
+
+    // Null fields are left as they are
+    static Update details(String customerId, String tag) {
+        Update update = new Update().set("updated_at", LocalDateTime.now());
+        if (customerId != null) {
+            update.set("customer_id", customerId);
+        }
+        if (tag != null) {
+            update.set("tag", tag);
+        }
+        return update;
+    }
+}
@@ -0,0 +1,9 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.IccidSequence;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IccidSequenceRepository extends MongoRepository<IccidSequence, String>, IccidSequenceRepositoryCustom {
+}
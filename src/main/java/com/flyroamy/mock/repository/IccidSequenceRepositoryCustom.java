@@ -0,0 +1,18 @@
+package com.flyroamy.mock.repository;
+
+/**
+ * ICCID sequence updates that must be applied atomically on the server.
+ */
+public interface IccidSequenceRepositoryCustom {
+
+    /**
+     * Reserve the next block of account numbers under a prefix, creating its sequence
+     * at zero if needed. Concurrent callers, in this or any other instance, never
+     * receive overlapping blocks.
+     *
+     * @param prefix the issuer prefix the sequence belongs to
+     * @param size how many numbers to reserve
+     * @return the first number of the block
+     */
+    long leaseBlock(String prefix, long size);
+}
@@ -0,0 +1,32 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.IccidSequence;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Mongo implementation of {@link IccidSequenceRepositoryCustom}, picked up by Spring Data
+ * as a repository fragment of {@link IccidSequenceRepository}.
+ */
+public class IccidSequenceRepositoryCustomImpl implements IccidSequenceRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public IccidSequenceRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public long leaseBlock(String prefix, long size) {
+        // One upserting $inc: the document lock on the server orders concurrent leases
+        IccidSequence sequence = mongoTemplate.findAndModify(
+            Query.query(Criteria.where("_id").is(prefix)),
+            new Update().inc("next", size),
+            FindAndModifyOptions.options().upsert(true).returnNew(true),
+            IccidSequence.class);
+        return sequence.getNext() - size;
+    }
+}
@@ -7,11 +7,13 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface MockEsimRepository extends MongoRepository<MockEsim, String> {
+public interface MockEsimRepository extends MongoRepository<MockEsim, String>, MockEsimRepositoryCustom {
 
     Optional<MockEsim> findByEsimId(String esimId);
 
@@ -19,6 +21,18 @@ public interface MockEsimRepository extends MongoRepository<MockEsim, String> {
 
     Optional<MockEsim> findByUid(String uid);
 
+    @Query("{ '$or': [ { 'esim_id': ?0 }, { 'uid': ?0 }, { 'iccid': ?0 } ] }")
+    Optional<MockEsim> findByAnyIdentifier(String identifier);
+
+    List<MockEsim> findByEsimIdIn(Collection<String> esimIds);
+
+    List<MockEsim> findByUidIn(Collection<String> uids);
+
+    List<MockEsim> findByIccidIn(Collection<String> iccids);
+
+    @Query("{ '$or': [ { 'esim_id': { '$in': ?0 } }, { 'uid': { '$in': ?0 } }, { 'iccid': { '$in': ?0 } } ] }")
+    List<MockEsim> findByAnyIdentifierIn(Collection<String> identifiers);
+
     boolean existsByEsimId(String esimId);
 
     boolean existsByIccid(String iccid);
@@ -40,4 +54,9 @@ public interface MockEsimRepository extends MongoRepository<MockEsim, String> {
     void deleteByEsimId(String esimId);
 
     long countByStatus(String status);
+
+    // Only what the expiry engine needs to schedule an eSIM and its plans
+    @Query(value = "{ '$or': [ { 'status': 'active' }, { 'attached_plans.status': 'active' } ] }",
+           fields = "{ 'status': 1, 'activation_date': 1, 'attached_plans.status': 1, 'attached_plans.expiryDate': 1 }")
+    Stream<MockEsim> streamExpiryCandidates();
 }
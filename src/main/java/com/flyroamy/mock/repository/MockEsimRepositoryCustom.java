@@ -0,0 +1,124 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockEsim;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * eSIM updates that must be applied atomically on the server.
+ */
+public interface MockEsimRepositoryCustom {
+
+    /**
+     * Apply usage to an active eSIM without losing concurrent updates.
+     *
+     * Active plans are drawn down oldest first, as described by {@link UsageAllocation}.
+     * Nothing is applied if the eSIM is not active; the caller can tell from the
+     * returned status.
+     *
+     * @param id document _id
+     * @param usageMB megabytes used
+     * @return the eSIM after the update, or empty if it no longer exists
+     */
+    Optional<MockEsim> applyUsage(String id, int usageMB);
+
+    /**
+     * Apply usage to many active eSIMs with one unordered bulk write, using the plan
+     * balances of the eSIMs as loaded.
+     *
+     * An eSIM that changed since it was loaded, is no longer active or was deleted is
+     * left untouched and returned so the caller can retry it with {@link #applyUsage}.
+     * An id is only returned when its update is known not to have been written, so a
+     * retry never applies usage twice.
+     *
+     * @param esims loaded eSIMs, one per _id
+     * @param usageById megabytes keyed by document _id
+     * @return ids of the eSIMs that were not updated
+     */
+    Set<String> applyUsageBulk(Collection<MockEsim> esims, Map<String, Integer> usageById);
+
+    /**
+     * Set the status of an eSIM if it still has the status it was read with. Plan
+     * balances and usage totals are left alone, and activating an eSIM that was not
+     * active sets its activation date.
+     *
+     * @param id document _id
+     * @param expectedStatus status the eSIM was read with
+     * @param newStatus status to set
+     * @param deactivatePlans also set every attached plan to deactivated
+     * @return the eSIM after the update, or empty if it no longer exists or its status changed
+     */
+    Optional<MockEsim> changeStatus(String id, String expectedStatus, String newStatus, boolean deactivatePlans);
+
+    /**
+     * Append a plan to an eSIM if it still has the status it was read with, adding the
+     * plan's allowance to the eSIM's total.
+     *
+     * @param id document _id
+     * @param expectedStatus status the eSIM was read with
+     * @param plan plan to append
+     * @param activate whether the eSIM also becomes active, with an activation date of now
+     * @return the eSIM after the update, or empty if it no longer exists or its status changed
+     */
+    Optional<MockEsim> attachPlan(String id, String expectedStatus, MockEsim.AttachedPlan plan, boolean activate);
+
+    /**
+     * Set the customer id and tag of an eSIM, leaving a null one unchanged.
+     *
+     * @param id document _id
+     * @return the eSIM after the update, or empty if it no longer exists
+     */
+    Optional<MockEsim> updateDetails(String id, String customerId, String tag);
+
+    /**
+     * Set the network status of many eSIMs with one update, leaving every other
+     * field alone so concurrent usage updates are not overwritten.
+     *
+     * @param ids document _ids
+     * @param networkStatus connected, disconnected or roaming
+     * @return number of eSIMs updated
+     */
+    long setNetworkStatus(Collection<String> ids, String networkStatus);
+
+    /**
+     * Expire the active plans of these eSIMs whose expiry date has passed, dropping
+     * their allowance from the active total. Plans that are no longer active, or not
+     * due yet, are left alone, so stale or early requests are harmless.
+     *
+     * @param ids document _ids
+     * @param now plans expiring at or before this time are expired
+     * @return number of eSIMs changed
+     */
+    long expirePlans(Collection<String> ids, LocalDateTime now);
+
+    /**
+     * Expire these eSIMs if they are still active and were activated at or before the
+     * cutoff. Their active plans expire with them.
+     *
+     * @param ids document _ids
+     * @param activatedBefore latest activation date that is due
+     * @return number of eSIMs changed
+     */
+    long expireEsims(Collection<String> ids, LocalDateTime activatedBefore);
+
+    /**
+     * Insert new eSIMs with ordered bulk writes. An eSIM that fails, such as on a
+     * duplicate key, is reported and the eSIMs after it are still inserted, in order.
+     *
+     * @param esims eSIMs that are not stored yet
+     * @return error messages keyed by the index of each eSIM that was not inserted
+     */
+    Map<Integer, String> insertOrdered(List<MockEsim> esims);
+
+    /**
+     * Count eSIMs per status with one $group aggregation.
+     *
+     * @return number of eSIMs keyed by status; eSIMs without a status are left out
+     */
+    Map<String, Long> countAllByStatus();
+}
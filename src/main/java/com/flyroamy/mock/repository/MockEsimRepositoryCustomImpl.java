@@ -0,0 +1,444 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockEsim;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mongo implementation of {@link MockEsimRepositoryCustom}, picked up by Spring Data
+ * as a repository fragment of {@link MockEsimRepository}.
+ *
+ * Usage is applied with one findAndModify of $inc on the debited plans. Each debited
+ * plan is guarded on still being active and still holding enough data, so concurrent
+ * reports only conflict when they race for the last megabytes of a plan. A failed
+ * guard re-reads the eSIM and allocates again, backing off once the conflicts persist;
+ * a report that keeps conflicting fails with {@link OptimisticLockingFailureException},
+ * which the API answers with a retryable 409.
+ */
+public class MockEsimRepositoryCustomImpl implements MockEsimRepositoryCustom {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockEsimRepositoryCustomImpl.class);
+
+    private static final String ACTIVE = "active";
+    private static final String DEPLETED = "depleted";
+    private static final String EXPIRED = "expired";
+    // Marker of the bulk usage write that found the eSIM changed, and the pipeline's guard result
+    private static final String USAGE_MISSED = "usage_missed";
+    private static final String USAGE_APPLIES = "usage_applies";
+    private static final int MAX_ATTEMPTS = 32;
+    private static final int IMMEDIATE_RETRIES = 4;
+    private static final long BACKOFF_BASE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BACKOFF_MAX_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final MongoTemplate mongoTemplate;
+
+    public MockEsimRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<MockEsim> applyUsage(String id, int usageMB) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            MockEsim esim = mongoTemplate.findById(id, MockEsim.class);
+            if (esim == null || !ACTIVE.equals(esim.getStatus())) {
+                return Optional.ofNullable(esim);
+            }
+
+            GuardedUpdate guarded = guardedUsageUpdate(esim, usageMB);
+            MockEsim updated = mongoTemplate.findAndModify(guarded.query(), guarded.update(),
+                FindAndModifyOptions.options().returnNew(true), MockEsim.class);
+            if (updated != null) {
+                return Optional.of(updated);
+            }
+            backOff(attempt);
+        }
+        throw new OptimisticLockingFailureException(
+            "Usage on eSIM " + id + " conflicted " + MAX_ATTEMPTS + " times");
+    }
+
+    /**
+     * Waits before the next attempt. The first few retry at once, since a lost race for
+     * a plan's last megabytes usually settles in one round trip; after that the wait is
+     * a random share of an exponentially growing, capped window, so writers hammering
+     * one eSIM spread out instead of colliding again in lockstep.
+     */
+    private static void backOff(int attempt) {
+        if (attempt < IMMEDIATE_RETRIES) {
+            Thread.onSpinWait();
+            return;
+        }
+        long window = Math.min(BACKOFF_BASE_NANOS << Math.min(attempt - IMMEDIATE_RETRIES, 16), BACKOFF_MAX_NANOS);
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(window / 2, window + 1));
+    }
+
+    /**
+     * Each eSIM becomes one pipeline updateOne in an unordered bulk write. The pipeline
+     * checks the guard of {@link #applyUsage} against the stored eSIM: when it holds the
+     * usage is applied, and when it does not the eSIM only gets the batch's marker. An
+     * eSIM that applied is written once and never carries a marker. Reading the markers
+     * back names exactly the eSIMs that missed, and only those are written again, to
+     * unset the marker.
+     */
+    @Override
+    public Set<String> applyUsageBulk(Collection<MockEsim> esims, Map<String, Integer> usageById) {
+        if (esims.isEmpty()) {
+            return Set.of();
+        }
+
+        String batch = new ObjectId().toHexString();
+        Date now = toDate(LocalDateTime.now());
+        List<String> ids = new ArrayList<>();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MockEsim.class);
+        for (MockEsim esim : esims) {
+            bulk.updateOne(EsimUpdates.byId(esim.getId()),
+                usageOrMarker(esim, usageById.getOrDefault(esim.getId(), 0), batch, now));
+            ids.add(esim.getId());
+        }
+
+        Set<String> notApplied = new HashSet<>();
+        long matched;
+        try {
+            matched = bulk.execute().getMatchedCount();
+        } catch (BulkOperationException e) {
+            // A failed operation wrote nothing
+            e.getErrors().forEach(error -> notApplied.add(ids.get(error.getIndex())));
+            matched = e.getResult().getMatchedCount();
+        } catch (DataAccessException e) {
+            // Without per-operation detail, an eSIM without a marker is taken as updated so usage is never applied twice
+            logger.error("Bulk usage write failed, eSIMs not marked as missed are taken as updated", e);
+            matched = -1;
+        }
+
+        Query marked = Query.query(Criteria.where("_id").in(ids).and(USAGE_MISSED).is(batch));
+        marked.fields().include("_id");
+        List<String> missed = mongoTemplate.find(marked, MockEsim.class).stream().map(MockEsim::getId).toList();
+        notApplied.addAll(missed);
+        if (matched < ids.size()) {
+            // Deleted since they were loaded
+            Set<String> stored = storedIds(ids);
+            ids.stream().filter(id -> !stored.contains(id)).forEach(notApplied::add);
+        }
+        if (!missed.isEmpty()) {
+            removeMarker(missed, batch);
+        }
+        return notApplied;
+    }
+
+    // Markers left behind are harmless, so failing to remove them is only logged
+    private void removeMarker(List<String> ids, String batch) {
+        try {
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids).and(USAGE_MISSED).is(batch)),
+                new Update().unset(USAGE_MISSED), MockEsim.class);
+        } catch (DataAccessException e) {
+            logger.warn("Could not remove usage batch marker {}: {}", batch, e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<MockEsim> changeStatus(String id, String expectedStatus, String newStatus,
+                                           boolean deactivatePlans) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(EsimUpdates.withStatus(id, expectedStatus),
+            EsimUpdates.changeStatus(expectedStatus, newStatus, deactivatePlans),
+            FindAndModifyOptions.options().returnNew(true), MockEsim.class));
+    }
+
+    @Override
+    public Optional<MockEsim> attachPlan(String id, String expectedStatus, MockEsim.AttachedPlan plan,
+                                         boolean activate) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(EsimUpdates.withStatus(id, expectedStatus),
+            EsimUpdates.attachPlan(plan, activate), FindAndModifyOptions.options().returnNew(true), MockEsim.class));
+    }
+
+    @Override
+    public Optional<MockEsim> updateDetails(String id, String customerId, String tag) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(EsimUpdates.byId(id),
+            EsimUpdates.details(customerId, tag), FindAndModifyOptions.options().returnNew(true), MockEsim.class));
+    }
+
+    @Override
+    public long setNetworkStatus(Collection<String> ids, String networkStatus) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Update update = new Update()
+            .set("network_status", networkStatus)
+            .set("updated_at", LocalDateTime.now());
+        return mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)), update, MockEsim.class)
+            .getModifiedCount();
+    }
+
+    /**
+     * One pipeline update for the whole batch: due plans are rewritten in place and
+     * the active allowance is summed again from the result.
+     */
+    @Override
+    public long expirePlans(Collection<String> ids, LocalDateTime now) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids)
+            .and("attached_plans").elemMatch(Criteria.where("status").is(ACTIVE).and("expiryDate").lte(now)));
+
+        Date at = toDate(now);
+        Document isDue = new Document("$and", List.of(
+            new Document("$eq", List.of("$$plan.status", ACTIVE)),
+            new Document("$lte", List.of("$$plan.expiryDate", at))));
+        AggregationUpdate update = AggregationUpdate.from(List.of(
+            set(new Document("attached_plans", expirePlans(isDue)).append("updated_at", at)),
+            set(new Document("total_data_allowance_mb", activeAllowance()))));
+
+        return mongoTemplate.updateMulti(query, update, MockEsim.class).getModifiedCount();
+    }
+
+    @Override
+    public long expireEsims(Collection<String> ids, LocalDateTime activatedBefore) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids)
+            .and("status").is(ACTIVE)
+            .and("activation_date").lte(activatedBefore));
+
+        AggregationUpdate update = AggregationUpdate.from(List.of(set(new Document("status", EXPIRED)
+            .append("state", EXPIRED)
+            .append("service_status", EXPIRED)
+            .append("attached_plans", expirePlans(new Document("$eq", List.of("$$plan.status", ACTIVE))))
+            .append("total_data_allowance_mb", 0)
+            .append("updated_at", toDate(LocalDateTime.now())))));
+
+        return mongoTemplate.updateMulti(query, update, MockEsim.class).getModifiedCount();
+    }
+
+    @Override
+    public Map<Integer, String> insertOrdered(List<MockEsim> esims) {
+        for (MockEsim esim : esims) {
+            if (esim.getId() == null) {
+                esim.setId(new ObjectId().toHexString());
+            }
+        }
+
+        // An ordered insertMany stops at the first failure; resume right after it
+        Map<Integer, String> errors = new LinkedHashMap<>();
+        int from = 0;
+        while (from < esims.size()) {
+            List<MockEsim> remaining = esims.subList(from, esims.size());
+            try {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, MockEsim.class).insert(remaining).execute();
+                break;
+            } catch (DataAccessException e) {
+                Map<Integer, String> failed = MockProductRepositoryCustomImpl.writeErrors(e, remaining.size());
+                if (failed.size() != 1) {
+                    // No per-operation detail: a prefix may have been written, so report only the _ids not stored
+                    Set<String> stored = storedIds(remaining.stream().map(MockEsim::getId).toList());
+                    for (Map.Entry<Integer, String> error : failed.entrySet()) {
+                        if (!stored.contains(remaining.get(error.getKey()).getId())) {
+                            errors.put(from + error.getKey(), error.getValue());
+                        }
+                    }
+                    break;
+                }
+                Map.Entry<Integer, String> error = failed.entrySet().iterator().next();
+                errors.put(from + error.getKey(), error.getValue());
+                from += error.getKey() + 1;
+            }
+        }
+        return errors;
+    }
+
+    private Set<String> storedIds(Collection<String> ids) {
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("_id");
+        Set<String> stored = new HashSet<>();
+        for (MockEsim esim : mongoTemplate.find(query, MockEsim.class)) {
+            stored.add(esim.getId());
+        }
+        return stored;
+    }
+
+    @Override
+    public Map<String, Long> countAllByStatus() {
+        Aggregation aggregation = Aggregation.newAggregation(Aggregation.group("status").count().as("count"));
+        Map<String, Long> counts = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, MockEsim.class, Document.class)) {
+            if (row.get("_id") != null) {
+                counts.put(row.get("_id").toString(), ((Number) row.get("count")).longValue());
+            }
+        }
+        return counts;
+    }
+
+    // attached_plans with every plan matching the condition set to expired
+    private static Document expirePlans(Document condition) {
+        return new Document("$map", new Document("input", "$attached_plans")
+            .append("as", "plan")
+            .append("in", new Document("$cond", List.of(
+                condition,
+                new Document("$mergeObjects", List.of("$$plan", new Document("status", EXPIRED))),
+                "$$plan"))));
+    }
+
+    private static Document activeAllowance() {
+        return new Document("$sum", new Document("$map", new Document("input",
+            new Document("$filter", new Document("input", "$attached_plans")
+                .append("as", "plan")
+                .append("cond", new Document("$eq", List.of("$$plan.status", ACTIVE)))))
+            .append("as", "plan")
+            .append("in", "$$plan.dataAllowanceMB")));
+    }
+
+    private static AggregationOperation set(Document fields) {
+        return context -> new Document("$set", fields);
+    }
+
+    private static AggregationOperation unset(String field) {
+        return context -> new Document("$unset", field);
+    }
+
+    // Stored dates are written the way Spring converts LocalDateTime: in the system zone
+    private static Date toDate(LocalDateTime time) {
+        return Date.from(time.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Builds the conditional $inc for one usage report against an eSIM as loaded
+     */
+    private static GuardedUpdate guardedUsageUpdate(MockEsim esim, int usageMB) {
+        UsageAllocation allocation = UsageAllocation.allocate(esim, usageMB);
+        Query query = Query.query(Criteria.where("_id").is(esim.getId()).and("status").is(ACTIVE));
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+            .set("last_used", now)
+            .set("updated_at", now);
+
+        int allowanceDropped = 0;
+        for (UsageAllocation.PlanDebit debit : allocation.debits()) {
+            String plan = "attached_plans." + debit.index() + ".";
+            query.addCriteria(Criteria.where(plan + "status").is(ACTIVE));
+            if (debit.depletes()) {
+                query.addCriteria(Criteria.where(plan + "remainingDataMB").gte(debit.consumedMB()));
+                update.set(plan + "status", DEPLETED);
+                allowanceDropped += debit.allowanceMB();
+            } else {
+                // Strictly more, so a plan never reaches zero without being marked depleted
+                query.addCriteria(Criteria.where(plan + "remainingDataMB").gt(debit.consumedMB()));
+            }
+            if (debit.consumedMB() > 0) {
+                update.inc(plan + "dataUsedMB", debit.consumedMB());
+                update.inc(plan + "remainingDataMB", -debit.consumedMB());
+            }
+        }
+        if (allocation.consumedMB() > 0) {
+            update.inc("total_data_used_mb", allocation.consumedMB());
+        }
+        if (allowanceDropped > 0) {
+            update.inc("total_data_allowance_mb", -allowanceDropped);
+        }
+        return new GuardedUpdate(query, update);
+    }
+
+    /**
+     * The guard and changes of {@link #guardedUsageUpdate} as one pipeline update: the
+     * usage is applied while the guard holds for the stored eSIM, otherwise only the
+     * batch's marker is set
+     */
+    private static AggregationUpdate usageOrMarker(MockEsim esim, int usageMB, String batch, Date now) {
+        UsageAllocation allocation = UsageAllocation.allocate(esim, usageMB);
+        List<Document> guard = new ArrayList<>();
+        guard.add(new Document("$eq", List.of("$status", ACTIVE)));
+        List<Document> debited = new ArrayList<>();
+
+        int allowanceDropped = 0;
+        for (UsageAllocation.PlanDebit debit : allocation.debits()) {
+            Document plan = new Document("$arrayElemAt", List.of("$attached_plans", debit.index()));
+            guard.add(new Document("$eq", List.of(planField(plan, "status"), ACTIVE)));
+            // Strictly more unless depleting, so a plan never reaches zero without being marked depleted
+            guard.add(new Document(debit.depletes() ? "$gte" : "$gt",
+                List.of(planField(plan, "remainingDataMB"), debit.consumedMB())));
+
+            Document changes = new Document();
+            if (debit.depletes()) {
+                changes.append("status", DEPLETED);
+                allowanceDropped += debit.allowanceMB();
+            }
+            if (debit.consumedMB() > 0) {
+                changes.append("dataUsedMB", plus("$$plan.dataUsedMB", debit.consumedMB()))
+                    .append("remainingDataMB", plus("$$plan.remainingDataMB", -debit.consumedMB()));
+            }
+            debited.add(new Document("case", new Document("$eq", List.of("$$index", debit.index())))
+                .append("then", new Document("$mergeObjects", List.of("$$plan", changes))));
+        }
+
+        Map<String, Object> applied = new LinkedHashMap<>();
+        applied.put("last_used", now);
+        applied.put("updated_at", now);
+        if (!debited.isEmpty()) {
+            applied.put("attached_plans", new Document("$map", new Document("input",
+                    new Document("$range", List.of(0, new Document("$size",
+                        new Document("$ifNull", List.of("$attached_plans", List.of()))))))
+                .append("as", "index")
+                .append("in", new Document("$let", new Document("vars",
+                        new Document("plan", new Document("$arrayElemAt", List.of("$attached_plans", "$$index"))))
+                    .append("in", new Document("$switch", new Document("branches", debited)
+                        .append("default", "$$plan")))))));
+        }
+        if (allocation.consumedMB() > 0) {
+            applied.put("total_data_used_mb", plus("$total_data_used_mb", allocation.consumedMB()));
+        }
+        if (allowanceDropped > 0) {
+            applied.put("total_data_allowance_mb", plus("$total_data_allowance_mb", -allowanceDropped));
+        }
+
+        Document fields = new Document();
+        applied.forEach((field, value) ->
+            fields.append(field, new Document("$cond", List.of("$" + USAGE_APPLIES, value, "$" + field))));
+        fields.append(USAGE_MISSED, new Document("$cond", List.of("$" + USAGE_APPLIES, "$$REMOVE", batch)));
+
+        return AggregationUpdate.from(List.of(
+            set(new Document(USAGE_APPLIES, new Document("$and", guard))),
+            set(fields),
+            unset(USAGE_APPLIES)));
+    }
+
+    // A field of a plan picked out with $arrayElemAt
+    private static Document planField(Document plan, String field) {
+        return new Document("$let", new Document("vars", new Document("plan", plan)).append("in", "$$plan." + field));
+    }
+
+    // The field plus an amount, counting a missing field as zero, as $inc does
+    private static Document plus(String field, int amount) {
+        return new Document("$add", List.of(new Document("$ifNull", List.of(field, 0)), amount));
+    }
+
+    private record GuardedUpdate(Query query, Update update) {
+    }
+}
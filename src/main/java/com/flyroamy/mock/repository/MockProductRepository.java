@@ -7,16 +7,22 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface MockProductRepository extends MongoRepository<MockProduct, String> {
+public interface MockProductRepository extends MongoRepository<MockProduct, String>, MockProductRepositoryCustom {
 
     Optional<MockProduct> findByProductId(String productId);
 
     Optional<MockProduct> findByUid(String uid);
 
+    @Query("{ '$or': [ { 'product_id': ?0 }, { 'uid': ?0 } ] }")
+    List<MockProduct> findByProductIdOrUid(String identifier);
+
+    List<MockProduct> findByProductIdIn(Collection<String> productIds);
+
     boolean existsByProductId(String productId);
 
     boolean existsByUid(String uid);
@@ -0,0 +1,21 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockProduct;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk operations on products that derived queries cannot express.
+ */
+public interface MockProductRepositoryCustom {
+
+    /**
+     * Upsert products keyed by product_id in a single unordered bulk write. Products
+     * that were inserted get the id the store assigned them.
+     *
+     * @param products products to write, at most one per productId
+     * @return error messages keyed by the index of each product that failed to write
+     */
+    Map<Integer, String> bulkUpsertByProductId(List<MockProduct> products);
+}
@@ -0,0 +1,89 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockProduct;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonValue;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mongo implementation of {@link MockProductRepositoryCustom}, picked up by Spring Data
+ * as a repository fragment of {@link MockProductRepository}.
+ */
+public class MockProductRepositoryCustomImpl implements MockProductRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public MockProductRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Map<Integer, String> bulkUpsertByProductId(List<MockProduct> products) {
+        if (products.isEmpty()) {
+            return Map.of();
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MockProduct.class);
+        for (MockProduct product : products) {
+            Query byProductId = Query.query(Criteria.where("productId").is(product.getProductId()));
+            bulk.replaceOne(byProductId, product, FindAndReplaceOptions.options().upsert());
+        }
+
+        try {
+            assignUpsertedIds(products, bulk.execute().getUpserts());
+            return Map.of();
+        } catch (DataAccessException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof MongoBulkWriteException bulkException) {
+                    assignUpsertedIds(products, bulkException.getWriteResult().getUpserts());
+                    break;
+                }
+            }
+            return writeErrors(e, products.size());
+        }
+    }
+
+    /**
+     * Products inserted by an upsert got their _id from the server; copy it back so
+     * callers, such as the catalog cache, see the same document as the database
+     */
+    private static void assignUpsertedIds(List<MockProduct> products, List<BulkWriteUpsert> upserts) {
+        for (BulkWriteUpsert upsert : upserts) {
+            BsonValue id = upsert.getId();
+            products.get(upsert.getIndex())
+                .setId(id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue());
+        }
+    }
+
+    /**
+     * Maps a failed unordered bulk write back to the operations that failed. The
+     * driver exception carries per-operation errors whichever Spring exception wraps it.
+     */
+    static Map<Integer, String> writeErrors(DataAccessException e, int operations) {
+        Map<Integer, String> errors = new LinkedHashMap<>();
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkException) {
+                for (BulkWriteError error : bulkException.getWriteErrors()) {
+                    errors.put(error.getIndex(), error.getMessage());
+                }
+                return errors;
+            }
+        }
+        // No per-operation detail: nothing in the batch can be assumed written
+        for (int i = 0; i < operations; i++) {
+            errors.put(i, e.getMessage());
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,18 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockEsim;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link MockEsimRepository} for the reactive stack
+ */
+@Repository
+public interface ReactiveMockEsimRepository extends ReactiveMongoRepository<MockEsim, String>,
+        ReactiveMockEsimRepositoryCustom {
+
+    Mono<MockEsim> findByIccid(String iccid);
+
+    Mono<MockEsim> findByEsimId(String esimId);
+}
@@ -0,0 +1,26 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockEsim;
+import reactor.core.publisher.Mono;
+
+/**
+ * Targeted eSIM updates for the reactive stack, the counterparts of those in
+ * {@link MockEsimRepositoryCustom}.
+ */
+public interface ReactiveMockEsimRepositoryCustom {
+
+    /**
+     * Append a plan to an eSIM if it still has the status it was read with.
+     *
+     * @see MockEsimRepositoryCustom#attachPlan
+     * @return the eSIM after the update, or empty if it no longer exists or its status changed
+     */
+    Mono<MockEsim> attachPlan(String id, String expectedStatus, MockEsim.AttachedPlan plan, boolean activate);
+
+    /**
+     * Set the customer id and tag of an eSIM, leaving a null one unchanged.
+     *
+     * @return the eSIM after the update, or empty if it no longer exists
+     */
+    Mono<MockEsim> updateDetails(String id, String customerId, String tag);
+}
@@ -0,0 +1,31 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockEsim;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mongo implementation of {@link ReactiveMockEsimRepositoryCustom}, picked up by Spring
+ * Data as a repository fragment of {@link ReactiveMockEsimRepository}.
+ */
+public class ReactiveMockEsimRepositoryCustomImpl implements ReactiveMockEsimRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReactiveMockEsimRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<MockEsim> attachPlan(String id, String expectedStatus, MockEsim.AttachedPlan plan, boolean activate) {
+        return mongoTemplate.findAndModify(EsimUpdates.withStatus(id, expectedStatus),
+            EsimUpdates.attachPlan(plan, activate), FindAndModifyOptions.options().returnNew(true), MockEsim.class);
+    }
+
+    @Override
+    public Mono<MockEsim> updateDetails(String id, String customerId, String tag) {
+        return mongoTemplate.findAndModify(EsimUpdates.byId(id),
+            EsimUpdates.details(customerId, tag), FindAndModifyOptions.options().returnNew(true), MockEsim.class);
+    }
+}
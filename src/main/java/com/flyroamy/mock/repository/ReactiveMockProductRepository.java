@@ -0,0 +1,27 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockProduct;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link MockProductRepository} for the reactive stack
+ */
+@Repository
+public interface ReactiveMockProductRepository extends ReactiveMongoRepository<MockProduct, String> {
+
+    Mono<MockProduct> findByProductId(String productId);
+
+    Mono<Boolean> existsByProductId(String productId);
+
+    Flux<MockProduct> findByIsActiveTrue(Pageable pageable);
+
+    @Query("{ 'region': ?0, 'is_active': true }")
+    Flux<MockProduct> findByRegionAndActive(String region, Pageable pageable);
+
+    Mono<Void> deleteByProductId(String productId);
+}
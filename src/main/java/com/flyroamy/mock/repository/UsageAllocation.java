@@ -0,0 +1,68 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.MockEsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How a usage report is split across an eSIM's plans: active plans are drawn down
+ * oldest first, a plan drawn to zero becomes depleted, and usage beyond what the
+ * active plans hold is dropped.
+ *
+ * Shared by the Mongo and in-memory repositories so both apply usage the same way.
+ */
+public record UsageAllocation(List<PlanDebit> debits, int consumedMB) {
+
+    private static final String ACTIVE = "active";
+    private static final String DEPLETED = "depleted";
+
+    /**
+     * Usage taken from one plan
+     *
+     * @param index position of the plan in attached_plans
+     * @param consumedMB megabytes taken from the plan
+     * @param remainingMB what the plan held before, which the update must still find
+     * @param depletes whether this debit empties the plan
+     * @param allowanceMB the plan's allowance, dropped from the active total when it depletes
+     */
+    public record PlanDebit(int index, int consumedMB, int remainingMB, boolean depletes, int allowanceMB) {
+    }
+
+    public static UsageAllocation allocate(MockEsim esim, int usageMB) {
+        List<PlanDebit> debits = new ArrayList<>();
+        int remainingUsage = usageMB;
+        List<MockEsim.AttachedPlan> plans = esim.getAttachedPlans() != null ? esim.getAttachedPlans() : List.of();
+
+        for (int i = 0; i < plans.size() && remainingUsage > 0; i++) {
+            MockEsim.AttachedPlan plan = plans.get(i);
+            if (!ACTIVE.equals(plan.getStatus())) {
+                continue;
+            }
+            int available = plan.getRemainingDataMB() != null ? plan.getRemainingDataMB() : 0;
+            int consumed = Math.min(available, remainingUsage);
+            boolean depletes = available - consumed <= 0;
+            if (consumed > 0 || depletes) {
+                int allowance = plan.getDataAllowanceMB() != null ? plan.getDataAllowanceMB() : 0;
+                debits.add(new PlanDebit(i, consumed, available, depletes, allowance));
+            }
+            remainingUsage -= consumed;
+        }
+        return new UsageAllocation(List.copyOf(debits), usageMB - remainingUsage);
+    }
+
+    /**
+     * Apply the debits to a loaded eSIM
+     */
+    public void applyTo(MockEsim esim) {
+        for (PlanDebit debit : debits) {
+            MockEsim.AttachedPlan plan = esim.getAttachedPlans().get(debit.index());
+            plan.setDataUsedMB((plan.getDataUsedMB() != null ? plan.getDataUsedMB() : 0) + debit.consumedMB());
+            plan.setRemainingDataMB(debit.remainingMB() - debit.consumedMB());
+            if (debit.depletes()) {
+                plan.setStatus(DEPLETED);
+            }
+        }
+        esim.recalculateTotals();
+    }
+}
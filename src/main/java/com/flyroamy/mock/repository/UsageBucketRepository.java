@@ -0,0 +1,22 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.UsageBucket;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UsageBucketRepository extends MongoRepository<UsageBucket, String>, UsageBucketRepositoryCustom {
+
+    @Query("{ 'esim_ref': ?0, 'granularity': ?1, 'bucket_start': { '$gte': ?2, '$lt': ?3 } }")
+    List<UsageBucket> findByEsimRefAndGranularityInRange(String esimRef, String granularity,
+                                                         LocalDateTime from, LocalDateTime to);
+
+    List<UsageBucket> findByGranularityAndBucketStartBefore(String granularity, LocalDateTime cutoff, Pageable pageable);
+
+    void deleteByEsimRef(String esimRef);
+}
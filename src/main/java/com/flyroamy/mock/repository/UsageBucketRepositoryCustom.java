@@ -0,0 +1,19 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.UsageBucket;
+
+import java.util.Collection;
+
+/**
+ * Usage bucket updates that must be applied atomically on the server.
+ */
+public interface UsageBucketRepositoryCustom {
+
+    /**
+     * Add each increment to the bucket with its _id, creating the bucket if needed.
+     * Concurrent increments of one bucket are never lost.
+     *
+     * @param increments usage, events and event times to add, at most one per bucket
+     */
+    void incrementAll(Collection<UsageBucket> increments);
+}
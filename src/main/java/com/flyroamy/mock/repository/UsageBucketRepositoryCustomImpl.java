@@ -0,0 +1,46 @@
+package com.flyroamy.mock.repository;
+
+import com.flyroamy.mock.model.UsageBucket;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+
+/**
+ * Mongo implementation of {@link UsageBucketRepositoryCustom}, picked up by Spring Data
+ * as a repository fragment of {@link UsageBucketRepository}.
+ */
+public class UsageBucketRepositoryCustomImpl implements UsageBucketRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public UsageBucketRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void incrementAll(Collection<UsageBucket> increments) {
+        if (increments.isEmpty()) {
+            return;
+        }
+
+        // One upsert per bucket: $inc the totals, widen the event window, set the key fields on insert
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UsageBucket.class);
+        for (UsageBucket increment : increments) {
+            Update update = new Update()
+                .inc("data_used_mb", increment.getDataUsedMB())
+                .inc("events", increment.getEvents())
+                .min("first_event_at", increment.getFirstEventAt())
+                .max("last_event_at", increment.getLastEventAt())
+                .setOnInsert("esim_ref", increment.getEsimRef())
+                .setOnInsert("iccid", increment.getIccid())
+                .setOnInsert("granularity", increment.getGranularity())
+                .setOnInsert("bucket_start", increment.getBucketStart());
+            bulk.upsert(Query.query(Criteria.where("_id").is(increment.getId())), update);
+        }
+        bulk.execute();
+    }
+}
@@ -0,0 +1,443 @@
+package com.flyroamy.mock.repository.memory;
+
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.repository.UsageAllocation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * In-memory {@link MockEsimRepository}, active when {@code mock.storage=memory}.
+ * Indexes mirror the Mongo ones: esim_id, uid and iccid are unique, status is not.
+ */
+@Repository
+@ConditionalOnProperty(name = "mock.storage", havingValue = "memory")
+public class InMemoryEsimRepository extends InMemoryMongoRepository<MockEsim> implements MockEsimRepository {
+
+    private static final String ESIM_ID = "esimId";
+    private static final String ICCID = "iccid";
+    private static final String UID = "uid";
+    private static final String STATUS = "status";
+    private static final String USER_EMAIL = "userEmail";
+    private static final String USER_ID = "metadata.userId";
+    private static final String ORDER_ID = "metadata.orderId";
+    private static final String ACTIVE = "active";
+    private static final String DEACTIVATED = "deactivated";
+    private static final String EXPIRED = "expired";
+    private static final int USAGE_LOCK_STRIPES = 64;
+
+    private final Lock[] usageLocks = new Lock[USAGE_LOCK_STRIPES];
+
+    public InMemoryEsimRepository() {
+        for (int i = 0; i < USAGE_LOCK_STRIPES; i++) {
+            usageLocks[i] = new ReentrantLock();
+        }
+        addIndex(ESIM_ID, MockEsim::getEsimId, true);
+        addIndex(ICCID, MockEsim::getIccid, true);
+        addIndex(UID, MockEsim::getUid, true);
+        addIndex(STATUS, MockEsim::getStatus, false);
+        addIndex(USER_EMAIL, MockEsim::getUserEmail, false);
+        addIndex(USER_ID, esim -> metadataValue(esim, "userId"), false);
+        addIndex(ORDER_ID, esim -> metadataValue(esim, "orderId"), false);
+    }
+
+    @Override
+    public Optional<MockEsim> findByEsimId(String esimId) {
+        return findOneByIndex(ESIM_ID, esimId);
+    }
+
+    @Override
+    public Optional<MockEsim> findByIccid(String iccid) {
+        return findOneByIndex(ICCID, iccid);
+    }
+
+    @Override
+    public Optional<MockEsim> findByUid(String uid) {
+        return findOneByIndex(UID, uid);
+    }
+
+    @Override
+    public Optional<MockEsim> findByAnyIdentifier(String identifier) {
+        Optional<MockEsim> esim = findOneByIndex(ESIM_ID, identifier);
+        if (esim.isEmpty()) {
+            esim = findOneByIndex(UID, identifier);
+        }
+        if (esim.isEmpty()) {
+            esim = findOneByIndex(ICCID, identifier);
+        }
+        return esim;
+    }
+
+    @Override
+    public List<MockEsim> findByEsimIdIn(Collection<String> esimIds) {
+        return findAllByKeys(ESIM_ID, esimIds);
+    }
+
+    @Override
+    public List<MockEsim> findByUidIn(Collection<String> uids) {
+        return findAllByKeys(UID, uids);
+    }
+
+    @Override
+    public List<MockEsim> findByIccidIn(Collection<String> iccids) {
+        return findAllByKeys(ICCID, iccids);
+    }
+
+    @Override
+    public List<MockEsim> findByAnyIdentifierIn(Collection<String> identifiers) {
+        Map<String, MockEsim> matches = new LinkedHashMap<>();
+        for (String index : List.of(ESIM_ID, UID, ICCID)) {
+            findAllByKeys(index, identifiers).forEach(esim -> matches.putIfAbsent(esim.getId(), esim));
+        }
+        return new ArrayList<>(matches.values());
+    }
+
+    @Override
+    public boolean existsByEsimId(String esimId) {
+        return existsByIndex(ESIM_ID, esimId);
+    }
+
+    @Override
+    public boolean existsByIccid(String iccid) {
+        return existsByIndex(ICCID, iccid);
+    }
+
+    @Override
+    public List<MockEsim> findByStatus(String status) {
+        return findAllByIndex(STATUS, status);
+    }
+
+    @Override
+    public Page<MockEsim> findByStatus(String status, Pageable pageable) {
+        return findPageByIndex(STATUS, status, esim -> true, pageable);
+    }
+
+    @Override
+    public List<MockEsim> findByUserEmail(String userEmail) {
+        return findAllByIndex(USER_EMAIL, userEmail);
+    }
+
+    @Override
+    public Page<MockEsim> findByUserEmail(String userEmail, Pageable pageable) {
+        return findPageByIndex(USER_EMAIL, userEmail, esim -> true, pageable);
+    }
+
+    @Override
+    public List<MockEsim> findByUserId(String userId) {
+        return findAllByIndex(USER_ID, userId);
+    }
+
+    @Override
+    public Optional<MockEsim> findByOrderId(String orderId) {
+        return findOneByIndex(ORDER_ID, orderId);
+    }
+
+    @Override
+    public void deleteByEsimId(String esimId) {
+        deleteByIndex(ESIM_ID, esimId);
+    }
+
+    @Override
+    public long countByStatus(String status) {
+        return countByIndex(STATUS, status);
+    }
+
+    @Override
+    public Map<Integer, String> insertOrdered(List<MockEsim> esims) {
+        Map<Integer, String> errors = new LinkedHashMap<>();
+        for (int i = 0; i < esims.size(); i++) {
+            try {
+                insert(esims.get(i));
+            } catch (DataAccessException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public Map<String, Long> countAllByStatus() {
+        return countGroupedByIndex(STATUS);
+    }
+
+    @Override
+    public Optional<MockEsim> applyUsage(String id, int usageMB) {
+        // Read-modify-write under a per-eSIM stripe, so reports for different eSIMs never wait on each other
+        Lock lock = usageLocks[Math.floorMod(id.hashCode(), USAGE_LOCK_STRIPES)];
+        lock.lock();
+        try {
+            Optional<MockEsim> found = findById(id);
+            if (found.isEmpty() || !ACTIVE.equals(found.get().getStatus())) {
+                return found;
+            }
+            MockEsim esim = found.get();
+            UsageAllocation.allocate(esim, usageMB).applyTo(esim);
+            esim.setLastUsed(LocalDateTime.now());
+            esim.setUpdatedAt(LocalDateTime.now());
+            return Optional.of(save(esim));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Set<String> applyUsageBulk(Collection<MockEsim> esims, Map<String, Integer> usageById) {
+        Set<String> notApplied = new HashSet<>();
+        for (MockEsim esim : esims) {
+            Optional<MockEsim> updated = applyUsage(esim.getId(), usageById.getOrDefault(esim.getId(), 0));
+            if (updated.isEmpty() || !ACTIVE.equals(updated.get().getStatus())) {
+                notApplied.add(esim.getId());
+            }
+        }
+        return notApplied;
+    }
+
+    @Override
+    public Optional<MockEsim> changeStatus(String id, String expectedStatus, String newStatus,
+                                           boolean deactivatePlans) {
+        return updateOne(id, esim -> {
+            if (!Objects.equals(expectedStatus, esim.getStatus())) {
+                return false;
+            }
+            esim.setStatus(newStatus);
+            if (ACTIVE.equals(newStatus) && !ACTIVE.equals(expectedStatus)) {
+                esim.setActivationDate(LocalDateTime.now());
+            }
+            if (deactivatePlans) {
+                esim.getAttachedPlans().forEach(plan -> plan.setStatus(DEACTIVATED));
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public Optional<MockEsim> attachPlan(String id, String expectedStatus, MockEsim.AttachedPlan plan,
+                                         boolean activate) {
+        return updateOne(id, esim -> {
+            if (!Objects.equals(expectedStatus, esim.getStatus())) {
+                return false;
+            }
+            esim.addPlan(plan);
+            if (activate) {
+                esim.setStatus(ACTIVE);
+                esim.setState(ACTIVE);
+                esim.setActivationDate(LocalDateTime.now());
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public Optional<MockEsim> updateDetails(String id, String customerId, String tag) {
+        return updateOne(id, esim -> {
+            if (customerId != null) {
+                esim.setCustomerId(customerId);
+            }
+            if (tag != null) {
+                esim.setTag(tag);
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public long setNetworkStatus(Collection<String> ids, String networkStatus) {
+        return updateEach(ids, esim -> {
+            esim.setNetworkStatus(networkStatus);
+            return true;
+        });
+    }
+
+    @Override
+    public Stream<MockEsim> streamExpiryCandidates() {
+        return findAllWhere(esim -> ACTIVE.equals(esim.getStatus())
+            || esim.getAttachedPlans().stream().anyMatch(plan -> ACTIVE.equals(plan.getStatus()))).stream();
+    }
+
+    @Override
+    public long expirePlans(Collection<String> ids, LocalDateTime now) {
+        return updateEach(ids, esim -> {
+            boolean changed = false;
+            for (MockEsim.AttachedPlan plan : esim.getAttachedPlans()) {
+                if (ACTIVE.equals(plan.getStatus()) && plan.getExpiryDate() != null && !plan.getExpiryDate().isAfter(now)) {
+                    plan.setStatus(EXPIRED);
+                    changed = true;
+                }
+            }
+            return changed;
+        });
+    }
+
+    @Override
+    public long expireEsims(Collection<String> ids, LocalDateTime activatedBefore) {
+        return updateEach(ids, esim -> {
+            if (!ACTIVE.equals(esim.getStatus()) || esim.getActivationDate() == null
+                    || esim.getActivationDate().isAfter(activatedBefore)) {
+                return false;
+            }
+            esim.setStatus(EXPIRED);
+            esim.setState(EXPIRED);
+            esim.setServiceStatus(EXPIRED);
+            for (MockEsim.AttachedPlan plan : esim.getAttachedPlans()) {
+                if (ACTIVE.equals(plan.getStatus())) {
+                    plan.setStatus(EXPIRED);
+                }
+            }
+            return true;
+        });
+    }
+
+    // Conditional read-modify-write of one eSIM under its usage stripe; empty if it is gone or the change declined
+    private Optional<MockEsim> updateOne(String id, Predicate<MockEsim> change) {
+        Lock lock = usageLocks[Math.floorMod(id.hashCode(), USAGE_LOCK_STRIPES)];
+        lock.lock();
+        try {
+            Optional<MockEsim> found = findById(id);
+            if (found.isEmpty() || !change.test(found.get())) {
+                return Optional.empty();
+            }
+            MockEsim esim = found.get();
+            esim.setUpdatedAt(LocalDateTime.now());
+            return Optional.of(save(esim));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Conditional read-modify-write of each eSIM under its usage stripe
+    private long updateEach(Collection<String> ids, Predicate<MockEsim> change) {
+        long updated = 0;
+        for (String id : new LinkedHashSet<>(ids)) {
+            Lock lock = usageLocks[Math.floorMod(id.hashCode(), USAGE_LOCK_STRIPES)];
+            lock.lock();
+            try {
+                Optional<MockEsim> found = findById(id);
+                if (found.isPresent() && change.test(found.get())) {
+                    MockEsim esim = found.get();
+                    esim.recalculateTotals();
+                    esim.setUpdatedAt(LocalDateTime.now());
+                    save(esim);
+                    updated++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    protected String getId(MockEsim esim) {
+        return esim.getId();
+    }
+
+    @Override
+    protected void setId(MockEsim esim, String id) {
+        esim.setId(id);
+    }
+
+    private List<MockEsim> findAllByKeys(String index, Collection<String> keys) {
+        List<MockEsim> matches = new ArrayList<>();
+        for (String key : new LinkedHashSet<>(keys)) {
+            matches.addAll(findAllByIndex(index, key));
+        }
+        return matches;
+    }
+
+    private static String metadataValue(MockEsim esim, String key) {
+        if (esim.getMetadata() == null) {
+            return null;
+        }
+        // Mongo only matches a string parameter against string values
+        return esim.getMetadata().get(key) instanceof String value ? value : null;
+    }
+
+    @Override
+    protected MockEsim copy(MockEsim source) {
+        MockEsim esim = new MockEsim();
+        esim.setId(source.getId());
+        esim.setEsimId(source.getEsimId());
+        esim.setUid(source.getUid());
+        esim.setIccid(source.getIccid());
+        esim.setMatchingId(source.getMatchingId());
+        esim.setQrCodeUrl(source.getQrCodeUrl());
+        esim.setQrCodeData(source.getQrCodeData());
+        esim.setActivationCode(source.getActivationCode());
+        esim.setManualCode(source.getManualCode());
+        esim.setSmdpAddress(source.getSmdpAddress());
+        esim.setAutoApn(source.getAutoApn());
+        esim.setApn(source.getApn());
+        esim.setStatus(source.getStatus());
+        esim.setState(source.getState());
+        esim.setServiceStatus(source.getServiceStatus());
+        esim.setNetworkStatus(source.getNetworkStatus());
+        esim.setCustomerId(source.getCustomerId());
+        esim.setTag(source.getTag());
+        esim.setDateAssigned(source.getDateAssigned());
+        esim.setUserEmail(source.getUserEmail());
+        esim.setProfileType(source.getProfileType());
+        esim.setMetadata(source.getMetadata() != null ? new LinkedHashMap<>(source.getMetadata()) : null);
+        esim.setAttachedPlans(copyPlans(source.getAttachedPlans()));
+        esim.setTotalDataAllowanceMB(source.getTotalDataAllowanceMB());
+        esim.setTotalDataUsedMB(source.getTotalDataUsedMB());
+        esim.setActivationDate(source.getActivationDate());
+        esim.setLastUsed(source.getLastUsed());
+        esim.setNetwork(copyNetwork(source.getNetwork()));
+        esim.setCreatedAt(source.getCreatedAt());
+        // setStatus() stamps updatedAt, so restore it last
+        esim.setUpdatedAt(source.getUpdatedAt());
+        return esim;
+    }
+
+    private static List<MockEsim.AttachedPlan> copyPlans(List<MockEsim.AttachedPlan> source) {
+        List<MockEsim.AttachedPlan> plans = new ArrayList<>();
+        if (source == null) {
+            return plans;
+        }
+        for (MockEsim.AttachedPlan plan : source) {
+            MockEsim.AttachedPlan copy = new MockEsim.AttachedPlan();
+            copy.setProductId(plan.getProductId());
+            copy.setPlanName(plan.getPlanName());
+            copy.setAttachedAt(plan.getAttachedAt());
+            copy.setExpiryDate(plan.getExpiryDate());
+            copy.setDataAllowanceMB(plan.getDataAllowanceMB());
+            copy.setDataUsedMB(plan.getDataUsedMB());
+            copy.setRemainingDataMB(plan.getRemainingDataMB());
+            copy.setStatus(plan.getStatus());
+            copy.setCountries(plan.getCountries() != null ? new ArrayList<>(plan.getCountries()) : null);
+            copy.setPackageType(plan.getPackageType());
+            plans.add(copy);
+        }
+        return plans;
+    }
+
+    private static MockEsim.NetworkInfo copyNetwork(MockEsim.NetworkInfo source) {
+        if (source == null) {
+            return null;
+        }
+        MockEsim.NetworkInfo network = new MockEsim.NetworkInfo();
+        network.setMcc(source.getMcc());
+        network.setMnc(source.getMnc());
+        network.setOperator(source.getOperator());
+        return network;
+    }
+}
@@ -0,0 +1,48 @@
+package com.flyroamy.mock.repository.memory;
+
+import com.flyroamy.mock.model.IccidSequence;
+import com.flyroamy.mock.repository.IccidSequenceRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory {@link IccidSequenceRepository}, active when {@code mock.storage=memory}.
+ */
+@Repository
+@ConditionalOnProperty(name = "mock.storage", havingValue = "memory")
+public class InMemoryIccidSequenceRepository extends InMemoryMongoRepository<IccidSequence>
+        implements IccidSequenceRepository {
+
+    private final Lock leaseLock = new ReentrantLock();
+
+    @Override
+    public long leaseBlock(String prefix, long size) {
+        // Read-modify-write under a lock, like the Mongo $inc upsert
+        leaseLock.lock();
+        try {
+            long start = findById(prefix).map(IccidSequence::getNext).orElse(0L);
+            save(new IccidSequence(prefix, start + size));
+            return start;
+        } finally {
+            leaseLock.unlock();
+        }
+    }
+
+    @Override
+    protected String getId(IccidSequence sequence) {
+        return sequence.getId();
+    }
+
+    @Override
+    protected void setId(IccidSequence sequence, String id) {
+        sequence.setId(id);
+    }
+
+    @Override
+    protected IccidSequence copy(IccidSequence source) {
+        return new IccidSequence(source.getId(), source.getNext());
+    }
+}
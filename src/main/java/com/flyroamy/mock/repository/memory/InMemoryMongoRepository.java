@@ -0,0 +1,700 @@
+package com.flyroamy.mock.repository.memory;
+
+import org.bson.types.ObjectId;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.data.support.ExampleMatcherAccessor;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Base class for the in-memory repositories used when {@code mock.storage=memory}.
+ *
+ * Documents live in a concurrent map keyed by id, with hash indexes kept alongside
+ * for the fields the derived queries look up by. Reads never lock; writes serialize
+ * on one lock so a document and its index entries always change together. Every
+ * document going in or out is copied, so callers get the same detached-object
+ * behaviour they would get from the Mongo-backed repositories.
+ *
+ * @param <T> the document type
+ */
+public abstract class InMemoryMongoRepository<T> implements MongoRepository<T, String> {
+
+    // Stateless apart from its caches, so one serves every repository
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    private final Map<String, T> documents = new ConcurrentHashMap<>();
+    private final Map<String, Index<T>> indexes = new LinkedHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    protected abstract String getId(T document);
+
+    protected abstract void setId(T document, String id);
+
+    protected abstract T copy(T document);
+
+    /**
+     * Registers a single-valued index. As in a non-sparse Mongo index, a document
+     * without the field is indexed under null, so a unique index admits only one
+     * such document. Lookups by a null key still find nothing.
+     */
+    protected void addIndex(String name, Function<T, String> key, boolean unique) {
+        indexes.put(name, new Index<>(name, document -> {
+            String value = key.apply(document);
+            return value != null ? List.of(value) : List.of();
+        }, document -> key.apply(document) == null, unique));
+    }
+
+    /**
+     * Registers an index over a multi-valued field, the equivalent of a Mongo
+     * multikey index on an array.
+     */
+    protected void addMultiKeyIndex(String name, Function<T, Collection<String>> keys, boolean unique) {
+        indexes.put(name, new Index<>(name, keys, document -> false, unique));
+    }
+
+    // ==================== Index-backed lookups ====================
+
+    protected Optional<T> findOneByIndex(String indexName, String key) {
+        List<T> matches = lookup(indexName, key);
+        if (matches.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, matches.size());
+        }
+        return matches.isEmpty() ? Optional.empty() : Optional.of(copy(matches.get(0)));
+    }
+
+    protected List<T> findAllByIndex(String indexName, String key) {
+        return copyAll(lookup(indexName, key));
+    }
+
+    protected List<T> findAllByIndex(String indexName, String key, Predicate<T> filter) {
+        return copyAll(lookup(indexName, key).stream().filter(filter).toList());
+    }
+
+    protected Page<T> findPageByIndex(String indexName, String key, Predicate<T> filter, Pageable pageable) {
+        return page(lookup(indexName, key).stream().filter(filter).toList(), pageable);
+    }
+
+    protected boolean existsByIndex(String indexName, String key) {
+        return !lookup(indexName, key).isEmpty();
+    }
+
+    protected long countByIndex(String indexName, String key) {
+        return lookup(indexName, key).size();
+    }
+
+    /**
+     * Counts documents per key of an index, the equivalent of a $group with a count
+     */
+    protected Map<String, Long> countGroupedByIndex(String indexName) {
+        Index<T> index = indexes.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown index: " + indexName);
+        }
+        Map<String, Long> counts = new HashMap<>();
+        for (T document : documents.values()) {
+            for (String key : index.keys.apply(document)) {
+                counts.merge(key, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    protected List<T> findAllWhere(Predicate<T> filter) {
+        return copyAll(documents.values().stream().filter(filter).toList());
+    }
+
+    protected Page<T> findPageWhere(Predicate<T> filter, Pageable pageable) {
+        return page(documents.values().stream().filter(filter).toList(), pageable);
+    }
+
+    protected void deleteByIndex(String indexName, String key) {
+        writeLock.lock();
+        try {
+            for (T document : lookup(indexName, key)) {
+                remove(getId(document));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Resolves index entries to stored documents. Because readers do not lock, an
+     * entry can briefly point at a document that has since moved to another key,
+     * so each hit is re-checked against the key before it is returned.
+     */
+    private List<T> lookup(String indexName, String key) {
+        Index<T> index = indexes.get(indexName);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown index: " + indexName);
+        }
+        if (key == null) {
+            return List.of();
+        }
+        List<T> matches = new ArrayList<>();
+        for (String id : index.ids(key)) {
+            T document = documents.get(id);
+            if (document != null && index.keys.apply(document).contains(key)) {
+                matches.add(document);
+            }
+        }
+        return matches;
+    }
+
+    // ==================== CrudRepository ====================
+
+    @Override
+    public <S extends T> S save(S entity) {
+        return store(entity, false);
+    }
+
+    @Override
+    public <S extends T> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        for (S entity : entities) {
+            saved.add(store(entity, false));
+        }
+        return saved;
+    }
+
+    @Override
+    public <S extends T> S insert(S entity) {
+        return store(entity, true);
+    }
+
+    @Override
+    public <S extends T> List<S> insert(Iterable<S> entities) {
+        List<S> inserted = new ArrayList<>();
+        for (S entity : entities) {
+            inserted.add(store(entity, true));
+        }
+        return inserted;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        T document = documents.get(id);
+        return document != null ? Optional.of(copy(document)) : Optional.empty();
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return documents.containsKey(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return copyAll(documents.values());
+    }
+
+    @Override
+    public List<T> findAll(Sort sort) {
+        List<T> sorted = new ArrayList<>(documents.values());
+        sorted.sort(comparator(sort));
+        return copyAll(sorted);
+    }
+
+    @Override
+    public Page<T> findAll(Pageable pageable) {
+        return page(new ArrayList<>(documents.values()), pageable);
+    }
+
+    @Override
+    public List<T> findAllById(Iterable<String> ids) {
+        List<T> found = new ArrayList<>();
+        for (String id : ids) {
+            T document = documents.get(id);
+            if (document != null) {
+                found.add(copy(document));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long count() {
+        return documents.size();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        writeLock.lock();
+        try {
+            remove(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(T entity) {
+        String id = getId(entity);
+        if (id != null) {
+            deleteById(id);
+        }
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        writeLock.lock();
+        try {
+            for (String id : ids) {
+                remove(id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        writeLock.lock();
+        try {
+            for (T entity : entities) {
+                String id = getId(entity);
+                if (id != null) {
+                    remove(id);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        writeLock.lock();
+        try {
+            documents.clear();
+            indexes.values().forEach(Index::clear);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ==================== Query by example ====================
+
+    @Override
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        List<S> matches = matching(example);
+        if (matches.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, matches.size());
+        }
+        return matches.isEmpty() ? Optional.empty() : Optional.of(copyAll(matches).get(0));
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example) {
+        return copyAll(matching(example));
+    }
+
+    @Override
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        List<S> matches = matching(example);
+        matches.sort(comparator(sort));
+        return copyAll(matches);
+    }
+
+    @Override
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return page(matching(example), pageable);
+    }
+
+    @Override
+    public <S extends T> long count(Example<S> example) {
+        return matching(example).size();
+    }
+
+    @Override
+    public <S extends T> boolean exists(Example<S> example) {
+        return !matching(example).isEmpty();
+    }
+
+    @Override
+    public <S extends T, R> R findBy(Example<S> example, Function<FluentQuery.FetchableFluentQuery<S>, R> queryFunction) {
+        return queryFunction.apply(new ExampleQuery<>(example, Sort.unsorted(), Function.identity()));
+    }
+
+    /**
+     * The stored documents matching an example, in the same way Mongo's query by
+     * example does: every non-null property of the probe, nested ones included, must
+     * match unless the matcher ignores its path, strings compare by the matcher's
+     * string matcher, and with {@code ALL} every property must match while with
+     * {@code ANY} one is enough.
+     */
+    @SuppressWarnings("unchecked")
+    private <S extends T> List<S> matching(Example<S> example) {
+        ExampleMatcherAccessor accessor = new ExampleMatcherAccessor(example.getMatcher());
+        List<S> matches = new ArrayList<>();
+        for (T document : documents.values()) {
+            if (example.getProbeType().isInstance(document)
+                    && matches(example.getProbe(), document, "", example.getMatcher(), accessor)) {
+                matches.add((S) document);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean matches(Object probe, Object document, String prefix,
+                                   ExampleMatcher matcher, ExampleMatcherAccessor accessor) {
+        BeanWrapperImpl probeBean = new BeanWrapperImpl(probe);
+        BeanWrapperImpl documentBean = new BeanWrapperImpl(document);
+        boolean anyChecked = false;
+        for (PropertyDescriptor property : probeBean.getPropertyDescriptors()) {
+            String name = property.getName();
+            String path = prefix + name;
+            if ("class".equals(name) || property.getReadMethod() == null || accessor.isIgnoredPath(path)) {
+                continue;
+            }
+            Object expected = accessor.getValueTransformerForPath(path)
+                .apply(Optional.ofNullable(probeBean.getPropertyValue(name)))
+                .orElse(null);
+            if (expected == null && matcher.getNullHandler() == ExampleMatcher.NullHandler.IGNORE) {
+                continue;
+            }
+            anyChecked = true;
+            boolean match = valueMatches(expected, documentBean.getPropertyValue(name), path, matcher, accessor);
+            if (match && matcher.isAnyMatching()) {
+                return true;
+            }
+            if (!match && matcher.isAllMatching()) {
+                return false;
+            }
+        }
+        return matcher.isAllMatching() || !anyChecked;
+    }
+
+    private static boolean valueMatches(Object expected, Object actual, String path,
+                                        ExampleMatcher matcher, ExampleMatcherAccessor accessor) {
+        if (expected == null || actual == null) {
+            return expected == actual;
+        }
+        if (expected instanceof String pattern && actual instanceof String value) {
+            return stringMatches(pattern, value, accessor.getStringMatcherForPath(path),
+                accessor.isIgnoreCaseForPath(path));
+        }
+        if (BeanUtils.isSimpleValueType(expected.getClass())
+                || expected instanceof Collection || expected instanceof Map) {
+            return Objects.equals(expected, actual);
+        }
+        return matches(expected, actual, path + ".", matcher, accessor);
+    }
+
+    private static boolean stringMatches(String pattern, String value, ExampleMatcher.StringMatcher stringMatcher,
+                                         boolean ignoreCase) {
+        if (stringMatcher == ExampleMatcher.StringMatcher.REGEX) {
+            return Pattern.compile(pattern, ignoreCase ? Pattern.CASE_INSENSITIVE : 0).matcher(value).find();
+        }
+        String expected = ignoreCase ? pattern.toLowerCase(Locale.ROOT) : pattern;
+        String actual = ignoreCase ? value.toLowerCase(Locale.ROOT) : value;
+        return switch (stringMatcher) {
+            case STARTING -> actual.startsWith(expected);
+            case ENDING -> actual.endsWith(expected);
+            case CONTAINING -> actual.contains(expected);
+            default -> actual.equals(expected);
+        };
+    }
+
+    /**
+     * The fluent form of a query by example. Results are read as the document type, a
+     * supertype of it, an interface projection backed by the document, or a DTO built
+     * from the document's properties through its constructor.
+     *
+     * @param <R> the type results are read as
+     */
+    private final class ExampleQuery<S extends T, R> implements FluentQuery.FetchableFluentQuery<R> {
+        private final Example<S> example;
+        private final Sort sort;
+        private final Function<? super S, ? extends R> projection;
+
+        private ExampleQuery(Example<S> example, Sort sort, Function<? super S, ? extends R> projection) {
+            this.example = example;
+            this.sort = sort;
+            this.projection = projection;
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> sortBy(Sort sort) {
+            return new ExampleQuery<>(example, this.sort.and(sort), projection);
+        }
+
+        @Override
+        public <P> FluentQuery.FetchableFluentQuery<P> as(Class<P> resultType) {
+            return new ExampleQuery<>(example, sort, projectionTo(resultType, example.getProbeType()));
+        }
+
+        @Override
+        public FluentQuery.FetchableFluentQuery<R> project(Collection<String> properties) {
+            // Every property is always read; a projection only narrows what Mongo returns
+            return this;
+        }
+
+        @Override
+        public R oneValue() {
+            return findOne(example).map(this::project).orElse(null);
+        }
+
+        @Override
+        public R firstValue() {
+            List<R> matches = all();
+            return matches.isEmpty() ? null : matches.get(0);
+        }
+
+        @Override
+        public List<R> all() {
+            return findAll(example, sort).stream().map(this::project).toList();
+        }
+
+        @Override
+        public Page<R> page(Pageable pageable) {
+            return findAll(example, pageable.getSort().isSorted() ? pageable : withSort(pageable)).map(this::project);
+        }
+
+        @Override
+        public Stream<R> stream() {
+            return all().stream();
+        }
+
+        @Override
+        public long count() {
+            return InMemoryMongoRepository.this.count(example);
+        }
+
+        @Override
+        public boolean exists() {
+            return InMemoryMongoRepository.this.exists(example);
+        }
+
+        private R project(S document) {
+            return projection.apply(document);
+        }
+
+        private Pageable withSort(Pageable pageable) {
+            return pageable.isUnpaged() ? Pageable.unpaged(sort)
+                : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        }
+    }
+
+    /**
+     * How a document read by a fluent query becomes the requested result type
+     */
+    private static <P> Function<Object, P> projectionTo(Class<P> resultType, Class<?> documentType) {
+        if (resultType.isAssignableFrom(documentType)) {
+            return resultType::cast;
+        }
+        if (resultType.isInterface()) {
+            return document -> PROJECTIONS.createProjection(resultType, document);
+        }
+        Constructor<P> constructor = BeanUtils.getResolvableConstructor(resultType);
+        if (constructor.getParameterCount() == 0) {
+            return document -> {
+                P dto = BeanUtils.instantiateClass(constructor);
+                BeanUtils.copyProperties(document, dto);
+                return dto;
+            };
+        }
+        // Constructor arguments are matched to document properties by name; unknown ones are left null
+        String[] names = BeanUtils.getParameterNames(constructor);
+        return document -> {
+            BeanWrapperImpl source = new BeanWrapperImpl(document);
+            Object[] args = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                args[i] = source.isReadableProperty(names[i]) ? source.getPropertyValue(names[i]) : null;
+            }
+            return BeanUtils.instantiateClass(constructor, args);
+        };
+    }
+
+    // ==================== Internals ====================
+
+    private <S extends T> S store(S entity, boolean insertOnly) {
+        writeLock.lock();
+        try {
+            String id = getId(entity) != null ? getId(entity) : new ObjectId().toHexString();
+            T previous = documents.get(id);
+            if (insertOnly && previous != null) {
+                throw new DuplicateKeyException("Duplicate key on _id: " + id);
+            }
+
+            T stored = copy(entity);
+            setId(stored, id);
+            for (Index<T> index : indexes.values()) {
+                index.checkUnique(id, stored);
+            }
+
+            if (previous != null) {
+                for (Index<T> index : indexes.values()) {
+                    index.remove(id, previous);
+                }
+            }
+            for (Index<T> index : indexes.values()) {
+                index.add(id, stored);
+            }
+            documents.put(id, stored);
+
+            setId(entity, id);
+            return entity;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Caller must hold the write lock
+    private void remove(String id) {
+        T previous = documents.remove(id);
+        if (previous != null) {
+            for (Index<T> index : indexes.values()) {
+                index.remove(id, previous);
+            }
+        }
+    }
+
+    private <S extends T> Page<S> page(List<S> matches, Pageable pageable) {
+        List<S> sorted = new ArrayList<>(matches);
+        if (pageable.getSort().isSorted()) {
+            sorted.sort(comparator(pageable.getSort()));
+        }
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(copyAll(sorted));
+        }
+        int from = (int) Math.min(pageable.getOffset(), sorted.size());
+        int to = Math.min(from + pageable.getPageSize(), sorted.size());
+        return new PageImpl<>(copyAll(sorted.subList(from, to)), pageable, sorted.size());
+    }
+
+    /**
+     * Builds a comparator for a Spring Data sort over bean properties. Nulls sort
+     * first in ascending order, the same as missing fields do in Mongo.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <S extends T> Comparator<S> comparator(Sort sort) {
+        Comparator<S> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            Comparator<S> byProperty = (a, b) -> {
+                Object left = new BeanWrapperImpl(a).getPropertyValue(order.getProperty());
+                Object right = new BeanWrapperImpl(b).getPropertyValue(order.getProperty());
+                if (Objects.equals(left, right)) {
+                    return 0;
+                }
+                if (left == null) {
+                    return -1;
+                }
+                if (right == null) {
+                    return 1;
+                }
+                return ((Comparable) left).compareTo(right);
+            };
+            comparator = comparator.thenComparing(order.isAscending() ? byProperty : byProperty.reversed());
+        }
+        return comparator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S extends T> List<S> copyAll(Collection<S> source) {
+        List<S> copies = new ArrayList<>(source.size());
+        for (S document : source) {
+            copies.add((S) copy(document));
+        }
+        return copies;
+    }
+
+    private static final class Index<T> {
+        private final String name;
+        private final Function<T, Collection<String>> keys;
+        private final Predicate<T> keyMissing;
+        private final boolean unique;
+        private final Map<String, Set<String>> entries = new ConcurrentHashMap<>();
+        // Documents indexed under null
+        private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+        private Index(String name, Function<T, Collection<String>> keys, Predicate<T> keyMissing, boolean unique) {
+            this.name = name;
+            this.keys = keys;
+            this.keyMissing = keyMissing;
+            this.unique = unique;
+        }
+
+        private Set<String> ids(String key) {
+            Set<String> ids = entries.get(key);
+            return ids != null ? ids : Collections.emptySet();
+        }
+
+        private void checkUnique(String id, T document) {
+            if (!unique) {
+                return;
+            }
+            for (String key : keys.apply(document)) {
+                for (String existing : ids(key)) {
+                    if (!existing.equals(id)) {
+                        throw new DuplicateKeyException(
+                            "Duplicate key on index '" + name + "': " + key);
+                    }
+                }
+            }
+            if (keyMissing.test(document)) {
+                for (String existing : missing) {
+                    if (!existing.equals(id)) {
+                        throw new DuplicateKeyException("Duplicate key on index '" + name + "': null");
+                    }
+                }
+            }
+        }
+
+        private void add(String id, T document) {
+            for (String key : keys.apply(document)) {
+                entries.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+            if (keyMissing.test(document)) {
+                missing.add(id);
+            }
+        }
+
+        private void remove(String id, T document) {
+            missing.remove(id);
+            for (String key : keys.apply(document)) {
+                entries.computeIfPresent(key, (k, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+
+        private void clear() {
+            entries.clear();
+            missing.clear();
+        }
+    }
+}
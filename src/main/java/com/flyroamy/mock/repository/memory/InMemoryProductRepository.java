@@ -0,0 +1,223 @@
+package com.flyroamy.mock.repository.memory;
+
+import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.repository.MockProductRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory {@link MockProductRepository}, active when {@code mock.storage=memory}.
+ * product_id and uid are unique; the country lists are indexed like Mongo multikey indexes.
+ */
+@Repository
+@ConditionalOnProperty(name = "mock.storage", havingValue = "memory")
+public class InMemoryProductRepository extends InMemoryMongoRepository<MockProduct> implements MockProductRepository {
+
+    private static final String PRODUCT_ID = "productId";
+    private static final String UID = "uid";
+    private static final String COUNTRIES = "countries";
+    private static final String COUNTRIES_ENABLED = "countriesEnabled";
+    private static final String REGION = "region";
+    private static final String PACKAGE_TYPE = "packageType";
+
+    public InMemoryProductRepository() {
+        addIndex(PRODUCT_ID, MockProduct::getProductId, true);
+        addIndex(UID, MockProduct::getUid, true);
+        addMultiKeyIndex(COUNTRIES, product -> product.getCountries() != null ? product.getCountries() : List.of(), false);
+        addMultiKeyIndex(COUNTRIES_ENABLED,
+            product -> product.getCountriesEnabled() != null ? product.getCountriesEnabled() : List.of(), false);
+        addIndex(REGION, MockProduct::getRegion, false);
+        addIndex(PACKAGE_TYPE, MockProduct::getPackageType, false);
+    }
+
+    @Override
+    public Optional<MockProduct> findByProductId(String productId) {
+        return findOneByIndex(PRODUCT_ID, productId);
+    }
+
+    @Override
+    public Optional<MockProduct> findByUid(String uid) {
+        return findOneByIndex(UID, uid);
+    }
+
+    @Override
+    public List<MockProduct> findByProductIdOrUid(String identifier) {
+        List<MockProduct> matches = new ArrayList<>(findAllByIndex(PRODUCT_ID, identifier));
+        for (MockProduct product : findAllByIndex(UID, identifier)) {
+            if (matches.stream().noneMatch(match -> match.getId().equals(product.getId()))) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public List<MockProduct> findByProductIdIn(Collection<String> productIds) {
+        List<MockProduct> matches = new ArrayList<>();
+        for (String productId : new LinkedHashSet<>(productIds)) {
+            matches.addAll(findAllByIndex(PRODUCT_ID, productId));
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean existsByProductId(String productId) {
+        return existsByIndex(PRODUCT_ID, productId);
+    }
+
+    @Override
+    public boolean existsByUid(String uid) {
+        return existsByIndex(UID, uid);
+    }
+
+    @Override
+    public List<MockProduct> findByIsActiveTrue() {
+        return findAllWhere(MockProduct::isActive);
+    }
+
+    @Override
+    public Page<MockProduct> findByIsActiveTrue(Pageable pageable) {
+        return findPageWhere(MockProduct::isActive, pageable);
+    }
+
+    @Override
+    public List<MockProduct> findByCountryAndActive(String countryCode) {
+        return findAllByIndex(COUNTRIES, countryCode, MockProduct::isActive);
+    }
+
+    @Override
+    public Page<MockProduct> findByCountryAndActive(String countryCode, Pageable pageable) {
+        return findPageByIndex(COUNTRIES, countryCode, MockProduct::isActive, pageable);
+    }
+
+    @Override
+    public List<MockProduct> findByCountriesEnabledAndActive(String countryCode) {
+        return findAllByIndex(COUNTRIES_ENABLED, countryCode, MockProduct::isActive);
+    }
+
+    @Override
+    public Page<MockProduct> findByCountriesEnabledAndActive(String countryCode, Pageable pageable) {
+        return findPageByIndex(COUNTRIES_ENABLED, countryCode, MockProduct::isActive, pageable);
+    }
+
+    @Override
+    public List<MockProduct> findByRegionAndActive(String region) {
+        return findAllByIndex(REGION, region, MockProduct::isActive);
+    }
+
+    @Override
+    public Page<MockProduct> findByRegionAndActive(String region, Pageable pageable) {
+        return findPageByIndex(REGION, region, MockProduct::isActive, pageable);
+    }
+
+    @Override
+    public List<MockProduct> findByPackageTypeAndActive(String packageType) {
+        return findAllByIndex(PACKAGE_TYPE, packageType, MockProduct::isActive);
+    }
+
+    @Override
+    public Page<MockProduct> findByPackageTypeAndActive(String packageType, Pageable pageable) {
+        return findPageByIndex(PACKAGE_TYPE, packageType, MockProduct::isActive, pageable);
+    }
+
+    @Override
+    public void deleteByProductId(String productId) {
+        deleteByIndex(PRODUCT_ID, productId);
+    }
+
+    @Override
+    public Map<Integer, String> bulkUpsertByProductId(List<MockProduct> products) {
+        Map<Integer, String> errors = new LinkedHashMap<>();
+        for (int i = 0; i < products.size(); i++) {
+            MockProduct product = products.get(i);
+            try {
+                if (product.getId() == null) {
+                    findByProductId(product.getProductId()).ifPresent(existing -> product.setId(existing.getId()));
+                }
+                save(product);
+            } catch (DataAccessException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    protected String getId(MockProduct product) {
+        return product.getId();
+    }
+
+    @Override
+    protected void setId(MockProduct product, String id) {
+        product.setId(id);
+    }
+
+    @Override
+    protected MockProduct copy(MockProduct source) {
+        MockProduct product = new MockProduct();
+        product.setId(source.getId());
+        product.setProductId(source.getProductId());
+        product.setUid(source.getUid());
+        product.setName(source.getName());
+        product.setDescription(source.getDescription());
+        product.setCountriesEnabled(source.getCountriesEnabled() != null ? new ArrayList<>(source.getCountriesEnabled()) : null);
+        product.setDataQuotaMb(source.getDataQuotaMb());
+        product.setDataQuotaBytes(source.getDataQuotaBytes());
+        product.setValidityDays(source.getValidityDays());
+        product.setPolicyId(source.getPolicyId());
+        product.setPolicyName(source.getPolicyName());
+        product.setWholesalePriceUsd(source.getWholesalePriceUsd());
+        product.setRrpUsd(source.getRrpUsd());
+        product.setRrpEur(source.getRrpEur());
+        product.setRrpGbp(source.getRrpGbp());
+        product.setRrpCad(source.getRrpCad());
+        product.setRrpAud(source.getRrpAud());
+        product.setRrpJpy(source.getRrpJpy());
+        product.setDataGB(source.getDataGB());
+        product.setPrice(source.getPrice());
+        product.setCurrency(source.getCurrency());
+        product.setPrices(source.getPrices() != null ? new LinkedHashMap<>(source.getPrices()) : null);
+        product.setWholesaleCost(source.getWholesaleCost());
+        product.setPackageType(source.getPackageType());
+        product.setCountries(source.getCountries() != null ? new ArrayList<>(source.getCountries()) : null);
+        product.setRegion(source.getRegion());
+        product.setCoverage(copyCoverage(source.getCoverage()));
+        product.setActive(source.isActive());
+        product.setUnlimitedType(source.getUnlimitedType());
+        product.setTerms(source.getTerms());
+        product.setCreatedAt(source.getCreatedAt());
+        product.setUpdatedAt(source.getUpdatedAt());
+        return product;
+    }
+
+    private static MockProduct.Coverage copyCoverage(MockProduct.Coverage source) {
+        if (source == null) {
+            return null;
+        }
+        MockProduct.Coverage coverage = new MockProduct.Coverage();
+        if (source.getNetworks() != null) {
+            List<MockProduct.Network> networks = new ArrayList<>();
+            for (MockProduct.Network network : source.getNetworks()) {
+                MockProduct.Network copy = new MockProduct.Network();
+                copy.setMcc(network.getMcc());
+                copy.setMnc(network.getMnc());
+                copy.setOperator(network.getOperator());
+                copy.setTechnology(network.getTechnology());
+                networks.add(copy);
+            }
+            coverage.setNetworks(networks);
+        }
+        return coverage;
+    }
+}
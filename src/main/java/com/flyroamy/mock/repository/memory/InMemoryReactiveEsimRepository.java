@@ -0,0 +1,45 @@
+package com.flyroamy.mock.repository.memory;
+
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.ReactiveMockEsimRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory {@link ReactiveMockEsimRepository}, a view of {@link InMemoryEsimRepository}
+ */
+@Repository
+@ConditionalOnProperty(name = "mock.storage", havingValue = "memory")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class InMemoryReactiveEsimRepository extends InMemoryReactiveRepository<MockEsim>
+        implements ReactiveMockEsimRepository {
+
+    private final InMemoryEsimRepository store;
+
+    public InMemoryReactiveEsimRepository(InMemoryEsimRepository store) {
+        super(store);
+        this.store = store;
+    }
+
+    @Override
+    public Mono<MockEsim> findByIccid(String iccid) {
+        return Mono.fromCallable(() -> store.findByIccid(iccid).orElse(null));
+    }
+
+    @Override
+    public Mono<MockEsim> findByEsimId(String esimId) {
+        return Mono.fromCallable(() -> store.findByEsimId(esimId).orElse(null));
+    }
+
+    @Override
+    public Mono<MockEsim> attachPlan(String id, String expectedStatus, MockEsim.AttachedPlan plan, boolean activate) {
+        return Mono.fromCallable(() -> store.attachPlan(id, expectedStatus, plan, activate).orElse(null));
+    }
+
+    @Override
+    public Mono<MockEsim> updateDetails(String id, String customerId, String tag) {
+        return Mono.fromCallable(() -> store.updateDetails(id, customerId, tag).orElse(null));
+    }
+}
@@ -0,0 +1,52 @@
+package com.flyroamy.mock.repository.memory;
+
+import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.repository.ReactiveMockProductRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory {@link ReactiveMockProductRepository}, a view of {@link InMemoryProductRepository}
+ */
+@Repository
+@ConditionalOnProperty(name = "mock.storage", havingValue = "memory")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class InMemoryReactiveProductRepository extends InMemoryReactiveRepository<MockProduct>
+        implements ReactiveMockProductRepository {
+
+    private final InMemoryProductRepository store;
+
+    public InMemoryReactiveProductRepository(InMemoryProductRepository store) {
+        super(store);
+        this.store = store;
+    }
+
+    @Override
+    public Mono<MockProduct> findByProductId(String productId) {
+        return Mono.fromCallable(() -> store.findByProductId(productId).orElse(null));
+    }
+
+    @Override
+    public Mono<Boolean> existsByProductId(String productId) {
+        return Mono.fromCallable(() -> store.existsByProductId(productId));
+    }
+
+    @Override
+    public Flux<MockProduct> findByIsActiveTrue(Pageable pageable) {
+        return Flux.defer(() -> Flux.fromIterable(store.findByIsActiveTrue(pageable).getContent()));
+    }
+
+    @Override
+    public Flux<MockProduct> findByRegionAndActive(String region, Pageable pageable) {
+        return Flux.defer(() -> Flux.fromIterable(store.findByRegionAndActive(region, pageable).getContent()));
+    }
+
+    @Override
+    public Mono<Void> deleteByProductId(String productId) {
+        return Mono.fromRunnable(() -> store.deleteByProductId(productId));
+    }
+}
@@ -0,0 +1,236 @@
+package com.flyroamy.mock.repository.memory;
+
+import org.reactivestreams.Publisher;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.data.repository.query.FluentQuery;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * {@link ReactiveMongoRepository} over an in-memory repository, so the reactive stack
+ * also runs with {@code mock.storage=memory}.
+ *
+ * The in-memory store never waits on I/O, so every call simply runs on subscription
+ * on the subscribing thread. Both views share the same documents; writes through
+ * either are visible to the other.
+ *
+ * @param <T> the document type
+ */
+public abstract class InMemoryReactiveRepository<T> implements ReactiveMongoRepository<T, String> {
+
+    private final InMemoryMongoRepository<T> store;
+
+    protected InMemoryReactiveRepository(InMemoryMongoRepository<T> store) {
+        this.store = store;
+    }
+
+    // ==================== ReactiveCrudRepository ====================
+
+    @Override
+    public <S extends T> Mono<S> save(S entity) {
+        return Mono.fromCallable(() -> store.save(entity));
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.defer(() -> Flux.fromIterable(store.saveAll(entities)));
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> entities) {
+        return Flux.from(entities).concatMap(this::save);
+    }
+
+    @Override
+    public Mono<T> findById(String id) {
+        return Mono.fromCallable(() -> store.findById(id).orElse(null));
+    }
+
+    @Override
+    public Mono<T> findById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(String id) {
+        return Mono.fromCallable(() -> store.existsById(id));
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<T> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(store.findAll()));
+    }
+
+    @Override
+    public Flux<T> findAll(Sort sort) {
+        return Flux.defer(() -> Flux.fromIterable(store.findAll(sort)));
+    }
+
+    @Override
+    public Flux<T> findAllById(Iterable<String> ids) {
+        return Flux.defer(() -> Flux.fromIterable(store.findAllById(ids)));
+    }
+
+    @Override
+    public Flux<T> findAllById(Publisher<String> ids) {
+        return Flux.from(ids).collectList().flatMapMany(this::findAllById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromCallable(store::count);
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return Mono.fromRunnable(() -> store.deleteById(id));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<String> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(T entity) {
+        return Mono.fromRunnable(() -> store.delete(entity));
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends String> ids) {
+        return Mono.fromRunnable(() -> store.deleteAllById(ids));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+        return Mono.fromRunnable(() -> store.deleteAll(entities));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> entities) {
+        return Flux.from(entities).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(store::deleteAll);
+    }
+
+    // ==================== ReactiveMongoRepository ====================
+
+    @Override
+    public <S extends T> Mono<S> insert(S entity) {
+        return Mono.fromCallable(() -> store.insert(entity));
+    }
+
+    @Override
+    public <S extends T> Flux<S> insert(Iterable<S> entities) {
+        return Flux.defer(() -> Flux.fromIterable(store.insert(entities)));
+    }
+
+    @Override
+    public <S extends T> Flux<S> insert(Publisher<S> entities) {
+        return Flux.from(entities).concatMap(this::insert);
+    }
+
+    // ==================== Query by example ====================
+
+    @Override
+    public <S extends T> Mono<S> findOne(Example<S> example) {
+        return Mono.fromCallable(() -> store.findOne(example).orElse(null));
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example) {
+        return Flux.defer(() -> Flux.fromIterable(store.findAll(example)));
+    }
+
+    @Override
+    public <S extends T> Flux<S> findAll(Example<S> example, Sort sort) {
+        return Flux.defer(() -> Flux.fromIterable(store.findAll(example, sort)));
+    }
+
+    @Override
+    public <S extends T> Mono<Long> count(Example<S> example) {
+        return Mono.fromCallable(() -> store.count(example));
+    }
+
+    @Override
+    public <S extends T> Mono<Boolean> exists(Example<S> example) {
+        return Mono.fromCallable(() -> store.exists(example));
+    }
+
+    @Override
+    public <S extends T, R, P extends Publisher<R>> P findBy(Example<S> example,
+            Function<FluentQuery.ReactiveFluentQuery<S>, P> queryFunction) {
+        return queryFunction.apply(new ReactiveExampleQuery<>(store.findBy(example, Function.identity())));
+    }
+
+    /**
+     * The reactive form of the store's fluent query by example
+     */
+    private static final class ReactiveExampleQuery<S> implements FluentQuery.ReactiveFluentQuery<S> {
+        private final FluentQuery.FetchableFluentQuery<S> query;
+
+        private ReactiveExampleQuery(FluentQuery.FetchableFluentQuery<S> query) {
+            this.query = query;
+        }
+
+        @Override
+        public FluentQuery.ReactiveFluentQuery<S> sortBy(Sort sort) {
+            return new ReactiveExampleQuery<>(query.sortBy(sort));
+        }
+
+        @Override
+        public <R> FluentQuery.ReactiveFluentQuery<R> as(Class<R> resultType) {
+            return new ReactiveExampleQuery<>(query.as(resultType));
+        }
+
+        @Override
+        public FluentQuery.ReactiveFluentQuery<S> project(Collection<String> properties) {
+            return new ReactiveExampleQuery<>(query.project(properties));
+        }
+
+        @Override
+        public Mono<S> one() {
+            return Mono.fromCallable(query::oneValue);
+        }
+
+        @Override
+        public Mono<S> first() {
+            return Mono.fromCallable(query::firstValue);
+        }
+
+        @Override
+        public Flux<S> all() {
+            return Flux.defer(() -> Flux.fromIterable(query.all()));
+        }
+
+        @Override
+        public Mono<Page<S>> page(Pageable pageable) {
+            return Mono.fromCallable(() -> query.page(pageable));
+        }
+
+        @Override
+        public Mono<Long> count() {
+            return Mono.fromCallable(query::count);
+        }
+
+        @Override
+        public Mono<Boolean> exists() {
+            return Mono.fromCallable(query::exists);
+        }
+    }
+}
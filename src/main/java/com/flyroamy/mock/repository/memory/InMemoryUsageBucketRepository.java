@@ -0,0 +1,98 @@
+package com.flyroamy.mock.repository.memory;
+
+import com.flyroamy.mock.model.UsageBucket;
+import com.flyroamy.mock.repository.UsageBucketRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory {@link UsageBucketRepository}, active when {@code mock.storage=memory}.
+ * Buckets are indexed by eSIM, so a range read only touches that eSIM's buckets.
+ */
+@Repository
+@ConditionalOnProperty(name = "mock.storage", havingValue = "memory")
+public class InMemoryUsageBucketRepository extends InMemoryMongoRepository<UsageBucket> implements UsageBucketRepository {
+
+    private static final String ESIM_REF = "esimRef";
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] bucketLocks = new Lock[LOCK_STRIPES];
+
+    public InMemoryUsageBucketRepository() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            bucketLocks[i] = new ReentrantLock();
+        }
+        addIndex(ESIM_REF, UsageBucket::getEsimRef, false);
+    }
+
+    @Override
+    public List<UsageBucket> findByEsimRefAndGranularityInRange(String esimRef, String granularity,
+                                                                LocalDateTime from, LocalDateTime to) {
+        return findAllByIndex(ESIM_REF, esimRef, bucket -> granularity.equals(bucket.getGranularity())
+                && !bucket.getBucketStart().isBefore(from)
+                && bucket.getBucketStart().isBefore(to)).stream()
+            .sorted(Comparator.comparing(UsageBucket::getBucketStart))
+            .toList();
+    }
+
+    @Override
+    public List<UsageBucket> findByGranularityAndBucketStartBefore(String granularity, LocalDateTime cutoff,
+                                                                   Pageable pageable) {
+        return findPageWhere(bucket -> granularity.equals(bucket.getGranularity())
+            && bucket.getBucketStart().isBefore(cutoff), pageable).getContent();
+    }
+
+    @Override
+    public void deleteByEsimRef(String esimRef) {
+        deleteByIndex(ESIM_REF, esimRef);
+    }
+
+    @Override
+    public void incrementAll(Collection<UsageBucket> increments) {
+        for (UsageBucket increment : increments) {
+            // Read-modify-write under a per-bucket stripe, like the Mongo $inc upsert
+            Lock lock = bucketLocks[Math.floorMod(increment.getId().hashCode(), LOCK_STRIPES)];
+            lock.lock();
+            try {
+                Optional<UsageBucket> existing = findById(increment.getId());
+                save(existing.isPresent() ? existing.get().merge(increment) : copy(increment));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    protected String getId(UsageBucket bucket) {
+        return bucket.getId();
+    }
+
+    @Override
+    protected void setId(UsageBucket bucket, String id) {
+        bucket.setId(id);
+    }
+
+    @Override
+    protected UsageBucket copy(UsageBucket source) {
+        UsageBucket bucket = new UsageBucket();
+        bucket.setId(source.getId());
+        bucket.setEsimRef(source.getEsimRef());
+        bucket.setIccid(source.getIccid());
+        bucket.setGranularity(source.getGranularity());
+        bucket.setBucketStart(source.getBucketStart());
+        bucket.setDataUsedMB(source.getDataUsedMB());
+        bucket.setEvents(source.getEvents());
+        bucket.setFirstEventAt(source.getFirstEventAt());
+        bucket.setLastEventAt(source.getLastEventAt());
+        return bucket;
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,6 +20,7 @@ import java.util.Base64;
 import java.util.List;
 
 @Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class BasicAuthFilter extends OncePerRequestFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(BasicAuthFilter.class);
@@ -95,14 +97,18 @@ public class BasicAuthFilter extends OncePerRequestFilter {
         }
     }
 
-    private boolean isPublicPath(String path) {
+    static boolean isPublicPath(String path) {
         return PUBLIC_PATHS.stream().anyMatch(path::startsWith);
     }
 
     private void sendUnauthorizedResponse(HttpServletResponse response, String message) throws IOException {
         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
         response.setContentType("application/json");
-        response.getWriter().write(String.format("""
+        response.getWriter().write(unauthorizedBody(message));
+    }
+
+    static String unauthorizedBody(String message) {
+        return String.format("""
             {
                 "error": {
                     "code": "AUTHENTICATION_FAILED",
@@ -110,6 +116,6 @@ public class BasicAuthFilter extends OncePerRequestFilter {
                     "timestamp": "%s"
                 }
             }
-            """, message, java.time.Instant.now().toString()));
+            """, message, java.time.Instant.now().toString());
     }
 }
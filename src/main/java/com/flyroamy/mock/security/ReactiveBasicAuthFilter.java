@@ -0,0 +1,93 @@
+package com.flyroamy.mock.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * {@link BasicAuthFilter} for the reactive stack: same public paths, credentials and
+ * error bodies. Added to the security chain by
+ * {@link com.flyroamy.mock.config.ReactiveSecurityConfig} rather than registered as a bean.
+ */
+public class ReactiveBasicAuthFilter implements WebFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBasicAuthFilter.class);
+
+    private final String apiKey;
+    private final String apiSecret;
+
+    public ReactiveBasicAuthFilter(String apiKey, String apiSecret) {
+        this.apiKey = apiKey;
+        this.apiSecret = apiSecret;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().value();
+
+        // Skip authentication for public endpoints
+        if (BasicAuthFilter.isPublicPath(path)) {
+            return chain.filter(exchange);
+        }
+
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        if (authHeader == null || !authHeader.startsWith("Basic ")) {
+            logger.warn("Missing or invalid Authorization header for path: {}", path);
+            return sendUnauthorizedResponse(exchange.getResponse(), "Missing or invalid Authorization header");
+        }
+
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(authHeader.substring(6)), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            logger.error("Error decoding credentials: {}", e.getMessage());
+            return sendUnauthorizedResponse(exchange.getResponse(), "Invalid credentials encoding");
+        }
+
+        String[] parts = credentials.split(":", 2);
+        if (parts.length != 2) {
+            logger.warn("Invalid credentials format for path: {}", path);
+            return sendUnauthorizedResponse(exchange.getResponse(), "Invalid credentials format");
+        }
+
+        if (!apiKey.equals(parts[0]) || !apiSecret.equals(parts[1])) {
+            logger.warn("Invalid API credentials for path: {}", path);
+            return sendUnauthorizedResponse(exchange.getResponse(), "Invalid API credentials");
+        }
+
+        // Authentication successful
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+            parts[0],
+            null,
+            List.of(new SimpleGrantedAuthority("ROLE_API_CLIENT"))
+        );
+
+        logger.debug("Authenticated request for path: {}", path);
+        return chain.filter(exchange)
+            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+
+    private Mono<Void> sendUnauthorizedResponse(ServerHttpResponse response, String message) {
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        DataBuffer body = response.bufferFactory()
+            .wrap(BasicAuthFilter.unauthorizedBody(message).getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(body));
+    }
+}
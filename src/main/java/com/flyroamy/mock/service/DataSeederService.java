@@ -2,14 +2,15 @@ package com.flyroamy.mock.service;
 
 import com.flyroamy.mock.model.MockProduct;
 import com.flyroamy.mock.repository.MockProductRepository;
+import com.flyroamy.mock.util.RandomIds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 public class DataSeederService implements CommandLineRunner {
@@ -31,9 +32,11 @@ public class DataSeederService implements CommandLineRunner {
     );
 
     private final MockProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
 
-    public DataSeederService(MockProductRepository productRepository) {
+    public DataSeederService(MockProductRepository productRepository, ProductCatalogCache catalogCache) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
     }
 
     @Override
@@ -48,18 +51,18 @@ public class DataSeederService implements CommandLineRunner {
 
     public int seedProducts() {
         List<MockProduct> products = createSeedProducts();
-        int created = 0;
+        List<MockProduct> created = new ArrayList<>();
 
         for (MockProduct product : products) {
             if (!productRepository.existsByProductId(product.getProductId())) {
-                productRepository.save(product);
-                created++;
+                created.add(productRepository.save(product));
                 logger.info("Created product: {}", product.getName());
             }
         }
+        catalogCache.putAll(created);
 
-        logger.info("Seeded {} products", created);
-        return created;
+        logger.info("Seeded {} products", created.size());
+        return created.size();
     }
 
     private List<MockProduct> createSeedProducts() {
@@ -115,7 +118,7 @@ public class DataSeederService implements CommandLineRunner {
         MockProduct product = new MockProduct();
 
         // Generate UID
-        String uid = "prod_" + UUID.randomUUID().toString().substring(0, 12);
+        String uid = RandomIds.hex("prod_", 12);
 
         product.setUid(uid);
         product.setProductId(productId);
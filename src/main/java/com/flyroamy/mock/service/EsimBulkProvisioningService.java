@@ -0,0 +1,289 @@
+package com.flyroamy.mock.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.flyroamy.mock.dto.request.BulkCreateEsimRequest;
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.exception.ProductNotFoundException;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.util.IccidGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+/**
+ * Provisions many eSIMs in one call, as a pipeline over chunks of items.
+ *
+ * The catalog is resolved once per distinct plan before anything is built. Each chunk
+ * then has its ICCIDs allocated together, its documents built and, on request, its QR
+ * images rendered in parallel; that preparation runs on the common pool one chunk
+ * ahead, while the previous chunk is written with an ordered insertMany. Outcomes are
+ * reported per item, in request order.
+ */
+@Service
+public class EsimBulkProvisioningService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsimBulkProvisioningService.class);
+
+    // Items per ICCID allocation and insertMany
+    static final int CHUNK_SIZE = 500;
+
+    public enum Outcome { CREATED, PRODUCT_NOT_FOUND, FAILED }
+
+    // An item's eSIM, or none when its plan does not exist, and its QR image if rendered
+    private record Slot(int index, MockEsim esim, QrCodeCache.RenderedQrCode qrCode) {
+    }
+
+    private final EsimService esimService;
+    private final ProductService productService;
+    private final MockEsimRepository esimRepository;
+    private final IccidGenerator iccidGenerator;
+    private final QrCodeService qrCodeService;
+    private final QrImageStore qrImageStore;
+
+    public EsimBulkProvisioningService(EsimService esimService, ProductService productService,
+                                       MockEsimRepository esimRepository, IccidGenerator iccidGenerator,
+                                       QrCodeService qrCodeService, QrImageStore qrImageStore) {
+        this.esimService = esimService;
+        this.productService = productService;
+        this.esimRepository = esimRepository;
+        this.iccidGenerator = iccidGenerator;
+        this.qrCodeService = qrCodeService;
+        this.qrImageStore = qrImageStore;
+    }
+
+    /**
+     * Create the requested eSIMs. An item whose plan does not exist, or whose insert
+     * fails, is reported and skipped; the others are created. If a chunk cannot be
+     * prepared, it and every item after it are reported as failed, and the outcomes
+     * so far are returned.
+     */
+    public BulkProvisionResult provision(BulkCreateEsimRequest request) {
+        List<CreateEsimRequest> items = itemsOf(request);
+        boolean renderQr = Boolean.TRUE.equals(request.getRenderQr());
+        logger.info("Provisioning {} eSIMs in bulk, QR pre-rendering {}", items.size(), renderQr ? "on" : "off");
+
+        BulkProvisionResult result = new BulkProvisionResult(items.size());
+        Map<String, MockProduct> products = resolveProducts(items);
+
+        CompletableFuture<List<Slot>> next = prepareAsync(items, 0, products, renderQr);
+        for (int start = 0; start < items.size(); start += CHUNK_SIZE) {
+            List<Slot> chunk;
+            try {
+                chunk = await(next);
+            } catch (RuntimeException e) {
+                logger.error("Preparing bulk items from {} failed, {} items not provisioned",
+                    start, items.size() - start, e);
+                failRemaining(items, start, products, "Not provisioned: " + e.getMessage(), result);
+                break;
+            }
+            if (start + CHUNK_SIZE < items.size()) {
+                next = prepareAsync(items, start + CHUNK_SIZE, products, renderQr);
+            }
+            insert(chunk, result);
+        }
+
+        logger.info("Bulk provisioning completed - created: {}, outcomes: {}", result.getCreated(), result.getCounts());
+        return result;
+    }
+
+    private static List<CreateEsimRequest> itemsOf(BulkCreateEsimRequest request) {
+        if (request.getItems() != null) {
+            return request.getItems();
+        }
+        CreateEsimRequest template = new CreateEsimRequest();
+        template.setPlanTypeId(request.getPlanTypeId());
+        template.setCustomerId(request.getCustomerId());
+        template.setTag(request.getTag());
+        return request.getCount() != null ? Collections.nCopies(request.getCount(), template) : List.of();
+    }
+
+    /**
+     * One catalog lookup per distinct plan; plans that do not exist are left out
+     */
+    private Map<String, MockProduct> resolveProducts(List<CreateEsimRequest> items) {
+        Map<String, MockProduct> products = new HashMap<>();
+        Set<String> looked = new HashSet<>();
+        for (CreateEsimRequest item : items) {
+            if (hasPlan(item) && looked.add(item.getPlanTypeId())) {
+                try {
+                    products.put(item.getPlanTypeId(), productService.getProductByIdOrUid(item.getPlanTypeId()));
+                } catch (ProductNotFoundException e) {
+                    logger.warn("Bulk provisioning names unknown plan {}", item.getPlanTypeId());
+                }
+            }
+        }
+        return products;
+    }
+
+    private CompletableFuture<List<Slot>> prepareAsync(List<CreateEsimRequest> items, int start,
+                                                       Map<String, MockProduct> products,
+                                                       boolean renderQr) {
+        List<CreateEsimRequest> chunk = items.subList(start, Math.min(start + CHUNK_SIZE, items.size()));
+        return CompletableFuture.supplyAsync(() -> prepare(chunk, start, products, renderQr));
+    }
+
+    /**
+     * Build the chunk's eSIMs, with ICCIDs allocated in one go, and render their QR
+     * images if asked to. Touches no shared state beyond the allocators and QR cache.
+     */
+    private List<Slot> prepare(List<CreateEsimRequest> chunk, int start,
+                               Map<String, MockProduct> products, boolean renderQr) {
+        long buildable = chunk.stream().filter(item -> !planMissing(item, products)).count();
+        Iterator<String> iccids = iccidGenerator.generate((int) buildable).iterator();
+
+        List<Slot> slots = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            CreateEsimRequest item = chunk.get(i);
+            MockEsim esim = planMissing(item, products) ? null
+                : esimService.newEsim(item, hasPlan(item) ? products.get(item.getPlanTypeId()) : null, iccids.next());
+            slots.add(new Slot(start + i, esim, null));
+        }
+        if (!renderQr) {
+            return slots;
+        }
+        return IntStream.range(0, slots.size())
+            .parallel()
+            .mapToObj(i -> {
+                Slot slot = slots.get(i);
+                return slot.esim() == null ? slot
+                    : new Slot(slot.index(), slot.esim(), qrCodeService.renderQrCode(slot.esim().getQrCodeData()));
+            })
+            .toList();
+    }
+
+    private static boolean hasPlan(CreateEsimRequest item) {
+        return item.getPlanTypeId() != null && !item.getPlanTypeId().isEmpty();
+    }
+
+    // The item names a plan that is not in the catalog
+    private static boolean planMissing(CreateEsimRequest item, Map<String, MockProduct> products) {
+        return hasPlan(item) && !products.containsKey(item.getPlanTypeId());
+    }
+
+    private void failRemaining(List<CreateEsimRequest> items, int start, Map<String, MockProduct> products,
+                               String error, BulkProvisionResult result) {
+        for (int index = start; index < items.size(); index++) {
+            if (planMissing(items.get(index), products)) {
+                result.record(index, Outcome.PRODUCT_NOT_FOUND, null, null, null);
+            } else {
+                result.record(index, Outcome.FAILED, null, null, error);
+            }
+        }
+    }
+
+    private void insert(List<Slot> chunk, BulkProvisionResult result) {
+        List<Slot> buildable = chunk.stream().filter(slot -> slot.esim() != null).toList();
+        List<MockEsim> esims = buildable.stream().map(Slot::esim).toList();
+
+        Map<Integer, String> errors;
+        try {
+            errors = esimRepository.insertOrdered(esims);
+        } catch (Exception e) {
+            logger.error("Bulk insert of {} eSIMs failed, checking which were written", esims.size(), e);
+            errors = notInserted(esims, e.getMessage());
+        }
+
+        Map<Integer, String> errorsByItem = new HashMap<>();
+        for (Map.Entry<Integer, String> error : errors.entrySet()) {
+            errorsByItem.put(buildable.get(error.getKey()).index(), error.getValue());
+        }
+
+        for (Slot slot : chunk) {
+            MockEsim esim = slot.esim();
+            if (esim == null) {
+                result.record(slot.index(), Outcome.PRODUCT_NOT_FOUND, null, null, null);
+                continue;
+            }
+            String error = errorsByItem.get(slot.index());
+            if (error != null) {
+                logger.error("Error provisioning item {}: {}", slot.index(), error);
+                result.record(slot.index(), Outcome.FAILED, null, null, error);
+                continue;
+            }
+            esimService.afterInsert(esim);
+            if (slot.qrCode() != null) {
+                qrImageStore.backfill(esim.getEsimId(), slot.qrCode());
+            }
+            result.record(slot.index(), Outcome.CREATED, esim.getUid(), esim.getIccid(), null);
+        }
+    }
+
+    /**
+     * After an insert failed part way, find the eSIMs it did not write: those left
+     * without an _id, or whose _id is not stored. If even that read fails, every eSIM
+     * is reported as failed.
+     */
+    private Map<Integer, String> notInserted(List<MockEsim> esims, String error) {
+        Set<String> stored = new HashSet<>();
+        try {
+            List<String> ids = esims.stream().map(MockEsim::getId).filter(Objects::nonNull).toList();
+            esimRepository.findAllById(ids).forEach(esim -> stored.add(esim.getId()));
+        } catch (RuntimeException e) {
+            logger.error("Could not check which bulk eSIMs were written", e);
+            stored.clear();
+        }
+
+        Map<Integer, String> errors = new HashMap<>();
+        for (int i = 0; i < esims.size(); i++) {
+            if (!stored.contains(esims.get(i).getId())) {
+                errors.put(i, error);
+            }
+        }
+        return errors;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Counts per outcome plus one entry per item, in request order
+     */
+    public static class BulkProvisionResult {
+        private final int requested;
+        private final Map<Outcome, Integer> counts = new LinkedHashMap<>();
+        private final List<Item> items;
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public record Item(int index, Outcome outcome, String uid, String iccid, String error) {}
+
+        BulkProvisionResult(int requested) {
+            this.requested = requested;
+            this.items = new ArrayList<>(requested);
+        }
+
+        void record(int index, Outcome outcome, String uid, String iccid, String error) {
+            counts.merge(outcome, 1, Integer::sum);
+            items.add(new Item(index, outcome, uid, iccid, error));
+        }
+
+        public int getRequested() { return requested; }
+        public int getCreated() { return counts.getOrDefault(Outcome.CREATED, 0); }
+        public boolean isSuccess() { return getCreated() == requested; }
+        public Map<Outcome, Integer> getCounts() { return counts; }
+        public List<Item> getItems() { return items; }
+    }
+}
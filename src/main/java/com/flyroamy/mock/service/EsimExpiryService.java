@@ -0,0 +1,223 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.config.MockBehaviorConfig;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.util.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Expires plans at their expiry date and, with {@code mock.auto-expire.enabled}, eSIMs
+ * a fixed number of seconds after activation.
+ *
+ * Upcoming expiries sit in an in-memory {@link TimingWheel} with one-second ticks.
+ * Each tick hands whatever came due to the repository in batches of guarded updates,
+ * so the cost follows the expiries that are due, not the size of the fleet. The wheel
+ * is rebuilt from the database once at startup and fed by every provision, create and
+ * plan attach afterwards. Entries are never cancelled: the updates only touch plans
+ * and eSIMs that are still active and actually due, so a stale entry does nothing.
+ */
+@Service
+public class EsimExpiryService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsimExpiryService.class);
+
+    private static final String ACTIVE = "active";
+    private static final String EXPIRED = "expired";
+    // eSIMs per expiry update
+    static final int BATCH_SIZE = 1000;
+    private static final long RETRY_SECONDS = 5;
+
+    private enum Kind { PLAN, ESIM }
+
+    private record Due(String esimRef, Kind kind) {
+    }
+
+    private final MockEsimRepository esimRepository;
+    private final MockBehaviorConfig.AutoExpire autoExpire;
+    private final EsimStatusCounters statusCounters;
+    private final TimingWheel<Due> wheel = new TimingWheel<>(nowTick());
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final ScheduledExecutorService ticker;
+
+    // eSIMs that had one or more plans expired
+    private final LongAdder planExpiries = new LongAdder();
+    private final LongAdder esimsExpired = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    public EsimExpiryService(MockEsimRepository esimRepository, MockBehaviorConfig behaviorConfig,
+                             EsimStatusCounters statusCounters,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.esimRepository = esimRepository;
+        this.autoExpire = behaviorConfig.getAutoExpire();
+        this.statusCounters = statusCounters;
+        // Virtual when requests are served on virtual threads, like the other background work
+        ThreadFactory threadFactory = virtualThreads
+            ? Thread.ofVirtual().name("esim-expiry").factory()
+            : Thread.ofPlatform().name("esim-expiry").daemon().factory();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * Load upcoming expiries once the application is up, then start ticking
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ticker.execute(this::loadSchedule);
+        ticker.scheduleWithFixedDelay(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Schedule the expiry of an eSIM's active plans and, with auto-expire, of the eSIM
+     */
+    public void schedule(MockEsim esim) {
+        List<Due> items = new ArrayList<>();
+        List<Long> ticks = new ArrayList<>();
+        for (MockEsim.AttachedPlan plan : esim.getAttachedPlans()) {
+            if (ACTIVE.equals(plan.getStatus()) && plan.getExpiryDate() != null) {
+                items.add(new Due(esim.getId(), Kind.PLAN));
+                ticks.add(toTick(plan.getExpiryDate()));
+            }
+        }
+        if (autoExpire.isEnabled() && ACTIVE.equals(esim.getStatus()) && esim.getActivationDate() != null) {
+            items.add(new Due(esim.getId(), Kind.ESIM));
+            ticks.add(toTick(esim.getActivationDate().plusSeconds(autoExpire.getSeconds())));
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+        wheelLock.lock();
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                wheel.schedule(items.get(i), ticks.get(i));
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    /**
+     * Expiry engine metrics
+     */
+    public Map<String, Object> getStats() {
+        int scheduled;
+        wheelLock.lock();
+        try {
+            scheduled = wheel.size();
+        } finally {
+            wheelLock.unlock();
+        }
+        return Map.of(
+            "scheduled", scheduled,
+            "esimsWithPlansExpired", planExpiries.sum(),
+            "esimsExpired", esimsExpired.sum(),
+            "failedBatches", failedBatches.sum(),
+            "autoExpireEnabled", autoExpire.isEnabled(),
+            "autoExpireSeconds", autoExpire.getSeconds()
+        );
+    }
+
+    @Override
+    public void destroy() {
+        ticker.shutdownNow();
+    }
+
+    private void loadSchedule() {
+        long loaded = 0;
+        try (Stream<MockEsim> candidates = esimRepository.streamExpiryCandidates()) {
+            for (MockEsim esim : (Iterable<MockEsim>) candidates::iterator) {
+                schedule(esim);
+                loaded++;
+            }
+            logger.info("Expiry schedule loaded for {} eSIMs", loaded);
+        } catch (RuntimeException e) {
+            logger.error("Failed to load the expiry schedule after {} eSIMs", loaded, e);
+        }
+    }
+
+    private void tick() {
+        List<Due> due;
+        wheelLock.lock();
+        try {
+            due = wheel.advance(nowTick());
+        } finally {
+            wheelLock.unlock();
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        Set<String> plans = new LinkedHashSet<>();
+        Set<String> esims = new LinkedHashSet<>();
+        for (Due item : due) {
+            (item.kind() == Kind.PLAN ? plans : esims).add(item.esimRef());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        expireInBatches(Kind.PLAN, new ArrayList<>(plans), now);
+        expireInBatches(Kind.ESIM, new ArrayList<>(esims), now.minusSeconds(autoExpire.getSeconds()));
+    }
+
+    private void expireInBatches(Kind kind, List<String> ids, LocalDateTime cutoff) {
+        for (int start = 0; start < ids.size(); start += BATCH_SIZE) {
+            List<String> batch = ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()));
+            try {
+                if (kind == Kind.PLAN) {
+                    planExpiries.add(esimRepository.expirePlans(batch, cutoff));
+                } else {
+                    long expired = esimRepository.expireEsims(batch, cutoff);
+                    esimsExpired.add(expired);
+                    statusCounters.changed(ACTIVE, EXPIRED, expired);
+                }
+            } catch (RuntimeException e) {
+                failedBatches.increment();
+                logger.warn("Expiry of {} {} entries failed, retrying in {}s: {}",
+                    batch.size(), kind, RETRY_SECONDS, e.getMessage());
+                retry(kind, batch);
+            }
+        }
+    }
+
+    private void retry(Kind kind, List<String> ids) {
+        long retryTick = nowTick() + RETRY_SECONDS;
+        wheelLock.lock();
+        try {
+            for (String id : ids) {
+                wheel.schedule(new Due(id, kind), retryTick);
+            }
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    private static long nowTick() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+
+    // Dates are local times in the system zone, as everywhere else in the service. Rounded
+    // up, so the tick never fires before the guard in the update would accept it
+    private static long toTick(LocalDateTime time) {
+        long seconds = time.atZone(ZoneId.systemDefault()).toEpochSecond();
+        return time.getNano() > 0 ? seconds + 1 : seconds;
+    }
+}
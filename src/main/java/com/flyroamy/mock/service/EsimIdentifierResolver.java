@@ -0,0 +1,190 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.util.IccidGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves an eSIM identifier (esimId, uid or ICCID) with a single query.
+ *
+ * The identifier's shape decides which unique index to hit: maya_ prefixes are
+ * esimIds, esim_ prefixes are uids and 20-digit Luhn-valid numbers are ICCIDs.
+ * Anything else falls back to one $or query across all three fields. Resolved
+ * identifiers are remembered against the document _id, so repeat lookups go
+ * straight to the primary key.
+ */
+@Component
+public class EsimIdentifierResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsimIdentifierResolver.class);
+
+    private static final String ESIM_ID_PREFIX = "maya_";
+    private static final String UID_PREFIX = "esim_";
+    private static final int ICCID_LENGTH = 20;
+    private static final int MAX_RESOLVED_IDENTIFIERS = 50_000;
+
+    public enum IdentifierType { ESIM_ID, UID, ICCID, UNKNOWN }
+
+    private final MockEsimRepository esimRepository;
+    private final IccidGenerator iccidGenerator;
+    private final Map<String, String> resolvedIds = new ConcurrentHashMap<>();
+
+    public EsimIdentifierResolver(MockEsimRepository esimRepository, IccidGenerator iccidGenerator) {
+        this.esimRepository = esimRepository;
+        this.iccidGenerator = iccidGenerator;
+    }
+
+    /**
+     * Find an eSIM by esimId, uid or ICCID
+     */
+    public Optional<MockEsim> resolve(String identifier) {
+        String id = resolvedIds.get(identifier);
+        if (id != null) {
+            Optional<MockEsim> esim = esimRepository.findById(id);
+            if (esim.isPresent()) {
+                return esim;
+            }
+            resolvedIds.remove(identifier);
+        }
+
+        IdentifierType type = classify(identifier);
+        logger.debug("Resolving identifier {} as {}", identifier, type);
+
+        Optional<MockEsim> esim = switch (type) {
+            case ESIM_ID -> esimRepository.findByEsimId(identifier);
+            case UID -> esimRepository.findByUid(identifier);
+            case ICCID -> esimRepository.findByIccid(identifier);
+            case UNKNOWN -> esimRepository.findByAnyIdentifier(identifier);
+        };
+        esim.ifPresent(found -> remember(identifier, found.getId()));
+        return esim;
+    }
+
+    /**
+     * Resolve many identifiers at once. Remembered identifiers are fetched with one
+     * query on _id, the rest with one $in query per identifier type.
+     *
+     * @return eSIMs keyed by identifier; identifiers that match nothing are absent
+     */
+    public Map<String, MockEsim> resolveAll(Collection<String> identifiers) {
+        Map<String, MockEsim> resolved = new HashMap<>();
+        Map<String, List<String>> rememberedById = new HashMap<>();
+        Map<IdentifierType, List<String>> byType = new EnumMap<>(IdentifierType.class);
+
+        for (String identifier : new LinkedHashSet<>(identifiers)) {
+            String id = resolvedIds.get(identifier);
+            if (id != null) {
+                rememberedById.computeIfAbsent(id, key -> new ArrayList<>()).add(identifier);
+            } else {
+                byType.computeIfAbsent(classify(identifier), type -> new ArrayList<>()).add(identifier);
+            }
+        }
+
+        if (!rememberedById.isEmpty()) {
+            for (MockEsim esim : esimRepository.findAllById(rememberedById.keySet())) {
+                rememberedById.remove(esim.getId()).forEach(identifier -> resolved.put(identifier, esim));
+            }
+            // Remembered ids that no longer exist get resolved afresh
+            rememberedById.values().forEach(stale -> stale.forEach(identifier -> {
+                resolvedIds.remove(identifier);
+                byType.computeIfAbsent(classify(identifier), type -> new ArrayList<>()).add(identifier);
+            }));
+        }
+
+        byType.forEach((type, group) -> {
+            logger.debug("Resolving {} identifiers as {}", group.size(), type);
+            switch (type) {
+                case ESIM_ID -> esimRepository.findByEsimIdIn(group).forEach(esim -> resolved.put(esim.getEsimId(), esim));
+                case UID -> esimRepository.findByUidIn(group).forEach(esim -> resolved.put(esim.getUid(), esim));
+                case ICCID -> esimRepository.findByIccidIn(group).forEach(esim -> resolved.put(esim.getIccid(), esim));
+                case UNKNOWN -> {
+                    Set<String> wanted = new HashSet<>(group);
+                    for (MockEsim esim : esimRepository.findByAnyIdentifierIn(group)) {
+                        for (String identifier : Arrays.asList(esim.getEsimId(), esim.getUid(), esim.getIccid())) {
+                            if (identifier != null && wanted.contains(identifier)) {
+                                resolved.putIfAbsent(identifier, esim);
+                            }
+                        }
+                    }
+                }
+            }
+        });
+
+        resolved.forEach((identifier, esim) -> remember(identifier, esim.getId()));
+        return resolved;
+    }
+
+    /**
+     * Classify an identifier by its shape
+     */
+    public IdentifierType classify(String identifier) {
+        if (identifier == null) {
+            return IdentifierType.UNKNOWN;
+        }
+        if (identifier.startsWith(ESIM_ID_PREFIX)) {
+            return IdentifierType.ESIM_ID;
+        }
+        if (identifier.startsWith(UID_PREFIX)) {
+            return IdentifierType.UID;
+        }
+        if (isDigits(identifier, ICCID_LENGTH) && iccidGenerator.validate(identifier)) {
+            return IdentifierType.ICCID;
+        }
+        return IdentifierType.UNKNOWN;
+    }
+
+    /**
+     * Forget every identifier of a deleted eSIM
+     */
+    public void evict(MockEsim esim) {
+        if (esim.getEsimId() != null) resolvedIds.remove(esim.getEsimId());
+        if (esim.getUid() != null) resolvedIds.remove(esim.getUid());
+        if (esim.getIccid() != null) resolvedIds.remove(esim.getIccid());
+    }
+
+    public void clear() {
+        resolvedIds.clear();
+    }
+
+    private void remember(String identifier, String id) {
+        // Bounded by evicting an arbitrary entry; misses only cost one resolution query
+        if (resolvedIds.size() >= MAX_RESOLVED_IDENTIFIERS) {
+            Iterator<String> keys = resolvedIds.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        resolvedIds.put(identifier, id);
+    }
+
+    private static boolean isDigits(String value, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -10,8 +10,10 @@ import com.flyroamy.mock.model.MockProduct;
 import com.flyroamy.mock.repository.MockEsimRepository;
 import com.flyroamy.mock.util.IccidGenerator;
 import com.flyroamy.mock.util.MatchingIdGenerator;
+import com.flyroamy.mock.util.RandomIds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -19,33 +21,66 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
 public class EsimService {
 
     private static final Logger logger = LoggerFactory.getLogger(EsimService.class);
 
+    // Identifiers resolved per round of $in queries in a batch lookup
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+    // Reads of an eSIM whose status keeps changing before a status-guarded update gives up
+    private static final int STATUS_UPDATE_ATTEMPTS = 8;
+
+    /**
+     * One chunk of a batch lookup: the eSIMs found, in request order, and the
+     * identifiers that matched nothing
+     */
+    public record LookupChunk(List<MockEsim> found, List<String> notFound) {
+    }
+
     private final MockEsimRepository esimRepository;
     private final ProductService productService;
     private final QrCodeService qrCodeService;
     private final IccidGenerator iccidGenerator;
     private final MatchingIdGenerator matchingIdGenerator;
+    private final EsimIdentifierResolver identifierResolver;
+    private final QrImageStore qrImageStore;
+    private final UsageHistoryService usageHistoryService;
+    private final EsimExpiryService expiryService;
+    private final EsimStatusCounters statusCounters;
 
     public EsimService(
             MockEsimRepository esimRepository,
             ProductService productService,
             QrCodeService qrCodeService,
             IccidGenerator iccidGenerator,
-            MatchingIdGenerator matchingIdGenerator) {
+            MatchingIdGenerator matchingIdGenerator,
+            EsimIdentifierResolver identifierResolver,
+            QrImageStore qrImageStore,
+            UsageHistoryService usageHistoryService,
+            EsimExpiryService expiryService,
+            EsimStatusCounters statusCounters) {
         this.esimRepository = esimRepository;
         this.productService = productService;
         this.qrCodeService = qrCodeService;
         this.iccidGenerator = iccidGenerator;
         this.matchingIdGenerator = matchingIdGenerator;
+        this.identifierResolver = identifierResolver;
+        this.qrImageStore = qrImageStore;
+        this.usageHistoryService = usageHistoryService;
+        this.expiryService = expiryService;
+        this.statusCounters = statusCounters;
     }
 
     /**
@@ -98,6 +133,11 @@ public class EsimService {
 
         MockEsim saved = esimRepository.save(esim);
         logger.info("Provisioned eSIM: {} with ICCID: {}", saved.getEsimId(), saved.getIccid());
+        statusCounters.created(saved.getStatus());
+        expiryService.schedule(saved);
+
+        // Render the QR code off the request path so the first GET /qr is served from disk
+        qrImageStore.renderAsync(saved.getEsimId(), saved.getQrCodeData());
 
         return saved;
     }
@@ -112,28 +152,45 @@ public class EsimService {
 
     /**
      * Get eSIM by ID, UID, or ICCID (unified lookup)
-     * Tries esimId first, then uid, then iccid
+     * Resolved with a single query chosen by the identifier's shape
      */
     public MockEsim getEsimByIdOrUidOrIccid(String identifier) {
         logger.debug("Looking up eSIM by identifier: {}", identifier);
 
-        // Try esimId first
-        Optional<MockEsim> esim = esimRepository.findByEsimId(identifier);
-        if (esim.isPresent()) {
-            return esim.get();
-        }
-
-        // Try uid
-        esim = esimRepository.findByUid(identifier);
-        if (esim.isPresent()) {
-            return esim.get();
-        }
-
-        // Try iccid
-        return esimRepository.findByIccid(identifier)
+        return identifierResolver.resolve(identifier)
             .orElseThrow(() -> new EsimNotFoundException(identifier));
     }
 
+    /**
+     * Look up many eSIMs by ICCID or uid (esimIds work too). Duplicates are dropped and
+     * the rest resolved one chunk at a time, with one $in query per identifier type, as
+     * the returned stream is consumed; a caller writing out each chunk never holds the
+     * whole result.
+     */
+    public Stream<LookupChunk> lookupEsims(Collection<String> identifiers) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(identifiers));
+        int chunks = (distinct.size() + LOOKUP_CHUNK_SIZE - 1) / LOOKUP_CHUNK_SIZE;
+        logger.debug("Looking up {} eSIMs in {} chunks", distinct.size(), chunks);
+
+        return IntStream.range(0, chunks).mapToObj(chunk -> {
+            List<String> group = distinct.subList(chunk * LOOKUP_CHUNK_SIZE,
+                Math.min(distinct.size(), (chunk + 1) * LOOKUP_CHUNK_SIZE));
+            Map<String, MockEsim> resolved = identifierResolver.resolveAll(group);
+
+            List<MockEsim> found = new ArrayList<>(resolved.size());
+            List<String> notFound = new ArrayList<>();
+            for (String identifier : group) {
+                MockEsim esim = resolved.get(identifier);
+                if (esim != null) {
+                    found.add(esim);
+                } else {
+                    notFound.add(identifier);
+                }
+            }
+            return new LookupChunk(found, notFound);
+        });
+    }
+
     /**
      * Get eSIM by ID (optional)
      */
@@ -171,16 +228,9 @@ public class EsimService {
     public MockEsim deactivateEsim(String esimId) {
         logger.info("Deactivating eSIM: {}", esimId);
 
-        MockEsim esim = getEsimByIdOrUidOrIccid(esimId);
-        esim.setStatus("deactivated");
-        esim.setUpdatedAt(LocalDateTime.now());
-
-        // Mark all attached plans as deactivated
-        for (MockEsim.AttachedPlan plan : esim.getAttachedPlans()) {
-            plan.setStatus("deactivated");
-        }
-
-        MockEsim saved = esimRepository.save(esim);
+        // Plans are deactivated along with the eSIM; balances are left as they are
+        MockEsim saved = updateGuarded(esimId, () -> getEsimByIdOrUidOrIccid(esimId),
+            esim -> esimRepository.changeStatus(esim.getId(), esim.getStatus(), "deactivated", true));
         logger.info("Deactivated eSIM: {}", esimId);
 
         return saved;
@@ -199,65 +249,52 @@ public class EsimService {
                 Map.of("esimId", esimId, "status", esim.getStatus()));
         }
 
-        int remainingUsage = usageMB;
-
-        // Consume from active plans (FIFO order)
-        for (MockEsim.AttachedPlan plan : esim.getAttachedPlans()) {
-            if (!"active".equals(plan.getStatus()) || remainingUsage <= 0) {
-                continue;
-            }
-
-            int available = plan.getRemainingDataMB() != null ? plan.getRemainingDataMB() : 0;
-            int consumed = Math.min(available, remainingUsage);
-
-            plan.setDataUsedMB((plan.getDataUsedMB() != null ? plan.getDataUsedMB() : 0) + consumed);
-            plan.setRemainingDataMB(available - consumed);
-            remainingUsage -= consumed;
-
-            // Check if plan is depleted
-            if (plan.getRemainingDataMB() <= 0) {
-                plan.setStatus("depleted");
-                logger.info("Plan {} depleted on eSIM {}", plan.getProductId(), esimId);
-            }
+        // Applied atomically by the repository; concurrent reports on one eSIM are never lost
+        MockEsim updated = esimRepository.applyUsage(esim.getId(), usageMB)
+            .orElseThrow(() -> new EsimNotFoundException(esimId));
+        if (!"active".equals(updated.getStatus())) {
+            throw new InvalidRequestException("Cannot simulate usage on non-active eSIM",
+                Map.of("esimId", esimId, "status", updated.getStatus()));
         }
-
-        esim.recalculateTotals();
-        esim.setLastUsed(LocalDateTime.now());
-        esim.setUpdatedAt(LocalDateTime.now());
+        usageHistoryService.recordUsage(updated, usageMB);
 
         // Check if all plans are depleted
-        boolean allDepleted = esim.getAttachedPlans().stream()
+        boolean allDepleted = updated.getAttachedPlans().stream()
             .allMatch(p -> !"active".equals(p.getStatus()));
         if (allDepleted) {
             logger.info("All plans depleted on eSIM {}", esimId);
         }
 
-        return esimRepository.save(esim);
+        return updated;
     }
 
     /**
-     * Force status change (admin)
+     * Force status change (admin). Only the status changes; plans keep theirs, so a
+     * forced deactivation can be undone. Activating an eSIM stamps its activation date
+     * and schedules its expiries, as provisioning does.
      */
     public MockEsim forceStatusChange(String esimId, String newStatus) {
         logger.info("Forcing status change on eSIM {} to: {}", esimId, newStatus);
 
-        MockEsim esim = getEsimByIdOrUidOrIccid(esimId);
-        esim.setStatus(newStatus);
-        esim.setUpdatedAt(LocalDateTime.now());
+        MockEsim saved = updateGuarded(esimId, () -> getEsimByIdOrUidOrIccid(esimId),
+            esim -> esimRepository.changeStatus(esim.getId(), esim.getStatus(), newStatus, false));
+        if ("active".equals(saved.getStatus())) {
+            expiryService.schedule(saved);
+        }
 
-        return esimRepository.save(esim);
+        return saved;
     }
 
     /**
-     * Get eSIM statistics
+     * Get eSIM statistics, from the status counters rather than the database
      */
     public Map<String, Long> getStatistics() {
         return Map.of(
-            "total", esimRepository.count(),
-            "active", esimRepository.countByStatus("active"),
-            "provisioned", esimRepository.countByStatus("provisioned"),
-            "deactivated", esimRepository.countByStatus("deactivated"),
-            "expired", esimRepository.countByStatus("expired")
+            "total", statusCounters.total(),
+            "active", statusCounters.count("active"),
+            "provisioned", statusCounters.count("provisioned"),
+            "deactivated", statusCounters.count("deactivated"),
+            "expired", statusCounters.count("expired")
         );
     }
 
@@ -267,10 +304,87 @@ public class EsimService {
     public MockEsim createEsim(CreateEsimRequest request) {
         logger.info("Creating eSIM - planTypeId: {}, customerId: {}", request.getPlanTypeId(), request.getCustomerId());
 
+        // If plan_type_id is provided, attach the plan (supports both productId and uid lookup)
+        MockProduct product = null;
+        if (request.getPlanTypeId() != null && !request.getPlanTypeId().isEmpty()) {
+            product = productService.getProductByIdOrUid(request.getPlanTypeId());
+        }
+
+        MockEsim saved = esimRepository.save(newEsim(request, product));
+        logger.info("Created eSIM: {} with ICCID: {}", saved.getUid(), saved.getIccid());
+        afterCreate(saved);
+
+        return saved;
+    }
+
+    /**
+     * Attach a plan to an existing eSIM (Maya API style)
+     */
+    public MockEsim attachPlan(String iccid, String planTypeId) {
+        logger.info("Attaching plan {} to eSIM {}", planTypeId, iccid);
+
+        MockEsim saved = updateGuarded(iccid, () -> getEsimByIccid(iccid), esim -> {
+            checkCanAttachPlan(esim, iccid);
+            // Get the product (supports both productId and uid lookup)
+            MockProduct product = productService.getProductByIdOrUid(planTypeId);
+            return esimRepository.attachPlan(esim.getId(), esim.getStatus(), createAttachedPlan(product),
+                activatesOnAttach(esim));
+        });
+        logger.info("Attached plan {} to eSIM {}. Total plans: {}",
+            planTypeId, iccid, saved.getAttachedPlans().size());
+        expiryService.schedule(saved);
+
+        return saved;
+    }
+
+    /**
+     * Update an existing eSIM
+     */
+    public MockEsim updateEsim(String iccid, CreateEsimRequest updates) {
+        logger.info("Updating eSIM: {}", iccid);
+
+        MockEsim esim = getEsimByIccid(iccid);
+        return esimRepository.updateDetails(esim.getId(), updates.getCustomerId(), updates.getTag())
+            .orElseThrow(() -> new EsimNotFoundException("ICCID: " + iccid));
+    }
+
+    /**
+     * Delete an eSIM by ICCID
+     */
+    public void deleteEsim(String iccid) {
+        logger.info("Deleting eSIM with ICCID: {}", iccid);
+
+        MockEsim esim = getEsimByIccid(iccid);
+        esimRepository.delete(esim);
+        afterDelete(esim);
+
+        logger.info("Deleted eSIM with ICCID: {}", iccid);
+    }
+
+    /**
+     * Delete all eSIMs (admin reset)
+     */
+    public void deleteAll() {
+        logger.warn("Deleting all eSIMs");
+        esimRepository.deleteAll();
+        statusCounters.cleared();
+        identifierResolver.clear();
+        qrImageStore.clear();
+        usageHistoryService.deleteAll();
+    }
+
+    // The steps below hold no I/O of their own and are shared with ReactiveEsimService
+
+    // A new eSIM in Maya API style; with a product, its plan is attached and the eSIM active
+    MockEsim newEsim(CreateEsimRequest request, MockProduct product) {
+        return newEsim(request, product, iccidGenerator.generate());
+    }
+
+    // As above, with an ICCID allocated by the caller
+    MockEsim newEsim(CreateEsimRequest request, MockProduct product, String iccid) {
         // Generate eSIM identifiers
-        String uid = "esim_" + UUID.randomUUID().toString().substring(0, 12);
+        String uid = RandomIds.hex("esim_", 12);
         String esimId = matchingIdGenerator.generateEsimId();
-        String iccid = iccidGenerator.generate();
         String matchingId = matchingIdGenerator.generate();
         String activationCode = matchingIdGenerator.generateActivationCode();
         String manualCode = matchingIdGenerator.generateManualCode();
@@ -299,100 +413,70 @@ public class EsimService {
         esim.setTag(request.getTag());
         esim.setDateAssigned(LocalDateTime.now());
 
-        // If plan_type_id is provided, attach the plan (supports both productId and uid lookup)
-        if (request.getPlanTypeId() != null && !request.getPlanTypeId().isEmpty()) {
-            MockProduct product = productService.getProductByIdOrUid(request.getPlanTypeId());
+        if (product != null) {
             MockEsim.AttachedPlan plan = createAttachedPlan(product);
             esim.addPlan(plan);
             esim.setStatus("active");
             esim.setState("active");
             esim.setActivationDate(LocalDateTime.now());
         }
-
-        MockEsim saved = esimRepository.save(esim);
-        logger.info("Created eSIM: {} with ICCID: {}", saved.getUid(), saved.getIccid());
-
-        return saved;
+        return esim;
     }
 
-    /**
-     * Attach a plan to an existing eSIM (Maya API style)
-     */
-    public MockEsim attachPlan(String iccid, String planTypeId) {
-        logger.info("Attaching plan {} to eSIM {}", planTypeId, iccid);
+    // Counts, schedules expiries and renders the QR code of a newly saved eSIM
+    void afterCreate(MockEsim saved) {
+        afterInsert(saved);
+        qrImageStore.renderAsync(saved.getEsimId(), saved.getQrCodeData());
+    }
 
-        MockEsim esim = getEsimByIccid(iccid);
+    // Counts and schedules expiries of a newly saved eSIM, leaving its QR code to the caller
+    void afterInsert(MockEsim saved) {
+        statusCounters.created(saved.getStatus());
+        expiryService.schedule(saved);
+    }
 
+    void checkCanAttachPlan(MockEsim esim, String iccid) {
         // Validate eSIM status
         if ("deactivated".equals(esim.getStatus())) {
             throw new InvalidRequestException("Cannot attach plan to deactivated eSIM", Map.of("iccid", iccid));
         }
-
-        // Get the product (supports both productId and uid lookup)
-        MockProduct product = productService.getProductByIdOrUid(planTypeId);
-
-        // Create and attach plan
-        MockEsim.AttachedPlan plan = createAttachedPlan(product);
-        esim.addPlan(plan);
-
-        // Update status if provisioned
-        if ("provisioned".equals(esim.getStatus())) {
-            esim.setStatus("active");
-            esim.setState("active");
-            esim.setActivationDate(LocalDateTime.now());
-        }
-
-        esim.setUpdatedAt(LocalDateTime.now());
-
-        MockEsim saved = esimRepository.save(esim);
-        logger.info("Attached plan {} to eSIM {}. Total plans: {}",
-            planTypeId, iccid, saved.getAttachedPlans().size());
-
-        return saved;
     }
 
-    /**
-     * Update an existing eSIM
-     */
-    public MockEsim updateEsim(String iccid, CreateEsimRequest updates) {
-        logger.info("Updating eSIM: {}", iccid);
-
-        MockEsim esim = getEsimByIccid(iccid);
-
-        if (updates.getCustomerId() != null) {
-            esim.setCustomerId(updates.getCustomerId());
-        }
-        if (updates.getTag() != null) {
-            esim.setTag(updates.getTag());
-        }
-
-        esim.setUpdatedAt(LocalDateTime.now());
-
-        return esimRepository.save(esim);
+    // A provisioned eSIM becomes active when a plan is attached
+    boolean activatesOnAttach(MockEsim esim) {
+        return "provisioned".equals(esim.getStatus());
     }
 
     /**
-     * Delete an eSIM by ICCID
+     * Runs an update guarded on the status the eSIM was read with, reading it again when
+     * the status changed in between, and counts the transition. The update never writes
+     * the document as read, so usage applied meanwhile is kept.
      */
-    public void deleteEsim(String iccid) {
-        logger.info("Deleting eSIM with ICCID: {}", iccid);
-
-        MockEsim esim = getEsimByIccid(iccid);
-        esimRepository.delete(esim);
-
-        logger.info("Deleted eSIM with ICCID: {}", iccid);
+    private MockEsim updateGuarded(String identifier, Supplier<MockEsim> read,
+                                   Function<MockEsim, Optional<MockEsim>> update) {
+        for (int attempt = 0; attempt < STATUS_UPDATE_ATTEMPTS; attempt++) {
+            MockEsim esim = read.get();
+            Optional<MockEsim> updated = update.apply(esim);
+            if (updated.isPresent()) {
+                statusCounters.changed(esim.getStatus(), updated.get().getStatus());
+                return updated.get();
+            }
+        }
+        throw new OptimisticLockingFailureException(
+            "Status of eSIM " + identifier + " changed " + STATUS_UPDATE_ATTEMPTS + " times during the update");
     }
 
-    /**
-     * Delete all eSIMs (admin reset)
-     */
-    public void deleteAll() {
-        logger.warn("Deleting all eSIMs");
-        esimRepository.deleteAll();
+    // Drops what is kept about a deleted eSIM outside its document; usage history
+    // removal queries the repository
+    void afterDelete(MockEsim esim) {
+        statusCounters.deleted(esim.getStatus());
+        identifierResolver.evict(esim);
+        qrImageStore.remove(esim.getEsimId());
+        usageHistoryService.deleteHistory(esim);
     }
 
     // Helper method to create AttachedPlan from MockProduct
-    private MockEsim.AttachedPlan createAttachedPlan(MockProduct product) {
+    MockEsim.AttachedPlan createAttachedPlan(MockProduct product) {
         MockEsim.AttachedPlan attached = new MockEsim.AttachedPlan();
         attached.setProductId(product.getProductId());
         attached.setPlanName(product.getName());
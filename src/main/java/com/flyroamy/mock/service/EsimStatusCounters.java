@@ -0,0 +1,155 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.repository.MockEsimRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * eSIM counts per status, kept up to date on every status transition so statistics
+ * and health checks never query the collection.
+ *
+ * The services report a transition once the write that made it has succeeded. Writes
+ * that bypass them, such as another instance sharing the database or manual edits,
+ * are caught by one $group aggregation at startup and at a fixed interval afterwards.
+ * A transition that races the aggregation can leave a count off by one until the
+ * next pass.
+ */
+@Component
+public class EsimStatusCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(EsimStatusCounters.class);
+
+    private final MockEsimRepository esimRepository;
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final LongAdder reconciliations = new LongAdder();
+    private volatile long lastDrift;
+
+    public EsimStatusCounters(MockEsimRepository esimRepository) {
+        this.esimRepository = esimRepository;
+    }
+
+    /**
+     * An eSIM was stored with this status
+     */
+    public void created(String status) {
+        add(status, 1);
+    }
+
+    /**
+     * An eSIM moved from one status to another
+     */
+    public void changed(String from, String to) {
+        changed(from, to, 1);
+    }
+
+    /**
+     * Several eSIMs moved from one status to another
+     */
+    public void changed(String from, String to, long esims) {
+        if (esims == 0 || (from != null && from.equals(to))) {
+            return;
+        }
+        add(from, -esims);
+        add(to, esims);
+    }
+
+    /**
+     * An eSIM with this status was deleted
+     */
+    public void deleted(String status) {
+        add(status, -1);
+    }
+
+    /**
+     * All eSIMs were deleted (admin reset)
+     */
+    public void cleared() {
+        counts.values().forEach(LongAdder::reset);
+    }
+
+    /**
+     * Number of eSIMs with a status
+     */
+    public long count(String status) {
+        LongAdder count = counts.get(status);
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     * Number of eSIMs with any status
+     */
+    public long total() {
+        long total = 0;
+        for (LongAdder count : counts.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Reconciliation metrics
+     */
+    public Map<String, Object> getStats() {
+        return Map.of(
+            "reconciliations", reconciliations.sum(),
+            "lastDrift", lastDrift
+        );
+    }
+
+    /**
+     * Replace the counts with a fresh $group over the collection, keeping transitions
+     * reported while it ran
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${mock.status-counters.reconcile-interval-ms:300000}",
+               fixedDelayString = "${mock.status-counters.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        Map<String, Long> before = snapshot();
+        Map<String, Long> stored;
+        try {
+            stored = esimRepository.countAllByStatus();
+        } catch (RuntimeException e) {
+            logger.warn("Status count reconciliation failed: {}", e.getMessage());
+            return;
+        }
+
+        Set<String> statuses = new HashSet<>(before.keySet());
+        statuses.addAll(stored.keySet());
+        long drift = 0;
+        for (String status : statuses) {
+            long correction = stored.getOrDefault(status, 0L) - before.getOrDefault(status, 0L);
+            if (correction != 0) {
+                add(status, correction);
+                drift += Math.abs(correction);
+            }
+        }
+        lastDrift = drift;
+        reconciliations.increment();
+        if (drift > 0 && reconciliations.sum() > 1) {
+            logger.info("Status counts were off by {} eSIMs, corrected", drift);
+        }
+    }
+
+    private Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new HashMap<>();
+        counts.forEach((status, count) -> snapshot.put(status, count.sum()));
+        return snapshot;
+    }
+
+    private void add(String status, long delta) {
+        if (status != null) {
+            counts.computeIfAbsent(status, ignored -> new LongAdder()).add(delta);
+        }
+    }
+}
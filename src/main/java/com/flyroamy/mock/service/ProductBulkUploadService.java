@@ -1,20 +1,35 @@
 package com.flyroamy.mock.service;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.flyroamy.mock.dto.request.BulkProductUploadRequest;
 import com.flyroamy.mock.dto.request.BulkProductUploadRequest.ProductUploadItem;
 import com.flyroamy.mock.model.MockProduct;
 import com.flyroamy.mock.repository.MockProductRepository;
+import com.flyroamy.mock.util.RandomIds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Service for bulk uploading products.
@@ -25,10 +40,35 @@ public class ProductBulkUploadService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductBulkUploadService.class);
 
+    // Rows per $in prefetch and bulk write
+    static final int CHUNK_SIZE = 500;
+
+    /**
+     * Formats accepted by the streaming upload
+     */
+    public enum UploadFormat { NDJSON, CSV }
+
     private final MockProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
 
-    public ProductBulkUploadService(MockProductRepository productRepository) {
+    public ProductBulkUploadService(MockProductRepository productRepository, ProductCatalogCache catalogCache,
+                                    ObjectMapper objectMapper) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+        this.ndjsonReader = objectMapper.readerFor(ProductUploadItem.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        // Admin panel Excel export: a header row naming the columns, blank cells for missing values
+        CsvMapper csvMapper = CsvMapper.builder()
+            .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+            .enable(CsvParser.Feature.TRIM_SPACES)
+            .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+        this.csvReader = csvMapper.readerFor(ProductUploadItem.class)
+            .with(CsvSchema.emptySchema().withHeader());
     }
 
     /**
@@ -43,18 +83,12 @@ public class ProductBulkUploadService {
             return result;
         }
 
-        logger.info("Processing bulk upload of {} products", request.getProducts().size());
-
-        for (int i = 0; i < request.getProducts().size(); i++) {
-            ProductUploadItem item = request.getProducts().get(i);
-            int rowNumber = i + 1;
+        List<ProductUploadItem> items = request.getProducts();
+        logger.info("Processing bulk upload of {} products", items.size());
 
-            try {
-                processProductItem(item, rowNumber, result);
-            } catch (Exception e) {
-                logger.error("Error processing row {}: {}", rowNumber, e.getMessage());
-                result.addError("Row " + rowNumber + ": " + e.getMessage());
-            }
+        for (int start = 0; start < items.size(); start += CHUNK_SIZE) {
+            List<ProductUploadItem> chunk = items.subList(start, Math.min(start + CHUNK_SIZE, items.size()));
+            processChunk(chunk, Map.of(), start + 1, result);
         }
 
         logger.info("Bulk upload completed - created: {}, updated: {}, errors: {}",
@@ -64,41 +98,180 @@ public class ProductBulkUploadService {
     }
 
     /**
-     * Process a single product item from the upload
+     * Process a streamed upload of NDJSON objects or CSV rows.
+     *
+     * Rows are parsed one at a time and handed to {@link #processChunk} every
+     * {@link #CHUNK_SIZE} rows, so memory use does not grow with the file. A row that
+     * cannot be bound keeps its slot in the chunk and is reported and skipped there;
+     * malformed input stops the upload, keeping the rows already processed.
      */
-    private void processProductItem(ProductUploadItem item, int rowNumber, BulkUploadResult result) {
-        // Normalize the item (handle Excel format fields)
-        normalizeItem(item);
-
-        // Validate required fields
-        List<String> validationErrors = validateItem(item);
-        if (!validationErrors.isEmpty()) {
-            for (String error : validationErrors) {
-                result.addError("Row " + rowNumber + ": " + error);
+    public BulkUploadResult processStream(InputStream input, UploadFormat format) {
+        BulkUploadResult result = new BulkUploadResult();
+        ObjectReader reader = format == UploadFormat.CSV ? csvReader : ndjsonReader;
+
+        List<ProductUploadItem> batch = new ArrayList<>(CHUNK_SIZE);
+        // Binding errors keyed by the failed row's index in the batch
+        Map<Integer, String> bindErrors = new HashMap<>();
+        int firstRowNumber = 1;
+        int rowNumber = 0;
+        String stopError = null;
+
+        try (MappingIterator<ProductUploadItem> rows = reader.readValues(input)) {
+            while (rows.hasNextValue()) {
+                rowNumber++;
+                try {
+                    batch.add(rows.nextValue());
+                } catch (JsonMappingException e) {
+                    // The iterator skips past the bad row, keep its slot so row numbers stay aligned
+                    bindErrors.put(batch.size(), e.getOriginalMessage());
+                    batch.add(null);
+                }
+                if (batch.size() == CHUNK_SIZE) {
+                    processChunk(batch, bindErrors, firstRowNumber, result);
+                    firstRowNumber += batch.size();
+                    batch.clear();
+                    bindErrors.clear();
+                }
             }
+        } catch (IOException e) {
+            logger.error("Streaming upload stopped at row {}: {}", rowNumber, e.getMessage());
+            stopError = "Row " + rowNumber + ": malformed " + format.name().toLowerCase()
+                + " input, upload stopped: " + e.getMessage();
+        }
+        // Rows read before the input broke off are still written, and reported ahead of the stop
+        processChunk(batch, bindErrors, firstRowNumber, result);
+        if (stopError != null) {
+            result.addError(stopError);
+        }
+
+        if (rowNumber == 0 && result.getErrors().isEmpty()) {
+            result.addError("No products provided");
+        }
+
+        logger.info("Streaming {} upload completed - rows: {}, created: {}, updated: {}, errors: {}",
+            format, rowNumber, result.getCreated(), result.getUpdated(), result.getErrors().size());
+
+        return result;
+    }
+
+    /**
+     * Process one chunk of upload rows.
+     *
+     * Rows are normalized and validated in parallel, existing products are fetched
+     * with one $in query and the whole chunk is written with one unordered bulk
+     * upsert. Rows repeating a productId apply in order to the same product. Errors
+     * and created/updated counts are reported per row, in row order.
+     *
+     * @param bindErrors errors of the rows that could not be bound, keyed by index in the chunk
+     * @param firstRowNumber 1-based row number of the first item in the chunk
+     */
+    private void processChunk(List<ProductUploadItem> chunk, Map<Integer, String> bindErrors, int firstRowNumber,
+                              BulkUploadResult result) {
+        if (chunk.isEmpty()) {
             return;
         }
+        List<PreparedRow> rows = IntStream.range(0, chunk.size())
+            .parallel()
+            .mapToObj(i -> bindErrors.containsKey(i)
+                ? new PreparedRow(null, firstRowNumber + i, List.of(bindErrors.get(i)))
+                : prepareRow(chunk.get(i), firstRowNumber + i))
+            .toList();
+        Set<String> productIds = rows.stream()
+            .filter(PreparedRow::isValid)
+            .map(row -> row.item().getProductId())
+            .collect(Collectors.toSet());
+        Map<String, MockProduct> existing = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            productRepository.findByProductIdIn(productIds)
+                .forEach(product -> existing.put(product.getProductId(), product));
+        }
 
-        // Check if product exists (by productId)
-        String productId = item.getProductId();
-        Optional<MockProduct> existingOpt = productRepository.findByProductId(productId);
-
-        if (existingOpt.isPresent()) {
-            // Update existing product
-            MockProduct existing = existingOpt.get();
-            updateProductFromItem(existing, item);
-            productRepository.save(existing);
-            result.incrementUpdated();
-            logger.debug("Updated product: {} (row {})", productId, rowNumber);
-        } else {
-            // Create new product
-            MockProduct newProduct = createProductFromItem(item);
-            productRepository.save(newProduct);
-            result.incrementCreated();
-            logger.debug("Created product: {} (row {})", productId, rowNumber);
+        // One write per productId; later rows build on earlier ones
+        Map<String, MockProduct> pending = new LinkedHashMap<>();
+        Map<Integer, Boolean> createdRows = new HashMap<>();
+        for (PreparedRow row : rows) {
+            if (!row.isValid()) {
+                continue;
+            }
+            String productId = row.item().getProductId();
+            MockProduct product = pending.get(productId);
+            if (product == null) {
+                product = existing.get(productId);
+            }
+            if (product != null) {
+                updateProductFromItem(product, row.item());
+                createdRows.put(row.rowNumber(), false);
+            } else {
+                product = createProductFromItem(row.item());
+                createdRows.put(row.rowNumber(), true);
+            }
+            pending.put(productId, product);
+        }
+
+        Map<String, String> failed = write(pending);
+
+        for (PreparedRow row : rows) {
+            if (!row.isValid()) {
+                row.errors().forEach(error -> result.addError("Row " + row.rowNumber() + ": " + error));
+                continue;
+            }
+            String error = failed.get(row.item().getProductId());
+            if (error != null) {
+                logger.error("Error processing row {}: {}", row.rowNumber(), error);
+                result.addError("Row " + row.rowNumber() + ": " + error);
+            } else if (createdRows.get(row.rowNumber())) {
+                result.incrementCreated();
+            } else {
+                result.incrementUpdated();
+            }
+        }
+    }
+
+    /**
+     * Normalize and validate a single row. Runs on the common pool, so it only
+     * touches the row's own item.
+     */
+    private PreparedRow prepareRow(ProductUploadItem item, int rowNumber) {
+        try {
+            // Normalize the item (handle Excel format fields)
+            normalizeItem(item);
+            return new PreparedRow(item, rowNumber, validateItem(item));
+        } catch (Exception e) {
+            return new PreparedRow(item, rowNumber, List.of(String.valueOf(e.getMessage())));
         }
     }
 
+    /**
+     * Bulk upsert the chunk's products and publish the written ones to the catalog.
+     *
+     * @return error messages keyed by productId for products that were not written
+     */
+    private Map<String, String> write(Map<String, MockProduct> pending) {
+        if (pending.isEmpty()) {
+            return Map.of();
+        }
+        List<MockProduct> products = new ArrayList<>(pending.values());
+
+        Map<Integer, String> errors;
+        try {
+            errors = productRepository.bulkUpsertByProductId(products);
+        } catch (Exception e) {
+            errors = new HashMap<>();
+            for (int i = 0; i < products.size(); i++) {
+                errors.put(i, e.getMessage());
+            }
+        }
+
+        Map<String, String> failed = new HashMap<>();
+        errors.forEach((index, error) -> failed.put(products.get(index).getProductId(), error));
+
+        List<MockProduct> written = products.stream()
+            .filter(product -> !failed.containsKey(product.getProductId()))
+            .toList();
+        catalogCache.putAll(written);
+        return failed;
+    }
+
     /**
      * Normalize item fields - handle Excel format to API format conversion
      */
@@ -199,7 +372,7 @@ public class ProductBulkUploadService {
         MockProduct product = new MockProduct();
 
         product.setProductId(item.getProductId());
-        product.setUid("prod_" + UUID.randomUUID().toString().replace("-", "").substring(0, 12));
+        product.setUid(RandomIds.hex("prod_", 12));
         product.setName(item.getName());
         product.setDescription(item.getDescription());
         product.setCountriesEnabled(item.getCountriesEnabled());
@@ -257,6 +430,15 @@ public class ProductBulkUploadService {
         product.setUpdatedAt(LocalDateTime.now());
     }
 
+    /**
+     * A normalized row and its validation errors
+     */
+    private record PreparedRow(ProductUploadItem item, int rowNumber, List<String> errors) {
+        boolean isValid() {
+            return errors.isEmpty();
+        }
+    }
+
     /**
      * Result of bulk upload operation
      */
@@ -0,0 +1,459 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.repository.MockProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of the product catalog.
+ *
+ * The catalog is held as an immutable snapshot indexed by productId and uid. Reads
+ * are a single volatile load with no locking. Writes build a new snapshot and swap
+ * it in atomically, so readers always see a consistent catalog. Products handed out
+ * are shared between readers and must be treated as read-only.
+ *
+ * Writers put products after saving them, so two writers of the same product can
+ * reach the cache in the opposite order to the database. A product never replaces
+ * one with a later {@code updated_at}, and the snapshot is reloaded from the
+ * repository at an interval to correct whatever drift is left.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    // Same order as Sort.by("price").ascending() in Mongo: missing prices first
+    private static final Comparator<MockProduct> BY_PRICE = Comparator
+        .comparing(MockProduct::getPrice, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .thenComparing(MockProduct::getProductId);
+
+    private final MockProductRepository productRepository;
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+    // A lock rather than a monitor: the rebuild reads the repository while holding it,
+    // which would pin the carrier of a virtual thread
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    public ProductCatalogCache(MockProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Find a product by productId, reading through to the repository on a miss
+     */
+    public Optional<MockProduct> findByProductId(String productId) {
+        CatalogSnapshot current = current();
+        MockProduct product = current.byProductId().get(productId);
+        if (product != null) {
+            hits.increment();
+            return Optional.of(product);
+        }
+        misses.increment();
+        return readThrough(current, productRepository.findByProductId(productId));
+    }
+
+    /**
+     * Find a product by uid, reading through to the repository on a miss
+     */
+    public Optional<MockProduct> findByUid(String uid) {
+        CatalogSnapshot current = current();
+        MockProduct product = current.byUid().get(uid);
+        if (product != null) {
+            hits.increment();
+            return Optional.of(product);
+        }
+        misses.increment();
+        return readThrough(current, productRepository.findByUid(uid));
+    }
+
+    /**
+     * Find a product by productId or uid, productId taking precedence
+     */
+    public Optional<MockProduct> findByProductIdOrUid(String identifier) {
+        CatalogSnapshot current = current();
+        MockProduct product = current.byProductId().get(identifier);
+        if (product == null) {
+            product = current.byUid().get(identifier);
+        }
+        if (product != null) {
+            hits.increment();
+            return Optional.of(product);
+        }
+        misses.increment();
+
+        List<MockProduct> matches = productRepository.findByProductIdOrUid(identifier);
+        Optional<MockProduct> found = matches.stream()
+            .filter(p -> identifier.equals(p.getProductId()))
+            .findFirst()
+            .or(() -> matches.stream().findFirst());
+        return readThrough(current, found);
+    }
+
+    /**
+     * Find several products by productId. Hits come from the snapshot and all misses
+     * are fetched with one $in query. Unknown ids are simply absent from the result.
+     */
+    public Map<String, MockProduct> findAllByProductIds(Collection<String> productIds) {
+        CatalogSnapshot current = current();
+        Map<String, MockProduct> found = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String productId : productIds) {
+            MockProduct product = productId != null ? current.byProductId().get(productId) : null;
+            if (product != null) {
+                found.put(productId, product);
+            } else if (productId != null) {
+                missing.add(productId);
+            }
+        }
+        hits.add(found.size());
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        misses.add(missing.size());
+        List<MockProduct> loaded = productRepository.findByProductIdIn(missing);
+        loaded.forEach(product -> found.put(product.getProductId(), product));
+        if (!loaded.isEmpty()) {
+            snapshot.compareAndSet(current, current.withAll(loaded));
+        }
+        return found;
+    }
+
+    /**
+     * A product by productId or uid from the loaded snapshot alone, productId taking
+     * precedence. Never reads the repository: empty when the catalog is not loaded or
+     * the product is not cached, which leaves the answer to {@link #findByProductIdOrUid}.
+     */
+    public Optional<MockProduct> findCachedByProductIdOrUid(String identifier) {
+        CatalogSnapshot current = snapshot.get();
+        if (current == null) {
+            return Optional.empty();
+        }
+        MockProduct product = current.byProductId().get(identifier);
+        if (product == null) {
+            product = current.byUid().get(identifier);
+        }
+        if (product != null) {
+            hits.increment();
+        }
+        return Optional.ofNullable(product);
+    }
+
+    /**
+     * A product by productId from the loaded snapshot alone, as {@link #findCachedByProductIdOrUid}
+     */
+    public Optional<MockProduct> findCachedByProductId(String productId) {
+        CatalogSnapshot current = snapshot.get();
+        MockProduct product = current != null ? current.byProductId().get(productId) : null;
+        if (product != null) {
+            hits.increment();
+        }
+        return Optional.ofNullable(product);
+    }
+
+    /**
+     * Several products by productId from the loaded snapshot alone; empty unless every
+     * id is cached, which leaves the answer to {@link #findAllByProductIds}
+     */
+    public Optional<Map<String, MockProduct>> findAllCachedByProductIds(Collection<String> productIds) {
+        CatalogSnapshot current = snapshot.get();
+        if (current == null) {
+            return Optional.empty();
+        }
+        Map<String, MockProduct> found = new HashMap<>();
+        for (String productId : productIds) {
+            MockProduct product = productId != null ? current.byProductId().get(productId) : null;
+            if (product == null) {
+                return Optional.empty();
+            }
+            found.put(productId, product);
+        }
+        hits.add(found.size());
+        return Optional.of(found);
+    }
+
+    /**
+     * Active products whose {@code countries} list contains the code, sorted by price
+     */
+    public List<MockProduct> findActiveByCountry(String countryCode) {
+        return current().byCountry().getOrDefault(countryCode, List.of());
+    }
+
+    /**
+     * Active products whose {@code countries_enabled} list contains the code, sorted by price
+     */
+    public List<MockProduct> findActiveByCountriesEnabled(String countryCode) {
+        return current().byCountryEnabled().getOrDefault(countryCode, List.of());
+    }
+
+    /**
+     * Add or replace a product after it has been written
+     */
+    public void put(MockProduct product) {
+        putAll(List.of(product));
+    }
+
+    /**
+     * Add or replace several products with a single snapshot swap
+     */
+    public void putAll(Collection<MockProduct> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            CatalogSnapshot current = snapshot.get();
+            if (current == null) {
+                // Not loaded yet; the first read will pick these up from the repository
+                return;
+            }
+            snapshot.set(current.withAll(products));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drop a product after it has been deleted
+     */
+    public void remove(String productId) {
+        writeLock.lock();
+        try {
+            CatalogSnapshot current = snapshot.get();
+            if (current != null) {
+                snapshot.set(current.without(productId));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Discard the snapshot; the next read rebuilds it from the repository
+     */
+    public void invalidate() {
+        writeLock.lock();
+        try {
+            snapshot.set(null);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Reload a loaded snapshot from the repository. Puts wait for the reload, so a
+     * write saved while it reads is applied on top of it rather than lost.
+     */
+    @Scheduled(initialDelayString = "${mock.catalog-cache.refresh-interval-ms:300000}",
+               fixedDelayString = "${mock.catalog-cache.refresh-interval-ms:300000}")
+    public void refresh() {
+        if (snapshot.get() == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (snapshot.get() == null) {
+                return;
+            }
+            CatalogSnapshot loaded = CatalogSnapshot.of(productRepository.findAll());
+            snapshot.set(loaded);
+            rebuilds.increment();
+            logger.debug("Product catalog cache refreshed with {} products", loaded.byProductId().size());
+        } catch (RuntimeException e) {
+            logger.warn("Product catalog cache refresh failed: {}", e.getMessage());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Whether a snapshot is loaded, so reads will not go to the repository
+     */
+    public boolean isLoaded() {
+        return snapshot.get() != null;
+    }
+
+    /**
+     * Cache metrics
+     */
+    public Map<String, Object> getStats() {
+        CatalogSnapshot current = snapshot.get();
+        return Map.of(
+            "loaded", current != null,
+            "size", current != null ? current.byProductId().size() : 0,
+            "countries", current != null ? current.byCountry().size() : 0,
+            "hits", hits.sum(),
+            "misses", misses.sum(),
+            "rebuilds", rebuilds.sum()
+        );
+    }
+
+    private CatalogSnapshot current() {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current : rebuild();
+    }
+
+    private CatalogSnapshot rebuild() {
+        writeLock.lock();
+        try {
+            CatalogSnapshot current = snapshot.get();
+            if (current != null) {
+                return current;
+            }
+            CatalogSnapshot loaded = CatalogSnapshot.of(productRepository.findAll());
+            snapshot.set(loaded);
+            rebuilds.increment();
+            logger.info("Product catalog cache loaded with {} products", loaded.byProductId().size());
+            return loaded;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Installs a product fetched after a miss. The swap only succeeds if no write
+     * happened since the miss, so a concurrent delete cannot be undone by a stale read.
+     */
+    private Optional<MockProduct> readThrough(CatalogSnapshot seen, Optional<MockProduct> loaded) {
+        loaded.ifPresent(product -> snapshot.compareAndSet(seen, seen.withAll(List.of(product))));
+        return loaded;
+    }
+
+    /**
+     * Immutable catalog view. Besides the id lookups it keeps two country inverted
+     * indexes, one over {@code countries} and one over {@code countries_enabled}, each
+     * mapping a country code to its active products sorted by price. Writes only
+     * rebuild the lists of countries the changed products are or were listed under.
+     */
+    private record CatalogSnapshot(
+            Map<String, MockProduct> byProductId,
+            Map<String, MockProduct> byUid,
+            Map<String, List<MockProduct>> byCountry,
+            Map<String, List<MockProduct>> byCountryEnabled) {
+
+        static CatalogSnapshot of(Collection<MockProduct> products) {
+            return new CatalogSnapshot(Map.of(), Map.of(), Map.of(), Map.of()).withAll(products);
+        }
+
+        CatalogSnapshot withAll(Collection<MockProduct> products) {
+            Map<String, MockProduct> changed = new LinkedHashMap<>();
+            for (MockProduct product : products) {
+                if (product.getProductId() != null && !isOlder(product, byProductId.get(product.getProductId()))) {
+                    changed.merge(product.getProductId(), product,
+                        (earlier, later) -> isOlder(later, earlier) ? earlier : later);
+                }
+            }
+            if (changed.isEmpty()) {
+                return this;
+            }
+
+            Map<String, MockProduct> productIds = new HashMap<>(byProductId);
+            Map<String, MockProduct> uids = new HashMap<>(byUid);
+            List<MockProduct> previous = new ArrayList<>();
+            for (MockProduct product : changed.values()) {
+                MockProduct replaced = productIds.put(product.getProductId(), product);
+                if (replaced != null) {
+                    previous.add(replaced);
+                    if (replaced.getUid() != null) {
+                        uids.remove(replaced.getUid());
+                    }
+                }
+                if (product.getUid() != null) {
+                    uids.put(product.getUid(), product);
+                }
+            }
+
+            return new CatalogSnapshot(
+                Collections.unmodifiableMap(productIds),
+                Collections.unmodifiableMap(uids),
+                reindex(byCountry, changed.keySet(), previous, changed.values(), MockProduct::getCountries),
+                reindex(byCountryEnabled, changed.keySet(), previous, changed.values(), MockProduct::getCountriesEnabled));
+        }
+
+        CatalogSnapshot without(String productId) {
+            MockProduct previous = byProductId.get(productId);
+            if (previous == null) {
+                return this;
+            }
+            Map<String, MockProduct> productIds = new HashMap<>(byProductId);
+            Map<String, MockProduct> uids = new HashMap<>(byUid);
+            productIds.remove(productId);
+            if (previous.getUid() != null) {
+                uids.remove(previous.getUid());
+            }
+
+            Set<String> removed = Set.of(productId);
+            return new CatalogSnapshot(
+                Collections.unmodifiableMap(productIds),
+                Collections.unmodifiableMap(uids),
+                reindex(byCountry, removed, List.of(previous), List.of(), MockProduct::getCountries),
+                reindex(byCountryEnabled, removed, List.of(previous), List.of(), MockProduct::getCountriesEnabled));
+        }
+
+        // Whether the product was written before the one it would replace
+        private static boolean isOlder(MockProduct product, MockProduct cached) {
+            return cached != null && product.getUpdatedAt() != null && cached.getUpdatedAt() != null
+                && product.getUpdatedAt().isBefore(cached.getUpdatedAt());
+        }
+
+        private static Map<String, List<MockProduct>> reindex(
+                Map<String, List<MockProduct>> index,
+                Set<String> changedIds,
+                Collection<MockProduct> previous,
+                Collection<MockProduct> updated,
+                Function<MockProduct, List<String>> countries) {
+
+            Set<String> touched = new HashSet<>();
+            previous.forEach(product -> touched.addAll(countriesOf(product, countries)));
+            updated.forEach(product -> touched.addAll(countriesOf(product, countries)));
+            if (touched.isEmpty()) {
+                return index;
+            }
+
+            Map<String, List<MockProduct>> reindexed = new HashMap<>(index);
+            for (String country : touched) {
+                List<MockProduct> listed = new ArrayList<>(index.getOrDefault(country, List.of()));
+                listed.removeIf(product -> changedIds.contains(product.getProductId()));
+                for (MockProduct product : updated) {
+                    if (product.isActive() && countriesOf(product, countries).contains(country)) {
+                        listed.add(product);
+                    }
+                }
+                if (listed.isEmpty()) {
+                    reindexed.remove(country);
+                } else {
+                    listed.sort(BY_PRICE);
+                    reindexed.put(country, Collections.unmodifiableList(listed));
+                }
+            }
+            return Collections.unmodifiableMap(reindexed);
+        }
+
+        private static List<String> countriesOf(MockProduct product, Function<MockProduct, List<String>> countries) {
+            List<String> codes = countries.apply(product);
+            return codes != null ? codes : List.of();
+        }
+    }
+}
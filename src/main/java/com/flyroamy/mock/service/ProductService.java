@@ -3,18 +3,21 @@ package com.flyroamy.mock.service;
 import com.flyroamy.mock.exception.ProductNotFoundException;
 import com.flyroamy.mock.model.MockProduct;
 import com.flyroamy.mock.repository.MockProductRepository;
+import com.flyroamy.mock.util.RandomIds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @Service
 public class ProductService {
@@ -22,9 +25,11 @@ public class ProductService {
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
 
     private final MockProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
 
-    public ProductService(MockProductRepository productRepository) {
+    public ProductService(MockProductRepository productRepository, ProductCatalogCache catalogCache) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
     }
 
     /**
@@ -49,7 +54,7 @@ public class ProductService {
      */
     public MockProduct getProductById(String productId) {
         logger.debug("Fetching product by ID: {}", productId);
-        return productRepository.findByProductId(productId)
+        return catalogCache.findByProductId(productId)
             .orElseThrow(() -> new ProductNotFoundException(productId));
     }
 
@@ -58,7 +63,7 @@ public class ProductService {
      */
     public MockProduct getProductByUid(String uid) {
         logger.debug("Fetching product by UID: {}", uid);
-        return productRepository.findByUid(uid)
+        return catalogCache.findByUid(uid)
             .orElseThrow(() -> new ProductNotFoundException(uid));
     }
 
@@ -66,40 +71,40 @@ public class ProductService {
      * Get product by ID (optional)
      */
     public Optional<MockProduct> findProductById(String productId) {
-        return productRepository.findByProductId(productId);
+        return catalogCache.findByProductId(productId);
+    }
+
+    /**
+     * Get several products by ID in one lookup, keyed by productId
+     * Missing products are left out rather than reported as errors
+     */
+    public Map<String, MockProduct> getProductsByIds(Collection<String> productIds) {
+        return catalogCache.findAllByProductIds(productIds);
     }
 
     /**
      * Get product by ID or UID (unified lookup)
-     * Tries productId first, then falls back to uid
+     * productId takes precedence over uid
      */
     public MockProduct getProductByIdOrUid(String identifier) {
         logger.debug("Looking up product by identifier: {}", identifier);
-
-        // Try productId first
-        Optional<MockProduct> product = productRepository.findByProductId(identifier);
-        if (product.isPresent()) {
-            logger.debug("Found product by productId: {}", identifier);
-            return product.get();
-        }
-
-        // Fall back to uid
-        logger.debug("ProductId not found, trying uid lookup for: {}", identifier);
-        return productRepository.findByUid(identifier)
+        return catalogCache.findByProductIdOrUid(identifier)
             .orElseThrow(() -> new ProductNotFoundException(identifier));
     }
 
     /**
      * Get products by country code
+     * Served from the catalog's country index, no database query
      */
     public Page<MockProduct> getProductsByCountry(String countryCode, int page, int size) {
         logger.debug("Fetching products for country: {}", countryCode);
         Pageable pageable = PageRequest.of(page, size, Sort.by("price").ascending());
+        String code = countryCode.toUpperCase();
 
         // Try both countries and countries_enabled fields
-        Page<MockProduct> products = productRepository.findByCountryAndActive(countryCode.toUpperCase(), pageable);
+        Page<MockProduct> products = toPage(catalogCache.findActiveByCountry(code), pageable);
         if (products.isEmpty()) {
-            products = productRepository.findByCountriesEnabledAndActive(countryCode.toUpperCase(), pageable);
+            products = toPage(catalogCache.findActiveByCountriesEnabled(code), pageable);
         }
 
         return products;
@@ -129,43 +134,16 @@ public class ProductService {
     public MockProduct createProduct(MockProduct product) {
         logger.info("Creating new product: {}", product.getName());
 
-        // Generate UID if not provided
-        if (product.getUid() == null || product.getUid().isEmpty()) {
-            product.setUid("prod_" + UUID.randomUUID().toString().substring(0, 12));
-        }
-
-        // Generate productId if not provided
-        if (product.getProductId() == null || product.getProductId().isEmpty()) {
-            product.setProductId(product.getUid());
-        }
+        assignIds(product);
 
         if (productRepository.existsByProductId(product.getProductId())) {
             throw new IllegalArgumentException("Product with ID " + product.getProductId() + " already exists");
         }
 
-        // Calculate data_quota_bytes from data_quota_mb if not provided
-        if (product.getDataQuotaBytes() == null && product.getDataQuotaMb() != null) {
-            product.setDataQuotaBytes((long) product.getDataQuotaMb() * 1024 * 1024);
-        }
-
-        // Calculate data_quota_mb from dataGB for backward compatibility
-        if (product.getDataQuotaMb() == null && product.getDataGB() != null) {
-            product.setDataQuotaMb((int) (product.getDataGB() * 1024));
-            product.setDataQuotaBytes((long) (product.getDataGB() * 1024 * 1024 * 1024));
-        }
-
-        // Sync countries and countries_enabled
-        if (product.getCountriesEnabled() == null && product.getCountries() != null) {
-            product.setCountriesEnabled(product.getCountries());
-        }
-        if (product.getCountries() == null && product.getCountriesEnabled() != null) {
-            product.setCountries(product.getCountriesEnabled());
-        }
-
-        product.setCreatedAt(LocalDateTime.now());
-        product.setUpdatedAt(LocalDateTime.now());
+        normalizeNew(product);
 
         MockProduct saved = productRepository.save(product);
+        catalogCache.put(saved);
         logger.info("Created product: {} with ID: {}", saved.getName(), saved.getProductId());
         return saved;
     }
@@ -176,42 +154,15 @@ public class ProductService {
     public MockProduct updateProduct(String productId, MockProduct updates) {
         logger.info("Updating product: {}", productId);
 
-        MockProduct existing = getProductById(productId);
-
-        if (updates.getName() != null) existing.setName(updates.getName());
-        if (updates.getDescription() != null) existing.setDescription(updates.getDescription());
-        if (updates.getDataQuotaMb() != null) {
-            existing.setDataQuotaMb(updates.getDataQuotaMb());
-            existing.setDataQuotaBytes((long) updates.getDataQuotaMb() * 1024 * 1024);
-        }
-        if (updates.getDataGB() != null) existing.setDataGB(updates.getDataGB());
-        if (updates.getValidityDays() != null) existing.setValidityDays(updates.getValidityDays());
-        if (updates.getPrice() != null) existing.setPrice(updates.getPrice());
-        if (updates.getPrices() != null) existing.setPrices(updates.getPrices());
-        if (updates.getWholesaleCost() != null) existing.setWholesaleCost(updates.getWholesaleCost());
-        if (updates.getWholesalePriceUsd() != null) existing.setWholesalePriceUsd(updates.getWholesalePriceUsd());
-        if (updates.getRrpUsd() != null) existing.setRrpUsd(updates.getRrpUsd());
-        if (updates.getRrpEur() != null) existing.setRrpEur(updates.getRrpEur());
-        if (updates.getRrpGbp() != null) existing.setRrpGbp(updates.getRrpGbp());
-        if (updates.getRrpCad() != null) existing.setRrpCad(updates.getRrpCad());
-        if (updates.getRrpAud() != null) existing.setRrpAud(updates.getRrpAud());
-        if (updates.getRrpJpy() != null) existing.setRrpJpy(updates.getRrpJpy());
-        if (updates.getPackageType() != null) existing.setPackageType(updates.getPackageType());
-        if (updates.getCountries() != null) {
-            existing.setCountries(updates.getCountries());
-            existing.setCountriesEnabled(updates.getCountries());
-        }
-        if (updates.getCountriesEnabled() != null) {
-            existing.setCountriesEnabled(updates.getCountriesEnabled());
-            existing.setCountries(updates.getCountriesEnabled());
-        }
-        if (updates.getRegion() != null) existing.setRegion(updates.getRegion());
-        if (updates.getPolicyId() != null) existing.setPolicyId(updates.getPolicyId());
-        if (updates.getPolicyName() != null) existing.setPolicyName(updates.getPolicyName());
+        // Load from the repository: cached products are shared and must not be mutated
+        MockProduct existing = productRepository.findByProductId(productId)
+            .orElseThrow(() -> new ProductNotFoundException(productId));
 
-        existing.setUpdatedAt(LocalDateTime.now());
+        applyUpdates(existing, updates);
 
-        return productRepository.save(existing);
+        MockProduct saved = productRepository.save(existing);
+        catalogCache.put(saved);
+        return saved;
     }
 
     /**
@@ -225,6 +176,7 @@ public class ProductService {
         }
 
         productRepository.deleteByProductId(productId);
+        catalogCache.remove(productId);
         logger.info("Deleted product: {}", productId);
     }
 
@@ -234,11 +186,14 @@ public class ProductService {
     public MockProduct toggleProductStatus(String productId, boolean isActive) {
         logger.info("Toggling product {} status to: {}", productId, isActive);
 
-        MockProduct product = getProductById(productId);
+        MockProduct product = productRepository.findByProductId(productId)
+            .orElseThrow(() -> new ProductNotFoundException(productId));
         product.setActive(isActive);
         product.setUpdatedAt(LocalDateTime.now());
 
-        return productRepository.save(product);
+        MockProduct saved = productRepository.save(product);
+        catalogCache.put(saved);
+        return saved;
     }
 
     /**
@@ -248,6 +203,13 @@ public class ProductService {
         return productRepository.count();
     }
 
+    /**
+     * Get product catalog cache metrics
+     */
+    public Map<String, Object> getCacheStats() {
+        return catalogCache.getStats();
+    }
+
     /**
      * Check if product exists
      */
@@ -261,6 +223,90 @@ public class ProductService {
     public void deleteAll() {
         logger.warn("Deleting all products");
         productRepository.deleteAll();
+        catalogCache.invalidate();
+    }
+
+    // The steps below hold no I/O of their own and are shared with ReactiveProductService
+
+    // Generates the uid and productId a new product is missing
+    void assignIds(MockProduct product) {
+        // Generate UID if not provided
+        if (product.getUid() == null || product.getUid().isEmpty()) {
+            product.setUid(RandomIds.hex("prod_", 12));
+        }
+
+        // Generate productId if not provided
+        if (product.getProductId() == null || product.getProductId().isEmpty()) {
+            product.setProductId(product.getUid());
+        }
+    }
+
+    // Derives the quota and country fields of a new product from the ones given
+    void normalizeNew(MockProduct product) {
+        // Calculate data_quota_bytes from data_quota_mb if not provided
+        if (product.getDataQuotaBytes() == null && product.getDataQuotaMb() != null) {
+            product.setDataQuotaBytes((long) product.getDataQuotaMb() * 1024 * 1024);
+        }
+
+        // Calculate data_quota_mb from dataGB for backward compatibility
+        if (product.getDataQuotaMb() == null && product.getDataGB() != null) {
+            product.setDataQuotaMb((int) (product.getDataGB() * 1024));
+            product.setDataQuotaBytes((long) (product.getDataGB() * 1024 * 1024 * 1024));
+        }
+
+        // Sync countries and countries_enabled
+        if (product.getCountriesEnabled() == null && product.getCountries() != null) {
+            product.setCountriesEnabled(product.getCountries());
+        }
+        if (product.getCountries() == null && product.getCountriesEnabled() != null) {
+            product.setCountries(product.getCountriesEnabled());
+        }
+
+        product.setCreatedAt(LocalDateTime.now());
+        product.setUpdatedAt(LocalDateTime.now());
+    }
+
+    // Copies the fields set in the updates onto the product
+    void applyUpdates(MockProduct existing, MockProduct updates) {
+        if (updates.getName() != null) existing.setName(updates.getName());
+        if (updates.getDescription() != null) existing.setDescription(updates.getDescription());
+        if (updates.getDataQuotaMb() != null) {
+            existing.setDataQuotaMb(updates.getDataQuotaMb());
+            existing.setDataQuotaBytes((long) updates.getDataQuotaMb() * 1024 * 1024);
+        }
+        if (updates.getDataGB() != null) existing.setDataGB(updates.getDataGB());
+        if (updates.getValidityDays() != null) existing.setValidityDays(updates.getValidityDays());
+        if (updates.getPrice() != null) existing.setPrice(updates.getPrice());
+        if (updates.getPrices() != null) existing.setPrices(updates.getPrices());
+        if (updates.getWholesaleCost() != null) existing.setWholesaleCost(updates.getWholesaleCost());
+        if (updates.getWholesalePriceUsd() != null) existing.setWholesalePriceUsd(updates.getWholesalePriceUsd());
+        if (updates.getRrpUsd() != null) existing.setRrpUsd(updates.getRrpUsd());
+        if (updates.getRrpEur() != null) existing.setRrpEur(updates.getRrpEur());
+        if (updates.getRrpGbp() != null) existing.setRrpGbp(updates.getRrpGbp());
+        if (updates.getRrpCad() != null) existing.setRrpCad(updates.getRrpCad());
+        if (updates.getRrpAud() != null) existing.setRrpAud(updates.getRrpAud());
+        if (updates.getRrpJpy() != null) existing.setRrpJpy(updates.getRrpJpy());
+        if (updates.getPackageType() != null) existing.setPackageType(updates.getPackageType());
+        if (updates.getCountries() != null) {
+            existing.setCountries(updates.getCountries());
+            existing.setCountriesEnabled(updates.getCountries());
+        }
+        if (updates.getCountriesEnabled() != null) {
+            existing.setCountriesEnabled(updates.getCountriesEnabled());
+            existing.setCountries(updates.getCountriesEnabled());
+        }
+        if (updates.getRegion() != null) existing.setRegion(updates.getRegion());
+        if (updates.getPolicyId() != null) existing.setPolicyId(updates.getPolicyId());
+        if (updates.getPolicyName() != null) existing.setPolicyName(updates.getPolicyName());
+
+        existing.setUpdatedAt(LocalDateTime.now());
+    }
+
+    // Pages a price-sorted list from the catalog index
+    private Page<MockProduct> toPage(List<MockProduct> products, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), products.size());
+        int to = Math.min(from + pageable.getPageSize(), products.size());
+        return new PageImpl<>(products.subList(from, to), pageable, products.size());
     }
 
 }
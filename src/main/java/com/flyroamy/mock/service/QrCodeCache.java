@@ -0,0 +1,124 @@
+package com.flyroamy.mock.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Byte-budgeted LRU cache of rendered QR code PNGs.
+ *
+ * Entries are content-addressed: the key is the SHA-256 of the render settings and
+ * the encoded content, so identical LPA strings share one image and the key doubles
+ * as a strong ETag. Rendering happens outside the lock; two concurrent misses for the
+ * same content may both render, and the first one stored wins.
+ */
+@Component
+public class QrCodeCache {
+
+    /**
+     * A rendered PNG and its strong ETag (quoted, as sent in the header)
+     */
+    public record RenderedQrCode(byte[] png, String etag) {
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, RenderedQrCode> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public QrCodeCache(@Value("${mock.qr-cache.max-bytes:33554432}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Return the cached rendering of the content, rendering and caching it on a miss
+     *
+     * @param renderKey render settings that change the image, e.g. its size
+     * @param content the content encoded in the QR code
+     * @param renderer renders the PNG on a miss
+     */
+    public RenderedQrCode get(String renderKey, String content, Supplier<byte[]> renderer) {
+        String key = hash(renderKey + "|" + content);
+        lock.lock();
+        try {
+            RenderedQrCode cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+
+        RenderedQrCode rendered = new RenderedQrCode(renderer.get(), "\"" + key + "\"");
+        if (rendered.png().length > maxBytes) {
+            return rendered;
+        }
+        lock.lock();
+        try {
+            RenderedQrCode existing = entries.putIfAbsent(key, rendered);
+            if (existing != null) {
+                return existing;
+            }
+            totalBytes += rendered.png().length;
+            evictOverBudget();
+        } finally {
+            lock.unlock();
+        }
+        return rendered;
+    }
+
+    /**
+     * Cache metrics
+     */
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            return Map.of(
+                "entries", entries.size(),
+                "bytes", totalBytes,
+                "maxBytes", maxBytes,
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "evictions", evictions.sum()
+            );
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the lock; iteration order is least recently used first
+    private void evictOverBudget() {
+        Iterator<RenderedQrCode> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().png().length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM ships SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
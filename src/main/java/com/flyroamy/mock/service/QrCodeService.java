@@ -1,9 +1,9 @@
 package com.flyroamy.mock.service;
 
+import com.flyroamy.mock.util.QrPngEncoder;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.WriterException;
-import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
 import org.slf4j.Logger;
@@ -11,10 +11,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Base64;
-import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -26,6 +23,32 @@ public class QrCodeService {
     private String serverPort;
 
     private static final int QR_CODE_SIZE = 300;
+    private static final int QR_CODE_MARGIN = 1;
+    // Settings that change the rendered image, encoder included; part of the cache key and ETag
+    private static final String RENDER_KEY =
+        "png:v" + QrPngEncoder.VERSION + ":" + QR_CODE_SIZE + ":" + QR_CODE_MARGIN;
+
+    // QRCodeWriter keeps no state between calls, so one instance serves every thread
+    private static final QRCodeWriter QR_CODE_WRITER = new QRCodeWriter();
+    private static final Map<EncodeHintType, Object> HINTS = Map.of(
+        EncodeHintType.CHARACTER_SET, "UTF-8",
+        EncodeHintType.MARGIN, QR_CODE_MARGIN);
+
+    private final QrCodeCache qrCodeCache;
+
+    public QrCodeService(QrCodeCache qrCodeCache) {
+        this.qrCodeCache = qrCodeCache;
+    }
+
+    /**
+     * Renders a QR code PNG, served from the cache when the same content was rendered before
+     *
+     * @param content The content to encode in the QR code
+     * @return PNG image and its strong ETag
+     */
+    public QrCodeCache.RenderedQrCode renderQrCode(String content) {
+        return qrCodeCache.get(RENDER_KEY, content, () -> encodePng(content));
+    }
 
     /**
      * Generates a QR code image as a Base64 encoded PNG
@@ -34,22 +57,7 @@ public class QrCodeService {
      * @return Base64 encoded PNG image string
      */
     public String generateQrCodeBase64(String content) {
-        try {
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-            hints.put(EncodeHintType.MARGIN, 1);
-
-            BitMatrix bitMatrix = qrCodeWriter.encode(content, BarcodeFormat.QR_CODE, QR_CODE_SIZE, QR_CODE_SIZE, hints);
-
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
-
-            return Base64.getEncoder().encodeToString(outputStream.toByteArray());
-        } catch (WriterException | IOException e) {
-            logger.error("Failed to generate QR code: {}", e.getMessage());
-            throw new RuntimeException("Failed to generate QR code", e);
-        }
+        return Base64.getEncoder().encodeToString(renderQrCode(content).png());
     }
 
     /**
@@ -59,20 +67,19 @@ public class QrCodeService {
      * @return PNG image as byte array
      */
     public byte[] generateQrCodeBytes(String content) {
-        try {
-            QRCodeWriter qrCodeWriter = new QRCodeWriter();
-            Map<EncodeHintType, Object> hints = new HashMap<>();
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
-            hints.put(EncodeHintType.MARGIN, 1);
-
-            BitMatrix bitMatrix = qrCodeWriter.encode(content, BarcodeFormat.QR_CODE, QR_CODE_SIZE, QR_CODE_SIZE, hints);
+        return renderQrCode(content).png();
+    }
 
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
+    public Map<String, Object> getCacheStats() {
+        return qrCodeCache.getStats();
+    }
 
-            return outputStream.toByteArray();
-        } catch (WriterException | IOException e) {
-            logger.error("Failed to generate QR code bytes: {}", e.getMessage());
+    private byte[] encodePng(String content) {
+        try {
+            BitMatrix bitMatrix = QR_CODE_WRITER.encode(content, BarcodeFormat.QR_CODE, QR_CODE_SIZE, QR_CODE_SIZE, HINTS);
+            return QrPngEncoder.encode(bitMatrix);
+        } catch (WriterException e) {
+            logger.error("Failed to generate QR code: {}", e.getMessage());
             throw new RuntimeException("Failed to generate QR code", e);
         }
     }
@@ -0,0 +1,506 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.config.StorageModeEnvironmentPostProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Append-only on-disk store of rendered QR code PNGs, keyed by esimId.
+ *
+ * Images are rendered in the background when an eSIM is created and appended to
+ * segment files; an in-memory index maps each esimId to the offset of its latest
+ * record, so serving an image is a file-to-socket transfer with no rendering and no
+ * copy through the heap. Deletes append a tombstone. Sealed segments that are mostly
+ * dead are compacted by copying their live records into the active segment.
+ *
+ * All writes run on a single background thread, so segments are only appended to by
+ * one writer. Retired segment files are deleted after a grace period, because a
+ * response may still be streaming from them.
+ *
+ * With {@code mock.storage=memory} the eSIMs do not outlive the process, so the
+ * segments left by a previous run are deleted on startup instead of loaded.
+ *
+ * Record layout: key length, key, ETag length, ETag, PNG length (-1 for a tombstone), PNG.
+ */
+@Component
+public class QrImageStore implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(QrImageStore.class);
+
+    private static final String SEGMENT_PREFIX = "qr-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int TOMBSTONE = -1;
+    private static final int MAX_PENDING_WRITES = 10_000;
+    private static final long RETIRED_SEGMENT_GRACE_SECONDS = 30;
+    // Sealed segments with more dead than live bytes are compacted
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    /**
+     * Where an image lives on disk
+     */
+    public record StoredImage(Path file, long offset, int length, String etag) {
+    }
+
+    private record Location(Segment segment, int recordLength, long pngOffset, int pngLength, String etag) {
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private long size;
+        private long deadBytes;
+
+        private Segment(int id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+    }
+
+    private final QrCodeService qrCodeService;
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean persistentStorage;
+    private final boolean enabled;
+
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    // Writer thread only
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+    // Never reused, so a new segment cannot collide with a retired file awaiting deletion
+    private int nextSegmentId = 1;
+
+    private final ScheduledExecutorService writer;
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    public QrImageStore(QrCodeService qrCodeService,
+                        @Value("${mock.qr-store.enabled:true}") boolean enabled,
+                        @Value("${mock.qr-store.directory:${java.io.tmpdir}/mock-esim-service/qr}") String directory,
+                        @Value("${mock.qr-store.segment-bytes:67108864}") long segmentBytes,
+                        @Value("${mock.storage:mongo}") String storage) {
+        this.qrCodeService = qrCodeService;
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.persistentStorage = !StorageModeEnvironmentPostProcessor.MEMORY.equalsIgnoreCase(storage);
+        this.enabled = enabled && open();
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "qr-store-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Render an eSIM's QR code in the background and store it
+     */
+    public void renderAsync(String esimId, String qrCodeData) {
+        submit(() -> {
+            if (!index.containsKey(esimId)) {
+                append(esimId, qrCodeService.renderQrCode(qrCodeData));
+            }
+        });
+    }
+
+    /**
+     * Store an image that was rendered on demand because it was not in the store yet
+     */
+    public void backfill(String esimId, QrCodeCache.RenderedQrCode qrCode) {
+        if (enabled && !index.containsKey(esimId)) {
+            submit(() -> {
+                if (!index.containsKey(esimId)) {
+                    append(esimId, qrCode);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drop a deleted eSIM's image
+     */
+    public void remove(String esimId) {
+        submit(() -> appendTombstone(esimId));
+    }
+
+    /**
+     * Drop every image (admin reset)
+     */
+    public void clear() {
+        submit(() -> {
+            index.clear();
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                retire(segment);
+            }
+            active = null;
+        });
+    }
+
+    public Optional<StoredImage> find(String esimId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Location location = index.get(esimId);
+        if (location == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredImage(location.segment().path, location.pngOffset(), location.pngLength(),
+            location.etag()));
+    }
+
+    /**
+     * Copy a stored image to the target with FileChannel.transferTo
+     */
+    public void transferTo(StoredImage image, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(image.file(), StandardOpenOption.READ)) {
+            long position = image.offset();
+            long remaining = image.length();
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Store metrics
+     */
+    public Map<String, Object> getStats() {
+        return Map.of(
+            "enabled", enabled,
+            "images", index.size(),
+            "pendingWrites", pendingWrites.get(),
+            "dropped", dropped.sum(),
+            "compactions", compactions.sum()
+        );
+    }
+
+    @Override
+    public void destroy() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Segment segment : segments.values()) {
+            closeQuietly(segment.channel);
+        }
+        closeQuietly(lockChannel);
+    }
+
+    private void submit(Runnable task) {
+        if (!enabled) {
+            return;
+        }
+        // Bounded so a burst cannot queue unlimited renders; dropped images render on demand
+        if (pendingWrites.incrementAndGet() > MAX_PENDING_WRITES) {
+            pendingWrites.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("QR store write failed: {}", e.getMessage());
+            } finally {
+                pendingWrites.decrementAndGet();
+            }
+        });
+    }
+
+    // ---- Writer thread ----
+
+    private void append(String esimId, QrCodeCache.RenderedQrCode qrCode) {
+        Location location = write(esimId, qrCode.etag(), qrCode.png());
+        markDead(index.put(esimId, location));
+    }
+
+    private void appendTombstone(String esimId) {
+        Location previous = index.remove(esimId);
+        if (previous == null) {
+            return;
+        }
+        Location tombstone = write(esimId, "", null);
+        // A tombstone only shadows older records; it is dead weight from the start
+        tombstone.segment().deadBytes += tombstone.recordLength();
+        markDead(previous);
+    }
+
+    private Location write(String key, String etag, byte[] png) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] etagBytes = etag.getBytes(StandardCharsets.UTF_8);
+        int pngLength = png != null ? png.length : 0;
+        int recordLength = 4 + keyBytes.length + 4 + etagBytes.length + 4 + pngLength;
+
+        ByteBuffer record = ByteBuffer.allocate(recordLength);
+        record.putInt(keyBytes.length).put(keyBytes);
+        record.putInt(etagBytes.length).put(etagBytes);
+        record.putInt(png != null ? png.length : TOMBSTONE);
+        if (png != null) {
+            record.put(png);
+        }
+        record.flip();
+
+        try {
+            Segment segment = activeFor(recordLength);
+            long offset = segment.size;
+            long position = offset;
+            while (record.hasRemaining()) {
+                position += segment.channel.write(record, position);
+            }
+            segment.size = position;
+            return new Location(segment, recordLength, offset + recordLength - pngLength, pngLength, etag);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to append to QR store", e);
+        }
+    }
+
+    private Segment activeFor(int recordLength) throws IOException {
+        if (active == null || (active.size > 0 && active.size + recordLength > segmentBytes)) {
+            Segment sealed = active;
+            int id = nextSegmentId++;
+            Path path = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+            active = new Segment(id, path, openSegment(path), 0);
+            segments.put(id, active);
+            if (sealed != null) {
+                compactIfMostlyDead(sealed);
+            }
+        }
+        return active;
+    }
+
+    private void markDead(Location previous) {
+        if (previous != null) {
+            previous.segment().deadBytes += previous.recordLength();
+            compactIfMostlyDead(previous.segment());
+        }
+    }
+
+    private void compactIfMostlyDead(Segment segment) {
+        if (segment == active || !segments.containsKey(segment.id)) {
+            return;
+        }
+        if (segment.deadBytes < segment.size * COMPACTION_THRESHOLD) {
+            return;
+        }
+
+        // Copy the records the index still points into this segment, then drop it.
+        // Tombstones are dropped too: esimIds are never reused, and an image that
+        // resurfaces from an older segment after a restart is never served for a
+        // deleted eSIM, because the controller looks the eSIM up first.
+        int moved = 0;
+        for (Map.Entry<String, Location> entry : index.entrySet()) {
+            Location location = entry.getValue();
+            if (location.segment() != segment) {
+                continue;
+            }
+            ByteBuffer png = ByteBuffer.allocate(location.pngLength());
+            try {
+                while (png.hasRemaining()) {
+                    if (segment.channel.read(png, location.pngOffset() + png.position()) < 0) {
+                        throw new IOException("Unexpected end of segment " + segment.path);
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Dropping unreadable QR image for {}: {}", entry.getKey(), e.getMessage());
+                index.remove(entry.getKey(), location);
+                continue;
+            }
+            index.replace(entry.getKey(), location, write(entry.getKey(), location.etag(), png.array()));
+            moved++;
+        }
+        retire(segment);
+        compactions.increment();
+        logger.info("Compacted QR segment {}: moved {} live images", segment.path.getFileName(), moved);
+    }
+
+    private void retire(Segment segment) {
+        segments.remove(segment.id);
+        writer.schedule(() -> {
+            closeQuietly(segment.channel);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete QR segment {}: {}", segment.path, e.getMessage());
+            }
+        }, RETIRED_SEGMENT_GRACE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // ---- Startup ----
+
+    /**
+     * Lock the directory and rebuild the index from the segments on disk, or delete
+     * them when the eSIMs they belong to were not persisted. Any failure leaves the
+     * store disabled, so every image is rendered on demand instead.
+     */
+    private boolean open() {
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve("store.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = lockChannel.tryLock();
+            if (lock == null) {
+                logger.warn("QR store {} is locked by another process; rendering QR codes on demand", directory);
+                closeQuietly(lockChannel);
+                return false;
+            }
+
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+            }
+            if (!persistentStorage) {
+                for (Path path : files) {
+                    Files.delete(path);
+                }
+                logger.info("QR store {} cleared of {} segments: eSIMs are kept in memory", directory, files.size());
+                return true;
+            }
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                int id = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                Segment segment = new Segment(id, path, openSegment(path), 0);
+                segments.put(id, segment);
+                nextSegmentId = Math.max(nextSegmentId, id + 1);
+                load(segment);
+            }
+            active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+            logger.info("QR store {} opened with {} images in {} segments", directory, index.size(), segments.size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("QR store {} unavailable, rendering QR codes on demand: {}", directory, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Replay a segment into the index, truncating a record torn by a crash
+     */
+    private void load(Segment segment) throws IOException {
+        FileChannel channel = segment.channel;
+        long fileSize = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(4);
+
+        while (offset < fileSize) {
+            long position = offset;
+            Integer keyLength = readInt(channel, header, position, fileSize);
+            if (keyLength == null || keyLength < 0 || position + 4 + keyLength > fileSize) {
+                break;
+            }
+            String key = readString(channel, position + 4, keyLength);
+            position += 4 + keyLength;
+
+            Integer etagLength = readInt(channel, header, position, fileSize);
+            if (etagLength == null || etagLength < 0 || position + 4 + etagLength > fileSize) {
+                break;
+            }
+            String etag = readString(channel, position + 4, etagLength);
+            position += 4 + etagLength;
+
+            Integer pngLength = readInt(channel, header, position, fileSize);
+            if (pngLength == null || pngLength < TOMBSTONE) {
+                break;
+            }
+            position += 4;
+            int bodyLength = Math.max(pngLength, 0);
+            if (position + bodyLength > fileSize) {
+                break;
+            }
+
+            int recordLength = (int) (position + bodyLength - offset);
+            Location previous;
+            if (pngLength == TOMBSTONE) {
+                previous = index.remove(key);
+                segment.deadBytes += recordLength;
+            } else {
+                previous = index.put(key, new Location(segment, recordLength, position, pngLength, etag));
+            }
+            if (previous != null) {
+                previous.segment().deadBytes += previous.recordLength();
+            }
+            offset = position + bodyLength;
+        }
+
+        if (offset < fileSize) {
+            logger.warn("Truncating torn record at offset {} of {}", offset, segment.path);
+            channel.truncate(offset);
+        }
+        segment.size = offset;
+    }
+
+    private static Integer readInt(FileChannel channel, ByteBuffer buffer, long position, long fileSize)
+            throws IOException {
+        if (position + 4 > fileSize) {
+            return null;
+        }
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        return buffer.getInt(0);
+    }
+
+    private static String readString(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    private static FileChannel openSegment(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close channel: {}", e.getMessage());
+        }
+    }
+}
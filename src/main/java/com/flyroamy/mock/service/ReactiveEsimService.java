@@ -0,0 +1,147 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.exception.EsimNotFoundException;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.ReactiveMockEsimRepository;
+import com.flyroamy.mock.util.IccidGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+
+/**
+ * {@link EsimService} for the reactive stack, covering the Maya API operations.
+ *
+ * Reads and writes of eSIM documents go through the reactive repository; building and
+ * changing the documents is shared with {@link EsimService}. Usage history still lives
+ * behind a blocking repository, so the steps that touch it run on the bounded elastic
+ * scheduler instead of an event loop.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveEsimService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveEsimService.class);
+
+    // Reads of an eSIM whose status keeps changing before a status-guarded update gives up
+    private static final int STATUS_UPDATE_ATTEMPTS = 8;
+
+    private final ReactiveMockEsimRepository esimRepository;
+    private final ReactiveProductService productService;
+    private final EsimService esimService;
+    private final UsageHistoryService usageHistoryService;
+    private final EsimExpiryService expiryService;
+    private final EsimStatusCounters statusCounters;
+    private final IccidGenerator iccidGenerator;
+
+    public ReactiveEsimService(ReactiveMockEsimRepository esimRepository, ReactiveProductService productService,
+                               EsimService esimService, UsageHistoryService usageHistoryService,
+                               EsimExpiryService expiryService, EsimStatusCounters statusCounters,
+                               IccidGenerator iccidGenerator) {
+        this.esimRepository = esimRepository;
+        this.productService = productService;
+        this.esimService = esimService;
+        this.usageHistoryService = usageHistoryService;
+        this.expiryService = expiryService;
+        this.statusCounters = statusCounters;
+        this.iccidGenerator = iccidGenerator;
+    }
+
+    /**
+     * Get eSIM by ICCID
+     */
+    public Mono<MockEsim> getEsimByIccid(String iccid) {
+        return esimRepository.findByIccid(iccid)
+            .switchIfEmpty(Mono.error(() -> new EsimNotFoundException("ICCID: " + iccid)));
+    }
+
+    /**
+     * Create a new eSIM (Maya API style)
+     */
+    public Mono<MockEsim> createEsim(CreateEsimRequest request) {
+        logger.info("Creating eSIM - planTypeId: {}, customerId: {}", request.getPlanTypeId(), request.getCustomerId());
+
+        // Leasing the next block of ICCIDs blocks, so only an ICCID at hand is taken on the event loop
+        Mono<String> iccid = Mono.defer(() -> Mono.justOrEmpty(iccidGenerator.tryGenerate()))
+            .switchIfEmpty(Mono.fromSupplier(iccidGenerator::generate).subscribeOn(Schedulers.boundedElastic()));
+        Mono<MockEsim> esim = request.getPlanTypeId() != null && !request.getPlanTypeId().isEmpty()
+            ? productService.getProductByIdOrUid(request.getPlanTypeId())
+                .zipWith(iccid, (product, number) -> esimService.newEsim(request, product, number))
+            : iccid.map(number -> esimService.newEsim(request, null, number));
+
+        return esim.flatMap(esimRepository::save)
+            .doOnNext(saved -> {
+                logger.info("Created eSIM: {} with ICCID: {}", saved.getUid(), saved.getIccid());
+                esimService.afterCreate(saved);
+            });
+    }
+
+    /**
+     * Attach a plan to an existing eSIM (Maya API style)
+     */
+    public Mono<MockEsim> attachPlan(String iccid, String planTypeId) {
+        logger.info("Attaching plan {} to eSIM {}", planTypeId, iccid);
+
+        return attachPlan(iccid, planTypeId, 0)
+            .doOnNext(saved -> {
+                logger.info("Attached plan {} to eSIM {}. Total plans: {}",
+                    planTypeId, iccid, saved.getAttachedPlans().size());
+                expiryService.schedule(saved);
+            });
+    }
+
+    // One attempt of the status-guarded append, read again and retried if the status changed
+    private Mono<MockEsim> attachPlan(String iccid, String planTypeId, int attempt) {
+        return getEsimByIccid(iccid)
+            .flatMap(esim -> {
+                esimService.checkCanAttachPlan(esim, iccid);
+                return productService.getProductByIdOrUid(planTypeId)
+                    .flatMap(product -> esimRepository.attachPlan(esim.getId(), esim.getStatus(),
+                        esimService.createAttachedPlan(product), esimService.activatesOnAttach(esim)))
+                    .doOnNext(saved -> statusCounters.changed(esim.getStatus(), saved.getStatus()));
+            })
+            .switchIfEmpty(Mono.defer(() -> attempt + 1 < STATUS_UPDATE_ATTEMPTS
+                ? attachPlan(iccid, planTypeId, attempt + 1)
+                : Mono.error(new OptimisticLockingFailureException(
+                    "Status of eSIM " + iccid + " changed " + STATUS_UPDATE_ATTEMPTS + " times during the update"))));
+    }
+
+    /**
+     * Update an existing eSIM
+     */
+    public Mono<MockEsim> updateEsim(String iccid, CreateEsimRequest updates) {
+        logger.info("Updating eSIM: {}", iccid);
+
+        return getEsimByIccid(iccid)
+            .flatMap(esim -> esimRepository.updateDetails(esim.getId(), updates.getCustomerId(), updates.getTag()))
+            .switchIfEmpty(Mono.error(() -> new EsimNotFoundException("ICCID: " + iccid)));
+    }
+
+    /**
+     * Delete an eSIM by ICCID
+     */
+    public Mono<Void> deleteEsim(String iccid) {
+        logger.info("Deleting eSIM with ICCID: {}", iccid);
+
+        return getEsimByIccid(iccid)
+            .flatMap(esim -> esimRepository.delete(esim)
+                .then(Mono.fromRunnable(() -> esimService.afterDelete(esim))
+                    .subscribeOn(Schedulers.boundedElastic())))
+            .then(Mono.fromRunnable(() -> logger.info("Deleted eSIM with ICCID: {}", iccid)));
+    }
+
+    /**
+     * Usage history of an eSIM
+     */
+    public Mono<UsageHistoryService.UsageHistory> getUsage(MockEsim esim, LocalDateTime from, LocalDateTime to,
+                                                           String granularity) {
+        return Mono.fromCallable(() -> usageHistoryService.getUsage(esim, from, to, granularity))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,151 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.exception.ProductNotFoundException;
+import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.repository.ReactiveMockProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * {@link ProductService} for the reactive stack.
+ *
+ * Lookups by id and country are served from the shared {@link ProductCatalogCache}.
+ * Products found in the loaded snapshot are answered in place; a miss reads through
+ * to the blocking repository and a catalog not yet loaded has to be read whole, so
+ * those move to a blocking-friendly scheduler. Paged listings and writes go through
+ * the reactive repository and keep the catalog up to date the same way.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveProductService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveProductService.class);
+
+    private final ReactiveMockProductRepository productRepository;
+    private final ProductService productService;
+    private final ProductCatalogCache catalogCache;
+
+    public ReactiveProductService(ReactiveMockProductRepository productRepository, ProductService productService,
+                                  ProductCatalogCache catalogCache) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.catalogCache = catalogCache;
+    }
+
+    /**
+     * Get one page of active products
+     */
+    public Flux<MockProduct> getAllProducts(int page, int size) {
+        logger.debug("Fetching all products - page: {}, size: {}", page, size);
+        return productRepository.findByIsActiveTrue(PageRequest.of(page, size, Sort.by("name").ascending()));
+    }
+
+    /**
+     * Get one page of products for a country
+     */
+    public Mono<List<MockProduct>> getProductsByCountry(String countryCode, int page, int size) {
+        // Country listings never read through once the catalog is loaded
+        return fromCatalog(() -> catalogCache.isLoaded()
+                ? Optional.of(productService.getProductsByCountry(countryCode, page, size).getContent())
+                : Optional.empty(),
+            () -> productService.getProductsByCountry(countryCode, page, size).getContent());
+    }
+
+    /**
+     * Get one page of products for a region
+     */
+    public Flux<MockProduct> getProductsByRegion(String region, int page, int size) {
+        logger.debug("Fetching products for region: {}", region);
+        return productRepository.findByRegionAndActive(region.toLowerCase(),
+            PageRequest.of(page, size, Sort.by("price").ascending()));
+    }
+
+    public Mono<MockProduct> getProductById(String productId) {
+        return fromCatalog(() -> catalogCache.findCachedByProductId(productId),
+            () -> productService.getProductById(productId));
+    }
+
+    public Mono<MockProduct> getProductByIdOrUid(String identifier) {
+        return fromCatalog(() -> catalogCache.findCachedByProductIdOrUid(identifier),
+            () -> productService.getProductByIdOrUid(identifier));
+    }
+
+    public Mono<Map<String, MockProduct>> getProductsByIds(Collection<String> productIds) {
+        return fromCatalog(() -> catalogCache.findAllCachedByProductIds(productIds),
+            () -> productService.getProductsByIds(productIds));
+    }
+
+    /**
+     * Create a new product
+     */
+    public Mono<MockProduct> createProduct(MockProduct product) {
+        logger.info("Creating new product: {}", product.getName());
+        productService.assignIds(product);
+
+        return productRepository.existsByProductId(product.getProductId())
+            .flatMap(exists -> {
+                if (exists) {
+                    return Mono.<MockProduct>error(new IllegalArgumentException(
+                        "Product with ID " + product.getProductId() + " already exists"));
+                }
+                productService.normalizeNew(product);
+                return productRepository.save(product);
+            })
+            .doOnNext(saved -> {
+                catalogCache.put(saved);
+                logger.info("Created product: {} with ID: {}", saved.getName(), saved.getProductId());
+            });
+    }
+
+    /**
+     * Update an existing product
+     */
+    public Mono<MockProduct> updateProduct(String productId, MockProduct updates) {
+        logger.info("Updating product: {}", productId);
+
+        // Load from the repository: cached products are shared and must not be mutated
+        return productRepository.findByProductId(productId)
+            .switchIfEmpty(Mono.error(() -> new ProductNotFoundException(productId)))
+            .flatMap(existing -> {
+                productService.applyUpdates(existing, updates);
+                return productRepository.save(existing);
+            })
+            .doOnNext(catalogCache::put);
+    }
+
+    /**
+     * Delete a product
+     */
+    public Mono<Void> deleteProduct(String productId) {
+        logger.info("Deleting product: {}", productId);
+
+        return productRepository.existsByProductId(productId)
+            .flatMap(exists -> exists
+                ? productRepository.deleteByProductId(productId)
+                : Mono.<Void>error(new ProductNotFoundException(productId)))
+            .then(Mono.fromRunnable(() -> {
+                catalogCache.remove(productId);
+                logger.info("Deleted product: {}", productId);
+            }));
+    }
+
+    // A snapshot hit is answered on the calling thread; anything else may block on the repository
+    private <T> Mono<T> fromCatalog(Supplier<Optional<T>> cached, Supplier<T> read) {
+        return Mono.defer(() -> cached.get()
+            .map(Mono::just)
+            .orElseGet(() -> Mono.fromSupplier(read).subscribeOn(Schedulers.boundedElastic())));
+    }
+}
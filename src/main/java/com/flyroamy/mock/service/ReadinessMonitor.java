@@ -0,0 +1,140 @@
+package com.flyroamy.mock.service;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readiness of the service, checked in the background so health probes never touch
+ * the database.
+ *
+ * A snapshot of the database and catalog state is taken at a fixed interval on a
+ * thread of its own: a Mongo ping with its round-trip time, the product count and the
+ * catalog cache state. Probes read the latest snapshot. The service is ready while the
+ * database answered the last ping and the snapshot is younger than the maximum age; a
+ * refresh stuck on an unresponsive database therefore turns into "not ready" once the
+ * snapshot ages out, rather than into probes that hang.
+ */
+@Service
+public class ReadinessMonitor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadinessMonitor.class);
+
+    private static final Document PING = new Document("ping", 1);
+
+    private record Snapshot(Instant takenAt, boolean databaseUp, Long roundTripMs, String error,
+                            long products, Map<String, Object> catalog) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ProductService productService;
+    private final long refreshIntervalMs;
+    private final Duration maxAge;
+    private final ScheduledExecutorService refresher;
+    private volatile Snapshot snapshot;
+
+    public ReadinessMonitor(ObjectProvider<MongoTemplate> mongoTemplate, ProductService productService,
+                            @Value("${mock.readiness.refresh-interval-ms:5000}") long refreshIntervalMs,
+                            @Value("${mock.readiness.max-age-ms:30000}") long maxAgeMs,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        // Absent with mock.storage=memory
+        this.mongoTemplate = mongoTemplate.getIfAvailable();
+        this.productService = productService;
+        this.refreshIntervalMs = Math.max(100, refreshIntervalMs);
+        this.maxAge = Duration.ofMillis(Math.max(this.refreshIntervalMs, maxAgeMs));
+        ThreadFactory threadFactory = virtualThreads
+            ? Thread.ofVirtual().name("readiness").factory()
+            : Thread.ofPlatform().name("readiness").daemon().factory();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refresher.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether the latest snapshot is fresh and saw the database up
+     */
+    public boolean isReady() {
+        Snapshot current = snapshot;
+        return current != null && current.databaseUp() && age(current).compareTo(maxAge) <= 0;
+    }
+
+    /**
+     * Readiness as of the latest snapshot
+     */
+    public Map<String, Object> getStatus() {
+        Snapshot current = snapshot;
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (current == null) {
+            status.put("status", "STARTING");
+            return status;
+        }
+        status.put("status", isReady() ? "READY" : "NOT_READY");
+        status.put("snapshotAt", current.takenAt().toString());
+        status.put("snapshotAgeMs", age(current).toMillis());
+
+        Map<String, Object> database = new LinkedHashMap<>();
+        database.put("type", mongoTemplate != null ? "mongo" : "memory");
+        database.put("status", current.databaseUp() ? "UP" : "DOWN");
+        if (current.roundTripMs() != null) {
+            database.put("roundTripMs", current.roundTripMs());
+        }
+        if (current.error() != null) {
+            database.put("error", current.error());
+        }
+        status.put("database", database);
+        status.put("products", current.products());
+        status.put("catalog", current.catalog());
+        return status;
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    private void refresh() {
+        boolean databaseUp = true;
+        Long roundTripMs = null;
+        String error = null;
+        long products = -1;
+        try {
+            if (mongoTemplate != null) {
+                long started = System.nanoTime();
+                mongoTemplate.executeCommand(PING);
+                roundTripMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            }
+            products = productService.getProductCount();
+        } catch (RuntimeException e) {
+            databaseUp = false;
+            error = e.getMessage();
+            if (snapshot == null || snapshot.databaseUp()) {
+                logger.warn("Readiness check failed: {}", e.getMessage());
+            }
+        }
+        snapshot = new Snapshot(Instant.now(), databaseUp, roundTripMs, error, products,
+            productService.getCacheStats());
+    }
+
+    private static Duration age(Snapshot snapshot) {
+        return Duration.between(snapshot.takenAt(), Instant.now());
+    }
+}
@@ -0,0 +1,176 @@
+package com.flyroamy.mock.service;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports virtual threads that pin their carrier thread.
+ *
+ * A virtual thread that blocks inside a synchronized block or a native frame cannot
+ * unmount, so it keeps its carrier busy; enough of them stall every request. The JVM
+ * records these as {@code jdk.VirtualThreadPinned} flight recorder events. This monitor
+ * streams them in-process and groups them by the first frame outside the JDK, which is
+ * the code that took the monitor: the Mongo driver, Spring Security, logging or our own.
+ *
+ * On by default when {@code spring.threads.virtual.enabled} is set.
+ */
+@Component
+public class ThreadPinningMonitor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    // Distinct sites tracked; further ones only count towards the total
+    private static final int MAX_SITES = 500;
+    private static final int STACK_DEPTH = 16;
+    private static final int TOP_SITES = 20;
+
+    private static final class Site {
+        final LongAdder events = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final List<String> stack;
+
+        Site(List<String> stack) {
+            this.stack = stack;
+        }
+    }
+
+    private final boolean enabled;
+    private final boolean virtualThreads;
+    private final Duration threshold;
+    private final Map<String, Site> sites = new ConcurrentHashMap<>();
+    private final LongAdder pinnedEvents = new LongAdder();
+    private volatile RecordingStream stream;
+
+    public ThreadPinningMonitor(
+            @Value("${mock.pinning-monitor.enabled:${spring.threads.virtual.enabled:false}}") boolean enabled,
+            @Value("${mock.pinning-monitor.threshold-ms:20}") long thresholdMs,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.enabled = enabled;
+        this.virtualThreads = virtualThreads;
+        this.threshold = Duration.ofMillis(Math.max(0, thresholdMs));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            RecordingStream recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::record);
+            recording.startAsync();
+            stream = recording;
+            logger.info("Watching for virtual thread pinning over {} ms", threshold.toMillis());
+        } catch (RuntimeException e) {
+            // Flight recorder disabled or unavailable in this JVM
+            logger.warn("Pinning monitor could not start: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Pinning counts, worst sites first
+     */
+    public Map<String, Object> getStats() {
+        List<Map.Entry<String, Site>> worst = new ArrayList<>(sites.entrySet());
+        worst.sort(Comparator.comparingLong((Map.Entry<String, Site> entry) -> entry.getValue().totalNanos.sum()).reversed());
+
+        List<Map<String, Object>> top = new ArrayList<>();
+        for (Map.Entry<String, Site> entry : worst.subList(0, Math.min(TOP_SITES, worst.size()))) {
+            Site site = entry.getValue();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("site", entry.getKey());
+            row.put("events", site.events.sum());
+            row.put("totalMs", Duration.ofNanos(site.totalNanos.sum()).toMillis());
+            row.put("maxMs", Duration.ofNanos(site.maxNanos.get()).toMillis());
+            row.put("stack", site.stack);
+            top.add(row);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", virtualThreads);
+        stats.put("monitoring", stream != null);
+        stats.put("thresholdMs", threshold.toMillis());
+        stats.put("pinnedEvents", pinnedEvents.sum());
+        stats.put("sites", sites.size());
+        stats.put("worstSites", top);
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        RecordingStream recording = stream;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        pinnedEvents.increment();
+        List<String> stack = stackOf(event.getStackTrace());
+        String key = stack.isEmpty() ? "unknown" : culprit(event.getStackTrace());
+        Site site = sites.get(key);
+        if (site == null) {
+            if (sites.size() >= MAX_SITES) {
+                return;
+            }
+            site = sites.computeIfAbsent(key, ignored -> new Site(stack));
+        }
+        long nanos = event.getDuration().toNanos();
+        site.events.increment();
+        site.totalNanos.add(nanos);
+        site.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // First frame outside the JDK, else the top frame
+    private static String culprit(RecordedStackTrace trace) {
+        List<RecordedFrame> frames = trace.getFrames();
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && !isJdk(frame.getMethod().getType().getName())) {
+                return format(frame);
+            }
+        }
+        return format(frames.get(0));
+    }
+
+    private static List<String> stackOf(RecordedStackTrace trace) {
+        if (trace == null) {
+            return List.of();
+        }
+        List<RecordedFrame> frames = trace.getFrames();
+        List<String> stack = new ArrayList<>(Math.min(STACK_DEPTH, frames.size()));
+        for (RecordedFrame frame : frames.subList(0, Math.min(STACK_DEPTH, frames.size()))) {
+            stack.add(format(frame));
+        }
+        return stack;
+    }
+
+    private static boolean isJdk(String className) {
+        return className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.");
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
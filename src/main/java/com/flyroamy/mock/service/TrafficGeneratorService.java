@@ -0,0 +1,395 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.dto.request.SimulateUsageRequest;
+import com.flyroamy.mock.dto.request.TrafficGeneratorRequest;
+import com.flyroamy.mock.dto.request.TrafficGeneratorRequest.Consumption;
+import com.flyroamy.mock.exception.InvalidRequestException;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.util.TokenBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background traffic generator for soak tests.
+ *
+ * A dispatcher on a virtual thread paces usage events through a token bucket, samples
+ * eSIMs at random from a snapshot of the active fleet and hands each batch to a
+ * virtual thread, which applies it through {@link UsageBatchService}. The number of
+ * batches in flight is bounded, so a slow database backs the dispatcher up instead of
+ * piling up work. Megabytes per event follow a distribution chosen per plan, and
+ * some events also flip the eSIM's network_status.
+ */
+@Service
+public class TrafficGeneratorService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficGeneratorService.class);
+
+    private static final String ACTIVE = "active";
+    private static final List<String> NETWORK_STATUSES = List.of("connected", "disconnected", "roaming");
+    private static final long FLEET_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long EMPTY_FLEET_RETRY_MS = 1000;
+    // Keeps a single sampled value from swamping every plan it lands on
+    private static final int MAX_EVENT_MB = 1_000_000;
+
+    private final MockEsimRepository esimRepository;
+    private final UsageBatchService usageBatchService;
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
+    private volatile Run current;
+
+    public TrafficGeneratorService(MockEsimRepository esimRepository, UsageBatchService usageBatchService) {
+        this.esimRepository = esimRepository;
+        this.usageBatchService = usageBatchService;
+    }
+
+    /**
+     * Start generating traffic
+     *
+     * A stopped run may still be finishing its batches in flight; that does not block a new one.
+     *
+     * @throws InvalidRequestException if a run is in progress or there are no active eSIMs
+     */
+    public Map<String, Object> start(TrafficGeneratorRequest request) {
+        lifecycleLock.lock();
+        try {
+            if (current != null && !current.isStopping()) {
+                throw new InvalidRequestException("Traffic generator is already running");
+            }
+            if (esimRepository.countByStatus(ACTIVE) == 0) {
+                throw new InvalidRequestException("No active eSIMs to generate traffic for");
+            }
+            current = new Run(request);
+            current.start();
+            logger.info("Traffic generator started - {} events/s in batches of {}",
+                request.getEventsPerSecond(), request.getBatchSize());
+            return current.getStatus();
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the current run. Batches already in flight still complete.
+     */
+    public Map<String, Object> stop() {
+        lifecycleLock.lock();
+        try {
+            if (current == null) {
+                return Map.of("running", false);
+            }
+            current.stop("stopped");
+            return current.getStatus();
+        } finally {
+            lifecycleLock.unlock();
+        }
+    }
+
+    /**
+     * Live status of the current or last run
+     */
+    public Map<String, Object> getStatus() {
+        Run run = current;
+        return run != null ? run.getStatus() : Map.of("running", false);
+    }
+
+    @Override
+    public void destroy() {
+        Run run = current;
+        if (run != null) {
+            run.stop("shutdown");
+        }
+    }
+
+    /**
+     * Megabytes for one usage event, at least 1
+     */
+    static int sampleMB(Consumption consumption, ThreadLocalRandom random) {
+        double mean = consumption.getMeanMB();
+        double sigma = consumption.getSigma();
+        double mb = switch (consumption.getDistribution()) {
+            case "uniform" -> random.nextDouble(0, 2 * mean);
+            case "exponential" -> -mean * Math.log(1 - random.nextDouble());
+            // Parameterised so the mean stays meanMB whatever the sigma
+            default -> Math.exp(Math.log(mean) - sigma * sigma / 2 + sigma * random.nextGaussian());
+        };
+        return (int) Math.max(1, Math.min(MAX_EVENT_MB, Math.round(mb)));
+    }
+
+    /**
+     * An active eSIM as sampled by the generator
+     */
+    private record FleetMember(String id, String iccid, Consumption consumption) {
+    }
+
+    /**
+     * One generator run, from start until stopped, timed out or shut down
+     */
+    private final class Run {
+        private final TrafficGeneratorRequest settings;
+        private final Semaphore inFlight;
+        private final ExecutorService workers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("traffic-worker-", 0).factory());
+        private final Thread dispatcher;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final EventRate rate = new EventRate(EventRate.nowSecond());
+
+        private final LongAdder events = new LongAdder();
+        private final LongAdder applied = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder networkFlaps = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        private final Instant startedAt = Instant.now();
+        private final long startNanos = System.nanoTime();
+        private volatile boolean stopping;
+        private volatile String stopReason;
+        private volatile Instant stoppedAt;
+        private volatile String lastError;
+        private volatile List<FleetMember> fleet = List.of();
+        private volatile long fleetLoadedNanos;
+
+        Run(TrafficGeneratorRequest settings) {
+            this.settings = settings;
+            this.inFlight = new Semaphore(settings.getMaxInFlightBatches());
+            this.dispatcher = Thread.ofVirtual().name("traffic-dispatcher").unstarted(this::dispatch);
+        }
+
+        void start() {
+            dispatcher.start();
+        }
+
+        boolean isRunning() {
+            return stoppedAt == null;
+        }
+
+        // Set once stopped or the dispatcher has ended, before the batches in flight drain
+        boolean isStopping() {
+            return stopping;
+        }
+
+        void stop(String reason) {
+            if (!stopping) {
+                stopReason = reason;
+                stopping = true;
+                dispatcher.interrupt();
+            }
+        }
+
+        private void dispatch() {
+            TokenBucket limiter = new TokenBucket(settings.getEventsPerSecond(), settings.getBatchSize());
+            long durationNanos = TimeUnit.SECONDS.toNanos(settings.getDurationSeconds());
+            try {
+                loadFleet();
+                while (!stopping) {
+                    if (durationNanos > 0 && System.nanoTime() - startNanos >= durationNanos) {
+                        stopReason = "duration elapsed";
+                        break;
+                    }
+                    if (System.nanoTime() - fleetLoadedNanos > FLEET_REFRESH_NANOS && refreshing.compareAndSet(false, true)) {
+                        workers.execute(this::refreshFleet);
+                    }
+                    List<FleetMember> members = fleet;
+                    if (members.isEmpty()) {
+                        Thread.sleep(EMPTY_FLEET_RETRY_MS);
+                        continue;
+                    }
+
+                    limiter.acquire(settings.getBatchSize());
+                    inFlight.acquire();
+                    List<FleetMember> batch = sample(members, settings.getBatchSize());
+                    workers.execute(() -> applyBatch(batch));
+                }
+            } catch (InterruptedException e) {
+                // stop() interrupts the dispatcher; batches in flight still finish below
+            } catch (RuntimeException e) {
+                if (!stopping) {
+                    stopReason = "failed: " + e.getMessage();
+                    logger.error("Traffic generator stopped", e);
+                }
+            } finally {
+                stopping = true;
+                workers.shutdown();
+                try {
+                    workers.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                stoppedAt = Instant.now();
+                logger.info("Traffic generator {} after {} events", stopReason, events.sum());
+            }
+        }
+
+        private void applyBatch(List<FleetMember> batch) {
+            try {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                List<SimulateUsageRequest> records = new ArrayList<>(batch.size());
+                Map<String, List<String>> flapsByStatus = new HashMap<>();
+                for (FleetMember member : batch) {
+                    SimulateUsageRequest record = new SimulateUsageRequest();
+                    record.setEsimId(member.iccid());
+                    record.setUsageMB(sampleMB(member.consumption(), random));
+                    records.add(record);
+                    if (random.nextDouble() < settings.getNetworkFlapProbability()) {
+                        String status = NETWORK_STATUSES.get(random.nextInt(NETWORK_STATUSES.size()));
+                        flapsByStatus.computeIfAbsent(status, key -> new ArrayList<>()).add(member.id());
+                    }
+                }
+
+                UsageBatchService.BatchUsageResult result = usageBatchService.simulateUsage(records);
+                for (Map.Entry<String, List<String>> flaps : flapsByStatus.entrySet()) {
+                    networkFlaps.add(esimRepository.setNetworkStatus(flaps.getValue(), flaps.getKey()));
+                }
+
+                events.add(records.size());
+                applied.add(result.getApplied());
+                batches.increment();
+                rate.record(records.size(), EventRate.nowSecond());
+            } catch (RuntimeException e) {
+                errors.increment();
+                lastError = e.getMessage();
+                logger.warn("Traffic batch failed: {}", e.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        }
+
+        private List<FleetMember> sample(List<FleetMember> members, int size) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<FleetMember> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(members.get(random.nextInt(members.size())));
+            }
+            return batch;
+        }
+
+        private void refreshFleet() {
+            try {
+                loadFleet();
+            } catch (RuntimeException e) {
+                errors.increment();
+                lastError = e.getMessage();
+                logger.warn("Traffic fleet refresh failed: {}", e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        }
+
+        private void loadFleet() {
+            List<MockEsim> active = esimRepository.findByStatus(ACTIVE);
+            List<FleetMember> members = new ArrayList<>(active.size());
+            for (MockEsim esim : active) {
+                String productId = esim.getAttachedPlans() == null ? null : esim.getAttachedPlans().stream()
+                    .filter(plan -> ACTIVE.equals(plan.getStatus()))
+                    .map(MockEsim.AttachedPlan::getProductId)
+                    .findFirst()
+                    .orElse(null);
+                Consumption consumption = productId != null
+                    ? settings.getPlanConsumption().getOrDefault(productId, settings.getDefaultConsumption())
+                    : settings.getDefaultConsumption();
+                members.add(new FleetMember(esim.getId(), esim.getIccid(), consumption));
+            }
+            fleet = members;
+            fleetLoadedNanos = System.nanoTime();
+        }
+
+        Map<String, Object> getStatus() {
+            double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("running", isRunning());
+            status.put("startedAt", startedAt.toString());
+            if (stoppedAt != null) {
+                status.put("stoppedAt", stoppedAt.toString());
+            }
+            if (stopReason != null) {
+                status.put("stopReason", stopReason);
+            }
+            status.put("targetEventsPerSecond", settings.getEventsPerSecond());
+            status.put("eventsPerSecond", isRunning() ? rate.perSecond(EventRate.nowSecond()) : 0.0);
+            status.put("averageEventsPerSecond", elapsedSeconds > 0 ? events.sum() / elapsedSeconds : 0.0);
+            status.put("fleetSize", fleet.size());
+            status.put("events", events.sum());
+            status.put("applied", applied.sum());
+            status.put("notApplied", events.sum() - applied.sum());
+            status.put("batches", batches.sum());
+            status.put("batchesInFlight", settings.getMaxInFlightBatches() - inFlight.availablePermits());
+            status.put("networkFlaps", networkFlaps.sum());
+            status.put("errors", errors.sum());
+            if (lastError != null) {
+                status.put("lastError", lastError);
+            }
+            return status;
+        }
+    }
+
+    /**
+     * Events per second over the last few completed seconds. Times are whole seconds
+     * on the caller's clock, {@link #nowSecond()} in a run.
+     */
+    static final class EventRate {
+        private static final int WINDOW_SECONDS = 10;
+
+        private final long[] counts = new long[WINDOW_SECONDS + 1];
+        private final long[] seconds = new long[WINDOW_SECONDS + 1];
+        private final long originSecond;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        EventRate(long originSecond) {
+            this.originSecond = originSecond;
+        }
+
+        void record(int eventCount, long second) {
+            int slot = (int) Math.floorMod(second, (long) counts.length);
+            lock.lock();
+            try {
+                if (seconds[slot] != second) {
+                    seconds[slot] = second;
+                    counts[slot] = 0;
+                }
+                counts[slot] += eventCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        double perSecond(long now) {
+            // The current second is still filling up, so only completed ones count
+            long window = Math.min(WINDOW_SECONDS, now - originSecond);
+            if (window <= 0) {
+                return 0.0;
+            }
+            long total = 0;
+            lock.lock();
+            try {
+                for (int i = 0; i < counts.length; i++) {
+                    if (seconds[i] < now && seconds[i] >= now - window) {
+                        total += counts[i];
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            return (double) total / window;
+        }
+
+        static long nowSecond() {
+            return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.dto.request.SimulateUsageRequest;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Applies simulated usage for many eSIMs per call.
+ *
+ * Records for the same identifier are summed, identifiers are resolved in bulk and
+ * each chunk of eSIMs is updated with one bulk write. eSIMs whose bulk update did
+ * not apply, because they changed concurrently, fall back to the single atomic path.
+ */
+@Service
+public class UsageBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageBatchService.class);
+
+    // Identifiers per resolution query and eSIMs per bulk write
+    static final int CHUNK_SIZE = 1000;
+
+    /**
+     * What happened to a usage record
+     */
+    public enum Outcome { APPLIED, NOT_FOUND, NOT_ACTIVE, INVALID }
+
+    private final MockEsimRepository esimRepository;
+    private final EsimIdentifierResolver identifierResolver;
+    private final UsageHistoryService usageHistoryService;
+
+    public UsageBatchService(MockEsimRepository esimRepository, EsimIdentifierResolver identifierResolver,
+                             UsageHistoryService usageHistoryService) {
+        this.esimRepository = esimRepository;
+        this.identifierResolver = identifierResolver;
+        this.usageHistoryService = usageHistoryService;
+    }
+
+    /**
+     * Apply a batch of usage records
+     */
+    public BatchUsageResult simulateUsage(List<SimulateUsageRequest> records) {
+        BatchUsageResult result = new BatchUsageResult(records.size());
+
+        // Coalesce by identifier, keeping first-seen order
+        Map<String, Integer> usageByIdentifier = new LinkedHashMap<>();
+        Map<String, List<Integer>> recordsByIdentifier = new HashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            SimulateUsageRequest record = records.get(i);
+            String identifier = record != null ? record.getEsimId() : null;
+            if (identifier == null || identifier.isBlank() || record.getUsageMB() < 1) {
+                result.record(i, identifier, Outcome.INVALID);
+                continue;
+            }
+            usageByIdentifier.merge(identifier, record.getUsageMB(), Math::addExact);
+            recordsByIdentifier.computeIfAbsent(identifier, key -> new ArrayList<>()).add(i);
+        }
+
+        List<String> identifiers = new ArrayList<>(usageByIdentifier.keySet());
+        for (int start = 0; start < identifiers.size(); start += CHUNK_SIZE) {
+            List<String> chunk = identifiers.subList(start, Math.min(start + CHUNK_SIZE, identifiers.size()));
+            applyChunk(chunk, usageByIdentifier, recordsByIdentifier, result);
+        }
+
+        result.failures.sort(Comparator.comparingInt(BatchUsageResult.Failure::index));
+        logger.info("Batch usage applied - records: {}, eSIMs: {}, applied: {}, failed: {}",
+            records.size(), result.getEsims(), result.getApplied(), result.getFailures().size());
+        return result;
+    }
+
+    private void applyChunk(List<String> identifiers, Map<String, Integer> usageByIdentifier,
+                            Map<String, List<Integer>> recordsByIdentifier, BatchUsageResult result) {
+        Map<String, MockEsim> resolved = identifierResolver.resolveAll(identifiers);
+
+        // Different identifiers of one eSIM coalesce again on its _id
+        Map<String, MockEsim> esimsById = new LinkedHashMap<>();
+        Map<String, Integer> usageById = new HashMap<>();
+        Map<String, List<String>> identifiersById = new HashMap<>();
+        for (String identifier : identifiers) {
+            MockEsim esim = resolved.get(identifier);
+            if (esim == null) {
+                recordAll(identifier, recordsByIdentifier, Outcome.NOT_FOUND, result);
+            } else if (!"active".equals(esim.getStatus())) {
+                recordAll(identifier, recordsByIdentifier, Outcome.NOT_ACTIVE, result);
+            } else {
+                esimsById.putIfAbsent(esim.getId(), esim);
+                usageById.merge(esim.getId(), usageByIdentifier.get(identifier), Math::addExact);
+                identifiersById.computeIfAbsent(esim.getId(), key -> new ArrayList<>()).add(identifier);
+            }
+        }
+        result.addEsims(esimsById.size());
+
+        Set<String> notApplied = esimRepository.applyUsageBulk(esimsById.values(), usageById);
+
+        List<MockEsim> applied = new ArrayList<>(esimsById.size());
+        for (MockEsim esim : esimsById.values()) {
+            String id = esim.getId();
+            Outcome outcome = Outcome.APPLIED;
+            if (notApplied.contains(id)) {
+                Optional<MockEsim> retried = esimRepository.applyUsage(id, usageById.get(id));
+                if (retried.isEmpty()) {
+                    outcome = Outcome.NOT_FOUND;
+                } else if (!"active".equals(retried.get().getStatus())) {
+                    outcome = Outcome.NOT_ACTIVE;
+                }
+            }
+            if (outcome == Outcome.APPLIED) {
+                applied.add(esim);
+            }
+            for (String identifier : identifiersById.get(id)) {
+                recordAll(identifier, recordsByIdentifier, outcome, result);
+            }
+        }
+        usageHistoryService.recordUsage(applied, usageById);
+    }
+
+    private static void recordAll(String identifier, Map<String, List<Integer>> recordsByIdentifier,
+                                  Outcome outcome, BatchUsageResult result) {
+        for (int index : recordsByIdentifier.get(identifier)) {
+            result.record(index, identifier, outcome);
+        }
+    }
+
+    /**
+     * Counts per outcome plus one entry per record that was not applied
+     */
+    public static class BatchUsageResult {
+        private final int records;
+        private int esims = 0;
+        private final Map<Outcome, Integer> counts = new LinkedHashMap<>();
+        private final List<Failure> failures = new ArrayList<>();
+
+        public record Failure(int index, String esimId, Outcome outcome) {}
+
+        BatchUsageResult(int records) {
+            this.records = records;
+        }
+
+        void record(int index, String identifier, Outcome outcome) {
+            counts.merge(outcome, 1, Integer::sum);
+            if (outcome != Outcome.APPLIED) {
+                failures.add(new Failure(index, identifier, outcome));
+            }
+        }
+
+        void addEsims(int count) { esims += count; }
+
+        public int getRecords() { return records; }
+        public int getEsims() { return esims; }
+        public int getApplied() { return counts.getOrDefault(Outcome.APPLIED, 0); }
+        public Map<Outcome, Integer> getCounts() { return counts; }
+        public List<Failure> getFailures() { return failures; }
+    }
+}
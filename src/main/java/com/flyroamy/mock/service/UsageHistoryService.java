@@ -0,0 +1,203 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.exception.InvalidRequestException;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.model.UsageBucket;
+import com.flyroamy.mock.repository.UsageBucketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-eSIM usage history kept as time buckets.
+ *
+ * Every usage application increments the eSIM's bucket for the current hour. Hourly
+ * buckets older than the retention are folded into daily buckets by a scheduled job,
+ * so a history query reads at most one bucket per hour or day of its range and never
+ * scans individual events.
+ */
+@Service
+public class UsageHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsageHistoryService.class);
+
+    // Hourly buckets folded per batch
+    static final int DOWNSAMPLE_BATCH_SIZE = 1000;
+    static final long MAX_HOURLY_RANGE_DAYS = 31;
+    static final long MAX_DAILY_RANGE_DAYS = 366;
+
+    private final UsageBucketRepository bucketRepository;
+    private final long hourlyRetentionHours;
+
+    public UsageHistoryService(
+            UsageBucketRepository bucketRepository,
+            @Value("${mock.usage-history.hourly-retention-hours:48}") long hourlyRetentionHours) {
+        this.bucketRepository = bucketRepository;
+        this.hourlyRetentionHours = hourlyRetentionHours;
+    }
+
+    /**
+     * Record one usage application
+     */
+    public void recordUsage(MockEsim esim, int usageMB) {
+        recordUsage(List.of(esim), Map.of(esim.getId(), usageMB));
+    }
+
+    /**
+     * Record usage applied to many eSIMs, with one bucket write per eSIM.
+     *
+     * The usage is already applied when this runs, so a failed history write is
+     * logged rather than failing a request the caller might then retry.
+     *
+     * @param esims eSIMs the usage was applied to
+     * @param usageById megabytes keyed by document _id
+     */
+    public void recordUsage(Collection<MockEsim> esims, Map<String, Integer> usageById) {
+        LocalDateTime now = LocalDateTime.now();
+        List<UsageBucket> increments = new ArrayList<>(esims.size());
+        for (MockEsim esim : esims) {
+            Integer usageMB = usageById.get(esim.getId());
+            if (usageMB != null && usageMB > 0) {
+                increments.add(UsageBucket.hourly(esim, now, usageMB));
+            }
+        }
+        try {
+            bucketRepository.incrementAll(increments);
+        } catch (DataAccessException e) {
+            logger.warn("Failed to record usage history for {} eSIMs: {}", increments.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Usage of an eSIM between two times.
+     *
+     * Hourly queries return the hourly buckets still kept plus the daily buckets of
+     * hours already downsampled; each bucket carries its granularity. A downsampled day
+     * that only partly overlaps the range cannot be split back into hours, so it is
+     * left out rather than counting usage from outside the range.
+     *
+     * @param from inclusive, rounded down to the bucket start
+     * @param to exclusive
+     * @param granularity "hour" or "day"
+     */
+    public UsageHistory getUsage(MockEsim esim, LocalDateTime from, LocalDateTime to, String granularity) {
+        if (!UsageBucket.HOUR.equals(granularity) && !UsageBucket.DAY.equals(granularity)) {
+            throw new InvalidRequestException("Invalid granularity",
+                Map.of("granularity", String.valueOf(granularity), "allowed", List.of(UsageBucket.HOUR, UsageBucket.DAY)));
+        }
+        if (!from.isBefore(to)) {
+            throw new InvalidRequestException("'from' must be before 'to'",
+                Map.of("from", from.toString(), "to", to.toString()));
+        }
+        long maxDays = UsageBucket.HOUR.equals(granularity) ? MAX_HOURLY_RANGE_DAYS : MAX_DAILY_RANGE_DAYS;
+        if (from.plusDays(maxDays).isBefore(to)) {
+            throw new InvalidRequestException("Range too large for granularity",
+                Map.of("granularity", granularity, "maxDays", maxDays));
+        }
+
+        LocalDateTime dayStart = from.truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime hourStart = from.truncatedTo(ChronoUnit.HOURS);
+        List<UsageBucket> daily = bucketRepository.findByEsimRefAndGranularityInRange(
+            esim.getId(), UsageBucket.DAY, dayStart, to);
+        List<UsageBucket> hourly = bucketRepository.findByEsimRefAndGranularityInRange(
+            esim.getId(), UsageBucket.HOUR, hourStart, to);
+
+        List<UsageBucket> buckets;
+        if (UsageBucket.DAY.equals(granularity)) {
+            // Hours not downsampled yet still count towards their day
+            Map<String, UsageBucket> byDay = new LinkedHashMap<>();
+            for (UsageBucket bucket : daily) {
+                byDay.put(bucket.getId(), bucket);
+            }
+            for (UsageBucket bucket : hourly) {
+                UsageBucket day = bucket.toDaily();
+                byDay.merge(day.getId(), day, UsageBucket::merge);
+            }
+            buckets = new ArrayList<>(byDay.values());
+        } else {
+            // A daily bucket holds hours already folded, so it never overlaps the hourly ones, but
+            // its hours cannot be told apart again: only days wholly inside the range are counted
+            buckets = new ArrayList<>(hourly);
+            for (UsageBucket day : daily) {
+                if (!day.getBucketStart().isBefore(hourStart) && !day.getBucketEnd().isAfter(to)) {
+                    buckets.add(day);
+                }
+            }
+        }
+        buckets.sort(Comparator.comparing(UsageBucket::getBucketStart));
+
+        return new UsageHistory(granularity, from, to, buckets,
+            buckets.stream().mapToLong(UsageBucket::getDataUsedMB).sum(),
+            buckets.stream().mapToLong(UsageBucket::getEvents).sum());
+    }
+
+    /**
+     * Fold hourly buckets older than the retention into daily buckets
+     *
+     * @return number of hourly buckets folded
+     */
+    @Scheduled(initialDelayString = "${mock.usage-history.downsample-interval-ms:600000}",
+               fixedDelayString = "${mock.usage-history.downsample-interval-ms:600000}")
+    public int downsample() {
+        LocalDateTime cutoff = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(hourlyRetentionHours);
+        PageRequest batch = PageRequest.of(0, DOWNSAMPLE_BATCH_SIZE, Sort.by("bucketStart"));
+        int folded = 0;
+
+        while (true) {
+            List<UsageBucket> hourly = bucketRepository.findByGranularityAndBucketStartBefore(
+                UsageBucket.HOUR, cutoff, batch);
+            if (hourly.isEmpty()) {
+                break;
+            }
+            Map<String, UsageBucket> daily = new LinkedHashMap<>();
+            for (UsageBucket bucket : hourly) {
+                UsageBucket day = bucket.toDaily();
+                daily.merge(day.getId(), day, UsageBucket::merge);
+            }
+            // Daily totals first: a crash in between double counts an hour rather than losing it
+            bucketRepository.incrementAll(daily.values());
+            bucketRepository.deleteAllById(hourly.stream().map(UsageBucket::getId).toList());
+            folded += hourly.size();
+        }
+
+        if (folded > 0) {
+            logger.info("Downsampled {} hourly usage buckets older than {}", folded, cutoff);
+        }
+        return folded;
+    }
+
+    /**
+     * Drop the history of a deleted eSIM
+     */
+    public void deleteHistory(MockEsim esim) {
+        bucketRepository.deleteByEsimRef(esim.getId());
+    }
+
+    /**
+     * Drop all usage history (admin reset)
+     */
+    public void deleteAll() {
+        bucketRepository.deleteAll();
+    }
+
+    /**
+     * Buckets of one history query with their totals
+     */
+    public record UsageHistory(String granularity, LocalDateTime from, LocalDateTime to,
+                               List<UsageBucket> buckets, long totalDataUsedMB, long events) {
+    }
+}
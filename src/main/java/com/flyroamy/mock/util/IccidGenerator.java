@@ -1,114 +1,279 @@
 package com.flyroamy.mock.util;
 
+import com.flyroamy.mock.repository.IccidSequenceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.Random;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * ICCIDs drawn from a sequence of account numbers shared by every instance.
+ *
+ * Each instance leases a block of account numbers from the persistent sequence and
+ * hands them out from memory, so ICCIDs never collide between instances and only one
+ * allocation per block reaches the database. Within a block, threads claim numbers
+ * with a single atomic increment. Once a block runs low, the next one is leased on a
+ * background thread, so the thread that uses it up normally just swaps it in; it
+ * leases the next block itself only if that lease has not been started or failed.
+ * Numbers left in a block when the instance stops are never used.
+ */
 @Component
-public class IccidGenerator {
+public class IccidGenerator implements DisposableBean {
 
-    private static final Random random = new Random();
+    private static final Logger logger = LoggerFactory.getLogger(IccidGenerator.class);
+
+    // 89 (Telecom) + 01 (Country - US) + 2345 (mock issuer)
+    private static final String PREFIX = "89012345";
+    private static final int ICCID_LENGTH = 20;
+    // 11-digit account numbers
+    private static final long ACCOUNT_NUMBERS = 100_000_000_000L;
+
+    // Luhn value of each digit when doubled
+    private static final int[] DOUBLED = {0, 2, 4, 6, 8, 1, 3, 5, 7, 9};
+
+    private static final byte[] PREFIX_BYTES = PREFIX.getBytes(StandardCharsets.US_ASCII);
+    // Luhn sum of the prefix, computed once; its last digit is not doubled in a 20-digit ICCID
+    private static final int PREFIX_SUM = luhnSum(PREFIX, false);
+
+    private record Block(AtomicLong next, long end) {
+    }
+
+    private static final Block EMPTY = new Block(new AtomicLong(), 0);
+
+    private final IccidSequenceRepository sequenceRepository;
+    private final long blockSize;
+    // Numbers left in the current block when the next one is leased ahead
+    private final long lowWater;
+    private final ReentrantLock leaseLock = new ReentrantLock();
+    private final ExecutorService leaser;
+    private volatile Block block = EMPTY;
+    // The next block, leased ahead of need
+    private final AtomicReference<CompletableFuture<Block>> leasedAhead = new AtomicReference<>();
+
+    public IccidGenerator(IccidSequenceRepository sequenceRepository,
+                          @Value("${mock.iccid.block-size:1000}") long blockSize) {
+        this.sequenceRepository = sequenceRepository;
+        this.blockSize = Math.max(1, blockSize);
+        this.lowWater = Math.max(1, this.blockSize / 10);
+        this.leaser = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "iccid-leaser");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     /**
      * Generates a valid ICCID (Integrated Circuit Card Identifier)
      * Format: 89 (Telecom) + 01 (Country - US) + Issuer ID (4 digits) + Individual ID (11 digits) + Check digit
      *
-     * @return A 20-digit ICCID string
+     * @return A 20-digit ICCID string, unique across instances sharing the database
      */
     public String generate() {
-        StringBuilder iccid = new StringBuilder();
-
-        // Major Industry Identifier (89 = Telecom)
-        iccid.append("89");
-
-        // Country Code (01 = US, 44 = UK, etc.) - using US
-        iccid.append("01");
+        return format(nextAccountNumber(true));
+    }
 
-        // Issuer Identifier (4 digits) - mock issuer
-        iccid.append("2345");
+    /**
+     * Generates an ICCID if that needs no wait on the database: from the current block,
+     * or from the next one once its lease has completed. Otherwise empty, with the
+     * lease under way, and {@link #generate()} is the blocking way to get one.
+     */
+    public Optional<String> tryGenerate() {
+        long number = nextAccountNumber(false);
+        return number < 0 ? Optional.empty() : Optional.of(format(number));
+    }
 
-        // Individual Account Identification (11 digits)
-        for (int i = 0; i < 11; i++) {
-            iccid.append(random.nextInt(10));
+    /**
+     * Generates ICCIDs for a batch. A batch at least as large as a block gets a range of
+     * its own from one lease; smaller ones are drawn from the current block.
+     *
+     * @return count 20-digit ICCID strings, unique across instances sharing the database
+     */
+    public List<String> generate(int count) {
+        List<String> iccids = new ArrayList<>(count);
+        if (count < blockSize) {
+            for (int i = 0; i < count; i++) {
+                iccids.add(generate());
+            }
+            return iccids;
         }
 
-        // Calculate and append Luhn check digit
-        int checkDigit = calculateLuhnCheckDigit(iccid.toString());
-        iccid.append(checkDigit);
-
-        return iccid.toString();
+        long start = sequenceRepository.leaseBlock(PREFIX, count);
+        if (start + count > ACCOUNT_NUMBERS) {
+            throw new IllegalStateException("ICCID account numbers under " + PREFIX + " are exhausted");
+        }
+        for (long number = start; number < start + count; number++) {
+            iccids.add(format(number));
+        }
+        return iccids;
     }
 
     /**
-     * Generates an ICCID with a specific prefix for testing
+     * Generates an ICCID with a specific prefix for testing. The rest of the number is
+     * random, so uniqueness is not guaranteed.
      */
     public String generateWithPrefix(String prefix) {
         StringBuilder iccid = new StringBuilder(prefix);
 
+        ThreadLocalRandom random = ThreadLocalRandom.current();
         int remainingDigits = 19 - prefix.length();
         for (int i = 0; i < remainingDigits; i++) {
             iccid.append(random.nextInt(10));
         }
 
-        int checkDigit = calculateLuhnCheckDigit(iccid.toString());
+        int checkDigit = checkDigit(luhnSum(iccid, true));
         iccid.append(checkDigit);
 
         return iccid.toString();
     }
 
     /**
-     * Calculates the Luhn check digit for ICCID validation
+     * Validates an ICCID using Luhn algorithm
      */
-    private int calculateLuhnCheckDigit(String number) {
-        int sum = 0;
-        boolean alternate = true;
+    public boolean validate(String iccid) {
+        if (iccid == null || iccid.length() != ICCID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < ICCID_LENGTH; i++) {
+            if (iccid.charAt(i) < '0' || iccid.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return luhnSum(iccid, false) % 10 == 0;
+    }
 
-        for (int i = number.length() - 1; i >= 0; i--) {
-            int digit = Character.getNumericValue(number.charAt(i));
+    @Override
+    public void destroy() {
+        leaser.shutdownNow();
+    }
 
-            if (alternate) {
-                digit *= 2;
-                if (digit > 9) {
-                    digit -= 9;
+    // An account number, or -1 if getting one would have to wait and mayBlock is false
+    private long nextAccountNumber(boolean mayBlock) {
+        while (true) {
+            Block current = block;
+            long number = current.next().getAndIncrement();
+            if (number < current.end()) {
+                // Exactly one claim sees this number
+                if (current.end() - number == lowWater) {
+                    leaseAhead();
                 }
+                return number;
+            }
+            // Used up: one thread swaps in the next block while the others wait for it
+            if (mayBlock) {
+                leaseLock.lock();
+            } else if (!leaseLock.tryLock()) {
+                return -1;
+            }
+            try {
+                if (block == current) {
+                    Block next = takeLeasedAhead(mayBlock);
+                    if (next == null && !mayBlock) {
+                        leaseAhead();
+                        return -1;
+                    }
+                    block = next != null ? next : lease();
+                }
+            } finally {
+                leaseLock.unlock();
             }
-
-            sum += digit;
-            alternate = !alternate;
         }
-
-        return (10 - (sum % 10)) % 10;
     }
 
-    /**
-     * Validates an ICCID using Luhn algorithm
-     */
-    public boolean validate(String iccid) {
-        if (iccid == null || iccid.length() != 20) {
-            return false;
+    // Start leasing the next block in the background, unless that is already under way
+    private void leaseAhead() {
+        CompletableFuture<Block> ahead = new CompletableFuture<>();
+        if (!leasedAhead.compareAndSet(null, ahead)) {
+            return;
+        }
+        try {
+            leaser.execute(() -> {
+                try {
+                    ahead.complete(lease());
+                } catch (RuntimeException e) {
+                    ahead.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            ahead.completeExceptionally(e);
         }
+    }
 
+    // The block leased ahead, waiting for it only if allowed to; null if there is none or it failed
+    private Block takeLeasedAhead(boolean mayBlock) {
+        CompletableFuture<Block> ahead = leasedAhead.get();
+        if (ahead == null || (!mayBlock && !ahead.isDone())) {
+            return null;
+        }
+        leasedAhead.compareAndSet(ahead, null);
         try {
-            int sum = 0;
-            boolean alternate = false;
+            return ahead.join();
+        } catch (CompletionException | CancellationException e) {
+            logger.warn("Leasing ICCID account numbers ahead failed: {}", e.getMessage());
+            return null;
+        }
+    }
 
-            for (int i = iccid.length() - 1; i >= 0; i--) {
-                int digit = Character.getNumericValue(iccid.charAt(i));
+    private Block lease() {
+        long start = sequenceRepository.leaseBlock(PREFIX, blockSize);
+        long end = Math.min(start + blockSize, ACCOUNT_NUMBERS);
+        if (start >= end) {
+            throw new IllegalStateException("ICCID account numbers under " + PREFIX + " are exhausted");
+        }
+        logger.debug("Leased ICCID account numbers {} to {}", start, end - 1);
+        return new Block(new AtomicLong(start), end);
+    }
 
-                if (alternate) {
-                    digit *= 2;
-                    if (digit > 9) {
-                        digit -= 9;
-                    }
-                }
+    // Prefix, zero-padded account number and Luhn check digit
+    private static String format(long accountNumber) {
+        byte[] iccid = new byte[ICCID_LENGTH];
+        System.arraycopy(PREFIX_BYTES, 0, iccid, 0, PREFIX_BYTES.length);
 
-                sum += digit;
-                alternate = !alternate;
-            }
+        int sum = PREFIX_SUM;
+        long remaining = accountNumber;
+        // Filled from the right; the last account digit sits next to the check digit and is doubled
+        for (int i = ICCID_LENGTH - 2; i >= PREFIX_BYTES.length; i--) {
+            int digit = (int) (remaining % 10);
+            remaining /= 10;
+            iccid[i] = (byte) ('0' + digit);
+            sum += (ICCID_LENGTH - 1 - i) % 2 == 1 ? DOUBLED[digit] : digit;
+        }
+        iccid[ICCID_LENGTH - 1] = (byte) ('0' + checkDigit(sum));
+        return new String(iccid, StandardCharsets.ISO_8859_1);
+    }
 
-            return (sum % 10 == 0);
-        } catch (NumberFormatException e) {
-            return false;
+    /**
+     * Luhn sum of the digits, doubling every other one from the right; starting with
+     * the rightmost when it is to be followed by a check digit
+     */
+    private static int luhnSum(CharSequence digits, boolean doubleRightmost) {
+        int sum = 0;
+        boolean doubled = doubleRightmost;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            sum += doubled ? DOUBLED[digit] : digit;
+            doubled = !doubled;
         }
+        return sum;
+    }
+
+    private static int checkDigit(int sum) {
+        return (10 - (sum % 10)) % 10;
     }
 }
@@ -2,11 +2,17 @@ package com.flyroamy.mock.util;
 
 import org.springframework.stereotype.Component;
 
-import java.util.UUID;
-
+/**
+ * eSIM identifiers and activation codes, drawn from {@link RandomIds}
+ */
 @Component
 public class MatchingIdGenerator {
 
+    // 64 bits: collisions stay unlikely well past millions of eSIMs
+    private static final int ESIM_ID_DIGITS = 16;
+    private static final int ACTIVATION_CODE_DIGITS = 16;
+    private static final int MANUAL_CODE_DIGITS = 48;
+
     /**
      * Generates a unique matching ID for eSIM activation
      * Format: UUID v4
@@ -14,16 +20,17 @@ public class MatchingIdGenerator {
      * @return A UUID string
      */
     public String generate() {
-        return UUID.randomUUID().toString();
+        return RandomIds.uuid();
     }
 
     /**
      * Generates an eSIM ID with maya_ prefix
+     * Format: maya_ followed by 16 lowercase hex characters
      *
      * @return An eSIM ID string
      */
     public String generateEsimId() {
-        return "maya_" + UUID.randomUUID().toString().substring(0, 8);
+        return RandomIds.hex("maya_", ESIM_ID_DIGITS);
     }
 
     /**
@@ -33,26 +40,17 @@ public class MatchingIdGenerator {
      * @return An activation code string
      */
     public String generateActivationCode() {
-        return UUID.randomUUID().toString()
-            .replace("-", "")
-            .substring(0, 16)
-            .toUpperCase();
+        return RandomIds.upperHex(ACTIVATION_CODE_DIGITS);
     }
 
     /**
      * Generates a manual activation code
-     * Format: 32 character alphanumeric uppercase
+     * Format: 48 character alphanumeric uppercase
      *
      * @return A manual code string
      */
     public String generateManualCode() {
-        return UUID.randomUUID().toString()
-            .replace("-", "")
-            .toUpperCase() +
-            UUID.randomUUID().toString()
-            .replace("-", "")
-            .substring(0, 16)
-            .toUpperCase();
+        return RandomIds.upperHex(MANUAL_CODE_DIGITS);
     }
 
     /**
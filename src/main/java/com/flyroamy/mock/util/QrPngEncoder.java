@@ -0,0 +1,161 @@
+package com.flyroamy.mock.util;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes a QR {@link BitMatrix} as a 1-bit grayscale PNG.
+ *
+ * Scanlines are packed straight from the matrix, eight pixels per byte, instead of
+ * going through a BufferedImage and ImageIO. Every row after the first uses the PNG
+ * "Up" filter, so the repeated rows of a scaled QR code compress to almost nothing.
+ * The deflater, CRC and scratch buffers are kept per platform thread; the only
+ * allocation per image is the returned array. Virtual threads get a throwaway state,
+ * since a thread-local there would live no longer than one request.
+ */
+public final class QrPngEncoder {
+
+    /**
+     * Version of the encoder's output. Bump it whenever the bytes produced for the same
+     * matrix change, so cached images and their ETags are not served across versions.
+     */
+    public static final int VERSION = 2;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = {'I', 'H', 'D', 'R'};
+    private static final byte[] IDAT = {'I', 'D', 'A', 'T'};
+    private static final byte[] IEND = {'I', 'E', 'N', 'D'};
+    private static final int IHDR_LENGTH = 13;
+    // Chunk length, type and CRC around the data
+    private static final int CHUNK_OVERHEAD = 12;
+
+    private static final byte BIT_DEPTH = 1;
+    private static final byte COLOR_TYPE_GRAYSCALE = 0;
+    private static final byte FILTER_NONE = 0;
+    private static final byte FILTER_UP = 2;
+
+    private static final ThreadLocal<EncoderState> STATE = ThreadLocal.withInitial(EncoderState::new);
+
+    private QrPngEncoder() {
+    }
+
+    /**
+     * Encode the matrix, set bits black and unset bits white
+     *
+     * @param matrix The rendered QR code
+     * @return PNG image as byte array
+     */
+    public static byte[] encode(BitMatrix matrix) {
+        if (Thread.currentThread().isVirtual()) {
+            EncoderState state = new EncoderState();
+            try {
+                return state.encode(matrix);
+            } finally {
+                state.deflater.end();
+            }
+        }
+        return STATE.get().encode(matrix);
+    }
+
+    private static final class EncoderState {
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final CRC32 crc = new CRC32();
+        private final byte[] header = new byte[IHDR_LENGTH];
+        private BitArray row;
+        private byte[] scanlines = new byte[0];
+        private byte[] compressed = new byte[4096];
+
+        byte[] encode(BitMatrix matrix) {
+            int width = matrix.getWidth();
+            int height = matrix.getHeight();
+            int rowBytes = (width + 7) >>> 3;
+            int stride = rowBytes + 1;
+            int rawLength = stride * height;
+
+            if (scanlines.length < rawLength) {
+                scanlines = new byte[rawLength];
+            }
+            for (int y = 0; y < height; y++) {
+                row = matrix.getRow(y, row);
+                int offset = y * stride;
+                scanlines[offset] = y == 0 ? FILTER_NONE : FILTER_UP;
+                packRow(row, width, scanlines, offset + 1, rowBytes);
+            }
+            // Up filter in place, bottom row first so each row still sees its unfiltered predecessor
+            for (int y = height - 1; y > 0; y--) {
+                int offset = y * stride + 1;
+                int above = offset - stride;
+                for (int i = 0; i < rowBytes; i++) {
+                    scanlines[offset + i] -= scanlines[above + i];
+                }
+            }
+
+            int compressedLength = deflate(rawLength);
+
+            byte[] png = new byte[SIGNATURE.length + CHUNK_OVERHEAD + IHDR_LENGTH
+                + CHUNK_OVERHEAD + compressedLength + CHUNK_OVERHEAD];
+            System.arraycopy(SIGNATURE, 0, png, 0, SIGNATURE.length);
+            int position = SIGNATURE.length;
+
+            putInt(header, 0, width);
+            putInt(header, 4, height);
+            header[8] = BIT_DEPTH;
+            header[9] = COLOR_TYPE_GRAYSCALE;
+            // compression, filter method and interlace are all 0
+            position = writeChunk(png, position, IHDR, header, IHDR_LENGTH);
+            position = writeChunk(png, position, IDAT, compressed, compressedLength);
+            writeChunk(png, position, IEND, compressed, 0);
+            return png;
+        }
+
+        // PNG grayscale 1 is white, a set matrix bit is black
+        private static void packRow(BitArray row, int width, byte[] target, int offset, int rowBytes) {
+            for (int i = 0; i < rowBytes; i++) {
+                int value = 0;
+                int x = i << 3;
+                for (int bit = 0; bit < 8; bit++, x++) {
+                    value <<= 1;
+                    if (x < width && !row.get(x)) {
+                        value |= 1;
+                    }
+                }
+                target[offset + i] = (byte) value;
+            }
+        }
+
+        private int deflate(int rawLength) {
+            deflater.reset();
+            deflater.setInput(scanlines, 0, rawLength);
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            return length;
+        }
+
+        private int writeChunk(byte[] png, int position, byte[] type, byte[] data, int length) {
+            putInt(png, position, length);
+            System.arraycopy(type, 0, png, position + 4, 4);
+            System.arraycopy(data, 0, png, position + 8, length);
+            crc.reset();
+            crc.update(png, position + 4, 4 + length);
+            putInt(png, position + 8 + length, (int) crc.getValue());
+            return position + CHUNK_OVERHEAD + length;
+        }
+
+        private static void putInt(byte[] target, int offset, int value) {
+            target[offset] = (byte) (value >>> 24);
+            target[offset + 1] = (byte) (value >>> 16);
+            target[offset + 2] = (byte) (value >>> 8);
+            target[offset + 3] = (byte) value;
+        }
+    }
+}
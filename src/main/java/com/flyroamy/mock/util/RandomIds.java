@@ -0,0 +1,82 @@
+package com.flyroamy.mock.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random identifiers and codes without {@code UUID.randomUUID()}.
+ *
+ * UUID.randomUUID draws from one SecureRandom shared by every thread, and the usual
+ * {@code toString().replace(...).substring(...)} trimming then builds several
+ * throwaway strings per id. Here each thread draws from its own
+ * {@link ThreadLocalRandom} and the digits are written straight into one byte array
+ * of the final length, which becomes the string. The ids only need to be unique and
+ * unguessable enough for a mock, not cryptographically strong.
+ */
+public final class RandomIds {
+
+    private static final byte[] LOWER_HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UPPER_HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final int UUID_LENGTH = 36;
+
+    private RandomIds() {
+    }
+
+    /**
+     * Prefix followed by random lowercase hex digits, e.g. {@code maya_3f09c2a1d4e7b605}
+     */
+    public static String hex(String prefix, int digits) {
+        return hex(prefix, digits, LOWER_HEX);
+    }
+
+    /**
+     * Random uppercase hex digits
+     */
+    public static String upperHex(int digits) {
+        return hex("", digits, UPPER_HEX);
+    }
+
+    /**
+     * A random (version 4) UUID in its canonical 36-character form
+     */
+    public static String uuid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long high = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long low = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        byte[] out = new byte[UUID_LENGTH];
+        writeHex(out, 0, high >>> 32, 8, LOWER_HEX);
+        out[8] = '-';
+        writeHex(out, 9, high >>> 16, 4, LOWER_HEX);
+        out[13] = '-';
+        writeHex(out, 14, high, 4, LOWER_HEX);
+        out[18] = '-';
+        writeHex(out, 19, low >>> 48, 4, LOWER_HEX);
+        out[23] = '-';
+        writeHex(out, 24, low, 12, LOWER_HEX);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String hex(String prefix, int digits, byte[] alphabet) {
+        int offset = prefix.length();
+        byte[] out = new byte[offset + digits];
+        for (int i = 0; i < offset; i++) {
+            out[i] = (byte) prefix.charAt(i);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Sixteen digits per random long
+        for (int position = offset; position < out.length; position += 16) {
+            writeHex(out, position, random.nextLong(), Math.min(16, out.length - position), alphabet);
+        }
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    // The low digits of value, most significant first
+    private static void writeHex(byte[] out, int offset, long value, int digits, byte[] alphabet) {
+        for (int i = digits - 1; i >= 0; i--) {
+            out[offset + i] = alphabet[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.flyroamy.mock.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel of items due at a tick.
+ *
+ * Six levels of 64 slots each; level n holds items due within 64^(n+1) ticks, in the
+ * slot of their deadline at that level's resolution. Whenever the level below wraps
+ * around, one slot of the next level is cascaded down. Scheduling is O(1) and
+ * advancing costs the items that come due plus the amortised cascades, however many
+ * items are waiting. Items further out than the top level reaches are parked in its
+ * last slot and re-placed when they cascade.
+ *
+ * Not thread-safe; callers synchronize.
+ *
+ * @param <T> the scheduled item
+ */
+public final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private record Entry<T>(T item, long deadline) {
+    }
+
+    private final List<List<List<Entry<T>>>> wheels = new ArrayList<>(LEVELS);
+    // Next tick to expire; everything due before it has been handed out
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long startTick) {
+        for (int level = 0; level < LEVELS; level++) {
+            List<List<Entry<T>>> slots = new ArrayList<>(SLOTS);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots.add(new ArrayList<>());
+            }
+            wheels.add(slots);
+        }
+        this.currentTick = startTick;
+    }
+
+    /**
+     * Schedule an item; a deadline already passed comes due on the next advance
+     */
+    public void schedule(T item, long deadlineTick) {
+        place(new Entry<>(item, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Move the wheel up to and including the tick and return everything due by then
+     */
+    public List<T> advance(long nowTick) {
+        List<T> due = new ArrayList<>();
+        while (currentTick <= nowTick) {
+            int index = (int) (currentTick & MASK);
+            if (index == 0) {
+                cascade(1);
+            }
+            List<Entry<T>> slot = wheels.get(0).get(index);
+            for (Entry<T> entry : slot) {
+                due.add(entry.item());
+            }
+            size -= slot.size();
+            slot.clear();
+            currentTick++;
+        }
+        return due;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    // Re-place one slot of the level; its own slot 0 first pulls in the level above
+    private void cascade(int level) {
+        if (level >= LEVELS) {
+            return;
+        }
+        int index = (int) ((currentTick >>> (SLOT_BITS * level)) & MASK);
+        if (index == 0) {
+            cascade(level + 1);
+        }
+        List<Entry<T>> slot = wheels.get(level).get(index);
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Entry<T>> entries = new ArrayList<>(slot);
+        slot.clear();
+        for (Entry<T> entry : entries) {
+            place(entry);
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.deadline() - currentTick;
+        if (delta < 0) {
+            wheels.get(0).get((int) (currentTick & MASK)).add(entry);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                int slot = (int) ((entry.deadline() >>> (SLOT_BITS * level)) & MASK);
+                wheels.get(level).get(slot).add(entry);
+                return;
+            }
+        }
+        long parked = currentTick + MAX_SPAN - 1;
+        int slot = (int) ((parked >>> (SLOT_BITS * (LEVELS - 1))) & MASK);
+        wheels.get(LEVELS - 1).get(slot).add(entry);
+    }
+}
@@ -0,0 +1,65 @@
+package com.flyroamy.mock.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket rate limiter.
+ *
+ * Tokens refill continuously at the configured rate up to a burst capacity. A caller
+ * asking for more tokens than are available reserves them anyway, driving the balance
+ * negative, and sleeps until the refill catches up. Requests larger than the capacity
+ * are therefore allowed and simply wait longer, and the long-run rate holds however
+ * the permits are batched. Uses a lock rather than synchronized so a waiting virtual
+ * thread does not pin its carrier.
+ */
+public final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double tokens;
+    private long lastRefillNanos;
+
+    /**
+     * @param tokensPerSecond sustained rate
+     * @param capacity largest burst taken without waiting
+     */
+    public TokenBucket(double tokensPerSecond, double capacity) {
+        if (tokensPerSecond <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Rate and capacity must be positive");
+        }
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Take the permits, sleeping until the rate allows them
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos;
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+            tokens -= permits;
+            waitNanos = tokens < 0 ? (long) Math.ceil(-tokens / tokensPerNano) : 0;
+        } finally {
+            lock.unlock();
+        }
+
+        long deadline = System.nanoTime() + waitNanos;
+        for (long remaining = waitNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
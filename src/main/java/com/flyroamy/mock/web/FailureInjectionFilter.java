@@ -0,0 +1,268 @@
+package com.flyroamy.mock.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.config.MockBehaviorConfig;
+import com.flyroamy.mock.dto.response.MayaApiResponse;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Applies {@code mock.failure} to API requests.
+ *
+ * A request picked at the rate of its route and method gets one of the configured
+ * failure types instead of reaching the controller:
+ * <ul>
+ *   <li>SERVER_ERROR, BAD_GATEWAY, SERVICE_UNAVAILABLE - 500, 502 or 503 with the usual error body</li>
+ *   <li>RATE_LIMITED - 429 with Retry-After</li>
+ *   <li>TIMEOUT - no answer for {@code mock.failure.timeout-ms}, then 504; the wait is
+ *       an async request, so it holds no thread</li>
+ *   <li>CONNECTION_RESET - a truncated response, after which the container drops the connection</li>
+ * </ul>
+ * Injected responses carry an {@code X-Mock-Failure} header naming the type.
+ *
+ * A plain filter rather than a {@code OncePerRequestFilter}: with every rate at zero it
+ * costs one field read per request. It runs after Spring Security and ahead of the
+ * latency filter, so injected failures are not delayed.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class FailureInjectionFilter implements Filter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FailureInjectionFilter.class);
+
+    static final String FAILURE_HEADER = "X-Mock-Failure";
+
+    enum FailureType { SERVER_ERROR, BAD_GATEWAY, SERVICE_UNAVAILABLE, RATE_LIMITED, TIMEOUT, CONNECTION_RESET }
+
+    // Rate per method, falling back to a default rate
+    private record Rates(Map<String, Double> byMethod, double defaultRate, FailureType[] types) {
+
+        double rateFor(String method) {
+            return byMethod.getOrDefault(method, defaultRate);
+        }
+    }
+
+    private record Route(PathPattern pattern, Rates rates) {
+    }
+
+    private final boolean enabled;
+    private final List<PathPattern> excluded = new ArrayList<>();
+    private final List<Route> routes = new ArrayList<>();
+    private final Rates defaultRates;
+    private final long timeoutMs;
+    private final String retryAfterSeconds;
+    private final ObjectMapper objectMapper;
+
+    public FailureInjectionFilter(MockBehaviorConfig behaviorConfig, ObjectMapper objectMapper) {
+        MockBehaviorConfig.Failure failure = behaviorConfig.getFailure();
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = Math.max(1, failure.getTimeoutMs());
+        this.retryAfterSeconds = String.valueOf(Math.max(0, failure.getRetryAfterSeconds()));
+
+        FailureType[] defaultTypes = parseTypes(failure.getTypes());
+        this.defaultRates = new Rates(normalize("mock.failure.methods", failure.getMethods()),
+            checkRate("mock.failure.rate", failure.getRate()), defaultTypes);
+        boolean anyRate = hasRate(defaultRates);
+        for (Map.Entry<String, MockBehaviorConfig.FailureProfile> entry : failure.getRoutes().entrySet()) {
+            MockBehaviorConfig.FailureProfile profile = entry.getValue();
+            String key = "mock.failure.routes.[" + entry.getKey() + "]";
+            // Route methods, then route rate, then the global method rates and rate
+            Map<String, Double> byMethod = new HashMap<>(profile.getRate() == null ? defaultRates.byMethod() : Map.of());
+            byMethod.putAll(normalize(key + ".methods", profile.getMethods()));
+            Rates rates = new Rates(byMethod,
+                profile.getRate() != null ? checkRate(key + ".rate", profile.getRate()) : failure.getRate(),
+                profile.getTypes() != null ? parseTypes(profile.getTypes()) : defaultTypes);
+            routes.add(new Route(parser.parse(entry.getKey()), rates));
+            anyRate |= hasRate(rates);
+        }
+        for (String pattern : failure.getExclude()) {
+            excluded.add(parser.parse(pattern));
+        }
+        this.enabled = anyRate;
+        if (enabled) {
+            logger.info("Failure injection enabled: default rate {}, {} route profiles", failure.getRate(), routes.size());
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        FailureType type = pick(httpRequest);
+        if (type == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        inject(type, httpRequest, (HttpServletResponse) response);
+    }
+
+    private FailureType pick(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        PathContainer path = PathContainer.parsePath(uri.substring(Math.min(request.getContextPath().length(), uri.length())));
+        for (PathPattern pattern : excluded) {
+            if (pattern.matches(path)) {
+                return null;
+            }
+        }
+        Rates rates = defaultRates;
+        for (Route route : routes) {
+            if (route.pattern().matches(path)) {
+                rates = route.rates();
+                break;
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (rates.types().length == 0 || random.nextDouble() >= rates.rateFor(request.getMethod())) {
+            return null;
+        }
+        return rates.types()[random.nextInt(rates.types().length)];
+    }
+
+    private void inject(FailureType type, HttpServletRequest request, HttpServletResponse response)
+            throws IOException, ServletException {
+        logger.debug("Injecting {} into {} {}", type, request.getMethod(), request.getRequestURI());
+        response.setHeader(FAILURE_HEADER, type.name());
+        switch (type) {
+            case SERVER_ERROR -> writeError(response, 500, "Internal server error", "An unexpected error occurred");
+            case BAD_GATEWAY -> writeError(response, 502, "Bad gateway", "Upstream network error");
+            case SERVICE_UNAVAILABLE -> writeError(response, 503, "Service unavailable",
+                "The service is temporarily unavailable");
+            case RATE_LIMITED -> {
+                response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+                writeError(response, 429, "Too many requests", "Rate limit exceeded");
+            }
+            case TIMEOUT -> hang(request);
+            case CONNECTION_RESET -> reset(response);
+        }
+    }
+
+    // Leave the request unanswered until the async timeout, then give up with a 504
+    private void hang(HttpServletRequest request) {
+        if (!request.isAsyncSupported()) {
+            logger.warn("Async not supported for {}, cannot inject TIMEOUT", request.getRequestURI());
+            return;
+        }
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(timeoutMs);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                writeError((HttpServletResponse) event.getSuppliedResponse(), 504, "Gateway timeout",
+                    "Upstream did not respond in time");
+                event.getAsyncContext().complete();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    // Commit a response shorter than its Content-Length and fail the request; the
+    // container then closes the connection instead of completing the response
+    private void reset(HttpServletResponse response) throws IOException, ServletException {
+        byte[] partial = "{\"result\":".getBytes(StandardCharsets.UTF_8);
+        response.setStatus(200);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(4096);
+        response.getOutputStream().write(partial);
+        response.flushBuffer();
+        throw new InjectedResetException();
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message, String developerMessage)
+            throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), MayaApiResponse.error(status, message, developerMessage));
+    }
+
+    private static FailureType[] parseTypes(List<String> types) {
+        List<FailureType> parsed = new ArrayList<>();
+        for (String type : types) {
+            try {
+                parsed.add(FailureType.valueOf(type.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown failure type '" + type + "', expected one of "
+                    + List.of(FailureType.values()));
+            }
+        }
+        return parsed.toArray(FailureType[]::new);
+    }
+
+    private static Map<String, Double> normalize(String property, Map<String, Double> byMethod) {
+        Map<String, Double> normalized = new HashMap<>();
+        byMethod.forEach((method, rate) ->
+            normalized.put(method.toUpperCase(Locale.ROOT), checkRate(property + "." + method, rate)));
+        return normalized;
+    }
+
+    // A rate is a probability; anything else is a configuration mistake, not a rate to clamp
+    private static double checkRate(String property, Double rate) {
+        if (rate == null || !(rate >= 0.0 && rate <= 1.0)) {
+            throw new IllegalArgumentException(property + " must be between 0 and 1, was " + rate);
+        }
+        return rate;
+    }
+
+    private static boolean hasRate(Rates rates) {
+        return rates.types().length > 0
+            && (rates.defaultRate() > 0 || rates.byMethod().values().stream().anyMatch(rate -> rate > 0));
+    }
+
+    // Signals the container to drop the connection; no stack trace, it is expected
+    static final class InjectedResetException extends ServletException {
+
+        InjectedResetException() {
+            super("Injected connection reset");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.flyroamy.mock.web;
+
+import com.flyroamy.mock.config.MockBehaviorConfig;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Raises Tomcat's connection limit to {@code mock.latency.max-connections} while latency
+ * injection is on. A delayed request holds its connection, not a thread, so the limit
+ * rather than the thread pool caps how many can wait at once. A higher
+ * {@code server.tomcat.max-connections} is kept; with injection off Tomcat's own
+ * limit applies.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnClass(TomcatServletWebServerFactory.class)
+@ConditionalOnProperty(name = "mock.latency.enabled", havingValue = "true")
+public class LatencyConnectionLimitCustomizer implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    private final int maxConnections;
+
+    public LatencyConnectionLimitCustomizer(MockBehaviorConfig behaviorConfig) {
+        this.maxConnections = behaviorConfig.getLatency().getMaxConnections();
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        // Added after the server.tomcat.* customizer, so it sees the limit that one set; -1 is unlimited
+        factory.addConnectorCustomizers(connector -> {
+            if (connector.getProtocolHandler() instanceof AbstractProtocol<?> protocol
+                    && protocol.getMaxConnections() != -1 && protocol.getMaxConnections() < maxConnections) {
+                protocol.setMaxConnections(maxConnections);
+            }
+        });
+    }
+}
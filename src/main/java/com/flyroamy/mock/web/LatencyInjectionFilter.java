@@ -0,0 +1,284 @@
+package com.flyroamy.mock.web;
+
+import com.flyroamy.mock.config.MockBehaviorConfig;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies {@code mock.latency} to API requests.
+ *
+ * The delay is served without holding a servlet thread: the request is put into async
+ * mode, the container thread returns to the pool, and a single scheduler thread
+ * dispatches the request back to the container once the delay is up. The dispatch
+ * skips this filter and runs the controller as usual. Thousands of delayed requests
+ * therefore cost a scheduled task and an open connection each, not a Tomcat thread.
+ *
+ * Runs after the Spring Security chain, so rejected requests are answered at once.
+ * The first route pattern matching the path picks the profile; other paths use the
+ * default profile and excluded paths are never delayed. Fields a route profile leaves
+ * unset are taken from the default profile.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class LatencyInjectionFilter extends OncePerRequestFilter implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LatencyInjectionFilter.class);
+
+    // Grace on top of the delay before the container gives up on the async request
+    private static final long TIMEOUT_GRACE_MS = 30_000;
+
+    private record Route(PathPattern pattern, Sampler sampler) {
+    }
+
+    private final boolean enabled;
+    private final List<PathPattern> excluded = new ArrayList<>();
+    private final List<Route> routes = new ArrayList<>();
+    private final Sampler defaultSampler;
+    private final ScheduledExecutorService scheduler;
+
+    public LatencyInjectionFilter(MockBehaviorConfig behaviorConfig) {
+        MockBehaviorConfig.Latency latency = behaviorConfig.getLatency();
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        this.enabled = latency.isEnabled();
+        for (String pattern : latency.getExclude()) {
+            excluded.add(parser.parse(pattern));
+        }
+        for (Map.Entry<String, MockBehaviorConfig.LatencyProfile> route : latency.getRoutes().entrySet()) {
+            routes.add(new Route(parser.parse(route.getKey()), Sampler.of(route.getValue().withDefaults(latency))));
+        }
+        this.defaultSampler = Sampler.of(latency);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "latency-injector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            logger.info("Latency injection enabled: {} route profiles, {} excluded patterns",
+                routes.size(), excluded.size());
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !request.isAsyncSupported()) {
+            return true;
+        }
+        PathContainer path = pathWithinApplication(request);
+        for (PathPattern pattern : excluded) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+
+        long delayMs = samplerFor(pathWithinApplication(request)).sample();
+        if (delayMs <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(delayMs + TIMEOUT_GRACE_MS);
+        AtomicBoolean dispatched = new AtomicBoolean();
+        Runnable dispatch = () -> {
+            if (dispatched.compareAndSet(false, true)) {
+                asyncContext.dispatch();
+            }
+        };
+        // Should the scheduler miss it, the container timeout still lets the request through
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                dispatch.run();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        try {
+            scheduler.schedule(dispatch, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            dispatch.run();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private Sampler samplerFor(PathContainer path) {
+        for (Route route : routes) {
+            if (route.pattern().matches(path)) {
+                return route.sampler();
+            }
+        }
+        return defaultSampler;
+    }
+
+    private static PathContainer pathWithinApplication(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        return PathContainer.parsePath(uri.substring(Math.min(contextPath.length(), uri.length())));
+    }
+
+    /**
+     * Delay in milliseconds drawn from a latency profile, clamped to [minMs, maxMs]
+     */
+    abstract static class Sampler {
+
+        final int minMs;
+        final int maxMs;
+
+        Sampler(MockBehaviorConfig.LatencyProfile profile) {
+            this.minMs = Math.max(0, profile.getMinMs());
+            this.maxMs = Math.max(minMs, profile.getMaxMs());
+        }
+
+        static Sampler of(MockBehaviorConfig.LatencyProfile profile) {
+            String distribution = profile.getDistribution() == null ? "uniform" : profile.getDistribution();
+            return switch (distribution) {
+                case "uniform" -> new Uniform(profile);
+                case "lognormal" -> new LogNormal(profile);
+                case "histogram" -> new Histogram(profile);
+                default -> throw new IllegalArgumentException(
+                    "Unknown latency distribution '" + distribution + "', expected uniform, lognormal or histogram");
+            };
+        }
+
+        long sample() {
+            return Math.min(maxMs, Math.max(minMs, Math.round(draw(ThreadLocalRandom.current()))));
+        }
+
+        abstract double draw(ThreadLocalRandom random);
+    }
+
+    static final class Uniform extends Sampler {
+
+        Uniform(MockBehaviorConfig.LatencyProfile profile) {
+            super(profile);
+        }
+
+        @Override
+        double draw(ThreadLocalRandom random) {
+            return minMs + random.nextDouble() * (maxMs - minMs);
+        }
+    }
+
+    // Long right tail around the median, the usual shape of upstream response times
+    static final class LogNormal extends Sampler {
+
+        private final double mu;
+        private final double sigma;
+
+        LogNormal(MockBehaviorConfig.LatencyProfile profile) {
+            super(profile);
+            double median = profile.getMedianMs() > 0 ? profile.getMedianMs() : (minMs + maxMs) / 2.0;
+            this.mu = Math.log(Math.max(1.0, median));
+            this.sigma = Math.max(0.0, profile.getSigma());
+        }
+
+        @Override
+        double draw(ThreadLocalRandom random) {
+            return Math.exp(mu + sigma * random.nextGaussian());
+        }
+    }
+
+    // Replays recorded latencies: picks a bucket by its share of the recorded count,
+    // then a uniform delay between the previous bucket's bound and its own
+    static final class Histogram extends Sampler {
+
+        private final long[] cumulativeCounts;
+        private final int[] lowerMs;
+        private final int[] upperMs;
+
+        Histogram(MockBehaviorConfig.LatencyProfile profile) {
+            super(profile);
+            TreeMap<Integer, Long> buckets = new TreeMap<>();
+            profile.getHistogram().forEach((upper, count) -> {
+                if (upper != null && upper >= 0 && count != null && count > 0) {
+                    buckets.merge(upper, count, Long::sum);
+                }
+            });
+            if (buckets.isEmpty()) {
+                throw new IllegalArgumentException("Histogram latency profile needs at least one bucket with a positive count");
+            }
+            cumulativeCounts = new long[buckets.size()];
+            lowerMs = new int[buckets.size()];
+            upperMs = new int[buckets.size()];
+            int i = 0;
+            int previous = 0;
+            long total = 0;
+            for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+                total += bucket.getValue();
+                cumulativeCounts[i] = total;
+                lowerMs[i] = previous;
+                upperMs[i] = bucket.getKey();
+                previous = bucket.getKey();
+                i++;
+            }
+        }
+
+        @Override
+        double draw(ThreadLocalRandom random) {
+            int bucket = bucketOf(random.nextLong(cumulativeCounts[cumulativeCounts.length - 1]));
+            return lowerMs[bucket] + random.nextDouble() * (upperMs[bucket] - lowerMs[bucket]);
+        }
+
+        // The first bucket whose cumulative count exceeds the target
+        int bucketOf(long target) {
+            int low = 0;
+            int high = cumulativeCounts.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulativeCounts[mid] > target) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+}
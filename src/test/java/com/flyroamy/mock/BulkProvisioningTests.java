@@ -0,0 +1,161 @@
+package com.flyroamy.mock;
+
+import com.flyroamy.mock.dto.request.BulkCreateEsimRequest;
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.IccidSequenceRepository;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.service.EsimBulkProvisioningService;
+import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.service.ProductService;
+import com.flyroamy.mock.service.QrCodeService;
+import com.flyroamy.mock.service.QrImageStore;
+import com.flyroamy.mock.util.IccidGenerator;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bulk eSIM provisioning and its per-item outcomes, in memory
+ */
+@SpringBootTest(properties = "mock.storage=memory")
+@ActiveProfiles("test")
+class BulkProvisioningTests {
+
+    @Autowired
+    private MockEsimRepository esimRepository;
+
+    @Autowired
+    private EsimService esimService;
+
+    @Autowired
+    private EsimBulkProvisioningService bulkProvisioningService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private IccidSequenceRepository iccidSequenceRepository;
+
+    @Autowired
+    private IccidGenerator iccidGenerator;
+
+    @Autowired
+    private QrCodeService qrCodeService;
+
+    @Autowired
+    private QrImageStore qrImageStore;
+
+    @Test
+    void bulkProvisioningReportsEveryItem() {
+        CreateEsimRequest known = new CreateEsimRequest();
+        known.setPlanTypeId("usa_1gb_7d");
+        known.setCustomerId("customer-bulk");
+        CreateEsimRequest unknown = new CreateEsimRequest();
+        unknown.setPlanTypeId("no_such_plan");
+        CreateEsimRequest planless = new CreateEsimRequest();
+        planless.setTag("staged");
+
+        BulkCreateEsimRequest request = new BulkCreateEsimRequest();
+        request.setItems(List.of(known, unknown, planless, known));
+        request.setRenderQr(true);
+
+        EsimBulkProvisioningService.BulkProvisionResult result = bulkProvisioningService.provision(request);
+
+        assertEquals(3, result.getCreated());
+        List<EsimBulkProvisioningService.BulkProvisionResult.Item> items = result.getItems();
+        assertEquals(List.of(0, 1, 2, 3), items.stream().map(item -> item.index()).toList());
+        assertEquals(EsimBulkProvisioningService.Outcome.PRODUCT_NOT_FOUND, items.get(1).outcome());
+        assertEquals("active", esimService.getEsimByIccid(items.get(0).iccid()).getStatus());
+        assertEquals("provisioned", esimService.getEsimByIccid(items.get(2).iccid()).getStatus());
+    }
+
+    @Test
+    void bulkProvisioningReportsItemsAfterAFailedChunkAsFailed() {
+        // The first chunk's ICCID lease succeeds, the second's fails
+        AtomicInteger leases = new AtomicInteger();
+        IccidSequenceRepository failingSequence = delegating(IccidSequenceRepository.class, iccidSequenceRepository,
+            (method, args) -> {
+                if (method.getName().equals("leaseBlock") && leases.incrementAndGet() > 1) {
+                    throw new IllegalStateException("sequence unavailable");
+                }
+                return null;
+            });
+        IccidGenerator failingGenerator = new IccidGenerator(failingSequence, 1);
+        try {
+            EsimBulkProvisioningService bulk = new EsimBulkProvisioningService(esimService, productService,
+                esimRepository, failingGenerator, qrCodeService, qrImageStore);
+            BulkCreateEsimRequest request = new BulkCreateEsimRequest();
+            // One more than a chunk
+            request.setItems(Collections.nCopies(501, new CreateEsimRequest()));
+
+            EsimBulkProvisioningService.BulkProvisionResult result = bulk.provision(request);
+
+            assertEquals(500, result.getCreated());
+            assertEquals(501, result.getItems().size());
+            EsimBulkProvisioningService.BulkProvisionResult.Item last = result.getItems().get(500);
+            assertEquals(EsimBulkProvisioningService.Outcome.FAILED, last.outcome());
+            assertTrue(last.error().contains("sequence unavailable"));
+        } finally {
+            failingGenerator.destroy();
+        }
+    }
+
+    @Test
+    void bulkInsertFailingPartWayReportsOnlyTheUnwrittenItemsAsFailed() {
+        // Writes the first two eSIMs, with _ids assigned up front as the Mongo insert does, then fails
+        MockEsimRepository failingRepository = delegating(MockEsimRepository.class, esimRepository,
+            (method, args) -> {
+                if (!method.getName().equals("insertOrdered")) {
+                    return null;
+                }
+                List<?> esims = (List<?>) args[0];
+                esims.forEach(esim -> ((MockEsim) esim).setId(new ObjectId().toHexString()));
+                esimRepository.insert((MockEsim) esims.get(0));
+                esimRepository.insert((MockEsim) esims.get(1));
+                throw new IllegalStateException("connection reset");
+            });
+        EsimBulkProvisioningService bulk = new EsimBulkProvisioningService(esimService, productService,
+            failingRepository, iccidGenerator, qrCodeService, qrImageStore);
+        BulkCreateEsimRequest request = new BulkCreateEsimRequest();
+        request.setItems(Collections.nCopies(4, new CreateEsimRequest()));
+
+        EsimBulkProvisioningService.BulkProvisionResult result = bulk.provision(request);
+
+        List<EsimBulkProvisioningService.BulkProvisionResult.Item> items = result.getItems();
+        assertEquals(List.of(EsimBulkProvisioningService.Outcome.CREATED, EsimBulkProvisioningService.Outcome.CREATED,
+                EsimBulkProvisioningService.Outcome.FAILED, EsimBulkProvisioningService.Outcome.FAILED),
+            items.stream().map(item -> item.outcome()).toList());
+        assertEquals(items.get(1).uid(), esimService.getEsimByIccid(items.get(1).iccid()).getUid());
+        assertEquals("connection reset", items.get(2).error());
+    }
+
+    // A proxy that hands calls to the delegate unless the override returns a value or throws
+    @SuppressWarnings("unchecked")
+    private static <T> T delegating(Class<T> type, T delegate, BiFunction<Method, Object[], Object> override) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            Object overridden = override.apply(method, args);
+            if (overridden != null) {
+                return overridden;
+            }
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+}
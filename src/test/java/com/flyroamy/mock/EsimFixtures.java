@@ -0,0 +1,60 @@
+package com.flyroamy.mock;
+
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.service.EsimService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * eSIMs and usage shared by the storage tests, in memory and on Mongo
+ */
+final class EsimFixtures {
+
+    private EsimFixtures() {
+    }
+
+    /**
+     * An active eSIM with a 1024 MB plan followed by a 3072 MB one
+     */
+    static MockEsim createEsimWithTwoPlans(EsimService esimService, String customerId) {
+        CreateEsimRequest request = new CreateEsimRequest();
+        request.setPlanTypeId("usa_1gb_7d");
+        request.setCustomerId(customerId);
+        MockEsim esim = esimService.createEsim(request);
+        return esimService.attachPlan(esim.getIccid(), "usa_3gb_15d");
+    }
+
+    /**
+     * Report 1 MB of usage {@code reportsPerWriter} times from each of {@code writers} threads, all started together
+     */
+    static void simulateConcurrently(EsimService esimService, String iccid, int writers, int reportsPerWriter)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < reportsPerWriter; r++) {
+                        esimService.simulateUsage(iccid, 1);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.flyroamy.mock;
+
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.service.EsimExpiryService;
+import com.flyroamy.mock.service.EsimService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.flyroamy.mock.EsimFixtures.createEsimWithTwoPlans;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * eSIM creation, status changes and plan expiry, in memory
+ */
+@SpringBootTest(properties = "mock.storage=memory")
+@ActiveProfiles("test")
+class EsimLifecycleTests {
+
+    @Autowired
+    private MockEsimRepository esimRepository;
+
+    @Autowired
+    private EsimService esimService;
+
+    @Autowired
+    private EsimExpiryService expiryService;
+
+    @Test
+    void createdEsimIsFoundByEveryIdentifier() {
+        CreateEsimRequest request = new CreateEsimRequest();
+        request.setPlanTypeId("usa_1gb_7d");
+        request.setCustomerId("customer-1");
+
+        MockEsim created = esimService.createEsim(request);
+
+        assertEquals(created.getId(), esimService.getEsimByIccid(created.getIccid()).getId());
+        assertEquals(created.getId(), esimService.getEsimByIdOrUidOrIccid(created.getUid()).getId());
+        assertEquals(created.getId(), esimService.getEsimByIdOrUidOrIccid(created.getEsimId()).getId());
+        assertTrue(esimRepository.countByStatus("active") > 0);
+    }
+
+    @Test
+    void statusCountersFollowTransitions() {
+        CreateEsimRequest request = new CreateEsimRequest();
+        request.setPlanTypeId("usa_1gb_7d");
+        MockEsim created = esimService.createEsim(request);
+        esimService.deactivateEsim(created.getIccid());
+
+        Map<String, Long> stored = esimRepository.countAllByStatus();
+        Map<String, Long> statistics = esimService.getStatistics();
+        assertEquals(stored.getOrDefault("active", 0L), statistics.get("active"));
+        assertEquals(stored.getOrDefault("deactivated", 0L), statistics.get("deactivated"));
+        assertEquals(esimRepository.count(), statistics.get("total"));
+    }
+
+    @Test
+    void forcedActivationStampsTheDateAndSchedulesExpiry() {
+        CreateEsimRequest request = new CreateEsimRequest();
+        request.setPlanTypeId("usa_1gb_7d");
+        MockEsim esim = esimService.forceStatusChange(esimService.createEsim(request).getIccid(), "provisioned");
+        long scheduled = ((Number) expiryService.getStats().get("scheduled")).longValue();
+
+        MockEsim activated = esimService.forceStatusChange(esim.getIccid(), "active");
+
+        assertEquals("active", activated.getStatus());
+        assertFalse(activated.getActivationDate().isBefore(esim.getActivationDate()));
+        assertEquals(scheduled + 1, ((Number) expiryService.getStats().get("scheduled")).longValue());
+        // Activating an eSIM that is already active keeps its activation date
+        assertEquals(activated.getActivationDate(),
+            esimService.forceStatusChange(esim.getIccid(), "active").getActivationDate());
+    }
+
+    @Test
+    void forcedDeactivationCanBeUndone() {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-usage");
+
+        esimService.forceStatusChange(esim.getIccid(), "deactivated");
+        MockEsim reactivated = esimService.forceStatusChange(esim.getIccid(), "active");
+
+        assertTrue(reactivated.getAttachedPlans().stream().allMatch(plan -> "active".equals(plan.getStatus())));
+        MockEsim used = esimService.simulateUsage(esim.getIccid(), 100);
+        assertEquals(100, used.getTotalDataUsedMB());
+        assertEquals(100, used.getAttachedPlans().get(0).getDataUsedMB());
+
+        // Deactivating through the API still ends the plans
+        MockEsim deactivated = esimService.deactivateEsim(esim.getIccid());
+        assertTrue(deactivated.getAttachedPlans().stream().allMatch(plan -> "deactivated".equals(plan.getStatus())));
+    }
+
+    @Test
+    void onlyDuePlansExpire() {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-usage");
+        esim.getAttachedPlans().get(0).setExpiryDate(LocalDateTime.now().minusMinutes(1));
+        esimRepository.save(esim);
+
+        assertEquals(1, esimRepository.expirePlans(List.of(esim.getId()), LocalDateTime.now()));
+        assertEquals(0, esimRepository.expirePlans(List.of(esim.getId()), LocalDateTime.now()));
+
+        MockEsim updated = esimService.getEsimByIccid(esim.getIccid());
+        assertEquals("expired", updated.getAttachedPlans().get(0).getStatus());
+        assertEquals("active", updated.getAttachedPlans().get(1).getStatus());
+        assertEquals(3072, updated.getTotalDataAllowanceMB());
+    }
+}
@@ -0,0 +1,110 @@
+package com.flyroamy.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.service.EsimIdentifierResolver;
+import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.util.IccidGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "mock.storage=memory")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EsimLookupTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EsimService esimService;
+
+    @Autowired
+    private EsimIdentifierResolver identifierResolver;
+
+    @Autowired
+    private MockEsimRepository esimRepository;
+
+    @Autowired
+    private IccidGenerator iccidGenerator;
+
+    @Test
+    void lookupListsEachIdentifierOnceInRequestOrder() throws Exception {
+        MockEsim first = esimService.createEsim(new CreateEsimRequest());
+        MockEsim second = esimService.createEsim(new CreateEsimRequest());
+        // Shaped like an ICCID, but outside the generated range
+        String unknownIccid = iccidGenerator.generateWithPrefix("8999");
+        List<String> identifiers = List.of(first.getIccid(), second.getUid(), "no-such-esim", first.getUid(),
+            first.getIccid(), unknownIccid, "esim_000000000000");
+
+        MvcResult started = mockMvc.perform(post("/connectivity/v1/esim/lookup")
+                .with(httpBasic("test_key", "test_secret"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("iccids", identifiers))))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // The duplicate ICCID is dropped; the same eSIM by another identifier is listed again
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.esims.length()").value(3))
+            .andExpect(jsonPath("$.esims[0].iccid").value(first.getIccid()))
+            .andExpect(jsonPath("$.esims[1].uid").value(second.getUid()))
+            .andExpect(jsonPath("$.esims[2].iccid").value(first.getIccid()))
+            .andExpect(jsonPath("$.not_found", contains("no-such-esim", unknownIccid, "esim_000000000000")))
+            .andExpect(jsonPath("$.error").doesNotExist());
+    }
+
+    @Test
+    void resolveAllMatchesEveryKindOfIdentifier() {
+        MockEsim esim = esimService.createEsim(new CreateEsimRequest());
+        // Not shaped like any identifier, so only the fallback query across all three fields finds it
+        MockEsim legacy = new MockEsim();
+        legacy.setIccid("legacy-" + System.nanoTime());
+        legacy.setUid("esim_legacy" + System.nanoTime());
+        legacy.setEsimId("maya_legacy" + System.nanoTime());
+        legacy = esimRepository.save(legacy);
+        List<String> identifiers = List.of(esim.getIccid(), esim.getUid(), esim.getEsimId(), esim.getIccid(),
+            legacy.getIccid(), "no-such-esim", iccidGenerator.generateWithPrefix("8999"));
+        identifierResolver.clear();
+
+        // The second round is served from the remembered _ids
+        for (int round = 0; round < 2; round++) {
+            Map<String, MockEsim> resolved = identifierResolver.resolveAll(identifiers);
+
+            assertEquals(Set.of(esim.getIccid(), esim.getUid(), esim.getEsimId(), legacy.getIccid()), resolved.keySet());
+            assertEquals(esim.getId(), resolved.get(esim.getUid()).getId());
+            assertEquals(esim.getId(), resolved.get(esim.getIccid()).getId());
+            assertEquals(legacy.getId(), resolved.get(legacy.getIccid()).getId());
+        }
+
+        // A remembered eSIM that has since been deleted is resolved afresh, and not found
+        esimRepository.deleteById(legacy.getId());
+        assertEquals(Set.of(esim.getIccid(), esim.getUid(), esim.getEsimId()),
+            identifierResolver.resolveAll(identifiers).keySet());
+    }
+}
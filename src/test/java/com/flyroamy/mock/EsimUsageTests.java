@@ -0,0 +1,165 @@
+package com.flyroamy.mock;
+
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.dto.request.SimulateUsageRequest;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.model.UsageBucket;
+import com.flyroamy.mock.repository.UsageBucketRepository;
+import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.service.UsageBatchService;
+import com.flyroamy.mock.service.UsageHistoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.flyroamy.mock.EsimFixtures.createEsimWithTwoPlans;
+import static com.flyroamy.mock.EsimFixtures.simulateConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Usage reports, batches and history, in memory
+ */
+@SpringBootTest(properties = "mock.storage=memory")
+@ActiveProfiles("test")
+class EsimUsageTests {
+
+    @Autowired
+    private EsimService esimService;
+
+    @Autowired
+    private UsageBatchService usageBatchService;
+
+    @Autowired
+    private UsageHistoryService usageHistoryService;
+
+    @Autowired
+    private UsageBucketRepository usageBucketRepository;
+
+    @Test
+    void concurrentUsageIsNotLost() throws Exception {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-usage");
+
+        // 3200 MB: drains the 1024 MB plan and continues into the 3072 MB one
+        simulateConcurrently(esimService, esim.getIccid(), 64, 50);
+
+        MockEsim updated = esimService.getEsimByIccid(esim.getIccid());
+        assertEquals(3200, updated.getTotalDataUsedMB());
+        assertEquals("depleted", updated.getAttachedPlans().get(0).getStatus());
+        assertEquals(1024, updated.getAttachedPlans().get(0).getDataUsedMB());
+        assertEquals(2176, updated.getAttachedPlans().get(1).getDataUsedMB());
+        assertEquals(896, updated.getAttachedPlans().get(1).getRemainingDataMB());
+        assertEquals(3072, updated.getTotalDataAllowanceMB());
+    }
+
+    @Test
+    void updatesDuringUsageDoNotOverwriteIt() throws Exception {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-usage");
+
+        ExecutorService updater = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> updates = updater.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    CreateEsimRequest details = new CreateEsimRequest();
+                    details.setTag("tag-" + i);
+                    esimService.updateEsim(esim.getIccid(), details);
+                }
+                esimService.attachPlan(esim.getIccid(), "usa_1gb_7d");
+                return null;
+            });
+            simulateConcurrently(esimService, esim.getIccid(), 16, 50);
+            updates.get(60, TimeUnit.SECONDS);
+        } finally {
+            updater.shutdownNow();
+        }
+
+        MockEsim updated = esimService.getEsimByIccid(esim.getIccid());
+        assertEquals(800, updated.getTotalDataUsedMB());
+        assertEquals(3, updated.getAttachedPlans().size());
+        assertEquals("tag-199", updated.getTag());
+    }
+
+    @Test
+    void concurrentUsageNeverOverdraws() throws Exception {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-usage");
+
+        // 6400 MB against 4096 MB of plans
+        simulateConcurrently(esimService, esim.getIccid(), 64, 100);
+
+        MockEsim updated = esimService.getEsimByIccid(esim.getIccid());
+        assertEquals(4096, updated.getTotalDataUsedMB());
+        assertEquals(0, updated.getTotalRemainingDataMB());
+        assertTrue(updated.getAttachedPlans().stream().allMatch(plan -> "depleted".equals(plan.getStatus())));
+        assertTrue(updated.getAttachedPlans().stream().allMatch(plan -> plan.getRemainingDataMB() == 0));
+    }
+
+    @Test
+    void batchUsageCoalescesRecordsAcrossIdentifiers() {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-usage");
+
+        UsageBatchService.BatchUsageResult result = usageBatchService.simulateUsage(List.of(
+            usage(esim.getIccid(), 100),
+            usage(esim.getUid(), 50),
+            usage("maya_missing", 10),
+            usage(esim.getEsimId(), 0),
+            usage(esim.getIccid(), 25)));
+
+        assertEquals(3, result.getApplied());
+        assertEquals(1, result.getEsims());
+        assertEquals(List.of(2, 3), result.getFailures().stream().map(UsageBatchService.BatchUsageResult.Failure::index).toList());
+        assertEquals(175, esimService.getEsimByIccid(esim.getIccid()).getTotalDataUsedMB());
+    }
+
+    @Test
+    void usageHistoryIsBucketedAndDownsampled() {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-usage");
+        esimService.simulateUsage(esim.getIccid(), 100);
+        usageBatchService.simulateUsage(List.of(usage(esim.getUid(), 50)));
+        usageBucketRepository.incrementAll(List.of(UsageBucket.hourly(esim, LocalDateTime.now().minusDays(3), 40)));
+
+        assertTrue(usageHistoryService.downsample() >= 1);
+
+        LocalDateTime now = LocalDateTime.now();
+        UsageHistoryService.UsageHistory hourly = usageHistoryService.getUsage(esim, now.minusHours(1), now.plusHours(1), UsageBucket.HOUR);
+        assertEquals(150, hourly.totalDataUsedMB());
+        assertEquals(2, hourly.events());
+
+        UsageHistoryService.UsageHistory daily = usageHistoryService.getUsage(esim, now.minusDays(7), now.plusHours(1), UsageBucket.DAY);
+        assertEquals(190, daily.totalDataUsedMB());
+        assertTrue(daily.buckets().stream().allMatch(bucket -> UsageBucket.DAY.equals(bucket.getGranularity())));
+    }
+
+    @Test
+    void hourlyHistoryLeavesOutDaysPartlyOutsideTheRange() {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-usage");
+        LocalDateTime day = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).minusDays(10);
+        usageBucketRepository.incrementAll(List.of(
+            UsageBucket.hourly(esim, day.plusHours(3), 70).toDaily(),
+            UsageBucket.hourly(esim, day.plusDays(1).plusHours(20), 30).toDaily()));
+
+        assertEquals(100, usageHistoryService.getUsage(esim, day, day.plusDays(2), UsageBucket.HOUR).totalDataUsedMB());
+        // The first day starts before the range, the second ends after it
+        assertEquals(30, usageHistoryService.getUsage(esim, day.plusHours(12), day.plusDays(2), UsageBucket.HOUR)
+            .totalDataUsedMB());
+        assertEquals(70, usageHistoryService.getUsage(esim, day, day.plusDays(1).plusHours(6), UsageBucket.HOUR)
+            .totalDataUsedMB());
+        assertEquals(0, usageHistoryService.getUsage(esim, day.plusHours(1), day.plusHours(23), UsageBucket.HOUR)
+            .buckets().size());
+    }
+
+    private static SimulateUsageRequest usage(String identifier, int usageMB) {
+        SimulateUsageRequest request = new SimulateUsageRequest();
+        request.setEsimId(identifier);
+        request.setUsageMB(usageMB);
+        return request;
+    }
+}
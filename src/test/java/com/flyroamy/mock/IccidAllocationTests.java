@@ -0,0 +1,94 @@
+package com.flyroamy.mock;
+
+import com.flyroamy.mock.repository.IccidSequenceRepository;
+import com.flyroamy.mock.util.IccidGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ICCID blocks leased from the shared sequence, in memory
+ */
+@SpringBootTest(properties = "mock.storage=memory")
+@ActiveProfiles("test")
+class IccidAllocationTests {
+
+    @Autowired
+    private IccidSequenceRepository iccidSequenceRepository;
+
+    @Test
+    void iccidsFromSeparateInstancesNeverCollide() throws Exception {
+        // Two allocators on one sequence stand in for two instances sharing a database
+        IccidGenerator[] instances = {
+            new IccidGenerator(iccidSequenceRepository, 50),
+            new IccidGenerator(iccidSequenceRepository, 50)
+        };
+        Set<String> iccids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                IccidGenerator generator = instances[i % instances.length];
+                results.add(executor.submit(() -> {
+                    for (int n = 0; n < 1000; n++) {
+                        String iccid = generator.generate();
+                        assertTrue(generator.validate(iccid), iccid);
+                        assertTrue(iccids.add(iccid), iccid);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(8000, iccids.size());
+    }
+
+    @Test
+    void nextIccidBlockIsLeasedAheadOfNeed() throws Exception {
+        IccidGenerator generator = new IccidGenerator(iccidSequenceRepository, 10);
+        try {
+            // Nothing leased yet: no ICCID without waiting, but the lease has been started
+            assertTrue(generator.tryGenerate().isEmpty());
+            Set<String> iccids = new HashSet<>();
+            iccids.add(awaitIccid(generator));
+            // The last number of a block starts the lease of the next, so it is at hand when needed
+            for (int i = 0; i < 9; i++) {
+                iccids.add(generator.tryGenerate().orElseThrow());
+            }
+            iccids.add(awaitIccid(generator));
+            assertEquals(11, iccids.size());
+        } finally {
+            generator.destroy();
+        }
+    }
+
+    private static String awaitIccid(IccidGenerator generator) throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            Optional<String> iccid = generator.tryGenerate();
+            if (iccid.isPresent()) {
+                return iccid.get();
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("No ICCID leased ahead");
+    }
+}
@@ -0,0 +1,125 @@
+package com.flyroamy.mock;
+
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.repository.memory.InMemoryEsimRepository;
+import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The in-memory repositories behaving like their Mongo counterparts
+ */
+@SpringBootTest(properties = "mock.storage=memory")
+@ActiveProfiles("test")
+class InMemoryStorageTests {
+
+    @Autowired
+    private MockEsimRepository esimRepository;
+
+    @Autowired
+    private EsimService esimService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void startsWithoutDatabaseAndSeedsCatalog() {
+        assertInstanceOf(InMemoryEsimRepository.class, esimRepository);
+        assertTrue(productService.getProductCount() > 0);
+    }
+
+    @Test
+    void uniqueIndexesRejectDuplicates() {
+        MockEsim first = new MockEsim();
+        first.setIccid("89012345000000000001");
+        esimRepository.save(first);
+
+        MockEsim second = new MockEsim();
+        second.setIccid("89012345000000000001");
+
+        try {
+            assertThrows(DuplicateKeyException.class, () -> esimRepository.save(second));
+        } finally {
+            esimRepository.delete(first);
+        }
+    }
+
+    @Test
+    void uniqueIndexesAdmitOneDocumentWithoutTheKey() {
+        // Like a non-sparse Mongo index, a missing uid is a null key and can occur once
+        MockEsim first = new MockEsim();
+        first.setIccid("89012345000000000002");
+        esimRepository.save(first);
+
+        MockEsim second = new MockEsim();
+        second.setIccid("89012345000000000003");
+
+        try {
+            assertThrows(DuplicateKeyException.class, () -> esimRepository.save(second));
+        } finally {
+            esimRepository.delete(first);
+        }
+    }
+
+    @Test
+    void queryByExampleMatchesProbeProperties() {
+        CreateEsimRequest request = new CreateEsimRequest();
+        request.setPlanTypeId("usa_1gb_7d");
+        request.setCustomerId("customer-example");
+        MockEsim created = esimService.createEsim(request);
+
+        MockEsim probe = new MockEsim();
+        probe.setIccid(created.getIccid().substring(0, 12));
+        ExampleMatcher startingWith = ExampleMatcher.matching()
+            .withIgnoreNullValues()
+            .withIgnorePaths("attachedPlans", "totalDataAllowanceMB", "totalDataUsedMB")
+            .withMatcher("iccid", ExampleMatcher.GenericPropertyMatchers.startsWith());
+        List<MockEsim> matches = esimRepository.findAll(Example.of(probe, startingWith));
+
+        assertTrue(matches.stream().anyMatch(esim -> esim.getUid().equals(created.getUid())));
+        probe.setIccid(created.getIccid());
+        assertEquals(created.getUid(),
+            esimRepository.findBy(Example.of(probe, startingWith), query -> query.oneValue()).getUid());
+    }
+
+    @Test
+    void queryByExampleProjectsToInterfacesAndDtos() {
+        MockEsim created = esimService.createEsim(new CreateEsimRequest());
+        MockEsim probe = new MockEsim();
+        probe.setIccid(created.getIccid());
+        Example<MockEsim> example = Example.of(probe, ExampleMatcher.matching()
+            .withIgnoreNullValues()
+            .withIgnorePaths("attachedPlans", "totalDataAllowanceMB", "totalDataUsedMB"));
+
+        EsimSummary summary = esimRepository.findBy(example, query -> query.as(EsimSummary.class).oneValue());
+        assertEquals(created.getIccid(), summary.getIccid());
+        assertEquals(created.getStatus(), summary.getStatus());
+
+        assertEquals(List.of(new EsimIdentifiers(created.getIccid(), created.getUid())),
+            esimRepository.findBy(example, query -> query.as(EsimIdentifiers.class).all()));
+    }
+
+    interface EsimSummary {
+        String getIccid();
+
+        String getStatus();
+    }
+
+    record EsimIdentifiers(String iccid, String uid) {
+    }
+}
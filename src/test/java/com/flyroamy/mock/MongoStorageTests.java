@@ -0,0 +1,156 @@
+package com.flyroamy.mock;
+
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.service.EsimService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.flyroamy.mock.EsimFixtures.createEsimWithTwoPlans;
+import static com.flyroamy.mock.EsimFixtures.simulateConcurrently;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Mongo-backed repository fragments against a real server
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+class MongoStorageTests {
+
+    @Container
+    @ServiceConnection
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    @Autowired
+    private EsimService esimService;
+
+    @Autowired
+    private MockEsimRepository esimRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void concurrentUsageIsNotLost() throws Exception {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-mongo");
+
+        // 3200 MB: drains the 1024 MB plan and continues into the 3072 MB one
+        simulateConcurrently(esimService, esim.getIccid(), 32, 100);
+
+        MockEsim updated = esimService.getEsimByIccid(esim.getIccid());
+        assertEquals(3200, updated.getTotalDataUsedMB());
+        assertEquals("depleted", updated.getAttachedPlans().get(0).getStatus());
+        assertEquals(1024, updated.getAttachedPlans().get(0).getDataUsedMB());
+        assertEquals(2176, updated.getAttachedPlans().get(1).getDataUsedMB());
+        assertEquals(3072, updated.getTotalDataAllowanceMB());
+    }
+
+    @Test
+    void concurrentUsageNeverOverdraws() throws Exception {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-mongo");
+
+        // 6400 MB against 4096 MB of plans; the last megabytes are raced for and retried
+        simulateConcurrently(esimService, esim.getIccid(), 32, 200);
+
+        MockEsim updated = esimService.getEsimByIccid(esim.getIccid());
+        assertEquals(4096, updated.getTotalDataUsedMB());
+        assertEquals(0, updated.getTotalRemainingDataMB());
+        assertTrue(updated.getAttachedPlans().stream().allMatch(plan -> "depleted".equals(plan.getStatus())));
+    }
+
+    @Test
+    void updatesDuringUsageDoNotOverwriteIt() throws Exception {
+        MockEsim esim = createEsimWithTwoPlans(esimService, "customer-mongo");
+
+        ExecutorService updater = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> updates = updater.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    CreateEsimRequest details = new CreateEsimRequest();
+                    details.setTag("tag-" + i);
+                    esimService.updateEsim(esim.getIccid(), details);
+                }
+                esimService.attachPlan(esim.getIccid(), "usa_1gb_7d");
+                return null;
+            });
+            simulateConcurrently(esimService, esim.getIccid(), 16, 50);
+            updates.get(60, TimeUnit.SECONDS);
+        } finally {
+            updater.shutdownNow();
+        }
+
+        MockEsim updated = esimService.getEsimByIccid(esim.getIccid());
+        assertEquals(800, updated.getTotalDataUsedMB());
+        assertEquals(3, updated.getAttachedPlans().size());
+        assertEquals(4096 + 1024, updated.getTotalDataAllowanceMB());
+        assertEquals("tag-99", updated.getTag());
+    }
+
+    @Test
+    void bulkUsageReportsExactlyTheEsimsItDidNotUpdate() {
+        MockEsim applied = createEsimWithTwoPlans(esimService, "customer-mongo");
+        MockEsim deactivated = createEsimWithTwoPlans(esimService, "customer-mongo");
+        MockEsim deleted = createEsimWithTwoPlans(esimService, "customer-mongo");
+        // Both change after being loaded for the batch
+        esimService.deactivateEsim(deactivated.getIccid());
+        esimService.deleteEsim(deleted.getIccid());
+
+        Set<String> notApplied = esimRepository.applyUsageBulk(List.of(applied, deactivated, deleted),
+            Map.of(applied.getId(), 10, deactivated.getId(), 10, deleted.getId(), 10));
+
+        assertEquals(Set.of(deactivated.getId(), deleted.getId()), notApplied);
+        assertEquals(10, esimService.getEsimByIccid(applied.getIccid()).getTotalDataUsedMB());
+        assertEquals(0, esimService.getEsimByIccid(deactivated.getIccid()).getTotalDataUsedMB());
+        // No stray documents for the deleted eSIM and no batch markers left behind
+        assertFalse(mongoTemplate.exists(Query.query(Criteria.where("_id").is(deleted.getId())), MockEsim.class));
+        assertNoUsageMarkers();
+    }
+
+    @Test
+    void bulkUsageThatFullyAppliesLeavesNoMarkerFields() {
+        MockEsim first = createEsimWithTwoPlans(esimService, "customer-mongo");
+        MockEsim second = createEsimWithTwoPlans(esimService, "customer-mongo");
+
+        // 1100 MB depletes the first plan and moves into the second
+        Set<String> notApplied = esimRepository.applyUsageBulk(List.of(first, second),
+            Map.of(first.getId(), 1100, second.getId(), 10));
+
+        assertEquals(Set.of(), notApplied);
+        MockEsim updated = esimService.getEsimByIccid(first.getIccid());
+        assertEquals(1100, updated.getTotalDataUsedMB());
+        assertEquals("depleted", updated.getAttachedPlans().get(0).getStatus());
+        assertEquals(76, updated.getAttachedPlans().get(1).getDataUsedMB());
+        assertEquals(3072, updated.getTotalDataAllowanceMB());
+        assertEquals(10, esimService.getEsimByIccid(second.getIccid()).getTotalDataUsedMB());
+        assertNoUsageMarkers();
+    }
+
+    private void assertNoUsageMarkers() {
+        assertFalse(mongoTemplate.exists(Query.query(new Criteria().orOperator(
+                Criteria.where("usage_missed").exists(true),
+                Criteria.where("usage_applies").exists(true),
+                Criteria.where("usage_batches").exists(true))),
+            MockEsim.class));
+    }
+}
@@ -0,0 +1,140 @@
+package com.flyroamy.mock;
+
+import com.flyroamy.mock.dto.request.CreateEsimRequest;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.MockEsimRepository;
+import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.service.QrCodeService;
+import com.flyroamy.mock.service.QrImageStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A directory of its own, so another test context holding the default one's lock cannot disable the store
+@SpringBootTest(properties = {"mock.storage=memory",
+    "mock.qr-store.directory=${java.io.tmpdir}/mock-esim-service/qr-code-tests"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QrCodeTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EsimService esimService;
+
+    @Autowired
+    private MockEsimRepository esimRepository;
+
+    @Autowired
+    private QrCodeService qrCodeService;
+
+    @Autowired
+    private QrImageStore qrImageStore;
+
+    @Test
+    void storedImageIsServedWithAStrongEtagAndRevalidated() throws Exception {
+        MockEsim esim = esimService.createEsim(new CreateEsimRequest());
+        QrImageStore.StoredImage stored = awaitStored(esim.getEsimId());
+
+        MvcResult result = mockMvc.perform(get("/qr/" + esim.getEsimId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, stored.etag()))
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+            .andReturn();
+        assertStrong(stored.etag());
+        assertEquals(stored.length(), result.getResponse().getContentAsByteArray().length);
+        assertArrayEquals(qrCodeService.renderQrCode(esim.getQrCodeData()).png(),
+            result.getResponse().getContentAsByteArray());
+
+        mockMvc.perform(get("/qr/" + esim.getEsimId()).header(HttpHeaders.IF_NONE_MATCH, stored.etag()))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, stored.etag()))
+            .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void imageMissingFromTheStoreIsRenderedWithTheSameEtag() throws Exception {
+        MockEsim esim = saveUnrenderedEsim();
+        String etag = qrCodeService.renderQrCode(esim.getQrCodeData()).etag();
+        assertStrong(etag);
+
+        mockMvc.perform(get("/qr/" + esim.getEsimId()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, etag))
+            .andExpect(content().bytes(qrCodeService.renderQrCode(esim.getQrCodeData()).png()));
+
+        MockEsim revalidated = saveUnrenderedEsim();
+        mockMvc.perform(get("/qr/" + revalidated.getEsimId())
+                .header(HttpHeaders.IF_NONE_MATCH, qrCodeService.renderQrCode(revalidated.getQrCodeData()).etag()))
+            .andExpect(status().isNotModified())
+            .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void base64RepresentationHasItsOwnEtag() throws Exception {
+        MockEsim esim = esimService.createEsim(new CreateEsimRequest());
+        String pngEtag = qrCodeService.renderQrCode(esim.getQrCodeData()).etag();
+
+        String etag = mockMvc.perform(get("/qr/" + esim.getEsimId() + "/base64"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertStrong(etag);
+        assertNotEquals(pngEtag, etag);
+        assertTrue(etag.endsWith("-base64\""), etag);
+
+        mockMvc.perform(get("/qr/" + esim.getEsimId() + "/base64").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+        // The PNG's ETag does not validate the base64 body
+        mockMvc.perform(get("/qr/" + esim.getEsimId() + "/base64").header(HttpHeaders.IF_NONE_MATCH, pngEtag))
+            .andExpect(status().isOk());
+    }
+
+    /**
+     * An eSIM saved without going through creation, so its image was never rendered into the store
+     */
+    private MockEsim saveUnrenderedEsim() {
+        long suffix = System.nanoTime();
+        MockEsim esim = new MockEsim();
+        esim.setIccid("unrendered-" + suffix);
+        esim.setUid("esim_unrendered" + suffix);
+        esim.setEsimId("maya_unrendered" + suffix);
+        esim.setQrCodeData("LPA:1$smdp.example.com$" + suffix);
+        esim = esimRepository.save(esim);
+        assertFalse(qrImageStore.find(esim.getEsimId()).isPresent());
+        return esim;
+    }
+
+    private QrImageStore.StoredImage awaitStored(String esimId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        Optional<QrImageStore.StoredImage> stored = qrImageStore.find(esimId);
+        while (stored.isEmpty()) {
+            assertTrue(System.currentTimeMillis() < deadline, "QR image was not stored");
+            Thread.sleep(10);
+            stored = qrImageStore.find(esimId);
+        }
+        return stored.get();
+    }
+
+    private static void assertStrong(String etag) {
+        assertFalse(etag.startsWith("W/"), etag);
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""), etag);
+    }
+}
@@ -0,0 +1,206 @@
+package com.flyroamy.mock;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.flyroamy.mock.controller.EsimController;
+import com.flyroamy.mock.exception.GlobalExceptionHandler;
+import com.flyroamy.mock.repository.ReactiveMockEsimRepository;
+import com.flyroamy.mock.service.EsimBulkProvisioningService;
+import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.service.ProductService;
+import com.flyroamy.mock.service.UsageHistoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The reactive stack against the servlet one: the same requests must give the same
+ * MayaApiResponse bodies. The servlet controller runs standalone on the same beans.
+ */
+@SpringBootTest(properties = {"mock.storage=memory", "spring.main.web-application-type=reactive"})
+@AutoConfigureWebTestClient
+@ActiveProfiles("test")
+class ReactiveStackTests {
+
+    private static final String ESIM = "/connectivity/v1/esim";
+    private static final String PRODUCT = "usa_1gb_7d";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private GlobalExceptionHandler exceptionHandler;
+
+    @MockitoSpyBean
+    private ReactiveMockEsimRepository reactiveEsimRepository;
+
+    @Autowired
+    private EsimService esimService;
+
+    @Autowired
+    private EsimBulkProvisioningService bulkProvisioningService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private UsageHistoryService usageHistoryService;
+
+    private MockMvc servlet;
+
+    @BeforeEach
+    void servletStack() {
+        servlet = MockMvcBuilders
+            .standaloneSetup(new EsimController(esimService, bulkProvisioningService, productService,
+                usageHistoryService, objectMapper))
+            .setControllerAdvice(exceptionHandler)
+            .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+            .build();
+    }
+
+    @Test
+    void createdEsimAndItsPlansReadTheSameOnBothStacks() throws Exception {
+        JsonNode created = body(webTestClient.post().uri(ESIM)
+            .headers(this::authenticate)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"plan_type_id\":\"" + PRODUCT + "\",\"tag\":\"reactive\"}")
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody().returnResult().getResponseBody());
+        String iccid = created.get("esim").get("iccid").asText();
+
+        JsonNode esim = body(webTestClient.get().uri(ESIM + "/" + iccid)
+            .headers(this::authenticate)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().returnResult().getResponseBody());
+        assertEquals(created.get("esim"), esim.get("esim"));
+        assertEquals(body(servlet.perform(get(ESIM + "/" + iccid))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray()), esim);
+
+        JsonNode plans = body(webTestClient.get().uri(ESIM + "/" + iccid + "/plans")
+            .headers(this::authenticate)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().returnResult().getResponseBody());
+        assertEquals(1, plans.get("plans").size());
+        assertEquals(created.get("plan"), plans.get("plans").get(0));
+        assertEquals(body(servlet.perform(get(ESIM + "/" + iccid + "/plans"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray()), plans);
+    }
+
+    @Test
+    void attachRetriesWhenTheStatusChangesUnderIt() throws IOException {
+        String iccid = createEsim();
+        // The first status-guarded append finds the status changed
+        doReturn(Mono.empty()).doCallRealMethod()
+            .when(reactiveEsimRepository).attachPlan(any(), any(), any(), anyBoolean());
+
+        JsonNode attached = body(webTestClient.post().uri(ESIM + "/" + iccid + "/plan/" + PRODUCT)
+            .headers(this::authenticate)
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody().returnResult().getResponseBody());
+
+        assertEquals(iccid, attached.get("iccid").asText());
+        verify(reactiveEsimRepository, times(2)).attachPlan(any(), any(), any(), anyBoolean());
+        assertEquals(1, esimService.getEsimByIccid(iccid).getAttachedPlans().size());
+    }
+
+    @Test
+    void attachThatKeepsLosingTheRaceIsAConflict() throws IOException {
+        String iccid = createEsim();
+        doReturn(Mono.empty()).when(reactiveEsimRepository).attachPlan(any(), any(), any(), anyBoolean());
+
+        JsonNode conflict = body(webTestClient.post().uri(ESIM + "/" + iccid + "/plan/" + PRODUCT)
+            .headers(this::authenticate)
+            .exchange()
+            .expectStatus().isEqualTo(409)
+            .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1")
+            .expectBody().returnResult().getResponseBody());
+
+        // What the servlet stack's @ExceptionHandler sends for the same failure
+        JsonNode expected = withoutRequestId(objectMapper.valueToTree(
+            exceptionHandler.handle(new OptimisticLockingFailureException("lost")).getBody()));
+        assertEquals(expected, conflict);
+        assertEquals(0, esimService.getEsimByIccid(iccid).getAttachedPlans().size());
+    }
+
+    @Test
+    void errorsMapToTheSameResponsesAsOnTheServletStack() throws Exception {
+        JsonNode missingEsim = body(webTestClient.get().uri(ESIM + "/8999000000000000000")
+            .headers(this::authenticate)
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody().returnResult().getResponseBody());
+        assertEquals(body(servlet.perform(get(ESIM + "/8999000000000000000"))
+            .andExpect(status().isNotFound())
+            .andReturn().getResponse().getContentAsByteArray()), missingEsim);
+
+        String iccid = createEsim();
+        JsonNode missingProduct = body(webTestClient.post().uri(ESIM + "/" + iccid + "/plan/no-such-product")
+            .headers(this::authenticate)
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody().returnResult().getResponseBody());
+        assertEquals(body(servlet.perform(post(ESIM + "/" + iccid + "/plan/no-such-product"))
+            .andExpect(status().isNotFound())
+            .andReturn().getResponse().getContentAsByteArray()), missingProduct);
+    }
+
+    private String createEsim() throws IOException {
+        JsonNode created = body(webTestClient.post().uri(ESIM)
+            .headers(this::authenticate)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{}")
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody().returnResult().getResponseBody());
+        return created.get("esim").get("iccid").asText();
+    }
+
+    private void authenticate(HttpHeaders headers) {
+        headers.setBasicAuth("test_key", "test_secret");
+    }
+
+    private JsonNode body(byte[] json) throws IOException {
+        return withoutRequestId(objectMapper.readTree(json));
+    }
+
+    // Random per response
+    private static JsonNode withoutRequestId(JsonNode response) {
+        ((ObjectNode) response).remove("request_id");
+        return response;
+    }
+}
@@ -0,0 +1,152 @@
+package com.flyroamy.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.controller.AdminController;
+import com.flyroamy.mock.repository.MockProductRepository;
+import com.flyroamy.mock.service.DataSeederService;
+import com.flyroamy.mock.service.EsimExpiryService;
+import com.flyroamy.mock.service.EsimService;
+import com.flyroamy.mock.service.EsimStatusCounters;
+import com.flyroamy.mock.service.ProductService;
+import com.flyroamy.mock.service.QrCodeService;
+import com.flyroamy.mock.service.ReadinessMonitor;
+import com.flyroamy.mock.service.ThreadPinningMonitor;
+import com.flyroamy.mock.service.TrafficGeneratorService;
+import com.flyroamy.mock.service.UsageBatchService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"mock.storage=memory",
+    "mock.readiness.refresh-interval-ms=100", "mock.readiness.max-age-ms=500"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReadinessTests {
+
+    private static final String HEALTH = "/v1/admin/health";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReadinessMonitor readinessMonitor;
+
+    @Autowired
+    private ProductService productService;
+
+    @MockitoSpyBean
+    private MockProductRepository productRepository;
+
+    @Test
+    void readyOnceASnapshotSawTheDatabase() throws Exception {
+        await(readinessMonitor::isReady, "never became ready");
+
+        mockMvc.perform(get(HEALTH + "/ready"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("READY"))
+            .andExpect(jsonPath("$.database.type").value("memory"))
+            .andExpect(jsonPath("$.database.status").value("UP"))
+            .andExpect(jsonPath("$.products").value(greaterThan(0)));
+    }
+
+    @Test
+    void notReadyUntilTheFirstSnapshot() throws Exception {
+        // Not yet started, as before ApplicationReadyEvent
+        ReadinessMonitor starting = new ReadinessMonitor(context.getBeanProvider(MongoTemplate.class),
+            productService, 100, 500, false);
+        try {
+            MockMvc adminApi = MockMvcBuilders.standaloneSetup(adminController(starting))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+
+            adminApi.perform(get(HEALTH + "/ready"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("STARTING"));
+
+            starting.start();
+            await(starting::isReady, "first snapshot was not taken");
+            adminApi.perform(get(HEALTH + "/ready"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("READY"));
+        } finally {
+            starting.destroy();
+        }
+    }
+
+    @Test
+    void snapshotStuckOnAnUnresponsiveDatabaseAgesOut() throws Exception {
+        await(readinessMonitor::isReady, "never became ready");
+        CountDownLatch unresponsive = new CountDownLatch(1);
+        CountDownLatch refreshStuck = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            refreshStuck.countDown();
+            unresponsive.await();
+            return invocation.callRealMethod();
+        }).when(productRepository).count();
+
+        try {
+            assertTrue(refreshStuck.await(5, TimeUnit.SECONDS), "refresh did not run");
+            int calls = Mockito.mockingDetails(productRepository).getInvocations().size();
+
+            // Liveness answers at once and never asks the database
+            mockMvc.perform(get(HEALTH))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("UP"));
+
+            await(() -> !readinessMonitor.isReady(), "stale snapshot still counted as ready");
+            mockMvc.perform(get(HEALTH + "/ready"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.status").value("NOT_READY"))
+                .andExpect(jsonPath("$.database.status").value("UP"))
+                .andExpect(jsonPath("$.snapshotAgeMs").value(greaterThan(500)));
+
+            assertEquals(calls, Mockito.mockingDetails(productRepository).getInvocations().size());
+        } finally {
+            unresponsive.countDown();
+        }
+        await(readinessMonitor::isReady, "did not recover once the database answered");
+    }
+
+    private AdminController adminController(ReadinessMonitor monitor) {
+        return new AdminController(context.getBean(EsimService.class), productService,
+            context.getBean(DataSeederService.class), context.getBean(QrCodeService.class),
+            context.getBean(UsageBatchService.class), context.getBean(TrafficGeneratorService.class),
+            context.getBean(EsimExpiryService.class), context.getBean(ThreadPinningMonitor.class),
+            context.getBean(EsimStatusCounters.class), monitor);
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, message);
+            Thread.sleep(10);
+        }
+    }
+}
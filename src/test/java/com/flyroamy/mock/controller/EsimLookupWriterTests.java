@@ -0,0 +1,83 @@
+package com.flyroamy.mock.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.service.EsimService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EsimLookupWriterTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writesEveryChunkThenNotFound() throws Exception {
+        JsonNode body = write(EsimLookupWriter.start(Stream.of(
+            new EsimService.LookupChunk(List.of(esim("esim_a")), List.of("missing-1")),
+            new EsimService.LookupChunk(List.of(esim("esim_b")), List.of("missing-2")))));
+
+        assertEquals(200, body.get("status").asInt());
+        assertEquals(2, body.get("esims").size());
+        assertEquals("esim_b", body.get("esims").get(1).get("uid").asText());
+        assertEquals("[\"missing-1\",\"missing-2\"]", body.get("not_found").toString());
+        assertFalse(body.has("error"));
+    }
+
+    @Test
+    void firstChunkFailsBeforeAnythingIsWritten() {
+        Stream<EsimService.LookupChunk> chunks = Stream.of(1).map(chunk -> {
+            throw new IllegalStateException("database down");
+        });
+
+        assertThrows(IllegalStateException.class, () -> EsimLookupWriter.start(chunks));
+    }
+
+    @Test
+    void laterChunkFailureEndsTheBodyWithAnError() throws Exception {
+        Stream<EsimService.LookupChunk> chunks = Stream.of(1, 2).map(chunk -> {
+            if (chunk == 2) {
+                throw new IllegalStateException("database down");
+            }
+            return new EsimService.LookupChunk(List.of(esim("esim_a")), List.of("missing"));
+        });
+
+        JsonNode body = write(EsimLookupWriter.start(chunks));
+
+        assertEquals(1, body.get("esims").size());
+        assertFalse(body.has("not_found"));
+        assertEquals(500, body.get("error").get("status").asInt());
+        assertTrue(body.get("error").get("developer_message").asText().contains("first 1"));
+    }
+
+    @Test
+    void emptyLookupWritesEmptyLists() throws Exception {
+        JsonNode body = write(EsimLookupWriter.start(Stream.empty()));
+
+        assertEquals(0, body.get("esims").size());
+        assertEquals(0, body.get("not_found").size());
+    }
+
+    private JsonNode write(Iterator<EsimService.LookupChunk> chunks) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        EsimLookupWriter.write(output, objectMapper, chunks);
+        // Always a complete JSON document
+        return objectMapper.readTree(output.toByteArray());
+    }
+
+    private static MockEsim esim(String uid) {
+        MockEsim esim = new MockEsim();
+        esim.setUid(uid);
+        esim.setIccid("8901234500000000000" + uid.length());
+        return esim;
+    }
+}
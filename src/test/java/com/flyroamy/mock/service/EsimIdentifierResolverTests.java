@@ -0,0 +1,191 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.memory.InMemoryEsimRepository;
+import com.flyroamy.mock.repository.memory.InMemoryIccidSequenceRepository;
+import com.flyroamy.mock.service.EsimIdentifierResolver.IdentifierType;
+import com.flyroamy.mock.util.IccidGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class EsimIdentifierResolverTests {
+
+    private final IccidGenerator iccidGenerator = new IccidGenerator(new InMemoryIccidSequenceRepository(), 10);
+    private final RecordingEsimRepository esimRepository = new RecordingEsimRepository();
+    private final EsimIdentifierResolver resolver = new EsimIdentifierResolver(esimRepository, iccidGenerator);
+
+    @AfterEach
+    void stopLeaser() {
+        iccidGenerator.destroy();
+    }
+
+    @Test
+    void identifiersAreClassifiedByPrefixAndShape() {
+        String iccid = iccidGenerator.generate();
+
+        assertEquals(IdentifierType.ESIM_ID, resolver.classify("maya_abc123"));
+        assertEquals(IdentifierType.UID, resolver.classify("esim_abc123"));
+        assertEquals(IdentifierType.ICCID, resolver.classify(iccid));
+        assertEquals(IdentifierType.UNKNOWN, resolver.classify(withWrongCheckDigit(iccid)));
+        assertEquals(IdentifierType.UNKNOWN, resolver.classify(iccid.substring(0, 10) + "A" + iccid.substring(11)));
+        assertEquals(IdentifierType.UNKNOWN, resolver.classify(iccid.substring(1)));
+        assertEquals(IdentifierType.UNKNOWN, resolver.classify(iccid + "0"));
+        assertEquals(IdentifierType.UNKNOWN, resolver.classify("legacy-42"));
+        assertEquals(IdentifierType.UNKNOWN, resolver.classify(null));
+    }
+
+    @Test
+    void eachShapeIsResolvedOnItsOwnFieldThenByPrimaryKey() {
+        MockEsim esim = save("maya_1", "esim_1", iccidGenerator.generate());
+
+        assertEquals(esim.getId(), resolver.resolve("maya_1").orElseThrow().getId());
+        assertEquals(esim.getId(), resolver.resolve("esim_1").orElseThrow().getId());
+        assertEquals(esim.getId(), resolver.resolve(esim.getIccid()).orElseThrow().getId());
+        assertEquals(List.of("esimId", "uid", "iccid"), esimRepository.queries);
+
+        esimRepository.queries.clear();
+        assertEquals(esim.getId(), resolver.resolve("maya_1").orElseThrow().getId());
+        assertEquals(List.of("_id"), esimRepository.queries);
+    }
+
+    @Test
+    void ambiguousIdentifierFallsBackToTheOrQuery() {
+        // Imported before ICCIDs were generated here, so it fails the Luhn check
+        String legacyIccid = withWrongCheckDigit(iccidGenerator.generate());
+        MockEsim esim = save("maya_2", "esim_2", legacyIccid);
+
+        assertEquals(esim.getId(), resolver.resolve(legacyIccid).orElseThrow().getId());
+        assertFalse(resolver.resolve("legacy-42").isPresent());
+        assertEquals(List.of("any", "any"), esimRepository.queries);
+
+        // In a batch, the fields each match came from map it back to its identifier
+        Map<String, MockEsim> resolved = new EsimIdentifierResolver(esimRepository, iccidGenerator)
+            .resolveAll(List.of(legacyIccid, "legacy-42"));
+        assertEquals(List.of(legacyIccid), List.copyOf(resolved.keySet()));
+        assertEquals(esim.getId(), resolved.get(legacyIccid).getId());
+    }
+
+    @Test
+    void rememberedIdentifiersAreCapped() {
+        List<MockEsim> esims = new ArrayList<>();
+        for (int i = 0; i <= 50_000; i++) {
+            esims.add(esim("maya_cap" + i, "esim_cap" + i, null));
+        }
+        List<String> esimIds = esimRepository.saveAll(esims).stream().map(MockEsim::getEsimId).toList();
+
+        assertEquals(esimIds.size(), resolver.resolveAll(esimIds).size());
+        esimRepository.queries.clear();
+        assertEquals(esimIds.size(), resolver.resolveAll(esimIds).size());
+
+        // One identifier was forgotten to make room, so it is looked up on its field again
+        assertEquals(List.of("_id:50000", "esimId:1"), esimRepository.queries);
+    }
+
+    @Test
+    void evictForgetsEveryIdentifierOfADeletedEsim() {
+        MockEsim esim = save("maya_3", "esim_3", iccidGenerator.generate());
+        resolver.resolve("maya_3");
+        resolver.resolve("esim_3");
+        resolver.resolve(esim.getIccid());
+
+        esimRepository.deleteByEsimId("maya_3");
+        resolver.evict(esim);
+        esimRepository.queries.clear();
+
+        assertFalse(resolver.resolve("maya_3").isPresent());
+        assertFalse(resolver.resolve("esim_3").isPresent());
+        assertFalse(resolver.resolve(esim.getIccid()).isPresent());
+        assertEquals(List.of("esimId", "uid", "iccid"), esimRepository.queries);
+    }
+
+    @Test
+    void staleRememberedIdentifierIsResolvedAfresh() {
+        save("maya_4", "esim_4", iccidGenerator.generate());
+        resolver.resolve("maya_4");
+        esimRepository.deleteByEsimId("maya_4");
+        esimRepository.queries.clear();
+
+        assertFalse(resolver.resolve("maya_4").isPresent());
+        assertFalse(resolver.resolve("maya_4").isPresent());
+        assertEquals(List.of("_id", "esimId", "esimId"), esimRepository.queries);
+    }
+
+    private MockEsim save(String esimId, String uid, String iccid) {
+        MockEsim esim = esimRepository.save(esim(esimId, uid, iccid));
+        esimRepository.queries.clear();
+        return esim;
+    }
+
+    private static MockEsim esim(String esimId, String uid, String iccid) {
+        MockEsim esim = new MockEsim();
+        esim.setEsimId(esimId);
+        esim.setUid(uid);
+        esim.setIccid(iccid != null ? iccid : uid.replace("esim_", "iccid_"));
+        return esim;
+    }
+
+    private static String withWrongCheckDigit(String iccid) {
+        int checkDigit = iccid.charAt(iccid.length() - 1) - '0';
+        return iccid.substring(0, iccid.length() - 1) + (checkDigit + 1) % 10;
+    }
+
+    /**
+     * Records which field each lookup queried; batch lookups also record how many values they carried
+     */
+    private static class RecordingEsimRepository extends InMemoryEsimRepository {
+
+        private final List<String> queries = new ArrayList<>();
+
+        @Override
+        public Optional<MockEsim> findById(String id) {
+            queries.add("_id");
+            return super.findById(id);
+        }
+
+        @Override
+        public List<MockEsim> findAllById(Iterable<String> ids) {
+            List<MockEsim> found = super.findAllById(ids);
+            queries.add("_id:" + found.size());
+            return found;
+        }
+
+        @Override
+        public Optional<MockEsim> findByEsimId(String esimId) {
+            queries.add("esimId");
+            return super.findByEsimId(esimId);
+        }
+
+        @Override
+        public Optional<MockEsim> findByUid(String uid) {
+            queries.add("uid");
+            return super.findByUid(uid);
+        }
+
+        @Override
+        public Optional<MockEsim> findByIccid(String iccid) {
+            queries.add("iccid");
+            return super.findByIccid(iccid);
+        }
+
+        @Override
+        public Optional<MockEsim> findByAnyIdentifier(String identifier) {
+            queries.add("any");
+            return super.findByAnyIdentifier(identifier);
+        }
+
+        @Override
+        public List<MockEsim> findByEsimIdIn(Collection<String> esimIds) {
+            queries.add("esimId:" + esimIds.size());
+            return super.findByEsimIdIn(esimIds);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.flyroamy.mock.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.dto.request.BulkProductUploadRequest;
+import com.flyroamy.mock.dto.request.BulkProductUploadRequest.ProductUploadItem;
+import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.repository.memory.InMemoryProductRepository;
+import com.flyroamy.mock.service.ProductBulkUploadService.BulkUploadResult;
+import com.flyroamy.mock.service.ProductBulkUploadService.UploadFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductBulkUploadServiceTests {
+
+    private final InMemoryProductRepository repository = new InMemoryProductRepository();
+    private final ProductCatalogCache catalogCache = new ProductCatalogCache(repository);
+    private final ProductBulkUploadService service =
+        new ProductBulkUploadService(repository, catalogCache, new ObjectMapper());
+
+    @Test
+    void ndjsonRowsAreCreatedThenUpdated() {
+        BulkUploadResult result = upload(UploadFormat.NDJSON, """
+            {"productId":"p1","name":"US 1GB","countries":"us","data":1,"days":7,"price":4.5}
+            {"productId":"p2","name":"EU 3GB","countriesEnabled":["fr","de"],"dataQuotaMb":3072,"validityDays":30}
+
+            {"productId":"p1","name":"US 1GB","countries":"us","data":1,"days":14,"unknownColumn":"ignored"}
+            """);
+
+        assertTrue(result.isSuccess(), result.getErrors().toString());
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        MockProduct updated = repository.findByProductId("p1").orElseThrow();
+        assertEquals(Integer.valueOf(1024), updated.getDataQuotaMb());
+        assertEquals(Integer.valueOf(14), updated.getValidityDays());
+        assertEquals(Double.valueOf(4.5), updated.getRrpUsd());
+        assertEquals("regional", repository.findByProductId("p2").orElseThrow().getPackageType());
+        assertEquals(Integer.valueOf(14), catalogCache.findByProductId("p1").orElseThrow().getValidityDays());
+    }
+
+    @Test
+    void csvHeadersMatchCaseInsensitivelyAndBlankCellsAreMissing() {
+        BulkUploadResult result = upload(UploadFormat.CSV, """
+            PRODUCTID,Name,Data,DAYS,price,Countries,Description,rrpEur
+            p1,US 1GB,1,7,4.5,us,,
+            p2, EU 2GB ,2,30,,"fr, de",Two countries,9.99
+            """);
+
+        assertTrue(result.isSuccess(), result.getErrors().toString());
+        assertEquals(2, result.getCreated());
+        MockProduct us = repository.findByProductId("p1").orElseThrow();
+        assertEquals("US 1GB", us.getName());
+        assertEquals(Integer.valueOf(1024), us.getDataQuotaMb());
+        assertEquals(Integer.valueOf(7), us.getValidityDays());
+        assertNull(us.getDescription());
+        assertNull(us.getRrpEur());
+        MockProduct eu = repository.findByProductId("p2").orElseThrow();
+        assertEquals("EU 2GB", eu.getName());
+        assertEquals(List.of("fr", "de"), eu.getCountriesEnabled());
+        assertNull(eu.getRrpUsd());
+        assertEquals(Double.valueOf(9.99), eu.getRrpEur());
+    }
+
+    @Test
+    void rowThatFailsToBindIsReportedInRowOrder() {
+        BulkUploadResult result = upload(UploadFormat.NDJSON, """
+            {"productId":"p1","data":1,"days":7}
+            {"productId":"p2","name":"Bad","dataQuotaMb":"lots","validityDays":7}
+            {"productId":"p3","name":"Good","data":1,"days":7}
+            {"productId":"p4","name":"No days","data":1}
+            """);
+
+        assertEquals(1, result.getCreated());
+        assertEquals(3, result.getErrors().size(), result.getErrors().toString());
+        assertEquals("Row 1: name is required", result.getErrors().get(0));
+        assertTrue(result.getErrors().get(1).startsWith("Row 2: "), result.getErrors().get(1));
+        assertEquals("Row 4: validityDays (or days) is required and must be positive", result.getErrors().get(2));
+        assertTrue(repository.findByProductId("p3").isPresent());
+        assertFalse(repository.findByProductId("p2").isPresent());
+    }
+
+    @Test
+    void rowNumbersStayAlignedAcrossChunks() {
+        StringBuilder ndjson = new StringBuilder();
+        int rows = ProductBulkUploadService.CHUNK_SIZE + 2;
+        for (int row = 1; row <= rows; row++) {
+            if (row == ProductBulkUploadService.CHUNK_SIZE || row == rows - 1) {
+                ndjson.append("{\"productId\":\"p").append(row).append("\",\"name\":\"Bad\",\"days\":\"never\"}\n");
+            } else {
+                ndjson.append("{\"productId\":\"p").append(row).append("\",\"name\":\"Plan\",\"data\":1,\"days\":7}\n");
+            }
+        }
+
+        BulkUploadResult result = upload(UploadFormat.NDJSON, ndjson.toString());
+
+        assertEquals(rows - 2, result.getCreated());
+        assertEquals(2, result.getErrors().size(), result.getErrors().toString());
+        assertTrue(result.getErrors().get(0).startsWith("Row " + ProductBulkUploadService.CHUNK_SIZE + ": "));
+        assertTrue(result.getErrors().get(1).startsWith("Row " + (rows - 1) + ": "));
+        assertTrue(repository.findByProductId("p" + rows).isPresent());
+    }
+
+    @Test
+    void truncatedInputStopsTheUploadAndKeepsEarlierRows() {
+        BulkUploadResult result = upload(UploadFormat.NDJSON, """
+            {"productId":"p1","name":"First","data":1,"days":7}
+            {"productId":"p2","name":"No data","days":7}
+            {"productId":"p3","name":"Cut""");
+
+        assertEquals(1, result.getCreated());
+        assertEquals(2, result.getErrors().size(), result.getErrors().toString());
+        assertTrue(result.getErrors().get(0).startsWith("Row 2: "));
+        assertTrue(result.getErrors().get(1).startsWith("Row 3: malformed ndjson input, upload stopped"),
+            result.getErrors().get(1));
+        assertTrue(repository.findByProductId("p1").isPresent());
+        assertTrue(catalogCache.findByProductId("p1").isPresent());
+    }
+
+    @Test
+    void malformedInputStopsTheUploadAtTheBadRow() {
+        BulkUploadResult result = upload(UploadFormat.NDJSON, """
+            {"productId":"p1","name":"First","data":1,"days":7}
+            {"productId":"p2" "name":"Missing comma","data":1,"days":7}
+            {"productId":"p3","name":"Never read","data":1,"days":7}
+            """);
+
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getErrors().size(), result.getErrors().toString());
+        assertTrue(result.getErrors().get(0).startsWith("Row 2: malformed ndjson input, upload stopped"));
+        assertTrue(repository.findByProductId("p1").isPresent());
+        assertFalse(repository.findByProductId("p3").isPresent());
+    }
+
+    @Test
+    void repeatedProductIdInAChunkIsCreatedThenUpdated() {
+        BulkUploadResult result = service.processBulkUpload(request(
+            item("p1", 7), item("p2", 7), item("p1", 14), item("p1", 30)));
+
+        assertTrue(result.isSuccess(), result.getErrors().toString());
+        assertEquals(2, result.getCreated());
+        assertEquals(2, result.getUpdated());
+        assertEquals(2, repository.count());
+        assertEquals(Integer.valueOf(30), repository.findByProductId("p1").orElseThrow().getValidityDays());
+    }
+
+    @Test
+    void updateReachesAProductCreatedInAnEarlierChunk() {
+        List<ProductUploadItem> items = new ArrayList<>();
+        for (int row = 1; row <= ProductBulkUploadService.CHUNK_SIZE; row++) {
+            items.add(item("p" + row, 7));
+        }
+        items.add(item("p1", 14));
+
+        BulkUploadResult result = service.processBulkUpload(request(items.toArray(ProductUploadItem[]::new)));
+
+        assertTrue(result.isSuccess(), result.getErrors().toString());
+        assertEquals(ProductBulkUploadService.CHUNK_SIZE, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        assertEquals(ProductBulkUploadService.CHUNK_SIZE, repository.count());
+        assertEquals(Integer.valueOf(14), repository.findByProductId("p1").orElseThrow().getValidityDays());
+    }
+
+    @Test
+    void failedWriteIsReportedOnEveryRowOfThatProduct() {
+        FailingProductRepository failing = new FailingProductRepository("p2");
+        ProductCatalogCache cache = new ProductCatalogCache(failing);
+        ProductBulkUploadService uploads = new ProductBulkUploadService(failing, cache, new ObjectMapper());
+        // Load the catalog so the upload's writes are put into it rather than read later
+        assertTrue(cache.findActiveByCountry("us").isEmpty());
+
+        BulkUploadResult result = uploads.processBulkUpload(request(
+            item("p1", 7), item("p2", 7), item("p3", 7), item("p2", 14)));
+
+        assertEquals(2, result.getCreated());
+        assertEquals(List.of("Row 2: write rejected", "Row 4: write rejected"), result.getErrors());
+        assertFalse(failing.findByProductId("p2").isPresent());
+        // Only the written products reach the catalog
+        assertEquals(List.of("p1", "p3"), cache.findActiveByCountry("us").stream()
+            .map(MockProduct::getProductId)
+            .toList());
+    }
+
+    private BulkUploadResult upload(UploadFormat format, String body) {
+        return service.processStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), format);
+    }
+
+    private static BulkProductUploadRequest request(ProductUploadItem... items) {
+        BulkProductUploadRequest request = new BulkProductUploadRequest();
+        request.setProducts(List.of(items));
+        return request;
+    }
+
+    private static ProductUploadItem item(String productId, int days) {
+        ProductUploadItem item = new ProductUploadItem();
+        item.setProductId(productId);
+        item.setName("Plan " + productId);
+        item.setCountries("us");
+        item.setData(1.0);
+        item.setDays(days);
+        return item;
+    }
+
+    /**
+     * Rejects the bulk write of the given productIds, as a failed bulk upsert would.
+     */
+    private static class FailingProductRepository extends InMemoryProductRepository {
+
+        private final String rejectedProductId;
+
+        FailingProductRepository(String rejectedProductId) {
+            this.rejectedProductId = rejectedProductId;
+        }
+
+        @Override
+        public Map<Integer, String> bulkUpsertByProductId(List<MockProduct> products) {
+            List<MockProduct> accepted = new ArrayList<>();
+            List<Integer> acceptedIndexes = new ArrayList<>();
+            Map<Integer, String> errors = new LinkedHashMap<>();
+            for (int i = 0; i < products.size(); i++) {
+                if (rejectedProductId.equals(products.get(i).getProductId())) {
+                    errors.put(i, "write rejected");
+                } else {
+                    accepted.add(products.get(i));
+                    acceptedIndexes.add(i);
+                }
+            }
+            super.bulkUpsertByProductId(accepted)
+                .forEach((index, error) -> errors.put(acceptedIndexes.get(index), error));
+            return errors;
+        }
+    }
+}
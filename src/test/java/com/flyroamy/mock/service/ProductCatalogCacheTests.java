@@ -0,0 +1,114 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.model.MockProduct;
+import com.flyroamy.mock.repository.memory.InMemoryProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductCatalogCacheTests {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    @Test
+    void writesSwapInANewSnapshotWithoutChangingTheOldOne() {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        repository.save(product("p1", "US", 10.0, T0));
+        ProductCatalogCache cache = new ProductCatalogCache(repository);
+
+        List<MockProduct> before = cache.findActiveByCountry("US");
+        cache.put(product("p2", "US", 5.0, T0));
+
+        assertEquals(List.of("p1"), ids(before));
+        assertEquals(List.of("p2", "p1"), ids(cache.findActiveByCountry("US")));
+        assertTrue(cache.findByProductId("p2").isPresent());
+    }
+
+    @Test
+    void countryIndexIsSortedByPriceWithMissingPricesFirst() {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        repository.save(product("expensive", "FR", 30.0, T0));
+        repository.save(product("cheap", "FR", 3.0, T0));
+        repository.save(product("unpriced", "FR", null, T0));
+        MockProduct inactive = product("inactive", "FR", 1.0, T0);
+        inactive.setActive(false);
+        repository.save(inactive);
+        ProductCatalogCache cache = new ProductCatalogCache(repository);
+
+        assertEquals(List.of("unpriced", "cheap", "expensive"), ids(cache.findActiveByCountry("FR")));
+
+        // Moving a product to another country and price re-sorts both lists
+        cache.put(product("cheap", "DE", 50.0, T0.plusMinutes(1)));
+        assertEquals(List.of("unpriced", "expensive"), ids(cache.findActiveByCountry("FR")));
+        assertEquals(List.of("cheap"), ids(cache.findActiveByCountry("DE")));
+    }
+
+    @Test
+    void olderWriteDoesNotReplaceANewerOne() {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        repository.save(product("p1", "US", 10.0, T0));
+        ProductCatalogCache cache = new ProductCatalogCache(repository);
+
+        cache.put(product("p1", "US", 20.0, T0.plusMinutes(2)));
+        // A writer that saved earlier reaches the cache last
+        cache.put(product("p1", "US", 15.0, T0.plusMinutes(1)));
+
+        assertEquals(Double.valueOf(20.0), cache.findByProductId("p1").orElseThrow().getPrice());
+    }
+
+    @Test
+    void readThroughDoesNotUndoAWriteMadeDuringTheMiss() {
+        MockProduct newer = product("p1", "US", 20.0, T0.plusMinutes(1));
+        ProductCatalogCache[] cache = new ProductCatalogCache[1];
+        InMemoryProductRepository repository = new InMemoryProductRepository() {
+            @Override
+            public Optional<MockProduct> findByProductId(String productId) {
+                Optional<MockProduct> found = super.findByProductId(productId);
+                // A write lands between the repository read and the snapshot swap
+                cache[0].put(newer);
+                return found;
+            }
+        };
+        cache[0] = new ProductCatalogCache(repository);
+        cache[0].findActiveByCountry("US");
+        repository.save(product("p1", "US", 10.0, T0));
+
+        assertEquals(Double.valueOf(10.0), cache[0].findByProductId("p1").orElseThrow().getPrice());
+        assertSame(newer, cache[0].findByProductId("p1").orElseThrow());
+    }
+
+    @Test
+    void refreshReplacesTheSnapshotWithTheRepository() {
+        InMemoryProductRepository repository = new InMemoryProductRepository();
+        repository.save(product("p1", "US", 10.0, T0));
+        ProductCatalogCache cache = new ProductCatalogCache(repository);
+        cache.findActiveByCountry("US");
+
+        // Written behind the cache's back
+        repository.save(product("p2", "US", 5.0, T0));
+        repository.deleteByProductId("p1");
+        cache.refresh();
+
+        assertEquals(List.of("p2"), ids(cache.findActiveByCountry("US")));
+    }
+
+    private static MockProduct product(String productId, String country, Double price, LocalDateTime updatedAt) {
+        MockProduct product = new MockProduct();
+        product.setProductId(productId);
+        product.setUid("uid_" + productId);
+        product.setCountries(List.of(country));
+        product.setPrice(price);
+        product.setUpdatedAt(updatedAt);
+        return product;
+    }
+
+    private static List<String> ids(List<MockProduct> products) {
+        return products.stream().map(MockProduct::getProductId).toList();
+    }
+}
@@ -0,0 +1,63 @@
+package com.flyroamy.mock.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class QrCodeCacheTests {
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @Test
+    void leastRecentlyUsedImagesAreEvictedOverTheByteBudget() {
+        QrCodeCache cache = new QrCodeCache(300);
+        QrCodeCache.RenderedQrCode a = render(cache, "a");
+        render(cache, "b");
+        render(cache, "c");
+        assertEquals(3, renders.get());
+
+        // Touching a makes b the least recently used
+        assertSame(a, render(cache, "a"));
+        render(cache, "d");
+
+        assertEquals(1L, cache.getStats().get("evictions"));
+        assertEquals(300L, cache.getStats().get("bytes"));
+        assertSame(a, render(cache, "a"));
+        assertEquals(4, renders.get());
+        render(cache, "b");
+        assertEquals(5, renders.get());
+    }
+
+    @Test
+    void imageLargerThanTheBudgetIsNotCached() {
+        QrCodeCache cache = new QrCodeCache(50);
+
+        render(cache, "a");
+        render(cache, "a");
+
+        assertEquals(2, renders.get());
+        assertEquals(0, cache.getStats().get("entries"));
+    }
+
+    @Test
+    void etagDependsOnRenderSettingsAndContent() {
+        QrCodeCache cache = new QrCodeCache(1_000);
+
+        String etag = render(cache, "a").etag();
+
+        assertEquals(etag, cache.get("300", "a", () -> new byte[100]).etag());
+        assertNotEquals(etag, cache.get("600", "a", () -> new byte[100]).etag());
+        assertNotEquals(etag, render(cache, "b").etag());
+    }
+
+    private QrCodeCache.RenderedQrCode render(QrCodeCache cache, String content) {
+        return cache.get("300", content, () -> {
+            renders.incrementAndGet();
+            return new byte[100];
+        });
+    }
+}
@@ -0,0 +1,156 @@
+package com.flyroamy.mock.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QrImageStoreTests {
+
+    private static final int PNG_BYTES = 100;
+
+    @TempDir
+    Path directory;
+
+    private final List<QrImageStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() {
+        opened.forEach(QrImageStore::destroy);
+    }
+
+    @Test
+    void reopeningTruncatesATornFinalRecord() throws Exception {
+        QrImageStore store = open(1 << 20, "mongo");
+        store.backfill("esim_a", image('a'));
+        store.backfill("esim_b", image('b'));
+        awaitWrites(store);
+        store.destroy();
+
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        // A crash halfway through the next append: a key length promising more than was written
+        Files.write(segment, new byte[] {0, 0, 0, 6, 'e', 's'}, StandardOpenOption.APPEND);
+
+        QrImageStore reopened = open(1 << 20, "mongo");
+
+        assertEquals(size, Files.size(segment));
+        assertArrayEquals(png('a'), read(reopened, "esim_a"));
+        assertArrayEquals(png('b'), read(reopened, "esim_b"));
+        assertEquals("etag-b", reopened.find("esim_b").orElseThrow().etag());
+
+        // New records go after the last whole one
+        reopened.backfill("esim_c", image('c'));
+        awaitWrites(reopened);
+        assertArrayEquals(png('c'), read(reopened, "esim_c"));
+    }
+
+    @Test
+    void removedImageIsGoneAndItsSegmentCompacted() throws Exception {
+        // Room for one record per segment
+        QrImageStore store = open(PNG_BYTES + 50, "mongo");
+        store.backfill("esim_a", image('a'));
+        store.backfill("esim_b", image('b'));
+        awaitWrites(store);
+
+        store.remove("esim_a");
+        awaitWrites(store);
+
+        assertFalse(store.find("esim_a").isPresent());
+        assertArrayEquals(png('b'), read(store, "esim_b"));
+        assertEquals(1L, store.getStats().get("compactions"));
+        assertEquals(1, store.getStats().get("images"));
+    }
+
+    @Test
+    void liveImageIsServedFromItsNewSegmentAfterCompaction() throws Exception {
+        // Room for two records per segment
+        QrImageStore store = open(2 * (PNG_BYTES + 50), "mongo");
+        store.backfill("esim_a", image('a'));
+        store.backfill("esim_b", image('b'));
+        store.backfill("esim_c", image('c'));
+        awaitWrites(store);
+        Path before = store.find("esim_b").orElseThrow().file();
+
+        // Half of the first segment is now dead, so esim_b is copied out of it
+        store.remove("esim_a");
+        awaitWrites(store);
+
+        assertEquals(1L, store.getStats().get("compactions"));
+        QrImageStore.StoredImage moved = store.find("esim_b").orElseThrow();
+        assertNotEquals(before, moved.file());
+        assertEquals("etag-b", moved.etag());
+        assertArrayEquals(png('b'), read(store, "esim_b"));
+        assertArrayEquals(png('c'), read(store, "esim_c"));
+    }
+
+    @Test
+    void inMemoryStorageStartsWithAnEmptyStore() throws Exception {
+        QrImageStore store = open(1 << 20, "mongo");
+        store.backfill("esim_a", image('a'));
+        awaitWrites(store);
+        store.destroy();
+
+        QrImageStore reopened = open(1 << 20, "memory");
+
+        assertFalse(reopened.find("esim_a").isPresent());
+        assertTrue(segments().isEmpty());
+        reopened.backfill("esim_b", image('b'));
+        awaitWrites(reopened);
+        assertArrayEquals(png('b'), read(reopened, "esim_b"));
+    }
+
+    private QrImageStore open(long segmentBytes, String storage) {
+        QrImageStore store = new QrImageStore(new QrCodeService(new QrCodeCache(1 << 20)), true,
+            directory.toString(), segmentBytes, storage);
+        opened.add(store);
+        assertEquals(Boolean.TRUE, store.getStats().get("enabled"));
+        return store;
+    }
+
+    private static QrCodeCache.RenderedQrCode image(char fill) {
+        return new QrCodeCache.RenderedQrCode(png(fill), "etag-" + fill);
+    }
+
+    private static byte[] png(char fill) {
+        byte[] png = new byte[PNG_BYTES];
+        Arrays.fill(png, (byte) fill);
+        return png;
+    }
+
+    private static byte[] read(QrImageStore store, String esimId) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.transferTo(store.find(esimId).orElseThrow(), Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static void awaitWrites(QrImageStore store) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!Integer.valueOf(0).equals(store.getStats().get("pendingWrites"))) {
+            assertTrue(System.currentTimeMillis() < deadline, "QR store writes did not finish");
+            Thread.sleep(10);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.flyroamy.mock.service;
+
+import com.flyroamy.mock.dto.request.SimulateUsageRequest;
+import com.flyroamy.mock.dto.request.TrafficGeneratorRequest;
+import com.flyroamy.mock.dto.request.TrafficGeneratorRequest.Consumption;
+import com.flyroamy.mock.exception.InvalidRequestException;
+import com.flyroamy.mock.model.MockEsim;
+import com.flyroamy.mock.repository.memory.InMemoryEsimRepository;
+import com.flyroamy.mock.service.TrafficGeneratorService.EventRate;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrafficGeneratorServiceTests {
+
+    private static final int SAMPLES = 200_000;
+
+    @Test
+    void sampledMegabytesAverageTheConfiguredMean() {
+        for (String distribution : List.of("uniform", "exponential", "lognormal")) {
+            assertEquals(50.0, meanOf(consumption(distribution, 50, 1.0)), 1.5, distribution);
+        }
+        // Whatever the spread
+        assertEquals(50.0, meanOf(consumption("lognormal", 50, 0.5)), 1.5);
+        assertEquals(50.0, meanOf(consumption("lognormal", 50, 0.0)), 0.0);
+    }
+
+    @Test
+    void everyEventUsesAtLeastOneMegabyte() {
+        Consumption consumption = consumption("uniform", 1, 0);
+        for (int i = 0; i < SAMPLES; i++) {
+            int mb = TrafficGeneratorService.sampleMB(consumption, ThreadLocalRandom.current());
+            assertTrue(mb >= 1 && mb <= 2, Integer.toString(mb));
+        }
+    }
+
+    @Test
+    void rateCountsOnlyCompletedSeconds() {
+        EventRate rate = new EventRate(100);
+        rate.record(40, 100);
+        assertEquals(0.0, rate.perSecond(100));
+
+        rate.record(60, 101);
+        assertEquals(40.0, rate.perSecond(101));
+        assertEquals(50.0, rate.perSecond(102));
+    }
+
+    @Test
+    void rateAveragesOverTheLastTenSeconds() {
+        EventRate rate = new EventRate(0);
+        for (long second = 0; second < 30; second++) {
+            rate.record(10, second);
+        }
+        rate.record(100, 25);
+        assertEquals(20.0, rate.perSecond(30));
+
+        // Second 30 reuses the slot second 19 had, and starts it from zero
+        rate.record(5, 30);
+        assertEquals(19.5, rate.perSecond(31));
+        assertEquals(0.0, rate.perSecond(60));
+    }
+
+    @Test
+    void stoppedRunStillFinishingItsBatchesDoesNotBlockTheNextStart() throws Exception {
+        InMemoryEsimRepository esimRepository = new InMemoryEsimRepository();
+        MockEsim esim = new MockEsim();
+        esim.setEsimId("maya_traffic");
+        esim.setUid("esim_traffic");
+        esim.setIccid("traffic-1");
+        esim.setStatus("active");
+        esimRepository.save(esim);
+
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UsageBatchService usageBatchService = new UsageBatchService(esimRepository, null, null) {
+            @Override
+            public BatchUsageResult simulateUsage(List<SimulateUsageRequest> records) {
+                applying.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new BatchUsageResult(records.size());
+            }
+        };
+        TrafficGeneratorService service = new TrafficGeneratorService(esimRepository, usageBatchService);
+        TrafficGeneratorRequest request = new TrafficGeneratorRequest();
+        request.setEventsPerSecond(100);
+        request.setBatchSize(1);
+        request.setNetworkFlapProbability(0);
+
+        try {
+            service.start(request);
+            assertThrows(InvalidRequestException.class, () -> service.start(request));
+            assertTrue(applying.await(5, TimeUnit.SECONDS));
+
+            service.stop();
+            // The first run waits on its batch in flight, and the second starts anyway
+            assertEquals(Boolean.TRUE, service.getStatus().get("running"));
+            assertEquals(Boolean.TRUE, service.start(request).get("running"));
+            assertThrows(InvalidRequestException.class, () -> service.start(request));
+        } finally {
+            release.countDown();
+            service.destroy();
+        }
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!Boolean.FALSE.equals(service.getStatus().get("running"))) {
+            assertTrue(System.currentTimeMillis() < deadline, "Traffic generator did not stop");
+            Thread.sleep(10);
+        }
+        assertEquals("shutdown", service.getStatus().get("stopReason"));
+    }
+
+    private static double meanOf(Consumption consumption) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long total = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            total += TrafficGeneratorService.sampleMB(consumption, random);
+        }
+        return (double) total / SAMPLES;
+    }
+
+    private static Consumption consumption(String distribution, double meanMB, double sigma) {
+        Consumption consumption = new Consumption();
+        consumption.setDistribution(distribution);
+        consumption.setMeanMB(meanMB);
+        consumption.setSigma(sigma);
+        return consumption;
+    }
+}
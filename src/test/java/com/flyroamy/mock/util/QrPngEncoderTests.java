@@ -0,0 +1,54 @@
+package com.flyroamy.mock.util;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QrPngEncoderTests {
+
+    private static final String CONTENT = "LPA:1$smdp.example.com$K2-1A2B3C-4D5E6F";
+
+    @Test
+    void pixelsMatchTheMatrix() throws Exception {
+        // 300 and 301 wide: whole bytes per scanline and a partly filled last byte
+        for (int size : new int[] {300, 301}) {
+            BitMatrix matrix = encode(CONTENT, size);
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(QrPngEncoder.encode(matrix)));
+
+            assertEquals(matrix.getWidth(), image.getWidth());
+            assertEquals(matrix.getHeight(), image.getHeight());
+            for (int y = 0; y < matrix.getHeight(); y++) {
+                for (int x = 0; x < matrix.getWidth(); x++) {
+                    int expected = matrix.get(x, y) ? 0x000000 : 0xFFFFFF;
+                    assertEquals(expected, image.getRGB(x, y) & 0xFFFFFF, "pixel " + x + "," + y + " at size " + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void decodesToTheEncodedContent() throws Exception {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(QrPngEncoder.encode(encode(CONTENT, 300))));
+
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(image)));
+        assertEquals(CONTENT, new QRCodeReader().decode(bitmap).getText());
+    }
+
+    private static BitMatrix encode(String content, int size) throws Exception {
+        return new QRCodeWriter().encode(content, BarcodeFormat.QR_CODE, size, size,
+            Map.of(EncodeHintType.CHARACTER_SET, "UTF-8", EncodeHintType.MARGIN, 1));
+    }
+}
@@ -0,0 +1,98 @@
+package com.flyroamy.mock.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RandomIdsTests {
+
+    private static final int SAMPLES = 2_000;
+
+    @Test
+    void uuidIsACanonicalVersion4Uuid() {
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            String id = RandomIds.uuid();
+            UUID parsed = UUID.fromString(id);
+
+            assertEquals(36, id.length());
+            assertEquals(parsed.toString(), id);
+            assertEquals(4, parsed.version(), id);
+            assertEquals(2, parsed.variant(), id);
+            seen.add(id);
+        }
+        assertEquals(SAMPLES, seen.size());
+    }
+
+    @Test
+    void uuidRandomDigitsTakeEveryValue() {
+        // Position 14 is the version digit; 19, the variant digit, only takes 8 to b
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            ids.add(RandomIds.uuid());
+        }
+        for (int position = 0; position < 36; position++) {
+            if (position == 8 || position == 13 || position == 18 || position == 23) {
+                continue;
+            }
+            Set<Character> digits = digitsAt(ids, position);
+            if (position == 14) {
+                assertEquals(Set.of('4'), digits);
+            } else if (position == 19) {
+                assertEquals(Set.of('8', '9', 'a', 'b'), digits);
+            } else {
+                assertEquals(16, digits.size(), "position " + position);
+            }
+        }
+    }
+
+    @Test
+    void hexKeepsThePrefixAndHasTheRequestedLength() {
+        Pattern lowerHex = Pattern.compile("[0-9a-f]*");
+        for (int digits : new int[] {0, 1, 15, 16, 17, 33}) {
+            String id = RandomIds.hex("maya_", digits);
+
+            assertEquals(5 + digits, id.length(), id);
+            assertTrue(id.startsWith("maya_"), id);
+            assertTrue(lowerHex.matcher(id.substring(5)).matches(), id);
+        }
+        assertEquals(12, RandomIds.hex("", 12).length());
+    }
+
+    @Test
+    void hexDigitsTakeEveryValueAcrossRandomLongs() {
+        // 20 digits come from two random longs
+        List<String> lower = new ArrayList<>();
+        List<String> upper = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            lower.add(RandomIds.hex("esim_", 20));
+            upper.add(RandomIds.upperHex(20));
+        }
+        for (int position = 0; position < 20; position++) {
+            assertEquals(toSet("0123456789abcdef"), digitsAt(lower, 5 + position), "position " + position);
+            assertEquals(toSet("0123456789ABCDEF"), digitsAt(upper, position), "position " + position);
+        }
+    }
+
+    private static Set<Character> digitsAt(List<String> ids, int position) {
+        Set<Character> digits = new HashSet<>();
+        ids.forEach(id -> digits.add(id.charAt(position)));
+        return digits;
+    }
+
+    private static Set<Character> toSet(String alphabet) {
+        Set<Character> characters = new HashSet<>();
+        for (char c : alphabet.toCharArray()) {
+            characters.add(c);
+        }
+        return characters;
+    }
+}
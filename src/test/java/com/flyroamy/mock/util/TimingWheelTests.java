@@ -0,0 +1,76 @@
+package com.flyroamy.mock.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTests {
+
+    // One past the reach of the top level, 64^6 ticks
+    private static final long MAX_SPAN = 1L << 36;
+
+    @Test
+    void deadlinesOnLevelBoundariesComeDueOnTheirTick() {
+        // 63 and 4095 are the last ticks of levels 0 and 1; 64 and 4096 the first of levels 1 and 2
+        for (long start : new long[] {0, 1, 1000, 4095}) {
+            for (long offset : new long[] {63, 64, 4095, 4096}) {
+                TimingWheel<String> wheel = new TimingWheel<>(start);
+                wheel.schedule("item", start + offset);
+
+                assertEquals(List.of(), wheel.advance(start + offset - 1), "early at " + start + "+" + offset);
+                assertEquals(List.of("item"), wheel.advance(start + offset), "due at " + start + "+" + offset);
+                assertEquals(0, wheel.size());
+            }
+        }
+    }
+
+    @Test
+    void passedDeadlinesComeDueOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(100);
+        wheel.advance(200);
+        wheel.schedule("passed", 50);
+        wheel.schedule("now", 201);
+
+        assertEquals(List.of("passed", "now"), wheel.advance(201));
+        assertEquals(202, wheel.getCurrentTick());
+        // A tick already handed out moves nothing
+        wheel.schedule("late", 10);
+        assertEquals(List.of(), wheel.advance(150));
+        assertEquals(List.of("late"), wheel.advance(202));
+    }
+
+    @Test
+    void itemsBeyondTheTopLevelAreKeptUntilDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(7);
+        wheel.schedule("far", 7 + MAX_SPAN + 5);
+        wheel.schedule("farther", 7 + 3 * MAX_SPAN);
+        wheel.schedule("near", 7 + 262_144);
+
+        // Three whole levels go by, cascading every slot below the top
+        assertEquals(List.of("near"), wheel.advance(7 + 262_144));
+        assertEquals(2, wheel.size());
+    }
+
+    @Test
+    void sizeCountsItemsUntilTheyComeDue() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(0);
+        for (int i = 0; i < 10_000; i++) {
+            wheel.schedule(i, i);
+        }
+        wheel.schedule(-1, MAX_SPAN * 2);
+        assertEquals(10_001, wheel.size());
+
+        int handedOut = 0;
+        for (long tick = 0; tick < 10_000; tick += 37) {
+            List<Integer> due = wheel.advance(tick);
+            handedOut += due.size();
+            assertEquals(10_001 - handedOut, wheel.size());
+            assertTrue(due.stream().allMatch(item -> item <= wheel.getCurrentTick() - 1));
+        }
+        assertEquals(10_000, handedOut + wheel.advance(10_000).size());
+        assertEquals(1, wheel.size());
+    }
+}
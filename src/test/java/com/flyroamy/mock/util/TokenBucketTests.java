@@ -0,0 +1,69 @@
+package com.flyroamy.mock.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTests {
+
+    @Test
+    void rateAndCapacityMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+    }
+
+    @Test
+    void burstUpToTheCapacityDoesNotWait() throws InterruptedException {
+        // One more token would take a second
+        TokenBucket bucket = new TokenBucket(1, 100);
+
+        long start = System.nanoTime();
+        bucket.acquire(60);
+        bucket.acquire(40);
+
+        assertTrue(elapsedMillis(start) < 500, elapsedMillis(start) + " ms");
+    }
+
+    @Test
+    void requestLargerThanTheBalanceWaitsForTheRefill() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 10);
+        bucket.acquire(10);
+
+        long start = System.nanoTime();
+        bucket.acquire(200);
+
+        assertTrue(elapsedMillis(start) >= 180, elapsedMillis(start) + " ms");
+    }
+
+    @Test
+    void longRunRateHoldsHoweverPermitsAreBatched() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(2000, 50);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            bucket.acquire(7);
+            bucket.acquire(93);
+        }
+
+        // 1000 permits less the initial burst of 50, at 2000 a second
+        assertTrue(elapsedMillis(start) >= 450, elapsedMillis(start) + " ms");
+    }
+
+    @Test
+    void interruptedWaitThrows() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        bucket.acquire(1);
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> bucket.acquire(1));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
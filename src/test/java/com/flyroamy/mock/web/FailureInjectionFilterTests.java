@@ -0,0 +1,137 @@
+package com.flyroamy.mock.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flyroamy.mock.config.MockBehaviorConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FailureInjectionFilterTests {
+
+    @RestController
+    static class EchoController {
+
+        @RequestMapping("/**")
+        String echo() {
+            return "ok";
+        }
+    }
+
+    @Test
+    void routeMethodsThenRouteRateThenGlobalMethodsThenGlobalRate() throws Exception {
+        MockBehaviorConfig config = new MockBehaviorConfig();
+        MockBehaviorConfig.Failure failure = config.getFailure();
+        failure.setRate(0.0);
+        failure.setTypes(List.of("SERVER_ERROR"));
+        failure.setMethods(Map.of("post", 1.0));
+        // Own rate: replaces the global method rates, overridden by its own methods
+        failure.getRoutes().put("/rated/**", profile(1.0, Map.of("GET", 0.0)));
+        // No rate of its own: keeps the global method rates and adds its own
+        failure.getRoutes().put("/unrated/**", profile(null, Map.of("DELETE", 1.0)));
+        MockMvc mockMvc = mockMvc(config);
+
+        // Global
+        expectPassed(mockMvc, HttpMethod.GET, "/other");
+        expectInjected(mockMvc, HttpMethod.POST, "/other", 500);
+        // Route methods, then route rate
+        expectPassed(mockMvc, HttpMethod.GET, "/rated/a");
+        expectInjected(mockMvc, HttpMethod.PUT, "/rated/a", 500);
+        expectInjected(mockMvc, HttpMethod.POST, "/rated/a", 500);
+        // Route methods, then global methods, then global rate
+        expectInjected(mockMvc, HttpMethod.DELETE, "/unrated/a", 500);
+        expectInjected(mockMvc, HttpMethod.POST, "/unrated/a", 500);
+        expectPassed(mockMvc, HttpMethod.GET, "/unrated/a");
+        // Excluded paths are never failed
+        expectPassed(mockMvc, HttpMethod.POST, "/v1/admin/seed");
+    }
+
+    @Test
+    void routeTypesReplaceTheDefaultTypes() throws Exception {
+        MockBehaviorConfig config = new MockBehaviorConfig();
+        config.getFailure().setRate(1.0);
+        config.getFailure().setTypes(List.of("BAD_GATEWAY"));
+        MockBehaviorConfig.FailureProfile route = profile(null, Map.of());
+        route.setTypes(List.of("SERVICE_UNAVAILABLE"));
+        config.getFailure().getRoutes().put("/typed/**", route);
+        MockMvc mockMvc = mockMvc(config);
+
+        expectInjected(mockMvc, HttpMethod.GET, "/typed/a", 503);
+        expectInjected(mockMvc, HttpMethod.GET, "/other", 502);
+    }
+
+    @Test
+    void rateLimitedAnswers429WithRetryAfter() throws Exception {
+        MockBehaviorConfig config = new MockBehaviorConfig();
+        config.getFailure().setRate(1.0);
+        config.getFailure().setTypes(List.of("RATE_LIMITED"));
+        config.getFailure().setRetryAfterSeconds(7);
+
+        mockMvc(config).perform(request(HttpMethod.GET, "/connectivity/v1/esim"))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string(HttpHeaders.RETRY_AFTER, "7"))
+            .andExpect(header().string(FailureInjectionFilter.FAILURE_HEADER, "RATE_LIMITED"))
+            .andExpect(jsonPath("$.status").value(429));
+    }
+
+    @Test
+    void ratesOutsideZeroToOneAreRejected() {
+        MockBehaviorConfig global = new MockBehaviorConfig();
+        global.getFailure().setRate(1.5);
+        assertThrows(IllegalArgumentException.class, () -> filter(global));
+
+        MockBehaviorConfig method = new MockBehaviorConfig();
+        method.getFailure().setMethods(Map.of("POST", -0.1));
+        assertThrows(IllegalArgumentException.class, () -> filter(method));
+
+        MockBehaviorConfig route = new MockBehaviorConfig();
+        route.getFailure().getRoutes().put("/a/**", profile(Double.NaN, Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> filter(route));
+
+        MockBehaviorConfig routeMethod = new MockBehaviorConfig();
+        routeMethod.getFailure().getRoutes().put("/a/**", profile(null, Map.of("GET", 2.0)));
+        assertThrows(IllegalArgumentException.class, () -> filter(routeMethod));
+    }
+
+    private static MockBehaviorConfig.FailureProfile profile(Double rate, Map<String, Double> methods) {
+        MockBehaviorConfig.FailureProfile profile = new MockBehaviorConfig.FailureProfile();
+        profile.setRate(rate);
+        profile.setMethods(methods);
+        return profile;
+    }
+
+    private static FailureInjectionFilter filter(MockBehaviorConfig config) {
+        return new FailureInjectionFilter(config, new ObjectMapper());
+    }
+
+    private static MockMvc mockMvc(MockBehaviorConfig config) {
+        return MockMvcBuilders.standaloneSetup(new EchoController())
+            .addFilters(filter(config))
+            .build();
+    }
+
+    private static void expectPassed(MockMvc mockMvc, HttpMethod method, String path) throws Exception {
+        mockMvc.perform(request(method, path))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(FailureInjectionFilter.FAILURE_HEADER));
+    }
+
+    private static void expectInjected(MockMvc mockMvc, HttpMethod method, String path, int expectedStatus)
+            throws Exception {
+        mockMvc.perform(request(method, path))
+            .andExpect(status().is(expectedStatus))
+            .andExpect(header().exists(FailureInjectionFilter.FAILURE_HEADER));
+    }
+}
@@ -0,0 +1,94 @@
+package com.flyroamy.mock.web;
+
+import com.flyroamy.mock.config.MockBehaviorConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyInjectionFilterTests {
+
+    @Test
+    void histogramPicksTheFirstBucketWhoseCumulativeCountExceedsTheTarget() {
+        // Cumulative counts 1, 4, 10: the empty bucket at 20 ms is dropped
+        LatencyInjectionFilter.Histogram histogram = histogram(0, 1000,
+            Map.of(10, 1L, 20, 0L, 30, 3L, 40, 6L));
+
+        assertEquals(0, histogram.bucketOf(0));
+        assertEquals(1, histogram.bucketOf(1));
+        assertEquals(1, histogram.bucketOf(3));
+        assertEquals(2, histogram.bucketOf(4));
+        assertEquals(2, histogram.bucketOf(9));
+    }
+
+    @Test
+    void histogramSamplesStayInsideTheirBuckets() {
+        LatencyInjectionFilter.Histogram histogram = histogram(0, 1000, Map.of(100, 1L, 200, 1L));
+
+        for (int i = 0; i < 10_000; i++) {
+            long delay = histogram.sample();
+            assertTrue(delay >= 0 && delay <= 200, "delay " + delay);
+        }
+    }
+
+    @Test
+    void samplesAreClampedToTheProfileBounds() {
+        LatencyInjectionFilter.Histogram histogram = histogram(150, 160, Map.of(100, 1L, 1000, 1L));
+        boolean sawMin = false;
+        boolean sawMax = false;
+        for (int i = 0; i < 10_000; i++) {
+            long delay = histogram.sample();
+            assertTrue(delay >= 150 && delay <= 160, "delay " + delay);
+            sawMin |= delay == 150;
+            sawMax |= delay == 160;
+        }
+        assertTrue(sawMin && sawMax);
+
+        // A maximum under the minimum collapses onto the minimum
+        assertEquals(80, LatencyInjectionFilter.Sampler.of(profile("uniform", 80, 40)).sample());
+    }
+
+    @Test
+    void histogramNeedsABucketWithACount() {
+        assertThrows(IllegalArgumentException.class, () -> histogram(0, 100, Map.of(10, 0L)));
+    }
+
+    @Test
+    void routeProfilesInheritUnsetFieldsFromTheDefaults() {
+        MockBehaviorConfig.Latency defaults = new MockBehaviorConfig.Latency();
+        defaults.setMinMs(5);
+        defaults.setMaxMs(900);
+        defaults.setSigma(1.5);
+        MockBehaviorConfig.LatencyProfile route = new MockBehaviorConfig.LatencyProfile();
+        route.setDistribution("lognormal");
+        route.setMaxMs(2000);
+
+        MockBehaviorConfig.LatencyProfile resolved = route.withDefaults(defaults);
+
+        assertEquals(Integer.valueOf(5), resolved.getMinMs());
+        assertEquals(Integer.valueOf(2000), resolved.getMaxMs());
+        assertEquals("lognormal", resolved.getDistribution());
+        assertEquals(Integer.valueOf(0), resolved.getMedianMs());
+        assertEquals(Double.valueOf(1.5), resolved.getSigma());
+        assertInstanceOf(LatencyInjectionFilter.LogNormal.class, LatencyInjectionFilter.Sampler.of(resolved));
+    }
+
+    private static LatencyInjectionFilter.Histogram histogram(int minMs, int maxMs, Map<Integer, Long> buckets) {
+        MockBehaviorConfig.LatencyProfile profile = profile("histogram", minMs, maxMs);
+        profile.setHistogram(buckets);
+        return new LatencyInjectionFilter.Histogram(profile);
+    }
+
+    private static MockBehaviorConfig.LatencyProfile profile(String distribution, int minMs, int maxMs) {
+        MockBehaviorConfig.LatencyProfile profile = new MockBehaviorConfig.LatencyProfile()
+            .withDefaults(new MockBehaviorConfig.Latency());
+        profile.setDistribution(distribution);
+        profile.setMinMs(minMs);
+        profile.setMaxMs(maxMs);
+        return profile;
+    }
+}